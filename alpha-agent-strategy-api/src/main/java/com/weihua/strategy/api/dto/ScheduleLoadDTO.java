@@ -0,0 +1,42 @@
+package com.weihua.strategy.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 调度负载预测 DTO
+ * 按当前排期推算未来一段时间内每秒触发的交易循环数；
+ * 每个循环约产生 2 次 Stock-MCP 请求 (价格 + 指标) 和 1 次 LLM 请求
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduleLoadDTO implements Serializable {
+
+    /** 错峰模式 (NONE, HASH, CANDLE_CLOSE) */
+    private String staggerMode;
+
+    /** 已排期的策略数 */
+    private Integer scheduledStrategies;
+
+    /** 预测窗口 (秒) */
+    private Integer windowSeconds;
+
+    /** 窗口内触发的交易循环总数 */
+    private Integer totalCycles;
+
+    /** 单秒最大触发数 */
+    private Integer peakPerSecond;
+
+    /** 平均每秒触发数 */
+    private Double averagePerSecond;
+
+    /** 每秒触发数，下标为距今秒数 */
+    private List<Integer> perSecond;
+}
@@ -44,4 +44,7 @@ public class TradingConfigDTO implements Serializable {
     
     /** 止盈百分比 */
     private BigDecimal takeProfitPercentage;
+
+    /** 调度优先级 (0-10)，越大越优先，默认 0 */
+    private Integer priority;
 }
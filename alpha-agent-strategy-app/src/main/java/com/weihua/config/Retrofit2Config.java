@@ -7,32 +7,100 @@
  */
 package com.weihua.config;
 
+import com.weihua.infrastructure.config.MarketDataProperties;
 import com.weihua.infrastructure.gateway.IStockMcpService;
+import com.weihua.infrastructure.gateway.StockMcpPriceStream;
+import com.weihua.infrastructure.gateway.UpstreamConcurrencyInterceptor;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import retrofit2.Retrofit;
 import retrofit2.converter.jackson.JacksonConverterFactory;
 
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Retrofit2 HTTP 客户端配置
- * 用于调用 Stock MCP 服务
+ * 用于调用 Stock MCP 服务，连接池、超时与并发上限由 stock-mcp.http 配置
  */
+@Slf4j
 @Configuration
+@EnableConfigurationProperties(StockMcpClientProperties.class)
 public class Retrofit2Config {
 
     @Value("${stock-mcp.base-url:http://localhost:9898}")
     private String stockMcpBaseUrl;
 
+    /**
+     * Stock MCP 共享 HTTP 客户端
+     */
+    @Bean
+    public OkHttpClient stockMcpHttpClient(StockMcpClientProperties properties, MeterRegistry meterRegistry) {
+        ConnectionPool connectionPool = new ConnectionPool(properties.getMaxIdleConnections(),
+                properties.getKeepAliveMs(), TimeUnit.MILLISECONDS);
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(properties.getMaxRequests());
+        dispatcher.setMaxRequestsPerHost(properties.getMaxRequestsPerHost());
+
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .connectionPool(connectionPool)
+                .dispatcher(dispatcher)
+                .connectTimeout(properties.getConnectTimeoutMs(), TimeUnit.MILLISECONDS)
+                .readTimeout(properties.getReadTimeoutMs(), TimeUnit.MILLISECONDS)
+                .writeTimeout(properties.getWriteTimeoutMs(), TimeUnit.MILLISECONDS)
+                .callTimeout(properties.getCallTimeoutMs(), TimeUnit.MILLISECONDS)
+                .addInterceptor(new UpstreamConcurrencyInterceptor(properties.getMaxRequestsPerHost(), meterRegistry));
+        if (Boolean.TRUE.equals(properties.getH2c())) {
+            builder.protocols(Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE));
+        }
+
+        // 连接池使用情况
+        Gauge.builder("market.upstream.http.connections", connectionPool, ConnectionPool::connectionCount)
+                .tag("state", "total").description("Stock MCP 连接池中的连接数").register(meterRegistry);
+        Gauge.builder("market.upstream.http.connections", connectionPool, ConnectionPool::idleConnectionCount)
+                .tag("state", "idle").description("Stock MCP 连接池中的空闲连接数").register(meterRegistry);
+        Gauge.builder("market.upstream.http.dispatcher.queued", dispatcher, Dispatcher::queuedCallsCount)
+                .description("Dispatcher 中排队的异步调用数").register(meterRegistry);
+
+        log.info("Stock MCP HTTP client: maxIdleConnections={}, maxRequestsPerHost={}, callTimeoutMs={}, h2c={}",
+                properties.getMaxIdleConnections(), properties.getMaxRequestsPerHost(),
+                properties.getCallTimeoutMs(), properties.getH2c());
+        return builder.build();
+    }
+
     /**
      * 创建 Stock MCP 服务客户端
      */
     @Bean
-    public IStockMcpService stockMcpService() {
+    public IStockMcpService stockMcpService(OkHttpClient stockMcpHttpClient) {
         Retrofit retrofit = new Retrofit.Builder()
                 .baseUrl(stockMcpBaseUrl)
+                .client(stockMcpHttpClient)
                 .addConverterFactory(JacksonConverterFactory.create())
                 .build();
         return retrofit.create(IStockMcpService.class);
     }
+
+    /**
+     * Stock MCP 价格推送订阅，price-source=STREAM 时由行情端口启动
+     */
+    @Bean(destroyMethod = "close")
+    public StockMcpPriceStream stockMcpPriceStream(OkHttpClient stockMcpHttpClient, MarketDataProperties marketDataProperties,
+                                                   MeterRegistry meterRegistry) {
+        return new StockMcpPriceStream(stockMcpHttpClient,
+                stockMcpBaseUrl + marketDataProperties.getPriceStreamPath(),
+                marketDataProperties.getPriceStreamIdleTimeoutMs(),
+                marketDataProperties.getPriceStreamReconnectMinMs(),
+                marketDataProperties.getPriceStreamReconnectMaxMs(),
+                meterRegistry);
+    }
 }
@@ -0,0 +1,35 @@
+package com.weihua.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Stock MCP HTTP 客户端配置
+ */
+@Data
+@ConfigurationProperties(prefix = "stock-mcp.http", ignoreInvalidFields = true)
+public class StockMcpClientProperties {
+
+    /** 连接超时 (毫秒) */
+    private Long connectTimeoutMs = 2000L;
+    /** 读超时 (毫秒) */
+    private Long readTimeoutMs = 10000L;
+    /** 写超时 (毫秒) */
+    private Long writeTimeoutMs = 10000L;
+    /** 整个调用 (含排队、重定向与重试) 的默认超时 (毫秒)，循环截止时间会进一步缩短单次调用的超时 */
+    private Long callTimeoutMs = 15000L;
+    /** 连接池最大空闲连接数 */
+    private Integer maxIdleConnections = 32;
+    /** 空闲连接保活时长 (毫秒) */
+    private Long keepAliveMs = 300000L;
+    /** 全部 host 的最大并发请求数 (异步调用) */
+    private Integer maxRequests = 256;
+    /** 单个 host 的最大并发请求数，同步调用同样受限，超出的请求排队 */
+    private Integer maxRequestsPerHost = 64;
+    /**
+     * 明文 HTTP/2 (h2c prior knowledge)，仅当服务端支持 h2c 且 base-url 为 http 时开启；
+     * https 下通过 ALPN 自动协商 HTTP/2
+     */
+    private Boolean h2c = false;
+
+}
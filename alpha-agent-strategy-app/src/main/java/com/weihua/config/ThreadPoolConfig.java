@@ -1,11 +1,13 @@
 package com.weihua.config;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 import java.util.concurrent.*;
 
@@ -47,4 +49,33 @@ public class ThreadPoolConfig {
                 handler);
     }
 
+    /**
+     * 交易循环执行器
+     * VIRTUAL：每个循环一个虚拟线程，阻塞在 LLM / HTTP 调用上不占用平台线程
+     * POOL：复用 threadPoolExecutor
+     */
+    @Bean(name = "strategyCycleExecutor", destroyMethod = "shutdown")
+    public ExecutorService strategyCycleExecutor(ThreadPoolExecutor threadPoolExecutor,
+                                                 @Value("${strategy.scheduler.executor:VIRTUAL}") String executor) {
+        if ("POOL".equalsIgnoreCase(executor)) {
+            log.info("Strategy cycle executor: shared thread pool");
+            return threadPoolExecutor;
+        }
+        log.info("Strategy cycle executor: virtual threads");
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("strategy-cycle-", 0).factory());
+    }
+
+    /**
+     * @Scheduled 任务调度器
+     * 时间轮 tick、分布式任务领取、对账与清理共用；默认单线程时任一任务阻塞 (如 SEQUENTIAL 模式的 tick)
+     * 都会推迟其他任务，因此使用独立线程池
+     */
+    @Bean(name = "taskScheduler")
+    public ThreadPoolTaskScheduler taskScheduler(@Value("${strategy.scheduler.scheduler-pool-size:4}") int poolSize) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("strategy-scheduler-");
+        return scheduler;
+    }
+
 }
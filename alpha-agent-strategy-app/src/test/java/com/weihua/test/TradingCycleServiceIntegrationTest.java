@@ -9,6 +9,7 @@ import com.weihua.strategy.domain.model.entity.StrategyConfigEntity;
 import com.weihua.strategy.domain.model.entity.TradeInstruction;
 import com.weihua.strategy.domain.model.entity.TradePlan;
 import com.weihua.strategy.domain.model.valobj.StrategyStatus;
+import com.weihua.strategy.domain.model.valobj.TechnicalIndicators;
 import com.weihua.strategy.domain.model.valobj.TradeAction;
 import com.weihua.strategy.domain.repository.ITradingCycleRepository;
 import com.weihua.strategy.domain.repository.IVirtualAccountRepository;
@@ -31,6 +32,7 @@ import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
@@ -96,8 +98,10 @@ public class TradingCycleServiceIntegrationTest {
                 .build();
         Map<String, MarketSnapshotEntity> marketMap = new HashMap<>();
         marketMap.put("BTC", market);
-        when(marketDataPort.fetchLatestPrices(any())).thenReturn(marketMap);
-        when(marketDataPort.fetchTechnicalIndicators("BTC")).thenReturn("{}");
+        when(marketDataPort.fetchLatestPrices(any(), any())).thenReturn(marketMap);
+        when(marketDataPort.fetchTechnicalIndicators(eq("BTC"), any())).thenReturn(TechnicalIndicators.builder().build());
+        when(marketDataPort.fetchLatestPricesAsync(any(), any())).thenCallRealMethod();
+        when(marketDataPort.fetchTechnicalIndicatorsAsync(any(), any())).thenCallRealMethod();
 
         // 4️⃣ Mock LLM 返回的 TradePlan
         TradeInstruction buyInstruction = TradeInstruction.builder()
@@ -116,7 +120,7 @@ public class TradingCycleServiceIntegrationTest {
                 .rationale("test plan")
                 .instructions(List.of(buyInstruction, sellInstruction))
                 .build();
-        Mockito.when(llmPort.askForPlan(Mockito.anyString(), Mockito.any(), Mockito.any(), Mockito.any())).thenReturn(plan);
+        Mockito.when(llmPort.askForPlan(Mockito.anyString(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any())).thenReturn(plan);
     }
 
     @Test
@@ -0,0 +1,86 @@
+package com.weihua.test.engine;
+
+import com.weihua.strategy.domain.adapter.port.ILlmPort;
+import com.weihua.strategy.domain.model.aggregate.StrategyInstanceAggregate;
+import com.weihua.strategy.domain.model.aggregate.VirtualAccountAggregate;
+import com.weihua.strategy.domain.model.entity.MarketSnapshotEntity;
+import com.weihua.strategy.domain.model.entity.StrategyConfigEntity;
+import com.weihua.strategy.domain.model.entity.TradePlan;
+import com.weihua.strategy.domain.model.valobj.CycleDeadline;
+import com.weihua.strategy.domain.model.valobj.MarketContext;
+import com.weihua.strategy.domain.model.valobj.StrategyStatus;
+import com.weihua.strategy.domain.repository.IStrategyInstanceRepository;
+import com.weihua.strategy.domain.service.StrategyComposerDomainService;
+import com.weihua.strategy.domain.service.rule.TradeRuleService;
+import com.weihua.types.exception.AppException;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * StrategyComposerDomainService 时间预算单元测试
+ * 测试重新加载策略配置后预算已耗尽时不再调用 LLM、预算内正常调用
+ */
+@Slf4j
+public class StrategyComposerBudgetTest {
+
+    private ILlmPort llmPort;
+    private StrategyComposerDomainService composerService;
+    private MarketContext context;
+
+    @Before
+    public void setUp() {
+        IStrategyInstanceRepository strategyRepository = mock(IStrategyInstanceRepository.class);
+        when(strategyRepository.findByStrategyId("s1")).thenReturn(StrategyInstanceAggregate.builder()
+                .strategyId("s1")
+                .status(StrategyStatus.RUNNING)
+                .config(StrategyConfigEntity.builder().symbols(List.of("BTC/USDT")).build())
+                .build());
+        llmPort = mock(ILlmPort.class);
+        when(llmPort.askForPlan(eq("s1"), any(), any(), any(), any()))
+                .thenReturn(TradePlan.builder().rationale("HOLD").instructions(new ArrayList<>()).build());
+        composerService = new StrategyComposerDomainService(llmPort, mock(TradeRuleService.class), strategyRepository);
+
+        context = MarketContext.builder()
+                .strategyId("s1")
+                .primaryMarket(MarketSnapshotEntity.builder().symbol("BTC/USDT").price(new BigDecimal("90000")).build())
+                .account(VirtualAccountAggregate.builder()
+                        .strategyId("s1")
+                        .balance(new BigDecimal("10000"))
+                        .positions(new HashMap<>())
+                        .build())
+                .build();
+    }
+
+    @Test
+    public void testExpiredAfterStrategyLoadSkipsLlm() {
+        try {
+            composerService.proposePlan(context, CycleDeadline.after(Duration.ZERO));
+            fail("expired budget should stop before the LLM call");
+        } catch (AppException e) {
+            assertTrue(CycleDeadline.isDeadlineExceeded(e));
+        }
+        verify(llmPort, never()).askForPlan(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void testWithinBudgetAsksLlm() {
+        CycleDeadline deadline = CycleDeadline.after(Duration.ofMinutes(1));
+
+        TradePlan plan = composerService.proposePlan(context, deadline);
+
+        assertEquals("HOLD", plan.getRationale());
+        verify(llmPort).askForPlan(eq("s1"), any(), any(), any(), eq(deadline));
+    }
+}
@@ -0,0 +1,165 @@
+package com.weihua.test.engine;
+
+import com.weihua.strategy.application.engine.TradingCycleEngine;
+import com.weihua.strategy.application.guard.CycleBudgetPolicy;
+import com.weihua.strategy.application.lifecycle.CycleDrainCoordinator;
+import com.weihua.strategy.domain.model.entity.DecisionEntity;
+import com.weihua.strategy.domain.model.entity.TradePlan;
+import com.weihua.strategy.domain.model.valobj.CycleDeadline;
+import com.weihua.strategy.domain.model.valobj.MarketContext;
+import com.weihua.strategy.domain.service.MarketAnalysisDomainService;
+import com.weihua.strategy.domain.service.StrategyComposerDomainService;
+import com.weihua.strategy.domain.service.TradeExecutionDomainService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * TradingCycleEngine 单元测试
+ * 测试突发提交时 LLM 阶段并发受限、上下文缺失跳过、阶段异常隔离、超出预算取消
+ */
+@Slf4j
+public class TradingCycleEngineTest {
+
+    private static final int LLM_CONCURRENCY = 2;
+
+    private MarketAnalysisDomainService marketService;
+    private StrategyComposerDomainService composerService;
+    private TradeExecutionDomainService executionService;
+    private CycleDrainCoordinator drainCoordinator;
+    private TradingCycleEngine engine;
+
+    @Before
+    public void setUp() {
+        marketService = mock(MarketAnalysisDomainService.class);
+        composerService = mock(StrategyComposerDomainService.class);
+        executionService = mock(TradeExecutionDomainService.class);
+
+        CycleBudgetPolicy budgetPolicy = new CycleBudgetPolicy();
+        ReflectionTestUtils.setField(budgetPolicy, "enabled", true);
+        ReflectionTestUtils.setField(budgetPolicy, "ratio", 1.0);
+        ReflectionTestUtils.setField(budgetPolicy, "contextRatio", 0.3);
+        ReflectionTestUtils.setField(budgetPolicy, "llmRatio", 0.6);
+        ReflectionTestUtils.setField(budgetPolicy, "defaultIntervalSeconds", 60);
+
+        drainCoordinator = mock(CycleDrainCoordinator.class);
+        when(drainCoordinator.begin(anyString(), anyString())).thenReturn(true);
+
+        engine = new TradingCycleEngine(marketService, composerService, executionService, budgetPolicy,
+                drainCoordinator, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(engine, "queueCapacity", 1024);
+        ReflectionTestUtils.setField(engine, "contextConcurrency", 4);
+        ReflectionTestUtils.setField(engine, "llmConcurrency", LLM_CONCURRENCY);
+        ReflectionTestUtils.setField(engine, "ruleConcurrency", 1);
+        ReflectionTestUtils.setField(engine, "persistConcurrency", 2);
+        engine.start();
+
+        when(marketService.prepareContext(anyString(), any()))
+                .thenAnswer(inv -> MarketContext.builder().strategyId(inv.getArgument(0)).build());
+        when(composerService.applyRules(any(), any())).thenReturn(DecisionEntity.builder().build());
+    }
+
+    @After
+    public void tearDown() {
+        engine.stop();
+    }
+
+    @Test
+    public void testBurstIsBoundedAtLlmStage() throws Exception {
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        // 前 LLM_CONCURRENCY 个调用互相等待，直到阶段并发打满后才一起返回
+        CountDownLatch saturated = new CountDownLatch(LLM_CONCURRENCY);
+        when(composerService.proposePlan(any(), any())).thenAnswer(inv -> {
+            int now = active.incrementAndGet();
+            maxActive.accumulateAndGet(now, Math::max);
+            saturated.countDown();
+            try {
+                saturated.await(5, TimeUnit.SECONDS);
+            } finally {
+                active.decrementAndGet();
+            }
+            return TradePlan.builder().build();
+        });
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            futures.add(engine.submit("s" + i, CycleDeadline.none()));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+
+        log.info("LLM stage max concurrency observed: {}", maxActive.get());
+        assertEquals(LLM_CONCURRENCY, maxActive.get());
+        verify(executionService, times(200)).executeAndPersist(anyString(), any(), any(), any());
+    }
+
+    @Test
+    public void testMissingContextSkipsRemainingStages() throws Exception {
+        when(marketService.prepareContext(eq("skip"), any())).thenReturn(null);
+
+        engine.submit("skip", CycleDeadline.none()).get(5, TimeUnit.SECONDS);
+
+        verify(composerService, never()).proposePlan(any(), any());
+        verify(executionService, never()).executeAndPersist(anyString(), any(), any(), any());
+    }
+
+    @Test
+    public void testStageFailureOnlyFailsItsOwnCycle() throws Exception {
+        when(composerService.proposePlan(any(), any())).thenAnswer(inv -> {
+            MarketContext context = inv.getArgument(0);
+            if ("bad".equals(context.getStrategyId())) {
+                throw new IllegalStateException("llm down");
+            }
+            return TradePlan.builder().build();
+        });
+
+        CompletableFuture<Void> bad = engine.submit("bad", CycleDeadline.none());
+        CompletableFuture<Void> good = engine.submit("good", CycleDeadline.none());
+
+        try {
+            bad.get(5, TimeUnit.SECONDS);
+            fail("失败的循环应异常完成");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        good.get(5, TimeUnit.SECONDS);
+        verify(executionService, times(1)).executeAndPersist(anyString(), any(), any(), any());
+    }
+
+    @Test
+    public void testExpiredCycleIsCancelledBeforeNextStage() throws Exception {
+        when(composerService.proposePlan(any(), any())).thenAnswer(inv -> {
+            // LLM 调用一直持续到整个循环的截止时间之后
+            CycleDeadline cycle = ((CycleDeadline) inv.getArgument(1)).remainderOfCycle();
+            while (!cycle.isExpired()) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(Math.max(1L, cycle.remainingMillis())));
+            }
+            return TradePlan.builder().build();
+        });
+
+        // 预算在 LLM 阶段内耗尽，后续阶段不再执行，Future 正常完成
+        engine.submit("slow", CycleDeadline.after(Duration.ofMillis(50))).get(5, TimeUnit.SECONDS);
+
+        verify(composerService, never()).applyRules(any(), any());
+        verify(executionService, never()).executeAndPersist(anyString(), any(), any(), any());
+    }
+}
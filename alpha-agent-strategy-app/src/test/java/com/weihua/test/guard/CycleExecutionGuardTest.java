@@ -0,0 +1,195 @@
+package com.weihua.test.guard;
+
+import com.weihua.strategy.application.guard.CycleExecutionGuard;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * CycleExecutionGuard 单元测试
+ * 测试同一策略重叠调用时 SKIP / COALESCE / QUEUE_ONE 三种策略及计数器，
+ * 以及 QUEUE_ONE 下与循环结束同时到达的请求不会丢失
+ */
+@Slf4j
+public class CycleExecutionGuardTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @Before
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private double count(String outcome) {
+        return meterRegistry.get("strategy.cycle.guard").tag("outcome", outcome).counter().count();
+    }
+
+    /**
+     * 等待计数达到期望值，最多 5 秒
+     */
+    private void awaitCount(String outcome, double expected) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (count(outcome) < expected) {
+            assertTrue("counter " + outcome + " not reached", System.nanoTime() - deadline < 0);
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * 启动一个阻塞在 release 上的循环，返回其 Future；started 在循环开始执行时计数
+     */
+    private CompletableFuture<CycleExecutionGuard.Outcome> startBlocking(CycleExecutionGuard guard, String strategyId,
+                                                                         CountDownLatch started, CountDownLatch release,
+                                                                         AtomicInteger runs) {
+        return CompletableFuture.supplyAsync(() -> guard.execute(strategyId, () -> {
+            runs.incrementAndGet();
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+    }
+
+    @Test
+    public void testSkipDropsOverlappingCycle() throws Exception {
+        CycleExecutionGuard guard = new CycleExecutionGuard(meterRegistry, "SKIP");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+
+        CompletableFuture<CycleExecutionGuard.Outcome> first = startBlocking(guard, "s1", started, release, runs);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertTrue(guard.isRunning("s1"));
+
+        assertEquals(CycleExecutionGuard.Outcome.SKIPPED, guard.execute("s1", runs::incrementAndGet));
+        release.countDown();
+
+        assertEquals(CycleExecutionGuard.Outcome.EXECUTED, first.get(5, TimeUnit.SECONDS));
+        assertEquals(1, runs.get());
+        assertEquals(1.0, count("skipped"), 0.0);
+        assertFalse(guard.isRunning("s1"));
+    }
+
+    @Test
+    public void testDifferentStrategiesDoNotBlockEachOther() throws Exception {
+        CycleExecutionGuard guard = new CycleExecutionGuard(meterRegistry, "SKIP");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+
+        CompletableFuture<CycleExecutionGuard.Outcome> first = startBlocking(guard, "s1", started, release, runs);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertEquals(CycleExecutionGuard.Outcome.EXECUTED, guard.execute("s2", runs::incrementAndGet));
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, runs.get());
+        assertEquals(0.0, count("skipped"), 0.0);
+    }
+
+    @Test
+    public void testCoalesceWaitsForRunningCycle() throws Exception {
+        CycleExecutionGuard guard = new CycleExecutionGuard(meterRegistry, "COALESCE");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+
+        CompletableFuture<CycleExecutionGuard.Outcome> first = startBlocking(guard, "s1", started, release, runs);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<CycleExecutionGuard.Outcome> second =
+                CompletableFuture.supplyAsync(() -> guard.execute("s1", runs::incrementAndGet));
+        // 计数在开始等待前递增，计数可见后第二个调用已进入合并等待
+        awaitCount("coalesced", 1.0);
+        assertFalse("合并的调用应等待正在执行的循环", second.isDone());
+
+        release.countDown();
+        assertEquals(CycleExecutionGuard.Outcome.EXECUTED, first.get(5, TimeUnit.SECONDS));
+        assertEquals(CycleExecutionGuard.Outcome.COALESCED, second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, runs.get());
+        assertEquals(1.0, count("coalesced"), 0.0);
+    }
+
+    @Test
+    public void testQueueOneRunsExactlyOneFollowUp() throws Exception {
+        CycleExecutionGuard guard = new CycleExecutionGuard(meterRegistry, "QUEUE_ONE");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+
+        CompletableFuture<CycleExecutionGuard.Outcome> first = startBlocking(guard, "s1", started, release, runs);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertEquals(CycleExecutionGuard.Outcome.QUEUED, guard.execute("s1", runs::incrementAndGet));
+        assertEquals(CycleExecutionGuard.Outcome.COALESCED, guard.execute("s1", runs::incrementAndGet));
+        assertEquals(CycleExecutionGuard.Outcome.COALESCED, guard.execute("s1", runs::incrementAndGet));
+
+        release.countDown();
+        assertEquals(CycleExecutionGuard.Outcome.EXECUTED, first.get(5, TimeUnit.SECONDS));
+
+        // 首次执行 + 一次补跑
+        assertEquals(2, runs.get());
+        assertEquals(1.0, count("queued"), 0.0);
+        assertEquals(2.0, count("coalesced"), 0.0);
+        assertFalse(guard.isRunning("s1"));
+    }
+
+    @Test
+    public void testQueueOneNeverLosesRequestRacingRelease() throws Exception {
+        CycleExecutionGuard guard = new CycleExecutionGuard(meterRegistry, "QUEUE_ONE");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 2000; i++) {
+                AtomicInteger runs = new AtomicInteger();
+                CountDownLatch go = new CountDownLatch(1);
+                Callable<CycleExecutionGuard.Outcome> call = () -> {
+                    go.await();
+                    return guard.execute("s1", runs::incrementAndGet);
+                };
+                Future<CycleExecutionGuard.Outcome> first = executor.submit(call);
+                Future<CycleExecutionGuard.Outcome> second = executor.submit(call);
+                go.countDown();
+                CycleExecutionGuard.Outcome a = first.get(5, TimeUnit.SECONDS);
+                CycleExecutionGuard.Outcome b = second.get(5, TimeUnit.SECONDS);
+
+                // 两次请求要么各自执行，要么一次执行、一次排队补跑，都应执行两次
+                assertTrue(a + "/" + b, a == CycleExecutionGuard.Outcome.EXECUTED
+                        || b == CycleExecutionGuard.Outcome.EXECUTED);
+                assertEquals("round " + i + ": " + a + "/" + b, 2, runs.get());
+                assertFalse(guard.isRunning("s1"));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testGuardReleasedWhenCycleThrows() {
+        CycleExecutionGuard guard = new CycleExecutionGuard(meterRegistry, "SKIP");
+        try {
+            guard.execute("s1", () -> {
+                throw new IllegalStateException("boom");
+            });
+            fail("异常应向上抛出");
+        } catch (IllegalStateException expected) {
+            // ignore
+        }
+        assertFalse(guard.isRunning("s1"));
+        assertEquals(CycleExecutionGuard.Outcome.EXECUTED, guard.execute("s1", () -> { }));
+    }
+}
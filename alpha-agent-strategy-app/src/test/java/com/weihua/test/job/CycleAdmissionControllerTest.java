@@ -0,0 +1,117 @@
+package com.weihua.test.job;
+
+import com.weihua.strategy.domain.model.aggregate.StrategyInstanceAggregate;
+import com.weihua.strategy.domain.model.entity.StrategyConfigEntity;
+import com.weihua.strategy.domain.model.valobj.TradingMode;
+import com.weihua.strategy.domain.service.provider.LlmConfigProvider;
+import com.weihua.trigger.config.StrategySchedulerProperties;
+import com.weihua.trigger.job.CycleAdmissionController;
+import com.weihua.trigger.job.CycleAdmissionController.Level;
+import com.weihua.trigger.job.CycleAdmissionController.ShedReason;
+import com.weihua.trigger.job.StrategyCycleDispatcher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * CycleAdmissionController 单元测试
+ * 测试按排队时延分级、实盘循环永不丢弃、积压时分发队列丢弃模拟盘循环并计数
+ */
+@Slf4j
+public class CycleAdmissionControllerTest {
+
+    private StrategySchedulerProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private CycleAdmissionController controller;
+
+    @Before
+    public void setUp() {
+        properties = new StrategySchedulerProperties();
+        meterRegistry = new SimpleMeterRegistry();
+        controller = new CycleAdmissionController(properties, meterRegistry);
+    }
+
+    private StrategyInstanceAggregate strategy(String id, TradingMode mode, Integer priority) {
+        return StrategyInstanceAggregate.builder()
+                .strategyId(id)
+                .userId("u1")
+                .config(StrategyConfigEntity.builder().intervalSeconds(60).tradingMode(mode).priority(priority).build())
+                .build();
+    }
+
+    @Test
+    public void testLevelFollowsQueueWait() {
+        assertEquals(Level.NORMAL, controller.update(properties.getSloQueueWaitMs() - 1));
+        assertEquals(Level.DEGRADED, controller.update(properties.getSloQueueWaitMs()));
+        assertEquals(Level.OVERLOADED, controller.update(properties.getOverloadQueueWaitMs()));
+        assertEquals(2.0D, meterRegistry.get("strategy.cycle.admission.level").gauge().value(), 0.0D);
+
+        properties.setAdmissionEnabled(false);
+        assertEquals(Level.NORMAL, controller.update(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testLiveIsNeverShed() {
+        StrategyInstanceAggregate live = strategy("live", TradingMode.LIVE, null);
+        for (Level level : Level.values()) {
+            assertNull(controller.evaluate(live, level));
+        }
+    }
+
+    @Test
+    public void testVirtualShedByLevelAndPriority() {
+        StrategyInstanceAggregate low = strategy("low", TradingMode.VIRTUAL, null);
+        StrategyInstanceAggregate high = strategy("high", TradingMode.VIRTUAL, properties.getProtectedPriority());
+
+        assertNull(controller.evaluate(low, Level.NORMAL));
+        assertEquals(ShedReason.LOW_PRIORITY, controller.evaluate(low, Level.DEGRADED));
+        assertNull(controller.evaluate(high, Level.DEGRADED));
+        assertEquals(ShedReason.VIRTUAL, controller.evaluate(high, Level.OVERLOADED));
+    }
+
+    @Test
+    public void testDispatcherShedsQueuedVirtualCyclesWhenBacklogged() {
+        properties.setMaxConcurrency(1);
+
+        // 执行器不运行任务，第一个循环一直占用唯一的并发许可
+        List<Runnable> submitted = new ArrayList<>();
+        ExecutorService executor = mock(ExecutorService.class);
+        doAnswer(inv -> submitted.add(inv.getArgument(0))).when(executor).execute(any());
+
+        StrategyCycleDispatcher dispatcher = new StrategyCycleDispatcher();
+        ReflectionTestUtils.setField(dispatcher, "llmConfigProvider", mock(LlmConfigProvider.class));
+        ReflectionTestUtils.setField(dispatcher, "properties", properties);
+        ReflectionTestUtils.setField(dispatcher, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(dispatcher, "strategyCycleExecutor", executor);
+        dispatcher.init();
+
+        dispatcher.dispatch(List.of(strategy("running", TradingMode.LIVE, null)));
+        dispatcher.dispatch(List.of(
+                strategy("paper", TradingMode.VIRTUAL, null),
+                strategy("live", TradingMode.LIVE, null)));
+        assertEquals(2, dispatcher.getQueuedCount());
+
+        // 调低 SLO 代替等待：队列头部的等待时长立即超过 SLO
+        properties.setSloQueueWaitMs(0L);
+        // 积压超过 SLO：新到的模拟盘循环在准入时丢弃，排队中的模拟盘循环被清出，重复的实盘循环被合并
+        dispatcher.dispatch(List.of(
+                strategy("paper-2", TradingMode.VIRTUAL, null),
+                strategy("live", TradingMode.LIVE, null)));
+
+        assertEquals(Level.DEGRADED, dispatcher.getAdmissionLevel());
+        assertEquals(1, dispatcher.getQueuedCount());
+        assertEquals(1, submitted.size());
+        assertEquals(2L, (long) meterRegistry.get("strategy.cycle.shed").tag("reason", "low_priority").counter().count());
+        assertEquals(1L, (long) meterRegistry.get("strategy.cycle.shed").tag("reason", "duplicate").counter().count());
+    }
+}
@@ -0,0 +1,499 @@
+package com.weihua.test.job;
+
+import com.weihua.strategy.application.lifecycle.CycleDrainCoordinator;
+import com.weihua.strategy.application.service.TradingCycleAppService;
+import com.weihua.strategy.domain.model.aggregate.StrategyInstanceAggregate;
+import com.weihua.strategy.domain.model.entity.CycleJobEntity;
+import com.weihua.strategy.domain.model.entity.StrategyConfigEntity;
+import com.weihua.strategy.domain.model.valobj.CycleJobStatus;
+import com.weihua.strategy.domain.model.valobj.StrategyStatus;
+import com.weihua.strategy.domain.repository.ICycleJobRepository;
+import com.weihua.strategy.domain.repository.IStrategyInstanceRepository;
+import com.weihua.trigger.config.StrategySchedulerProperties;
+import com.weihua.trigger.job.DistributedCycleWorker;
+import com.weihua.trigger.job.StrategyCycleDispatcher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * DistributedCycleWorker 单元测试
+ * 使用内存任务表代替 MySQL，测试多节点并发领取时每轮只执行一次、租约过期接管与栅栏、策略停止后不再排期、
+ * 提交失败与策略查询失败的处理
+ */
+@Slf4j
+public class DistributedCycleWorkerTest {
+
+    private static final int INTERVAL_SECONDS = 60;
+
+    private StrategySchedulerProperties properties;
+    private InMemoryCycleJobRepository jobRepository;
+    private IStrategyInstanceRepository strategyRepository;
+    private TradingCycleAppService tradingCycleAppService;
+    private final Map<String, StrategyInstanceAggregate> strategies = new ConcurrentHashMap<>();
+    private final List<DistributedCycleWorker> created = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        properties = new StrategySchedulerProperties();
+        properties.setMode("DISTRIBUTED");
+        properties.setJobClaimBatch(8);
+        jobRepository = new InMemoryCycleJobRepository();
+        strategyRepository = mock(IStrategyInstanceRepository.class);
+        when(strategyRepository.findByStrategyId(anyString())).thenAnswer(inv -> strategies.get(inv.<String>getArgument(0)));
+        tradingCycleAppService = mock(TradingCycleAppService.class);
+    }
+
+    private DistributedCycleWorker worker(StrategyCycleDispatcher dispatcher) {
+        DistributedCycleWorker worker = new DistributedCycleWorker();
+        ReflectionTestUtils.setField(worker, "cycleJobRepository", jobRepository);
+        ReflectionTestUtils.setField(worker, "strategyInstanceRepository", strategyRepository);
+        ReflectionTestUtils.setField(worker, "strategyCycleDispatcher", dispatcher);
+        ReflectionTestUtils.setField(worker, "tradingCycleAppService", tradingCycleAppService);
+        CycleDrainCoordinator drainCoordinator = mock(CycleDrainCoordinator.class);
+        when(drainCoordinator.isAccepting()).thenReturn(true);
+        ReflectionTestUtils.setField(worker, "cycleDrainCoordinator", drainCoordinator);
+        ReflectionTestUtils.setField(worker, "properties", properties);
+        ReflectionTestUtils.setField(worker, "meterRegistry", new SimpleMeterRegistry());
+        // 同线程执行，pollOnce 返回时本批任务已提交
+        ReflectionTestUtils.setField(worker, "strategyCycleExecutor", (Executor) Runnable::run);
+        worker.init();
+        created.add(worker);
+        return worker;
+    }
+
+    @After
+    public void tearDown() {
+        created.forEach(DistributedCycleWorker::destroy);
+    }
+
+    private StrategyInstanceAggregate strategy(String id, StrategyStatus status) {
+        StrategyInstanceAggregate strategy = StrategyInstanceAggregate.builder()
+                .strategyId(id)
+                .userId("u1")
+                .status(status)
+                .config(StrategyConfigEntity.builder().intervalSeconds(INTERVAL_SECONDS).build())
+                .build();
+        strategies.put(id, strategy);
+        return strategy;
+    }
+
+    @Test
+    public void testEachDueJobExecutesExactlyOnceAcrossWorkers() throws Exception {
+        long now = System.currentTimeMillis();
+        int jobs = 300;
+        DistributedCycleWorker registrar = worker(mock(StrategyCycleDispatcher.class));
+        for (int i = 0; i < jobs; i++) {
+            StrategyInstanceAggregate strategy = strategy("s" + i, StrategyStatus.RUNNING);
+            // 多个节点对账时重复登记，只写入一次
+            registrar.schedule(strategy, INTERVAL_SECONDS, now - 1);
+            registrar.schedule(strategy, INTERVAL_SECONDS, now + 5);
+        }
+
+        Map<String, AtomicInteger> executions = new ConcurrentHashMap<>();
+        List<DistributedCycleWorker> workers = new ArrayList<>();
+        int[] perWorker = new int[3];
+        for (int w = 0; w < perWorker.length; w++) {
+            StrategyCycleDispatcher dispatcher = mock(StrategyCycleDispatcher.class);
+            when(dispatcher.submit(any(), anyLong())).thenAnswer(inv -> {
+                StrategyInstanceAggregate submitted = inv.getArgument(0);
+                executions.computeIfAbsent(submitted.getStrategyId(), k -> new AtomicInteger()).incrementAndGet();
+                return CompletableFuture.completedFuture(true);
+            });
+            workers.add(worker(dispatcher));
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < workers.size(); w++) {
+            int index = w;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    int claimed;
+                    while ((claimed = workers.get(index).pollOnce(now)) > 0) {
+                        perWorker[index] += claimed;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join(10_000);
+        }
+
+        log.info("Jobs claimed per worker: {}, {}, {}", perWorker[0], perWorker[1], perWorker[2]);
+        assertEquals(jobs, perWorker[0] + perWorker[1] + perWorker[2]);
+        assertEquals(jobs, executions.size());
+        for (AtomicInteger count : executions.values()) {
+            assertEquals(1, count.get());
+        }
+        // 每个策略都已登记下一轮，且仍然只有一条未完成任务
+        for (int i = 0; i < jobs; i++) {
+            List<CycleJobEntity> active = jobRepository.active("s" + i);
+            assertEquals(1, active.size());
+            assertEquals(now - 1 + INTERVAL_SECONDS * 1000L, active.get(0).getDueAtMs().longValue());
+        }
+    }
+
+    @Test
+    public void testExpiredLeaseIsTakenOverAndOldOwnerIsFenced() {
+        long now = System.currentTimeMillis();
+        StrategyInstanceAggregate strategy = strategy("slow", StrategyStatus.RUNNING);
+
+        CompletableFuture<Boolean> hung = new CompletableFuture<>();
+        StrategyCycleDispatcher hungDispatcher = mock(StrategyCycleDispatcher.class);
+        when(hungDispatcher.submit(any(), anyLong())).thenReturn(hung);
+        StrategyCycleDispatcher healthyDispatcher = mock(StrategyCycleDispatcher.class);
+        when(healthyDispatcher.submit(any(), anyLong())).thenReturn(CompletableFuture.completedFuture(true));
+
+        DistributedCycleWorker first = worker(hungDispatcher);
+        DistributedCycleWorker second = worker(healthyDispatcher);
+        first.schedule(strategy, INTERVAL_SECONDS, now - 1);
+
+        assertEquals(1, first.pollOnce(now));
+        // 租约期内其他节点领不到
+        assertEquals(0, second.pollOnce(now + 1));
+        // 第一个节点失联，租约过期后被接管
+        assertEquals(1, second.pollOnce(now + properties.getJobLeaseMs() + 1));
+        verify(healthyDispatcher, times(1)).submit(any(), anyLong());
+
+        // 旧节点恢复后结束任务，栅栏拒绝写入，不会重复登记下一轮
+        hung.complete(true);
+        assertEquals(1, jobRepository.active("slow").size());
+        assertEquals(0, first.getInFlightCount());
+    }
+
+    @Test
+    public void testAttemptsExhaustedSkipsCycleButKeepsSchedule() {
+        long now = System.currentTimeMillis();
+        StrategyInstanceAggregate strategy = strategy("flaky", StrategyStatus.RUNNING);
+        properties.setJobMaxAttempts(1);
+
+        StrategyCycleDispatcher hungDispatcher = mock(StrategyCycleDispatcher.class);
+        when(hungDispatcher.submit(any(), anyLong())).thenReturn(new CompletableFuture<>());
+        DistributedCycleWorker first = worker(hungDispatcher);
+        StrategyCycleDispatcher dispatcher = mock(StrategyCycleDispatcher.class);
+        DistributedCycleWorker second = worker(dispatcher);
+
+        first.schedule(strategy, INTERVAL_SECONDS, now - 1);
+        first.pollOnce(now);
+        second.pollOnce(now + properties.getJobLeaseMs() + 1);
+
+        verify(dispatcher, never()).submit(any(), anyLong());
+        assertEquals(CycleJobStatus.FAILED, jobRepository.all().get(0).getStatus());
+        assertEquals(1, jobRepository.active("flaky").size());
+    }
+
+    @Test
+    public void testStoppedStrategyIsNotRescheduled() {
+        long now = System.currentTimeMillis();
+        StrategyInstanceAggregate strategy = strategy("stopped", StrategyStatus.RUNNING);
+        StrategyCycleDispatcher dispatcher = mock(StrategyCycleDispatcher.class);
+        DistributedCycleWorker worker = worker(dispatcher);
+        worker.schedule(strategy, INTERVAL_SECONDS, now - 1);
+
+        strategy("stopped", StrategyStatus.STOPPED);
+        assertEquals(1, worker.pollOnce(now));
+
+        verify(dispatcher, never()).submit(any(), anyLong());
+        assertTrue(jobRepository.active("stopped").isEmpty());
+    }
+
+    @Test
+    public void testClaimedBatchPrefetchesMarketDataOnce() {
+        long now = System.currentTimeMillis();
+        StrategyCycleDispatcher dispatcher = mock(StrategyCycleDispatcher.class);
+        when(dispatcher.submit(any(), anyLong())).thenReturn(CompletableFuture.completedFuture(true));
+        DistributedCycleWorker worker = worker(dispatcher);
+        worker.schedule(strategy("a", StrategyStatus.RUNNING), INTERVAL_SECONDS, now - 2);
+        worker.schedule(strategy("b", StrategyStatus.RUNNING), INTERVAL_SECONDS, now - 1);
+        worker.schedule(strategy("stopped", StrategyStatus.RUNNING), INTERVAL_SECONDS, now - 1);
+        strategy("stopped", StrategyStatus.STOPPED);
+
+        assertEquals(3, worker.pollOnce(now));
+
+        // 整批只预取一次，且只包含要执行的策略
+        ArgumentCaptor<List<StrategyInstanceAggregate>> captor = ArgumentCaptor.forClass(List.class);
+        verify(tradingCycleAppService, times(1)).prefetchMarketData(captor.capture());
+        assertEquals(List.of("a", "b"), captor.getValue().stream().map(StrategyInstanceAggregate::getStrategyId).toList());
+        verify(dispatcher, times(2)).submit(any(), anyLong());
+    }
+
+    @Test
+    public void testShedCycleIsSkippedNotDone() {
+        long now = System.currentTimeMillis();
+        StrategyCycleDispatcher dispatcher = mock(StrategyCycleDispatcher.class);
+        // 分发器准入丢弃：本轮没有执行
+        when(dispatcher.submit(any(), anyLong())).thenReturn(CompletableFuture.completedFuture(false));
+        DistributedCycleWorker worker = worker(dispatcher);
+        worker.schedule(strategy("shed", StrategyStatus.RUNNING), INTERVAL_SECONDS, now - 1);
+
+        assertEquals(1, worker.pollOnce(now));
+
+        // 以任务的应开始时刻提交，分发器据此计算迟到加成
+        verify(dispatcher).submit(any(), eq(now - 1));
+        assertEquals(CycleJobStatus.SKIPPED, jobRepository.all().get(0).getStatus());
+        assertEquals(0, worker.getInFlightCount());
+        // 下一轮照常登记
+        List<CycleJobEntity> active = jobRepository.active("shed");
+        assertEquals(1, active.size());
+        assertEquals(now - 1 + INTERVAL_SECONDS * 1000L, active.get(0).getDueAtMs().longValue());
+    }
+
+    @Test
+    public void testSubmitFailureFailsCycleButKeepsSchedule() {
+        long now = System.currentTimeMillis();
+        StrategyCycleDispatcher dispatcher = mock(StrategyCycleDispatcher.class);
+        when(dispatcher.submit(any(), anyLong())).thenThrow(new RejectedExecutionException("executor saturated"));
+        DistributedCycleWorker worker = worker(dispatcher);
+        worker.schedule(strategy("rejected", StrategyStatus.RUNNING), INTERVAL_SECONDS, now - 1);
+
+        assertEquals(1, worker.pollOnce(now));
+
+        CycleJobEntity job = jobRepository.all().get(0);
+        assertEquals(CycleJobStatus.FAILED, job.getStatus());
+        assertEquals("executor saturated", job.getLastError());
+        assertEquals(0, worker.getInFlightCount());
+        // 下一轮照常登记
+        List<CycleJobEntity> active = jobRepository.active("rejected");
+        assertEquals(1, active.size());
+        assertEquals(now - 1 + INTERVAL_SECONDS * 1000L, active.get(0).getDueAtMs().longValue());
+    }
+
+    @Test
+    public void testStrategyLookupFailureLeavesJobForRetry() {
+        long now = System.currentTimeMillis();
+        StrategyInstanceAggregate strategy = strategy("db-down", StrategyStatus.RUNNING);
+        StrategyCycleDispatcher dispatcher = mock(StrategyCycleDispatcher.class);
+        when(dispatcher.submit(any(), anyLong())).thenReturn(CompletableFuture.completedFuture(true));
+        DistributedCycleWorker worker = worker(dispatcher);
+        worker.schedule(strategy, INTERVAL_SECONDS, now - 1);
+
+        when(strategyRepository.findByStrategyId("db-down")).thenThrow(new IllegalStateException("connection reset"));
+        assertEquals(1, worker.pollOnce(now));
+
+        // 任务保持 RUNNING，本节点不再续约
+        verify(dispatcher, never()).submit(any(), anyLong());
+        assertEquals(0, worker.getInFlightCount());
+        List<CycleJobEntity> active = jobRepository.active("db-down");
+        assertEquals(1, active.size());
+        assertEquals(CycleJobStatus.RUNNING, active.get(0).getStatus());
+        assertEquals(0, worker.pollOnce(now + 1));
+
+        // 数据库恢复，租约到期后重新领取并执行同一轮
+        doReturn(strategy).when(strategyRepository).findByStrategyId("db-down");
+        assertEquals(1, worker.pollOnce(now + properties.getJobLeaseMs() + 1));
+        verify(dispatcher, times(1)).submit(any(), anyLong());
+        assertEquals(CycleJobStatus.DONE, jobRepository.all().get(0).getStatus());
+        assertEquals(2, jobRepository.all().get(0).getAttempts().intValue());
+    }
+
+    @Test
+    public void testLeaseRenewedWhileClaimedBatchIsBlocked() throws Exception {
+        long now = System.currentTimeMillis();
+        properties.setJobHeartbeatMs(20L);
+        CountDownLatch prefetchBlocked = new CountDownLatch(1);
+        doAnswer(inv -> {
+            prefetchBlocked.await(5, TimeUnit.SECONDS);
+            return 0;
+        }).when(tradingCycleAppService).prefetchMarketData(anyList());
+        StrategyCycleDispatcher dispatcher = mock(StrategyCycleDispatcher.class);
+        when(dispatcher.submit(any(), anyLong())).thenReturn(new CompletableFuture<>());
+
+        DistributedCycleWorker worker = worker(dispatcher);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        ReflectionTestUtils.setField(worker, "strategyCycleExecutor", executor);
+        try {
+            worker.schedule(strategy("blocked", StrategyStatus.RUNNING), INTERVAL_SECONDS, now - 1);
+            jobRepository.heartbeats = new CountDownLatch(2);
+
+            // 预取阻塞在执行器上，领取立即返回
+            assertEquals(1, worker.pollOnce(now));
+            // 续约线程不受阻塞影响
+            assertTrue(jobRepository.heartbeats.await(5, TimeUnit.SECONDS));
+            assertEquals(1, worker.getInFlightCount());
+        } finally {
+            prefetchBlocked.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCancelRemovesPendingJob() {
+        long now = System.currentTimeMillis();
+        DistributedCycleWorker worker = worker(mock(StrategyCycleDispatcher.class));
+        worker.schedule(strategy("cancel", StrategyStatus.RUNNING), INTERVAL_SECONDS, now + 60_000L);
+
+        worker.cancel("cancel");
+
+        assertTrue(jobRepository.active("cancel").isEmpty());
+        assertEquals(0, worker.pollOnce(now + 120_000L));
+    }
+
+    /**
+     * 内存任务表：与 t_strategy_cycle_jobs 的唯一键、领取条件和栅栏语义一致，
+     * 用一把锁模拟 FOR UPDATE SKIP LOCKED 下各节点领取到不相交集合的效果
+     */
+    private static class InMemoryCycleJobRepository implements ICycleJobRepository {
+
+        private final List<CycleJobEntity> rows = new ArrayList<>();
+        private long sequence = 0L;
+        private volatile CountDownLatch heartbeats = new CountDownLatch(0);
+
+        @Override
+        public synchronized boolean enqueue(CycleJobEntity job) {
+            for (CycleJobEntity row : rows) {
+                boolean sameDue = row.getStrategyId().equals(job.getStrategyId()) && row.getDueAtMs().equals(job.getDueAtMs());
+                if (sameDue || (row.getStrategyId().equals(job.getStrategyId()) && isActive(row))) {
+                    return false;
+                }
+            }
+            rows.add(CycleJobEntity.builder()
+                    .id(++sequence)
+                    .strategyId(job.getStrategyId())
+                    .userId(job.getUserId())
+                    .dueAtMs(job.getDueAtMs())
+                    .intervalSeconds(job.getIntervalSeconds())
+                    .status(CycleJobStatus.PENDING)
+                    .attempts(0)
+                    .build());
+            return true;
+        }
+
+        @Override
+        public synchronized List<CycleJobEntity> claim(String workerId, int limit, long leaseMs, long nowMs) {
+            List<CycleJobEntity> claimed = new ArrayList<>();
+            rows.stream()
+                    .filter(row -> (row.getStatus() == CycleJobStatus.PENDING && row.getDueAtMs() <= nowMs)
+                            || (row.getStatus() == CycleJobStatus.RUNNING && row.getLeaseUntilMs() < nowMs))
+                    .sorted((a, b) -> Long.compare(a.getDueAtMs(), b.getDueAtMs()))
+                    .limit(limit)
+                    .forEach(row -> {
+                        row.setStatus(CycleJobStatus.RUNNING);
+                        row.setWorkerId(workerId);
+                        row.setLeaseUntilMs(nowMs + leaseMs);
+                        row.setAttempts(row.getAttempts() + 1);
+                        claimed.add(copy(row));
+                    });
+            return claimed;
+        }
+
+        @Override
+        public synchronized boolean heartbeat(CycleJobEntity job, long leaseMs, long nowMs) {
+            CycleJobEntity row = owned(job);
+            if (row == null) {
+                return false;
+            }
+            row.setLeaseUntilMs(nowMs + leaseMs);
+            heartbeats.countDown();
+            return true;
+        }
+
+        @Override
+        public synchronized boolean finish(CycleJobEntity job, CycleJobStatus status, String error, CycleJobEntity next) {
+            CycleJobEntity row = owned(job);
+            if (row == null) {
+                return false;
+            }
+            row.setStatus(status);
+            row.setLastError(error);
+            row.setLeaseUntilMs(null);
+            if (next != null) {
+                enqueue(next);
+            }
+            return true;
+        }
+
+        @Override
+        public synchronized int cancelPending(String strategyId) {
+            int cancelled = 0;
+            for (CycleJobEntity row : rows) {
+                if (row.getStrategyId().equals(strategyId) && row.getStatus() == CycleJobStatus.PENDING) {
+                    row.setStatus(CycleJobStatus.CANCELLED);
+                    cancelled++;
+                }
+            }
+            return cancelled;
+        }
+
+        @Override
+        public synchronized int purgeFinished(long beforeMs) {
+            int before = rows.size();
+            rows.removeIf(row -> !isActive(row) && row.getDueAtMs() < beforeMs);
+            return before - rows.size();
+        }
+
+        synchronized List<CycleJobEntity> active(String strategyId) {
+            List<CycleJobEntity> active = new ArrayList<>();
+            for (CycleJobEntity row : rows) {
+                if (row.getStrategyId().equals(strategyId) && isActive(row)) {
+                    active.add(copy(row));
+                }
+            }
+            return active;
+        }
+
+        synchronized List<CycleJobEntity> all() {
+            return new ArrayList<>(rows);
+        }
+
+        private CycleJobEntity owned(CycleJobEntity job) {
+            for (CycleJobEntity row : rows) {
+                if (row.getId().equals(job.getId()) && row.getStatus() == CycleJobStatus.RUNNING
+                        && job.getWorkerId().equals(row.getWorkerId()) && job.getAttempts().equals(row.getAttempts())) {
+                    return row;
+                }
+            }
+            return null;
+        }
+
+        private static boolean isActive(CycleJobEntity row) {
+            return row.getStatus() == CycleJobStatus.PENDING || row.getStatus() == CycleJobStatus.RUNNING;
+        }
+
+        private static CycleJobEntity copy(CycleJobEntity row) {
+            return CycleJobEntity.builder()
+                    .id(row.getId())
+                    .strategyId(row.getStrategyId())
+                    .userId(row.getUserId())
+                    .dueAtMs(row.getDueAtMs())
+                    .intervalSeconds(row.getIntervalSeconds())
+                    .status(row.getStatus())
+                    .workerId(row.getWorkerId())
+                    .leaseUntilMs(row.getLeaseUntilMs())
+                    .attempts(row.getAttempts())
+                    .lastError(row.getLastError())
+                    .build();
+        }
+    }
+}
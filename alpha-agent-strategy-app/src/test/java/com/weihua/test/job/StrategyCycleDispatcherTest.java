@@ -0,0 +1,250 @@
+package com.weihua.test.job;
+
+import com.weihua.strategy.application.guard.CycleExecutionGuard;
+import com.weihua.strategy.application.service.TradingCycleAppService;
+import com.weihua.strategy.domain.model.aggregate.StrategyInstanceAggregate;
+import com.weihua.strategy.domain.model.entity.StrategyConfigEntity;
+import com.weihua.strategy.domain.model.valobj.StrategyStatus;
+import com.weihua.strategy.domain.service.provider.LlmConfigProvider;
+import com.weihua.trigger.config.StrategySchedulerProperties;
+import com.weihua.trigger.job.StrategyCycleDispatcher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * StrategyCycleDispatcher 单元测试
+ * 测试全局并发上限、单渠道并发上限不影响其它渠道、循环异常结束时归还许可、迟到的循环先于准时的循环执行
+ */
+@Slf4j
+public class StrategyCycleDispatcherTest {
+
+    private static final long TIMEOUT_SECONDS = 5L;
+
+    private StrategySchedulerProperties properties;
+    private TradingCycleAppService tradingCycleAppService;
+    private ExecutorService executor;
+    private StrategyCycleDispatcher dispatcher;
+
+    /** strategyId -> 执行时等待的闸门，未登记的策略立即返回 */
+    private final Map<String, CountDownLatch> gates = new ConcurrentHashMap<>();
+    /** strategyId 前缀 (渠道) -> 当前并发 / 峰值并发 */
+    private final Map<String, AtomicInteger> running = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> peak = new ConcurrentHashMap<>();
+    private final AtomicInteger globalRunning = new AtomicInteger();
+    private final AtomicInteger globalPeak = new AtomicInteger();
+    private volatile CountDownLatch started = new CountDownLatch(0);
+
+    @Before
+    public void setUp() {
+        properties = new StrategySchedulerProperties();
+        properties.setMaxConcurrency(2);
+        properties.setDefaultProviderConcurrency(16);
+
+        LlmConfigProvider llmConfigProvider = mock(LlmConfigProvider.class);
+        // modelId 即渠道名
+        when(llmConfigProvider.getProviderId(anyString())).thenAnswer(inv -> inv.getArgument(0));
+
+        tradingCycleAppService = mock(TradingCycleAppService.class);
+        when(tradingCycleAppService.executeCycle(anyString(), any())).thenAnswer(inv -> {
+            String strategyId = inv.getArgument(0);
+            String provider = strategyId.substring(0, strategyId.indexOf('-'));
+            track(globalRunning.incrementAndGet(), globalPeak);
+            track(running.computeIfAbsent(provider, k -> new AtomicInteger()).incrementAndGet(),
+                    peak.computeIfAbsent(provider, k -> new AtomicInteger()));
+            started.countDown();
+            try {
+                CountDownLatch gate = gates.get(strategyId);
+                if (gate != null) {
+                    assertTrue("gate not opened", gate.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+                }
+                if (strategyId.startsWith("boom")) {
+                    throw new IllegalStateException("cycle failed");
+                }
+                return CycleExecutionGuard.Outcome.EXECUTED;
+            } finally {
+                running.get(provider).decrementAndGet();
+                globalRunning.decrementAndGet();
+            }
+        });
+
+        executor = Executors.newCachedThreadPool();
+        dispatcher = new StrategyCycleDispatcher();
+        ReflectionTestUtils.setField(dispatcher, "tradingCycleAppService", tradingCycleAppService);
+        ReflectionTestUtils.setField(dispatcher, "llmConfigProvider", llmConfigProvider);
+        ReflectionTestUtils.setField(dispatcher, "properties", properties);
+        ReflectionTestUtils.setField(dispatcher, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(dispatcher, "strategyCycleExecutor", executor);
+    }
+
+    @After
+    public void tearDown() {
+        gates.values().forEach(CountDownLatch::countDown);
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testGlobalCapHolds() throws Exception {
+        dispatcher.init();
+        CountDownLatch gate = new CountDownLatch(1);
+        List<StrategyInstanceAggregate> batch = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            batch.add(strategy("llm-" + i));
+            gates.put("llm-" + i, gate);
+        }
+        started = new CountDownLatch(2);
+
+        CompletableFuture<Void> done = dispatcher.dispatch(batch);
+
+        assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(2, dispatcher.getRunningCount());
+        assertEquals(3, dispatcher.getQueuedCount());
+
+        gate.countDown();
+        done.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        verify(tradingCycleAppService, times(5)).executeCycle(anyString(), any());
+        assertEquals(2, globalPeak.get());
+        assertEquals(0, dispatcher.getRunningCount());
+        assertEquals(0, dispatcher.getQueuedCount());
+    }
+
+    @Test
+    public void testProviderCapIsolatesProviders() throws Exception {
+        properties.setMaxConcurrency(8);
+        properties.getProviderConcurrency().put("slow", 1);
+        dispatcher.init();
+
+        CountDownLatch slowGate = new CountDownLatch(1);
+        List<StrategyInstanceAggregate> slow = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            slow.add(strategy("slow-" + i));
+            gates.put("slow-" + i, slowGate);
+        }
+        started = new CountDownLatch(1);
+        CompletableFuture<Void> slowDone = dispatcher.dispatch(slow);
+        assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        // 慢渠道已满，其它渠道的循环照常执行
+        List<CompletableFuture<Boolean>> fast = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            fast.add(dispatcher.submit(strategy("fast-" + i)));
+        }
+        for (CompletableFuture<Boolean> future : fast) {
+            assertTrue(future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+        assertFalse(slowDone.isDone());
+        assertEquals(1, dispatcher.getRunningCount());
+        assertEquals(2, dispatcher.getQueuedCount());
+
+        slowGate.countDown();
+        slowDone.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertEquals(1, peak.get("slow").get());
+        assertEquals(0, dispatcher.getRunningCount());
+    }
+
+    @Test
+    public void testPermitReleasedOnFailure() throws Exception {
+        properties.setMaxConcurrency(1);
+        dispatcher.init();
+
+        CountDownLatch gate = new CountDownLatch(1);
+        gates.put("boom-1", gate);
+        started = new CountDownLatch(1);
+        CompletableFuture<Boolean> failed = dispatcher.submit(strategy("boom-1"));
+        assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> next = dispatcher.submit(strategy("llm-1"));
+        assertEquals(1, dispatcher.getQueuedCount());
+
+        gate.countDown();
+        try {
+            failed.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            fail("failed cycle should complete exceptionally");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        // 唯一的许可已归还，排队的循环得以执行
+        assertTrue(next.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        // 同一渠道的许可也已归还
+        properties.setMaxConcurrency(2);
+        properties.getProviderConcurrency().put("boom", 1);
+        assertTrue(dispatcher.submit(strategy("boom-2")).handle((executed, e) -> e != null)
+                .get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(0, dispatcher.getRunningCount());
+        assertEquals(0, dispatcher.getQueuedCount());
+    }
+
+    @Test
+    public void testLateCycleOvertakesOnTimeCycle() throws Exception {
+        properties.setMaxConcurrency(1);
+        // 迟到的循环会抬高准入级别，这里只验证排队顺序
+        properties.setAdmissionEnabled(false);
+        dispatcher.init();
+        List<String> executed = new CopyOnWriteArrayList<>();
+        when(tradingCycleAppService.executeCycle(anyString(), any())).thenAnswer(inv -> {
+            String strategyId = inv.getArgument(0);
+            executed.add(strategyId);
+            started.countDown();
+            CountDownLatch gate = gates.get(strategyId);
+            if (gate != null) {
+                assertTrue("gate not opened", gate.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            }
+            return CycleExecutionGuard.Outcome.EXECUTED;
+        });
+
+        CountDownLatch gate = new CountDownLatch(1);
+        gates.put("llm-0", gate);
+        started = new CountDownLatch(1);
+        CompletableFuture<Boolean> blocker = dispatcher.submit(strategy("llm-0"));
+        assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        long now = System.currentTimeMillis();
+        CompletableFuture<Boolean> onTime = dispatcher.submit(strategy("llm-on-time"), now);
+        // 迟到半个间隔
+        CompletableFuture<Boolean> late = dispatcher.submit(strategy("llm-late"), now - 30_000L);
+        assertEquals(2, dispatcher.getQueuedCount());
+
+        gate.countDown();
+        assertTrue(blocker.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(onTime.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(late.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(List.of("llm-0", "llm-late", "llm-on-time"), executed);
+    }
+
+    private static StrategyInstanceAggregate strategy(String strategyId) {
+        return StrategyInstanceAggregate.builder()
+                .strategyId(strategyId)
+                .userId("u-" + strategyId)
+                .status(StrategyStatus.RUNNING)
+                .config(StrategyConfigEntity.builder()
+                        .intervalSeconds(60)
+                        .modelId(strategyId.substring(0, strategyId.indexOf('-')))
+                        .build())
+                .build();
+    }
+
+    private static void track(int current, AtomicInteger peak) {
+        peak.accumulateAndGet(current, Math::max);
+    }
+}
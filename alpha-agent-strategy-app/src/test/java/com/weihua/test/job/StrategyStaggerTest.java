@@ -0,0 +1,75 @@
+package com.weihua.test.job;
+
+import com.weihua.trigger.job.StrategyStagger;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * StrategyStagger 单元测试
+ * 测试哈希错峰的确定性与分布、K 线收盘对齐
+ */
+@Slf4j
+public class StrategyStaggerTest {
+
+    private static final long INTERVAL_MS = 60_000L;
+
+    @Test
+    public void testNoneFiresImmediately() {
+        StrategyStagger stagger = new StrategyStagger(StrategyStagger.Mode.NONE, 2_000L, 0L, 0L, new Random(1));
+        assertEquals(0L, stagger.firstDelayMs("s1", INTERVAL_MS, 123_456L));
+    }
+
+    @Test
+    public void testHashPhaseIsStableAcrossRestarts() {
+        StrategyStagger stagger = new StrategyStagger(StrategyStagger.Mode.HASH, 0L, 0L, 0L, new Random(1));
+
+        // 不同时刻计算出的首次触发时刻落在同一相位上
+        long now1 = 1_000_000L;
+        long now2 = 1_037_000L;
+        long fire1 = now1 + stagger.firstDelayMs("strategy-42", INTERVAL_MS, now1);
+        long fire2 = now2 + stagger.firstDelayMs("strategy-42", INTERVAL_MS, now2);
+        assertEquals(0L, Math.floorMod(fire1 - fire2, INTERVAL_MS));
+    }
+
+    @Test
+    public void testHashSpreadsStrategiesAcrossInterval() {
+        StrategyStagger stagger = new StrategyStagger(StrategyStagger.Mode.HASH, 0L, 0L, 0L, new Random(1));
+
+        int[] perSecond = new int[60];
+        for (int i = 0; i < 600; i++) {
+            long delay = stagger.firstDelayMs("strategy-" + i, INTERVAL_MS, 0L);
+            assertTrue(delay >= 0 && delay < INTERVAL_MS);
+            perSecond[(int) (delay / 1000)]++;
+        }
+        int peak = java.util.Arrays.stream(perSecond).max().orElse(0);
+        log.info("Peak strategies per second after hash stagger: {}", peak);
+        // 600 个策略均匀分布时每秒约 10 个，不应再集中在同一秒
+        assertTrue(peak < 40);
+    }
+
+    @Test
+    public void testJitterIsBounded() {
+        StrategyStagger plain = new StrategyStagger(StrategyStagger.Mode.HASH, 0L, 0L, 0L, new Random(1));
+        StrategyStagger jittered = new StrategyStagger(StrategyStagger.Mode.HASH, 2_000L, 0L, 0L, new Random(1));
+        for (int i = 0; i < 100; i++) {
+            long base = plain.firstDelayMs("s" + i, INTERVAL_MS, 0L);
+            long delay = jittered.firstDelayMs("s" + i, INTERVAL_MS, 0L);
+            assertTrue(delay >= base && delay < base + 2_000L);
+        }
+    }
+
+    @Test
+    public void testCandleCloseAlignsToNextBoundary() {
+        StrategyStagger stagger = new StrategyStagger(StrategyStagger.Mode.CANDLE_CLOSE, 0L, 2_000L, 10_000L, new Random(1));
+
+        long now = 10 * INTERVAL_MS + 15_000L;
+        long fire = now + stagger.firstDelayMs("s1", INTERVAL_MS, now);
+        long nextClose = 11 * INTERVAL_MS;
+        assertTrue(fire >= nextClose + 2_000L);
+        assertTrue(fire < nextClose + 2_000L + 10_000L);
+    }
+}
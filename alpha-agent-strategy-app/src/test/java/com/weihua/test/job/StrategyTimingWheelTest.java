@@ -0,0 +1,139 @@
+package com.weihua.test.job;
+
+import com.weihua.strategy.domain.model.aggregate.StrategyInstanceAggregate;
+import com.weihua.strategy.domain.model.valobj.StrategyStatus;
+import com.weihua.trigger.job.StrategyTimingWheel;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * StrategyTimingWheel 单元测试
+ * 测试按策略各自间隔触发、跨轮次触发、落后时返回槽位时刻、取消与重新调度
+ */
+@Slf4j
+public class StrategyTimingWheelTest {
+
+    private static final long TICK_MS = 1000L;
+
+    private StrategyTimingWheel wheel;
+
+    @Before
+    public void setUp() {
+        // 槽位数故意设小，覆盖跨轮次 (rounds > 0) 的场景
+        wheel = new StrategyTimingWheel(TICK_MS, 8, 0L);
+    }
+
+    private StrategyInstanceAggregate strategy(String id) {
+        return StrategyInstanceAggregate.builder()
+                .strategyId(id)
+                .status(StrategyStatus.RUNNING)
+                .build();
+    }
+
+    @Test
+    public void testFiresAtOwnInterval() {
+        wheel.schedule(strategy("fast"), 5_000L, 5_000L);
+        wheel.schedule(strategy("slow"), 20_000L, 20_000L);
+
+        int fastCount = 0;
+        int slowCount = 0;
+        for (long now = TICK_MS; now <= 60_000L; now += TICK_MS) {
+            for (StrategyInstanceAggregate due : wheel.advance(now)) {
+                if ("fast".equals(due.getStrategyId())) {
+                    fastCount++;
+                } else {
+                    slowCount++;
+                }
+            }
+        }
+
+        log.info("fast={}, slow={}", fastCount, slowCount);
+        assertEquals(12, fastCount);
+        assertEquals(3, slowCount);
+    }
+
+    @Test
+    public void testFiresOnExactTickAcrossRounds() {
+        // 20 个 tick > 8 个槽位，需要跨 2 轮
+        wheel.schedule(strategy("s1"), 20_000L, 20_000L);
+
+        assertTrue(wheel.advance(19_000L).isEmpty());
+        List<StrategyInstanceAggregate> due = wheel.advance(20_000L);
+        assertEquals(1, due.size());
+        assertEquals("s1", due.get(0).getStrategyId());
+    }
+
+    @Test
+    public void testCatchUpAfterDelayedTick() {
+        wheel.schedule(strategy("s1"), 5_000L, 5_000L);
+
+        // 调度线程卡顿 12 秒后再推进，期间到期的两次都应返回
+        List<StrategyInstanceAggregate> due = wheel.advance(12_000L);
+        assertEquals(2, due.size());
+    }
+
+    @Test
+    public void testReportsSlotTimeOfDelayedTick() {
+        wheel.schedule(strategy("s1"), 5_000L, 5_000L);
+        wheel.schedule(strategy("s2"), 20_000L, 7_000L);
+
+        // 推进落后时，返回槽位时刻而非推进时刻，用于计算迟到程度
+        Map<String, Long> dueAtMs = new HashMap<>();
+        assertEquals(2, wheel.advance(9_500L, dueAtMs).size());
+        assertEquals(Long.valueOf(5_000L), dueAtMs.get("s1"));
+        assertEquals(Long.valueOf(7_000L), dueAtMs.get("s2"));
+    }
+
+    @Test
+    public void testCancel() {
+        wheel.schedule(strategy("s1"), 5_000L, 5_000L);
+        assertTrue(wheel.cancel("s1"));
+        assertFalse(wheel.contains("s1"));
+        assertTrue(wheel.advance(10_000L).isEmpty());
+    }
+
+    @Test
+    public void testUpdateKeepsPhaseWhenIntervalUnchanged() {
+        wheel.schedule(strategy("s1"), 5_000L, 5_000L);
+        wheel.advance(3_000L);
+
+        // 仅更新快照，不重置节奏
+        wheel.update(strategy("s1"), 5_000L);
+        assertEquals(1, wheel.advance(5_000L).size());
+    }
+
+    @Test
+    public void testUpdateReschedulesWhenIntervalChanged() {
+        wheel.schedule(strategy("s1"), 5_000L, 5_000L);
+        wheel.advance(3_000L);
+
+        wheel.update(strategy("s1"), 10_000L);
+        assertTrue(wheel.advance(12_000L).isEmpty());
+        assertEquals(1, wheel.advance(13_000L).size());
+    }
+
+    @Test
+    public void testProjectLoadMatchesFirings() {
+        wheel.schedule(strategy("a"), 5_000L, 2_000L);
+        wheel.schedule(strategy("b"), 10_000L, 2_000L);
+        wheel.schedule(strategy("c"), 10_000L, 7_000L);
+
+        int[] load = wheel.projectLoad(0L, 20);
+        // a: 2s, 7s, 12s, 17s; b: 2s, 12s; c: 7s, 17s
+        assertEquals(2, load[2]);
+        assertEquals(2, load[7]);
+        assertEquals(2, load[12]);
+        assertEquals(2, load[17]);
+        assertEquals(8, java.util.Arrays.stream(load).sum());
+
+        // 预测不改变时间轮状态
+        assertEquals(2, wheel.advance(2_000L).size());
+    }
+}
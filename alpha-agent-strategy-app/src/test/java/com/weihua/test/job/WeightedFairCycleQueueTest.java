@@ -0,0 +1,228 @@
+package com.weihua.test.job;
+
+import com.weihua.strategy.domain.model.aggregate.StrategyInstanceAggregate;
+import com.weihua.strategy.domain.model.entity.StrategyConfigEntity;
+import com.weihua.strategy.domain.model.valobj.StrategyStatus;
+import com.weihua.strategy.domain.model.valobj.TradingMode;
+import com.weihua.trigger.config.StrategySchedulerProperties;
+import com.weihua.trigger.job.WeightedFairCycleQueue;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * WeightedFairCycleQueue 单元测试
+ * 测试用户间公平出队、优先级 / 实盘 / 迟到加成、渠道不可用时跳过、移除与最早到期时间、大量积压的出队顺序、空闲用户清除
+ */
+@Slf4j
+public class WeightedFairCycleQueueTest {
+
+    private static final long NOW = 1_000_000L;
+    private static final String LANE = WeightedFairCycleQueue.DEFAULT_LANE;
+
+    private StrategySchedulerProperties properties;
+    private WeightedFairCycleQueue<String> queue;
+
+    @Before
+    public void setUp() {
+        properties = new StrategySchedulerProperties();
+        queue = new WeightedFairCycleQueue<>(properties);
+    }
+
+    private StrategyInstanceAggregate strategy(String id, String userId, StrategyConfigEntity config) {
+        return StrategyInstanceAggregate.builder()
+                .strategyId(id)
+                .userId(userId)
+                .status(StrategyStatus.RUNNING)
+                .config(config)
+                .build();
+    }
+
+    private StrategyInstanceAggregate strategy(String id, String userId) {
+        return strategy(id, userId, StrategyConfigEntity.builder().intervalSeconds(60).build());
+    }
+
+    private List<String> pollAll() {
+        List<String> order = new ArrayList<>();
+        String next;
+        while ((next = queue.poll(lane -> true)) != null) {
+            order.add(next);
+        }
+        return order;
+    }
+
+    private Map<?, ?> users() {
+        return (Map<?, ?>) ReflectionTestUtils.getField(queue, "users");
+    }
+
+    @Test
+    public void testHeavyUserDoesNotStarveOthers() {
+        for (int i = 0; i < 200; i++) {
+            queue.add(strategy("heavy-" + i, "heavy"), LANE, NOW, NOW, "heavy-" + i);
+        }
+        queue.add(strategy("light-1", "light"), LANE, NOW, NOW, "light-1");
+
+        List<String> order = pollAll();
+        assertEquals(201, order.size());
+        // 轻量用户最迟在第二个出队
+        assertTrue(order.indexOf("light-1") <= 1);
+    }
+
+    @Test
+    public void testUsersAlternateByWeight() {
+        properties.getUserWeights().put("vip", 2.0D);
+        for (int i = 0; i < 10; i++) {
+            queue.add(strategy("vip-" + i, "vip"), LANE, NOW, NOW, "vip");
+            queue.add(strategy("std-" + i, "std"), LANE, NOW, NOW, "std");
+        }
+
+        List<String> firstNine = pollAll().subList(0, 9);
+        long vip = firstNine.stream().filter("vip"::equals).count();
+        // 权重 2:1，前 9 个中 vip 约占 6 个
+        assertTrue(vip >= 5 && vip <= 7);
+    }
+
+    @Test
+    public void testLiveAndLargeCapitalRunFirstWithinUser() {
+        queue.add(strategy("virtual", "u1", StrategyConfigEntity.builder()
+                .intervalSeconds(60).tradingMode(TradingMode.VIRTUAL).build()), LANE, NOW, NOW, "virtual");
+        queue.add(strategy("rich", "u1", StrategyConfigEntity.builder()
+                .intervalSeconds(60).initialCapital(new BigDecimal("1000000")).build()), LANE, NOW, NOW, "rich");
+        queue.add(strategy("live", "u1", StrategyConfigEntity.builder()
+                .intervalSeconds(60).tradingMode(TradingMode.LIVE).build()), LANE, NOW, NOW, "live");
+
+        assertEquals(List.of("live", "rich", "virtual"), pollAll());
+    }
+
+    @Test
+    public void testPriorityAndLatenessJumpAheadOfOtherUsers() {
+        queue.add(strategy("a", "u1"), LANE, NOW, NOW, "a");
+        queue.add(strategy("b", "u2", StrategyConfigEntity.builder().intervalSeconds(60).priority(10).build()), LANE, NOW, NOW, "b");
+        // 迟到一个间隔
+        queue.add(strategy("c", "u3"), LANE, NOW - 60_000L, NOW, "c");
+
+        List<String> order = pollAll();
+        assertEquals("b", order.get(0));
+        assertEquals("c", order.get(1));
+        assertEquals("a", order.get(2));
+    }
+
+    @Test
+    public void testIneligibleItemsStayQueued() {
+        queue.add(strategy("blocked", "u1"), "provider-a", NOW, NOW, "blocked");
+        queue.add(strategy("free", "u2"), "provider-b", NOW, NOW, "free");
+
+        assertEquals("free", queue.poll(lane -> !"provider-a".equals(lane)));
+        assertNull(queue.poll(lane -> !"provider-a".equals(lane)));
+        assertEquals(1, queue.size());
+        assertEquals("blocked", queue.poll(lane -> true));
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testBlockedProviderSkippedWithinUser() {
+        queue.add(strategy("live", "u1", StrategyConfigEntity.builder()
+                .intervalSeconds(60).tradingMode(TradingMode.LIVE).build()), "provider-a", NOW, NOW, "live");
+        queue.add(strategy("first", "u1"), "provider-b", NOW - 1L, NOW, "first");
+        queue.add(strategy("second", "u1"), "provider-b", NOW, NOW, "second");
+
+        // 渠道已满时取用户在其它渠道中加成最高的循环，已满渠道中的循环保持原有顺序
+        assertEquals("first", queue.poll(lane -> !"provider-a".equals(lane)));
+        assertEquals("live", queue.poll(lane -> true));
+        assertEquals("second", queue.poll(lane -> true));
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testRemoveIfAndOldestDueAt() {
+        assertNull(queue.oldestDueAtMs());
+        queue.add(strategy("old", "u1"), LANE, NOW - 5_000L, NOW, "old");
+        queue.add(strategy("mid", "u2"), LANE, NOW - 1_000L, NOW, "mid");
+        queue.add(strategy("new", "u1"), LANE, NOW, NOW, "new");
+        assertEquals(Long.valueOf(NOW - 5_000L), queue.oldestDueAtMs());
+
+        assertTrue(queue.removeIf("old"::equals));
+        assertFalse(queue.removeIf("missing"::equals));
+        assertEquals(2, queue.size());
+        assertEquals(Long.valueOf(NOW - 1_000L), queue.oldestDueAtMs());
+
+        assertEquals(List.of("mid", "new"), pollAll());
+        assertNull(queue.oldestDueAtMs());
+    }
+
+    @Test
+    public void testLargeBacklogDrainsFairly() {
+        int perUser = 5_000;
+        for (int i = 0; i < perUser; i++) {
+            queue.add(strategy("a-" + i, "a"), LANE, NOW, NOW, "a");
+            queue.add(strategy("b-" + i, "b"), LANE, NOW, NOW, "b");
+            queue.add(strategy("c-" + i, "c"), LANE, NOW, NOW, "c");
+        }
+
+        List<String> order = pollAll();
+        assertEquals(3 * perUser, order.size());
+        // 三个等权用户严格轮流出队
+        for (int i = 0; i + 3 <= order.size(); i += 3) {
+            assertEquals(3, new HashSet<>(order.subList(i, i + 3)).size());
+        }
+    }
+
+    @Test
+    public void testIdleUsersEvicted() {
+        for (int i = 0; i < 10; i++) {
+            queue.add(strategy("heavy-" + i, "heavy"), LANE, NOW, NOW, "heavy");
+        }
+        queue.add(strategy("light", "light"), LANE, NOW, NOW, "light");
+
+        assertEquals("heavy", queue.poll(lane -> true));
+        assertEquals("light", queue.poll(lane -> true));
+        // 空闲用户领先全局虚拟时间一轮，暂时保留
+        assertEquals(2, users().size());
+        assertEquals("heavy", queue.poll(lane -> true));
+        // 全局虚拟时间追上后清除
+        assertEquals(1, users().size());
+
+        pollAll();
+        assertTrue(users().isEmpty());
+    }
+
+    @Test
+    public void testOrderBatch() {
+        List<StrategyInstanceAggregate> batch = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            batch.add(strategy("heavy-" + i, "heavy"));
+        }
+        batch.add(strategy("light", "light"));
+
+        List<StrategyInstanceAggregate> ordered = WeightedFairCycleQueue.order(batch, properties, NOW);
+        assertEquals(6, ordered.size());
+        int lightIndex = 0;
+        for (int i = 0; i < ordered.size(); i++) {
+            if ("light".equals(ordered.get(i).getStrategyId())) {
+                lightIndex = i;
+            }
+        }
+        assertTrue(lightIndex <= 1);
+    }
+
+    @Test
+    public void testOrderBatchUsesDueTimes() {
+        List<StrategyInstanceAggregate> batch = List.of(strategy("on-time", "u1"), strategy("late", "u2"));
+
+        // 未传入应开始时刻时按入队顺序
+        assertEquals("on-time", WeightedFairCycleQueue.order(batch, properties, NOW).get(0).getStrategyId());
+        // 迟到半个间隔的循环排到准时的循环之前
+        List<StrategyInstanceAggregate> ordered = WeightedFairCycleQueue.order(batch,
+                Map.of("on-time", NOW, "late", NOW - 30_000L), properties, NOW);
+        assertEquals(List.of("late", "on-time"), ordered.stream().map(StrategyInstanceAggregate::getStrategyId).toList());
+    }
+}
@@ -0,0 +1,199 @@
+package com.weihua.test.lifecycle;
+
+import com.weihua.strategy.application.engine.TradingCycleEngine;
+import com.weihua.strategy.application.guard.CycleBudgetPolicy;
+import com.weihua.strategy.application.guard.CycleExecutionGuard;
+import com.weihua.strategy.application.lifecycle.CycleDrainCoordinator;
+import com.weihua.strategy.application.service.TradingCycleAppService;
+import com.weihua.strategy.domain.model.aggregate.StrategyInstanceAggregate;
+import com.weihua.strategy.domain.model.aggregate.VirtualAccountAggregate;
+import com.weihua.strategy.domain.model.entity.CycleCheckpointEntity;
+import com.weihua.strategy.domain.model.entity.DecisionEntity;
+import com.weihua.strategy.domain.model.entity.MarketSnapshotEntity;
+import com.weihua.strategy.domain.model.valobj.MarketContext;
+import com.weihua.strategy.domain.model.valobj.StrategyStatus;
+import com.weihua.strategy.domain.repository.ICycleCheckpointRepository;
+import com.weihua.strategy.domain.repository.IStrategyInstanceRepository;
+import com.weihua.strategy.domain.repository.IVirtualAccountRepository;
+import com.weihua.strategy.domain.service.MarketAnalysisDomainService;
+import com.weihua.strategy.domain.service.StrategyComposerDomainService;
+import com.weihua.strategy.domain.service.TradeExecutionDomainService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * CycleDrainCoordinator 单元测试
+ * 测试排空期间拒绝新循环、取得守卫后才开始排空时返回 REJECTED、等待执行中的循环、
+ * 超时保存已决策未持久化的循环、启动时按 cycleId 重放检查点
+ */
+@Slf4j
+public class CycleDrainCoordinatorTest {
+
+    private ICycleCheckpointRepository checkpointRepository;
+    private IStrategyInstanceRepository strategyRepository;
+    private IVirtualAccountRepository accountRepository;
+    private TradeExecutionDomainService executionService;
+    private CycleDrainCoordinator coordinator;
+
+    @Before
+    public void setUp() {
+        checkpointRepository = mock(ICycleCheckpointRepository.class);
+        strategyRepository = mock(IStrategyInstanceRepository.class);
+        accountRepository = mock(IVirtualAccountRepository.class);
+        executionService = mock(TradeExecutionDomainService.class);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        coordinator = new CycleDrainCoordinator(checkpointRepository, strategyRepository, accountRepository,
+                executionService, new CycleExecutionGuard(meterRegistry, "SKIP"), meterRegistry);
+        ReflectionTestUtils.setField(coordinator, "drainTimeoutMs", 300L);
+        ReflectionTestUtils.setField(coordinator, "replayMaxAgeSeconds", 300L);
+        ReflectionTestUtils.setField(coordinator, "replayBatch", 100);
+    }
+
+    private MarketContext context(String strategyId) {
+        Map<String, MarketSnapshotEntity> marketData = new HashMap<>();
+        MarketSnapshotEntity btc = MarketSnapshotEntity.builder().symbol("BTC").price(new BigDecimal("90000")).build();
+        marketData.put("BTC", btc);
+        return MarketContext.builder().strategyId(strategyId).marketData(marketData).primaryMarket(btc).build();
+    }
+
+    private CycleCheckpointEntity checkpoint(String cycleId, String strategyId, LocalDateTime createTime) {
+        return CycleCheckpointEntity.builder()
+                .cycleId(cycleId)
+                .strategyId(strategyId)
+                .decision(DecisionEntity.builder().rationale("checkpointed").build())
+                .marketData(context(strategyId).getMarketData())
+                .primarySymbol("BTC")
+                .createTime(createTime)
+                .build();
+    }
+
+    @Test
+    public void testDrainRejectsNewCyclesAndWaitsForInFlight() throws Exception {
+        ReflectionTestUtils.setField(coordinator, "drainTimeoutMs", 5000L);
+        assertTrue(coordinator.begin("c1", "s1"));
+
+        CompletableFuture<Void> drained = CompletableFuture.runAsync(coordinator::drain);
+        // 排空开始后才结束在途循环，确保 drain 确实在等待
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (coordinator.isAccepting()) {
+            assertTrue("drain not started", System.nanoTime() - deadline < 0);
+            Thread.onSpinWait();
+        }
+        assertFalse("在途循环未结束时不应完成排空", drained.isDone());
+
+        coordinator.end("c1");
+        drained.get(5, TimeUnit.SECONDS);
+
+        assertFalse(coordinator.isAccepting());
+        assertFalse(coordinator.begin("c2", "s2"));
+        assertEquals(0, coordinator.getInFlightCount());
+        verify(checkpointRepository, never()).save(any());
+    }
+
+    @Test
+    public void testCycleNotStartedDuringDrainIsRejected() {
+        CycleDrainCoordinator drain = mock(CycleDrainCoordinator.class);
+        MarketAnalysisDomainService marketService = mock(MarketAnalysisDomainService.class);
+        TradingCycleAppService appService = new TradingCycleAppService(marketService,
+                mock(StrategyComposerDomainService.class), executionService,
+                new CycleExecutionGuard(new SimpleMeterRegistry(), "SKIP"), mock(TradingCycleEngine.class),
+                mock(CycleBudgetPolicy.class), drain);
+        // 入口检查通过后、循环开始前节点开始排空
+        when(drain.isAccepting()).thenReturn(true);
+        when(drain.begin(anyString(), eq("s1"))).thenReturn(false);
+
+        assertEquals(CycleExecutionGuard.Outcome.REJECTED, appService.executeCycle("s1", 60));
+        verify(marketService, never()).prepareContext(anyString(), any());
+        verify(drain, never()).end(anyString());
+
+        when(drain.begin(anyString(), eq("s1"))).thenReturn(true);
+        assertEquals(CycleExecutionGuard.Outcome.EXECUTED, appService.executeCycle("s1", 60));
+        verify(marketService).prepareContext(eq("s1"), any());
+        verify(drain).end(anyString());
+    }
+
+    @Test
+    public void testDrainTimeoutCheckpointsDecidedCyclesOnly() {
+        DecisionEntity decision = DecisionEntity.builder().rationale("buy").build();
+        coordinator.begin("decided", "s1");
+        coordinator.decided("decided", decision, context("s1"));
+        // 仍在等待 LLM 的循环没有决策可保存
+        coordinator.begin("waiting-llm", "s2");
+
+        coordinator.drain();
+
+        ArgumentCaptor<CycleCheckpointEntity> captor = ArgumentCaptor.forClass(CycleCheckpointEntity.class);
+        verify(checkpointRepository, times(1)).save(captor.capture());
+        CycleCheckpointEntity saved = captor.getValue();
+        assertEquals("decided", saved.getCycleId());
+        assertEquals("s1", saved.getStrategyId());
+        assertSame(decision, saved.getDecision());
+        assertEquals("BTC", saved.getPrimarySymbol());
+    }
+
+    @Test
+    public void testReplayPersistsWithOriginalCycleId() {
+        when(checkpointRepository.findPending(anyInt())).thenReturn(List.of(
+                checkpoint("c-fresh", "s1", LocalDateTime.now().minusSeconds(10)),
+                checkpoint("c-expired", "s1", LocalDateTime.now().minusHours(1))));
+        when(checkpointRepository.claim("c-fresh")).thenReturn(true);
+        when(strategyRepository.findByStrategyId("s1")).thenReturn(
+                StrategyInstanceAggregate.builder().strategyId("s1").status(StrategyStatus.RUNNING).build());
+        when(accountRepository.findByStrategyId("s1", "USDT")).thenReturn(VirtualAccountAggregate.builder()
+                .strategyId("s1").balance(new BigDecimal("10000")).frozen(BigDecimal.ZERO).positions(new HashMap<>()).build());
+
+        coordinator.replayCheckpoints();
+
+        ArgumentCaptor<MarketContext> contextCaptor = ArgumentCaptor.forClass(MarketContext.class);
+        verify(executionService, times(1)).executeAndPersist(eq("c-fresh"), any(), contextCaptor.capture(), any());
+        assertEquals("BTC", contextCaptor.getValue().getPrimaryMarket().getSymbol());
+        verify(checkpointRepository).discard(eq("c-expired"), anyString());
+        verify(checkpointRepository, never()).claim("c-expired");
+    }
+
+    @Test
+    public void testReplayDiscardsWhenStrategyStopped() {
+        when(checkpointRepository.findPending(anyInt())).thenReturn(List.of(
+                checkpoint("c1", "s1", LocalDateTime.now())));
+        when(checkpointRepository.claim("c1")).thenReturn(true);
+        when(strategyRepository.findByStrategyId("s1")).thenReturn(
+                StrategyInstanceAggregate.builder().strategyId("s1").status(StrategyStatus.STOPPED).build());
+
+        coordinator.replayCheckpoints();
+
+        verify(executionService, never()).executeAndPersist(anyString(), any(), any(), any());
+        verify(checkpointRepository).discard(eq("c1"), anyString());
+    }
+
+    @Test
+    public void testReplaySkipsCheckpointClaimedByAnotherNode() {
+        when(checkpointRepository.findPending(anyInt())).thenReturn(List.of(
+                checkpoint("c1", "s1", LocalDateTime.now())));
+        when(checkpointRepository.claim("c1")).thenReturn(false);
+
+        coordinator.replayCheckpoints();
+
+        verify(executionService, never()).executeAndPersist(anyString(), any(), any(), any());
+        verify(checkpointRepository, never()).discard(anyString(), anyString());
+    }
+}
@@ -0,0 +1,144 @@
+package com.weihua.test.llm;
+
+import com.weihua.infrastructure.config.LlmProperties;
+import com.weihua.infrastructure.llm.DecisionCache;
+import com.weihua.strategy.domain.model.entity.MarketSnapshotEntity;
+import com.weihua.strategy.domain.model.entity.PortfolioSnapshotEntity;
+import com.weihua.strategy.domain.model.entity.StrategyConfigEntity;
+import com.weihua.strategy.domain.model.entity.TradeInstruction;
+import com.weihua.strategy.domain.model.entity.TradePlan;
+import com.weihua.strategy.domain.model.valobj.TechnicalIndicators;
+import com.weihua.strategy.domain.model.valobj.TradeAction;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.junit.Assert.*;
+
+/**
+ * DecisionCache 单元测试
+ * 测试容差内的微小变化复用计划、指标或持仓实质变化与过期时重新决策、降级计划不缓存，以及命中指标
+ */
+@Slf4j
+public class DecisionCacheTest {
+
+    private static final String STRATEGY = "s-1";
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+    private SimpleMeterRegistry meterRegistry;
+    private DecisionCache cache;
+    private StrategyConfigEntity config;
+
+    @Before
+    public void setUp() {
+        LlmProperties properties = new LlmProperties();
+        properties.getDecisionCache().setEnabled(true);
+        properties.getDecisionCache().setMaxAgeMs(60_000L);
+
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new DecisionCache();
+        ReflectionTestUtils.setField(cache, "llmProperties", properties);
+        ReflectionTestUtils.setField(cache, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(cache, "clock", (LongSupplier) now::get);
+        cache.init();
+
+        config = StrategyConfigEntity.builder()
+                .strategyType("PROMPT")
+                .riskLevel("LOW")
+                .symbols(List.of("BTC/USDT"))
+                .build();
+    }
+
+    @Test
+    public void testSmallMovesReuseCachedPlan() {
+        String first = fingerprint("97500.00", "45.1", "0.5");
+        cache.put(STRATEGY, first, plan());
+
+        // 价格变动 0.05%、RSI 变动 0.3，仍在同一分桶
+        String second = fingerprint("97548.75", "45.4", "0.5");
+        assertEquals(first, second);
+        TradePlan cached = cache.get(STRATEGY, second);
+        assertNotNull(cached);
+        assertTrue(cached.isCached());
+        assertEquals(TradeAction.BUY, cached.getInstructions().get(0).getAction());
+
+        // 副本之间互不影响
+        cached.getInstructions().get(0).setQuantity(BigDecimal.ZERO);
+        assertEquals(new BigDecimal("0.01"), cache.get(STRATEGY, second).getInstructions().get(0).getQuantity());
+
+        assertEquals(2.0D, meterRegistry.get("llm.decision.cache").tag("result", "hit").counter().count(), 0.0D);
+        assertEquals(2.0D, meterRegistry.get("llm.decision.cache.saved.hourly").gauge().value(), 0.0D);
+        assertEquals(1.0D, meterRegistry.get("llm.decision.cache.hit.ratio").gauge().value(), 0.0D);
+    }
+
+    @Test
+    public void testMaterialChangesMiss() {
+        String base = fingerprint("97500.00", "45.1", "0.5");
+        cache.put(STRATEGY, base, plan());
+
+        assertNotEquals(base, fingerprint("97500.00", "52.0", "0.5"));
+        assertNotEquals(base, fingerprint("98500.00", "45.1", "0.5"));
+        assertNotEquals(base, fingerprint("97500.00", "45.1", "0.6"));
+        assertNull(cache.get(STRATEGY, fingerprint("97500.00", "45.1", "0.6")));
+        assertNull(cache.get("s-2", base));
+    }
+
+    @Test
+    public void testExpiredAndFallbackPlansAreNotReused() {
+        String fingerprint = fingerprint("97500.00", "45.1", "0.5");
+        cache.put(STRATEGY, fingerprint, plan());
+        now.addAndGet(60_001L);
+        assertNull(cache.get(STRATEGY, fingerprint));
+
+        cache.put(STRATEGY, fingerprint, plan());
+        TradePlan fallback = TradePlan.builder().rationale("HOLD").instructions(new ArrayList<>()).fallback(true).build();
+        cache.put(STRATEGY, fingerprint, fallback);
+        assertNull(cache.get(STRATEGY, fingerprint));
+    }
+
+    @Test
+    public void testSavedCountSlidesOverOneHour() {
+        String fingerprint = fingerprint("97500.00", "45.1", "0.5");
+        cache.put(STRATEGY, fingerprint, plan());
+        cache.get(STRATEGY, fingerprint);
+        assertEquals(1L, cache.savedLastHour());
+
+        now.addAndGet(3_600_000L);
+        assertEquals(0L, cache.savedLastHour());
+    }
+
+    private String fingerprint(String price, String rsi, String positionQty) {
+        MarketSnapshotEntity market = MarketSnapshotEntity.builder()
+                .symbol("BTC/USDT")
+                .price(new BigDecimal(price))
+                .indicators(TechnicalIndicators.builder()
+                        .rsi(new BigDecimal(rsi))
+                        .sma20(new BigDecimal("96000"))
+                        .macdHistogram(new BigDecimal("12.5"))
+                        .build())
+                .build();
+        List<PortfolioSnapshotEntity.PositionEntity> positions = new ArrayList<>();
+        positions.add(PortfolioSnapshotEntity.PositionEntity.builder()
+                .symbol("BTC/USDT").quantity(new BigDecimal(positionQty)).build());
+        PortfolioSnapshotEntity portfolio = PortfolioSnapshotEntity.builder()
+                .availableBalance(new BigDecimal("10000"))
+                .positions(positions)
+                .build();
+        return cache.fingerprint(market, portfolio, config, "deepseek-v3", "default");
+    }
+
+    private static TradePlan plan() {
+        List<TradeInstruction> instructions = new ArrayList<>();
+        instructions.add(TradeInstruction.builder()
+                .action(TradeAction.BUY).symbol("BTC/USDT").quantity(new BigDecimal("0.01")).build());
+        return TradePlan.builder().rationale("RSI oversold").instructions(instructions).build();
+    }
+}
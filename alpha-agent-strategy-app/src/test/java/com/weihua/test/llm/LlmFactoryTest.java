@@ -0,0 +1,119 @@
+package com.weihua.test.llm;
+
+import com.weihua.infrastructure.adapter.factory.LlmFactory;
+import com.weihua.infrastructure.config.LlmProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.cloud.context.scope.refresh.RefreshScopeRefreshedEvent;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * LlmFactory 单元测试
+ * 测试 ChatModel 按 modelId 复用、app.llm 配置刷新后按新配置重建、无关配置变更不影响缓存、模型所属渠道查询随刷新更新
+ */
+@Slf4j
+public class LlmFactoryTest {
+
+    private LlmProperties llmProperties;
+    private SimpleMeterRegistry meterRegistry;
+    private LlmFactory llmFactory;
+
+    @Before
+    public void setUp() {
+        llmProperties = new LlmProperties();
+        LlmProperties.ProviderConfig provider = new LlmProperties.ProviderConfig();
+        provider.setApiKey("sk-test");
+        provider.setBaseUrl("http://127.0.0.1:1");
+        llmProperties.setProviders(new HashMap<>());
+        llmProperties.getProviders().put("deepseek-official", provider);
+        llmProperties.setModels(new ArrayList<>(List.of(
+                model("deepseek-v3", "deepseek-chat"),
+                model("deepseek-r1", "deepseek-reasoner"))));
+        llmProperties.setDefaultModel("deepseek-v3");
+
+        meterRegistry = new SimpleMeterRegistry();
+        llmFactory = new LlmFactory();
+        ReflectionTestUtils.setField(llmFactory, "restClientBuilder", RestClient.builder());
+        ReflectionTestUtils.setField(llmFactory, "webClientBuilder", WebClient.builder());
+        ReflectionTestUtils.setField(llmFactory, "llmProperties", llmProperties);
+        ReflectionTestUtils.setField(llmFactory, "meterRegistry", meterRegistry);
+        llmFactory.init();
+    }
+
+    @Test
+    public void testChatModelReusedPerModelId() {
+        ChatModel first = llmFactory.getChatModel("deepseek-v3");
+        assertSame(first, llmFactory.getChatModel("deepseek-v3"));
+        // null 使用默认模型
+        assertSame(first, llmFactory.getChatModel(null));
+        assertNotSame(first, llmFactory.getChatModel("deepseek-r1"));
+
+        assertEquals(2.0D, meterRegistry.get("llm.model.cache").tag("result", "build").counter().count(), 0.0D);
+        assertEquals(2.0D, meterRegistry.get("llm.model.cache").tag("result", "hit").counter().count(), 0.0D);
+    }
+
+    @Test
+    public void testLlmConfigRefreshRebuilds() {
+        ChatModel before = llmFactory.getChatModel("deepseek-v3");
+
+        // 无关配置变更不失效
+        llmFactory.onEnvironmentChange(new EnvironmentChangeEvent(Set.of("strategy.scheduler.tick-ms")));
+        llmFactory.onRefreshScopeRefreshed(new RefreshScopeRefreshedEvent());
+        assertSame(before, llmFactory.getChatModel("deepseek-v3"));
+
+        llmFactory.onEnvironmentChange(new EnvironmentChangeEvent(Set.of("app.llm.models[0].temperature")));
+        llmProperties.getModels().add(model("qwen-max", "qwen-max"));
+        llmFactory.onRefreshScopeRefreshed(new RefreshScopeRefreshedEvent());
+
+        assertNotSame(before, llmFactory.getChatModel("deepseek-v3"));
+        assertNotNull(llmFactory.getChatModel("qwen-max"));
+        assertEquals(2.0D, meterRegistry.get("llm.model.cache.invalidations").counter().count(), 0.0D);
+    }
+
+    @Test
+    public void testProviderIdIndexedAndRefreshed() {
+        assertEquals("deepseek-official", llmFactory.getProviderId("deepseek-r1"));
+        // null 使用默认模型
+        assertEquals("deepseek-official", llmFactory.getProviderId(null));
+        assertNull(llmFactory.getProviderId("gpt-unknown"));
+
+        llmFactory.onEnvironmentChange(new EnvironmentChangeEvent(Set.of("app.llm.models[2].provider-ref")));
+        LlmProperties.ModelConfig qwen = model("qwen-max", "qwen-max");
+        qwen.setProviderRef("dashscope");
+        llmProperties.getModels().add(qwen);
+        llmFactory.onRefreshScopeRefreshed(new RefreshScopeRefreshedEvent());
+
+        assertEquals("dashscope", llmFactory.getProviderId("qwen-max"));
+    }
+
+    @Test
+    public void testUnknownModelRejected() {
+        try {
+            llmFactory.getChatModel("gpt-unknown");
+            fail("unknown model should be rejected");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Unknown model ID: gpt-unknown", e.getMessage());
+        }
+    }
+
+    private static LlmProperties.ModelConfig model(String id, String modelName) {
+        LlmProperties.ModelConfig model = new LlmProperties.ModelConfig();
+        model.setId(id);
+        model.setModelName(modelName);
+        model.setProviderRef("deepseek-official");
+        return model;
+    }
+}
@@ -0,0 +1,102 @@
+package com.weihua.test.llm;
+
+import com.weihua.infrastructure.prompt.PromptTemplate;
+import com.weihua.infrastructure.prompt.PromptTemplateRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * PromptTemplate / PromptTemplateRegistry 单元测试
+ * 测试单次渲染与逐个 replace 的结果一致、花括号转义、未声明占位符保留，以及按版本缓存与配置刷新失效
+ */
+@Slf4j
+public class PromptTemplateTest {
+
+    private static final String[] VARIABLES = {"market_data", "portfolio", "strategy_config"};
+
+    private SimpleMeterRegistry meterRegistry;
+    private PromptTemplateRegistry registry;
+
+    @Before
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        registry = new PromptTemplateRegistry();
+        ReflectionTestUtils.setField(registry, "meterRegistry", meterRegistry);
+        registry.init();
+    }
+
+    @Test
+    public void testRenderMatchesReplace() {
+        String source = "## Market\n{market_data}\n## Portfolio\n{portfolio}\n## Config\n{strategy_config}\n"
+                + "Return JSON: {\n  \"rationale\": \"...\"\n}\nAgain: {market_data}";
+        PromptTemplate template = PromptTemplate.compile("t", "1", source, VARIABLES);
+
+        String rendered = template.render("BTC 97500", "Balance 1000", "Risk LOW");
+        String replaced = source.replace("{market_data}", "BTC 97500")
+                .replace("{portfolio}", "Balance 1000")
+                .replace("{strategy_config}", "Risk LOW");
+        assertEquals(replaced, rendered);
+        assertEquals(4, template.placeholderCount());
+    }
+
+    @Test
+    public void testEscapesAndUnknownPlaceholders() {
+        PromptTemplate template = PromptTemplate.compile("t", "1",
+                "{{\"action\": \"{unknown}\"}} {portfolio}{market_data", VARIABLES);
+        assertEquals("{\"action\": \"{unknown}\"} P{market_data", template.render("M", "P", "S"));
+        assertEquals("{\"action\": \"{unknown}\"} {market_data", template.render("M", null, "S"));
+    }
+
+    @Test
+    public void testRejectsWrongValueCount() {
+        PromptTemplate template = PromptTemplate.compile("t", "1", "{portfolio}", VARIABLES);
+        try {
+            template.render("only-one");
+            fail("value count mismatch should be rejected");
+        } catch (IllegalArgumentException expected) {
+            log.info("rejected: {}", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void testRegistryCachesByVersion() {
+        AtomicInteger loads = new AtomicInteger();
+        PromptTemplate first = registry.get("system", "v1", () -> source(loads), VARIABLES);
+        assertSame(first, registry.get("system", "v1", () -> source(loads), VARIABLES));
+        assertEquals(1, loads.get());
+
+        PromptTemplate second = registry.get("system", "v2", () -> source(loads), VARIABLES);
+        assertNotSame(first, second);
+        assertEquals("v2", second.getVersion());
+        assertEquals(2, loads.get());
+        assertEquals(1.0D, meterRegistry.get("llm.prompt.template").tag("result", "hit").counter().count(), 0.0D);
+    }
+
+    @Test
+    public void testNacosRefreshInvalidates() {
+        AtomicInteger loads = new AtomicInteger();
+        registry.get("system", "v1", () -> source(loads), VARIABLES);
+
+        registry.onEnvironmentChange(new EnvironmentChangeEvent(Set.of("app.llm.default-model")));
+        registry.get("system", "v1", () -> source(loads), VARIABLES);
+        assertEquals(1, loads.get());
+
+        registry.onEnvironmentChange(new EnvironmentChangeEvent(Set.of("agent.prompts.strategy-agent-instruction")));
+        registry.get("system", "v1", () -> source(loads), VARIABLES);
+        assertEquals(2, loads.get());
+    }
+
+    private static String source(AtomicInteger loads) {
+        loads.incrementAndGet();
+        return "{market_data}|{portfolio}|{strategy_config}";
+    }
+}
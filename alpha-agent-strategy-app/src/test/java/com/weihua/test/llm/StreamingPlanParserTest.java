@@ -0,0 +1,124 @@
+package com.weihua.test.llm;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.weihua.infrastructure.adapter.port.LlmPort;
+import com.weihua.infrastructure.llm.StreamingPlanParser;
+import com.weihua.strategy.domain.model.entity.TradePlan;
+import com.weihua.strategy.domain.model.valobj.CycleDeadline;
+import com.weihua.strategy.domain.model.valobj.TradeAction;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * StreamingPlanParser 单元测试
+ * 测试按任意切分的流式片段增量解析交易计划、计划完整后忽略后续输出、流式决策提前取消剩余输出
+ */
+@Slf4j
+public class StreamingPlanParserTest {
+
+    private static final String RESPONSE = "Here is my decision:\n```json\n{\n"
+            + "  \"rationale\": \"RSI {recovering} from \\\"oversold\\\", trend up\",\n"
+            + "  \"confidence\": 0.8,\n"
+            + "  \"instructions\": [\n"
+            + "    {\"action\": \"BUY\", \"symbol\": \"BTC/USDT\", \"quantity\": \"0.01\", \"reason\": \"pullback ]} entry\"},\n"
+            + "    {\"action\": \"SELL\", \"symbol\": \"ETH/USDT\", \"quantity\": 1.5}\n"
+            + "  ],\n"
+            + "  \"notes\": {\"levels\": [1, 2]}\n"
+            + "}\n```\nLet me know if you need more detail.";
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @Test
+    public void testIncrementalParseAnyChunking() throws Exception {
+        for (int size = 1; size <= 16; size++) {
+            StreamingPlanParser parser = new StreamingPlanParser(objectMapper);
+            boolean complete = false;
+            for (int i = 0; i < RESPONSE.length() && !complete; i += size) {
+                complete = parser.feed(RESPONSE.substring(i, Math.min(RESPONSE.length(), i + size)));
+            }
+            assertTrue("chunk size " + size, complete);
+            assertPlan(parser.toPlan());
+        }
+    }
+
+    @Test
+    public void testCompleteOnceInstructionsClose() throws Exception {
+        StreamingPlanParser parser = new StreamingPlanParser(objectMapper);
+        int end = RESPONSE.indexOf("],") + 1;
+        assertFalse(parser.feed(RESPONSE.substring(0, end - 1)));
+        assertFalse(parser.isInstructionsClosed());
+        assertTrue(parser.feed(RESPONSE.substring(end - 1, end)));
+
+        // 计划完整后的输出不再解析
+        assertTrue(parser.feed("{ not json"));
+        assertPlan(parser.toPlan());
+        assertTrue(parser.trailingChars() > 0);
+    }
+
+    @Test
+    public void testRootCloseWithoutRationale() throws Exception {
+        StreamingPlanParser parser = new StreamingPlanParser(objectMapper);
+        assertFalse(parser.feed("{\"instructions\": [], \"extra\": true"));
+        assertTrue(parser.feed("}"));
+        TradePlan plan = parser.toPlan();
+        assertNull(plan.getRationale());
+        assertTrue(plan.getInstructions().isEmpty());
+    }
+
+    @Test
+    public void testStreamCancelledAfterPlanComplete() throws Exception {
+        List<String> chunks = new ArrayList<>();
+        for (int i = 0; i < RESPONSE.length(); i += 4) {
+            chunks.add(RESPONSE.substring(i, Math.min(RESPONSE.length(), i + 4)));
+        }
+        AtomicBoolean cancelled = new AtomicBoolean();
+        ChatModel chatModel = mock(ChatModel.class);
+        // 计划之后的输出永不结束，只有取消才能返回
+        when(chatModel.stream(anyString())).thenReturn(Flux.fromIterable(chunks)
+                .concatWith(Flux.never())
+                .doOnCancel(() -> cancelled.set(true)));
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        LlmPort llmPort = new LlmPort();
+        ReflectionTestUtils.setField(llmPort, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(llmPort, "meterRegistry", meterRegistry);
+        llmPort.init();
+        Method streamPlan = LlmPort.class.getDeclaredMethod("streamPlan", ChatModel.class, String.class, CycleDeadline.class);
+        streamPlan.setAccessible(true);
+
+        try {
+            TradePlan plan = (TradePlan) streamPlan.invoke(llmPort, chatModel, "prompt", CycleDeadline.none());
+            assertPlan(plan);
+            assertTrue(cancelled.get());
+            assertEquals(1.0D, meterRegistry.get("llm.stream.early_stop").counter().count(), 0.0D);
+            assertEquals(1L, meterRegistry.get("llm.stream.chunks").tag("phase", "decision").summary().count());
+        } finally {
+            llmPort.destroy();
+        }
+    }
+
+    private static void assertPlan(TradePlan plan) {
+        assertEquals("RSI {recovering} from \"oversold\", trend up", plan.getRationale());
+        assertEquals(2, plan.getInstructions().size());
+        assertEquals(TradeAction.BUY, plan.getInstructions().get(0).getAction());
+        assertEquals(new BigDecimal("0.01"), plan.getInstructions().get(0).getQuantity());
+        assertEquals("ETH/USDT", plan.getInstructions().get(1).getSymbol());
+        assertEquals(new BigDecimal("1.5"), plan.getInstructions().get(1).getQuantity());
+    }
+}
@@ -0,0 +1,99 @@
+package com.weihua.test.llm;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.weihua.infrastructure.adapter.port.LlmPort;
+import com.weihua.infrastructure.llm.TradePlanSchema;
+import com.weihua.strategy.domain.model.entity.TradePlan;
+import com.weihua.strategy.domain.model.valobj.TradeAction;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+
+import static org.junit.Assert.*;
+
+/**
+ * LlmPort 计划解析单元测试
+ * 测试结构化输出直接反序列化、旧格式正则兜底计数，以及不符合 Schema 的计划被丢弃
+ */
+@Slf4j
+public class TradePlanParseTest {
+
+    private static final String PLAN_JSON = "{\"rationale\": \"RSI oversold\", \"instructions\": ["
+            + "{\"action\": \"BUY\", \"symbol\": \"BTC/USDT\", \"quantity\": 0.01, \"rationale\": \"rebound\"}]}";
+
+    private SimpleMeterRegistry meterRegistry;
+    private LlmPort llmPort;
+    private Method parsePlan;
+
+    @Before
+    public void setUp() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        llmPort = new LlmPort();
+        ReflectionTestUtils.setField(llmPort, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(llmPort, "meterRegistry", meterRegistry);
+        llmPort.init();
+        parsePlan = LlmPort.class.getDeclaredMethod("parsePlan", String.class);
+        parsePlan.setAccessible(true);
+    }
+
+    @After
+    public void tearDown() {
+        llmPort.destroy();
+    }
+
+    @Test
+    public void testStructuredOutputParsedDirectly() throws Exception {
+        TradePlan plan = parse("\n " + PLAN_JSON + "\n");
+        assertEquals("RSI oversold", plan.getRationale());
+        assertEquals(TradeAction.BUY, plan.getInstructions().get(0).getAction());
+        assertEquals(new BigDecimal("0.01"), plan.getInstructions().get(0).getQuantity());
+        assertEquals(1.0D, count("direct"), 0.0D);
+        assertEquals(0.0D, count("regex"), 0.0D);
+    }
+
+    @Test
+    public void testLegacyTextFallsBackToExtraction() throws Exception {
+        TradePlan fenced = parse("Decision:\n```json\n" + PLAN_JSON + "\n```\nDone.");
+        assertEquals(1, fenced.getInstructions().size());
+
+        TradePlan embedded = parse("My plan is " + PLAN_JSON + " - good luck");
+        assertEquals("RSI oversold", embedded.getRationale());
+        assertEquals(2.0D, count("regex"), 0.0D);
+
+        TradePlan none = parse("I cannot decide right now.");
+        assertTrue(none.getInstructions().isEmpty());
+        assertEquals(1.0D, count("failed"), 0.0D);
+    }
+
+    @Test
+    public void testSchemaViolationDropsPlan() throws Exception {
+        TradePlan plan = parse("{\"rationale\": \"x\", \"instructions\": ["
+                + "{\"action\": \"SELL\", \"symbol\": \"ETH/USDT\", \"quantity\": -1}]}");
+        assertTrue(plan.getInstructions().isEmpty());
+        assertTrue(plan.getRationale().startsWith("Schema violation"));
+        assertEquals(1.0D, meterRegistry.get("llm.plan.schema.violations").counter().count(), 0.0D);
+
+        TradePlan hold = parse("{\"rationale\": \"wait\", \"instructions\": [{\"action\": \"HOLD\"}]}");
+        assertEquals(1, hold.getInstructions().size());
+        assertTrue(TradePlanSchema.validate(hold).isEmpty());
+    }
+
+    @Test
+    public void testSchemaIsValidJson() throws Exception {
+        assertEquals("object", new ObjectMapper().readTree(TradePlanSchema.JSON_SCHEMA).get("type").asText());
+    }
+
+    private TradePlan parse(String response) throws Exception {
+        return (TradePlan) parsePlan.invoke(llmPort, response);
+    }
+
+    private double count(String path) {
+        return meterRegistry.get("llm.plan.parse").tag("path", path).counter().count();
+    }
+}
@@ -0,0 +1,149 @@
+package com.weihua.test.market;
+
+import com.weihua.infrastructure.market.CircuitBreaker;
+import com.weihua.infrastructure.market.LatencyTracker;
+import com.weihua.types.enums.ResponseCode;
+import com.weihua.types.exception.AppException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * CircuitBreaker 单元测试
+ * 测试按失败比例打开、打开期间拒绝、半开探测后关闭或重新打开、慢调用计为失败，以及耗时分位数统计
+ */
+@Slf4j
+public class CircuitBreakerTest {
+
+    private static final long OPEN_MS = 30_000L;
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+    private SimpleMeterRegistry meterRegistry;
+    private CircuitBreaker breaker;
+
+    @Before
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        breaker = new CircuitBreaker("stock-mcp", 50, 1000L, 10, 4, OPEN_MS, 2, meterRegistry, now::get);
+    }
+
+    @Test
+    public void testOpensWhenFailureRateReached() {
+        succeed();
+        succeed();
+        failCall();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        failCall();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(1.0D, meterRegistry.get("market.upstream.circuit").tag("result", "opened").counter().count(), 0.0D);
+        assertEquals(2.0D, meterRegistry.get("market.upstream.circuit.state").gauge().value(), 0.0D);
+    }
+
+    @Test
+    public void testRejectsWhileOpen() {
+        openBreaker();
+        assertRejected();
+        now.addAndGet(OPEN_MS - 1);
+        assertRejected();
+        assertEquals(2.0D, meterRegistry.get("market.upstream.circuit").tag("result", "rejected").counter().count(), 0.0D);
+    }
+
+    @Test
+    public void testHalfOpenClosesAfterSuccessfulProbes() {
+        openBreaker();
+        now.addAndGet(OPEN_MS);
+
+        breaker.acquire();
+        breaker.acquire();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        // 探测名额已满
+        assertRejected();
+
+        breaker.onSuccess(TimeUnit.MILLISECONDS.toNanos(10));
+        breaker.onSuccess(TimeUnit.MILLISECONDS.toNanos(10));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.acquire();
+        breaker.onSuccess(0L);
+    }
+
+    @Test
+    public void testProbeFailureReopens() {
+        openBreaker();
+        now.addAndGet(OPEN_MS);
+
+        breaker.acquire();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertRejected();
+    }
+
+    @Test
+    public void testIgnoredProbeReleasesSlot() {
+        openBreaker();
+        now.addAndGet(OPEN_MS);
+
+        breaker.acquire();
+        breaker.acquire();
+        breaker.onIgnored();
+        breaker.acquire();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testSlowCallCountsAsFailure() {
+        for (int i = 0; i < 4; i++) {
+            breaker.acquire();
+            breaker.onSuccess(TimeUnit.MILLISECONDS.toNanos(1500));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testLatencyQuantile() {
+        LatencyTracker tracker = new LatencyTracker(100, 0.95D, 20);
+        for (int i = 1; i < 20; i++) {
+            tracker.record(i);
+        }
+        assertEquals(-1L, tracker.quantileMs());
+
+        for (int i = 20; i <= 100; i++) {
+            tracker.record(i);
+        }
+        long p95 = tracker.quantileMs();
+        log.info("p95={}ms", p95);
+        assertTrue(p95 >= 90L && p95 <= 100L);
+    }
+
+    private void openBreaker() {
+        for (int i = 0; i < 4; i++) {
+            failCall();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    private void succeed() {
+        breaker.acquire();
+        breaker.onSuccess(TimeUnit.MILLISECONDS.toNanos(10));
+    }
+
+    private void failCall() {
+        breaker.acquire();
+        breaker.onFailure();
+    }
+
+    private void assertRejected() {
+        try {
+            breaker.acquire();
+            fail("circuit should reject calls");
+        } catch (AppException e) {
+            assertEquals(ResponseCode.UPSTREAM_CIRCUIT_OPEN.getCode(), e.getCode());
+        }
+    }
+}
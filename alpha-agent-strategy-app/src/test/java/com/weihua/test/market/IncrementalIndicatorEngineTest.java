@@ -0,0 +1,248 @@
+package com.weihua.test.market;
+
+import com.weihua.infrastructure.market.CandleInterval;
+import com.weihua.infrastructure.market.indicator.Candle;
+import com.weihua.infrastructure.market.indicator.IndicatorEngine;
+import com.weihua.infrastructure.market.indicator.IndicatorSeries;
+import com.weihua.infrastructure.market.indicator.IndicatorValues;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * IndicatorSeries / IndicatorEngine 单元测试
+ * 测试增量计算结果与整段重算一致、未收盘 K 线的 evaluate 与 commit 一致、报价跨 K 线边界时收盘并标记重新引导
+ */
+@Slf4j
+public class IncrementalIndicatorEngineTest {
+
+    private static final double EPS = 1e-6;
+    private static final long DAY_MS = TimeUnit.DAYS.toMillis(1);
+    /** 2025-12-01 00:00:00 UTC */
+    private static final long DAY_START = Instant.parse("2025-12-01T00:00:00Z").toEpochMilli();
+
+    private List<Candle> candles;
+
+    @Before
+    public void setUp() {
+        candles = randomWalk(400, 42L);
+    }
+
+    @Test
+    public void testIncrementalMatchesBatch() {
+        IndicatorSeries series = new IndicatorSeries();
+        List<IndicatorValues> values = new ArrayList<>();
+        for (Candle candle : candles) {
+            values.add(series.commit(candle));
+        }
+
+        double[] close = candles.stream().mapToDouble(Candle::getClose).toArray();
+        Double[] ema12 = batchEma(close, 12);
+        Double[] ema26 = batchEma(close, 26);
+        Double[] rsi = batchRsi(close, 14);
+        Double[] atr = batchAtr(candles, 14);
+        Double[][] kdj = batchKdj(candles);
+
+        double[] macd = new double[close.length - 25];
+        for (int i = 25; i < close.length; i++) {
+            macd[i - 25] = ema12[i] - ema26[i];
+        }
+        Double[] signal = batchEma(macd, 9);
+
+        for (int i = 0; i < candles.size(); i++) {
+            IndicatorValues v = values.get(i);
+            assertClose("sma20@" + i, batchSma(close, i, 20), v.getSma20());
+            assertClose("sma50@" + i, batchSma(close, i, 50), v.getSma50());
+            assertClose("sma200@" + i, batchSma(close, i, 200), v.getSma200());
+            assertClose("ema12@" + i, ema12[i], v.getEma12());
+            assertClose("ema26@" + i, ema26[i], v.getEma26());
+            assertClose("rsi@" + i, rsi[i], v.getRsi());
+            assertClose("atr@" + i, atr[i], v.getAtr());
+            assertClose("kdjK@" + i, kdj[0][i], v.getKdjK());
+            assertClose("kdjD@" + i, kdj[1][i], v.getKdjD());
+            assertClose("macdSignal@" + i, i >= 25 ? signal[i - 25] : null, v.getMacdSignal());
+
+            Double std = batchStdDev(close, i, 20);
+            assertClose("bollUpper@" + i, std != null ? batchSma(close, i, 20) + 2 * std : null, v.getBollingerUpper());
+        }
+        log.info("last values: {}", values.get(values.size() - 1));
+    }
+
+    @Test
+    public void testEvaluateMatchesCommit() {
+        IndicatorSeries series = new IndicatorSeries();
+        for (int i = 0; i < candles.size(); i++) {
+            Candle candle = candles.get(i);
+            IndicatorValues peeked = series.evaluate(candle);
+            // 再次 evaluate 不应受前一次影响
+            series.evaluate(Candle.builder().openTimeMs(candle.getOpenTimeMs()).open(1).high(1e9).low(0).close(1).build());
+            IndicatorValues committed = series.commit(candle);
+            assertEquals("evaluate and commit differ at " + i, peeked, committed);
+        }
+        assertEquals(candles.size(), series.count());
+    }
+
+    @Test
+    public void testEngineTickUpdatesFormingCandleAndResyncsOnRollover() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        IndicatorEngine engine = new IndicatorEngine(CandleInterval.parse("1d"), meterRegistry);
+        assertFalse(engine.onTick("BTC", 100.0D, DAY_START));
+        assertTrue(engine.needsBootstrap("BTC"));
+
+        // 最后一根 K 线与当前时间同一天，作为未收盘 K 线
+        long now = candles.get(candles.size() - 1).getOpenTimeMs() + TimeUnit.HOURS.toMillis(3);
+        engine.bootstrap("BTC", candles, now);
+        assertFalse(engine.needsBootstrap("BTC"));
+
+        IndicatorSeries reference = new IndicatorSeries();
+        candles.subList(0, candles.size() - 1).forEach(reference::commit);
+        assertEquals(reference.evaluate(candles.get(candles.size() - 1)), engine.snapshot("BTC"));
+
+        Candle forming = candles.get(candles.size() - 1);
+        double spike = forming.getHigh() + 10.0D;
+        assertTrue(engine.onTick("BTC", spike, now + 1000L));
+        IndicatorValues afterTick = engine.snapshot("BTC");
+        assertEquals(spike, afterTick.getCandle().getHigh(), 0.0D);
+        assertEquals(spike, afterTick.getCandle().getClose(), 0.0D);
+        assertFalse(engine.needsBootstrap("BTC"));
+
+        // 跨过 UTC 零点：未收盘 K 线并入状态，新 K 线以报价开盘，并等待用上游 K 线校正
+        long nextDay = forming.getOpenTimeMs() + DAY_MS + 60_000L;
+        assertTrue(engine.onTick("BTC", 123.0D, nextDay));
+        assertTrue(engine.needsBootstrap("BTC"));
+        IndicatorValues rolled = engine.snapshot("BTC");
+        assertEquals(forming.getOpenTimeMs() + DAY_MS, rolled.getCandle().getOpenTimeMs());
+        assertEquals(123.0D, rolled.getCandle().getOpen(), 0.0D);
+        assertEquals(1.0D, meterRegistry.get("market.indicator.engine.rollover").counter().count(), 0.0D);
+        assertEquals(1.0D, meterRegistry.get("market.indicator.engine.symbols").gauge().value(), 0.0D);
+    }
+
+    private static void assertClose(String label, Double expected, Double actual) {
+        if (expected == null) {
+            assertNull(label, actual);
+            return;
+        }
+        assertNotNull(label, actual);
+        assertEquals(label, expected, actual, EPS * Math.max(1.0D, Math.abs(expected)));
+    }
+
+    private static List<Candle> randomWalk(int n, long seed) {
+        Random random = new Random(seed);
+        List<Candle> result = new ArrayList<>(n);
+        double close = 100.0D;
+        long openTime = DAY_START - (n - 1) * DAY_MS;
+        for (int i = 0; i < n; i++) {
+            double open = close;
+            close = Math.max(1.0D, open * (1.0D + random.nextGaussian() * 0.02D));
+            double high = Math.max(open, close) * (1.0D + random.nextDouble() * 0.01D);
+            double low = Math.min(open, close) * (1.0D - random.nextDouble() * 0.01D);
+            result.add(new Candle(openTime + i * DAY_MS, open, high, low, close, 1000.0D));
+        }
+        return result;
+    }
+
+    private static Double batchSma(double[] x, int end, int n) {
+        if (end + 1 < n) {
+            return null;
+        }
+        double sum = 0.0D;
+        for (int i = end - n + 1; i <= end; i++) {
+            sum += x[i];
+        }
+        return sum / n;
+    }
+
+    private static Double batchStdDev(double[] x, int end, int n) {
+        Double mean = batchSma(x, end, n);
+        if (mean == null) {
+            return null;
+        }
+        double sq = 0.0D;
+        for (int i = end - n + 1; i <= end; i++) {
+            sq += (x[i] - mean) * (x[i] - mean);
+        }
+        return Math.sqrt(sq / n);
+    }
+
+    /** 前 n 个值的简单平均作为种子 */
+    private static Double[] smooth(double[] x, int n, double alpha) {
+        Double[] out = new Double[x.length];
+        if (x.length < n) {
+            return out;
+        }
+        double sum = 0.0D;
+        for (int i = 0; i < n; i++) {
+            sum += x[i];
+        }
+        out[n - 1] = sum / n;
+        for (int i = n; i < x.length; i++) {
+            out[i] = alpha * x[i] + (1.0D - alpha) * out[i - 1];
+        }
+        return out;
+    }
+
+    private static Double[] batchEma(double[] x, int n) {
+        return smooth(x, n, 2.0D / (n + 1));
+    }
+
+    private static Double[] batchRsi(double[] close, int n) {
+        double[] gains = new double[close.length - 1];
+        double[] losses = new double[close.length - 1];
+        for (int i = 1; i < close.length; i++) {
+            gains[i - 1] = Math.max(close[i] - close[i - 1], 0.0D);
+            losses[i - 1] = Math.max(close[i - 1] - close[i], 0.0D);
+        }
+        Double[] avgGain = smooth(gains, n, 1.0D / n);
+        Double[] avgLoss = smooth(losses, n, 1.0D / n);
+        Double[] out = new Double[close.length];
+        for (int i = 1; i < close.length; i++) {
+            if (avgGain[i - 1] != null) {
+                out[i] = avgLoss[i - 1] == 0.0D ? 100.0D : 100.0D - 100.0D / (1.0D + avgGain[i - 1] / avgLoss[i - 1]);
+            }
+        }
+        return out;
+    }
+
+    private static Double[] batchAtr(List<Candle> candles, int n) {
+        double[] tr = new double[candles.size() - 1];
+        for (int i = 1; i < candles.size(); i++) {
+            Candle c = candles.get(i);
+            double prevClose = candles.get(i - 1).getClose();
+            tr[i - 1] = Math.max(c.getHigh() - c.getLow(),
+                    Math.max(Math.abs(c.getHigh() - prevClose), Math.abs(c.getLow() - prevClose)));
+        }
+        Double[] smoothed = smooth(tr, n, 1.0D / n);
+        Double[] out = new Double[candles.size()];
+        System.arraycopy(smoothed, 0, out, 1, smoothed.length);
+        return out;
+    }
+
+    private static Double[][] batchKdj(List<Candle> candles) {
+        Double[][] out = new Double[2][candles.size()];
+        double k = 50.0D;
+        double d = 50.0D;
+        for (int i = 8; i < candles.size(); i++) {
+            double highest = Double.NEGATIVE_INFINITY;
+            double lowest = Double.POSITIVE_INFINITY;
+            for (int j = i - 8; j <= i; j++) {
+                highest = Math.max(highest, candles.get(j).getHigh());
+                lowest = Math.min(lowest, candles.get(j).getLow());
+            }
+            double rsv = highest > lowest ? (candles.get(i).getClose() - lowest) / (highest - lowest) * 100.0D : 50.0D;
+            k = k * 2.0D / 3.0D + rsv / 3.0D;
+            d = d * 2.0D / 3.0D + k / 3.0D;
+            out[0][i] = k;
+            out[1][i] = d;
+        }
+        return out;
+    }
+}
@@ -0,0 +1,126 @@
+package com.weihua.test.market;
+
+import com.weihua.infrastructure.market.CandleInterval;
+import com.weihua.infrastructure.market.IndicatorCache;
+import com.weihua.infrastructure.market.IndicatorCache.RefreshPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * IndicatorCache 单元测试
+ * 测试 K 线边界按 UTC 对齐、缓存在下一个边界 + 收盘延迟失效、INTRABAR 定期刷新、上游失败不写入缓存
+ */
+@Slf4j
+public class IndicatorCacheTest {
+
+    private static final long CLOSE_DELAY_MS = 5000L;
+    private static final long DAY_MS = TimeUnit.DAYS.toMillis(1);
+    /** 2025-12-01 00:00:00 UTC (周一) */
+    private static final long DAY_START = Instant.parse("2025-12-01T00:00:00Z").toEpochMilli();
+
+    private final AtomicLong now = new AtomicLong(DAY_START + TimeUnit.HOURS.toMillis(10));
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    private SimpleMeterRegistry meterRegistry;
+    private CandleInterval daily;
+
+    @Before
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        daily = CandleInterval.parse("1d");
+    }
+
+    private IndicatorCache<String> cache(RefreshPolicy policy) {
+        return new IndicatorCache<>(policy, TimeUnit.MINUTES.toMillis(5), CLOSE_DELAY_MS, 100, meterRegistry, now::get);
+    }
+
+    private String load(IndicatorCache<String> cache, String symbol) {
+        return cache.get(symbol, "30d", daily, () -> "{\"call\": " + upstreamCalls.incrementAndGet() + "}");
+    }
+
+    @Test
+    public void testCandleBoundariesAlignToUtc() {
+        long ts = Instant.parse("2025-12-03T13:45:10Z").toEpochMilli();
+        assertEquals(Instant.parse("2025-12-04T00:00:00Z").toEpochMilli(), daily.nextBoundary(ts));
+        assertEquals(Instant.parse("2025-12-03T16:00:00Z").toEpochMilli(), CandleInterval.parse("4h").nextBoundary(ts));
+        assertEquals(Instant.parse("2025-12-03T14:00:00Z").toEpochMilli(), CandleInterval.parse("15m").nextBoundary(ts + 4 * 60_000L));
+
+        long weekStart = CandleInterval.parse("1w").candleStart(ts);
+        assertEquals(DayOfWeek.MONDAY, Instant.ofEpochMilli(weekStart).atZone(ZoneOffset.UTC).getDayOfWeek());
+        assertEquals(DAY_START, weekStart);
+
+        try {
+            CandleInterval.parse("1mo");
+            fail("month interval is not supported");
+        } catch (IllegalArgumentException expected) {
+            log.info("rejected: {}", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void testDailyIndicatorsComputedOncePerCandle() {
+        IndicatorCache<String> cache = cache(RefreshPolicy.CANDLE_CLOSE);
+        for (int i = 0; i < 100; i++) {
+            load(cache, "BTC/USDT");
+            now.addAndGet(TimeUnit.MINUTES.toMillis(1));
+        }
+        assertEquals(1, upstreamCalls.get());
+
+        // 收盘延迟内仍使用上一根 K 线的结果
+        now.set(DAY_START + DAY_MS + CLOSE_DELAY_MS - 1);
+        assertEquals("{\"call\": 1}", load(cache, "BTC/USDT"));
+
+        now.set(DAY_START + DAY_MS + CLOSE_DELAY_MS);
+        assertEquals("{\"call\": 2}", load(cache, "BTC/USDT"));
+        assertEquals(2.0D, meterRegistry.get("market.indicator.cache").tag("result", "miss").counter().count(), 0.0D);
+    }
+
+    @Test
+    public void testFetchedDuringCloseDelayExpiresAfterDelay() {
+        IndicatorCache<String> cache = cache(RefreshPolicy.CANDLE_CLOSE);
+        long fetchedAt = DAY_START + 1000L;
+        assertEquals(DAY_START + CLOSE_DELAY_MS, cache.expiresAt(daily, fetchedAt));
+        assertEquals(DAY_START + DAY_MS + CLOSE_DELAY_MS, cache.expiresAt(daily, DAY_START + CLOSE_DELAY_MS));
+    }
+
+    @Test
+    public void testIntrabarPolicyRefreshesPeriodically() {
+        IndicatorCache<String> cache = cache(RefreshPolicy.INTRABAR);
+        load(cache, "ETH/USDT");
+        now.addAndGet(TimeUnit.MINUTES.toMillis(4));
+        load(cache, "ETH/USDT");
+        assertEquals(1, upstreamCalls.get());
+
+        now.addAndGet(TimeUnit.MINUTES.toMillis(1));
+        load(cache, "ETH/USDT");
+        assertEquals(2, upstreamCalls.get());
+
+        // 间隔超过 K 线剩余时间时仍以 K 线边界为准
+        long beforeClose = DAY_START + DAY_MS - 60_000L;
+        assertEquals(DAY_START + DAY_MS + CLOSE_DELAY_MS, cache.expiresAt(daily, beforeClose));
+    }
+
+    @Test
+    public void testLoaderFailureIsNotCached() {
+        IndicatorCache<String> cache = cache(RefreshPolicy.CANDLE_CLOSE);
+        try {
+            cache.get("BTC/USDT", "30d", daily, () -> {
+                throw new IllegalStateException("upstream 500");
+            });
+            fail("loader failure should propagate");
+        } catch (IllegalStateException expected) {
+            assertEquals(0, cache.size());
+        }
+        assertEquals("{\"call\": 1}", load(cache, "BTC/USDT"));
+    }
+}
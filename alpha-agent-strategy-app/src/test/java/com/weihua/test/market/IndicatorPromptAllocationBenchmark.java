@@ -0,0 +1,164 @@
+package com.weihua.test.market;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.weihua.infrastructure.adapter.port.LlmPort;
+import com.weihua.infrastructure.adapter.port.MarketDataPort;
+import com.weihua.infrastructure.gateway.dto.CalculateIndicatorsResponseDTO;
+import com.weihua.strategy.domain.model.entity.MarketSnapshotEntity;
+import com.weihua.strategy.domain.model.valobj.TechnicalIndicators;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * 技术指标传递路径分配基准
+ * 对比旧路径 (DTO 序列化为 JSON 字符串、提示词构建时再解析为 Map) 与类型化路径 (DTO 直接转换、直接渲染、持久化时序列化一次) 每个循环的分配量
+ *
+ * 类名不以 Test 结尾，不在默认测试集中 (surefire 只包含 *Test)，需要时在 IDE 中单独运行；
+ * 提示词格式本身由 IndicatorPromptFormattingTest 覆盖
+ */
+@Slf4j
+public class IndicatorPromptAllocationBenchmark {
+
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 20_000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private LlmPort llmPort;
+    private Method toIndicators;
+    private Method describeMarket;
+    private CalculateIndicatorsResponseDTO response;
+
+    @Before
+    public void setUp() throws Exception {
+        llmPort = new LlmPort();
+        toIndicators = MarketDataPort.class.getDeclaredMethod("toTechnicalIndicators", CalculateIndicatorsResponseDTO.IndicatorsDTO.class);
+        toIndicators.setAccessible(true);
+        describeMarket = LlmPort.class.getDeclaredMethod("buildMarketDataDescription", MarketSnapshotEntity.class);
+        describeMarket.setAccessible(true);
+        response = sampleResponse();
+    }
+
+    @After
+    public void tearDown() {
+        llmPort.destroy();
+    }
+
+    @Test
+    public void testTypedPathRendersSameLines() throws Exception {
+        String typed = typedPath();
+        String legacy = legacyPath();
+        log.info("typed prompt:\n{}", typed);
+        assertTrue(typed.contains("- RSI: 61.23456789 (neutral)"));
+        assertTrue(typed.contains("- SMA20: 97123.12345678, SMA50: 95012.5, SMA200: 88000.25"));
+        assertEquals(legacy.split("\n").length, typed.split("\n").length);
+    }
+
+    @Test
+    public void testTypedPathAllocatesLess() throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            legacyPath();
+            typedPath();
+        }
+        long legacyBytes = allocatedPerOp(this::legacyPath);
+        long typedBytes = allocatedPerOp(this::typedPath);
+        log.info("allocated bytes per cycle: legacy={}, typed={}, ratio={}",
+                legacyBytes, typedBytes, String.format("%.2f", (double) legacyBytes / Math.max(1L, typedBytes)));
+        assertTrue("typed path should allocate less than the JSON round trip", typedBytes < legacyBytes);
+    }
+
+    /**
+     * 类型化路径：转换为 TechnicalIndicators，直接渲染，持久化时序列化一次
+     */
+    private String typedPath() throws Exception {
+        TechnicalIndicators indicators = (TechnicalIndicators) toIndicators.invoke(null, response.getIndicators());
+        MarketSnapshotEntity market = snapshot();
+        market.setIndicators(indicators);
+        String prompt = (String) describeMarket.invoke(llmPort, market);
+        String persisted = objectMapper.writeValueAsString(indicators);
+        return persisted.isEmpty() ? null : prompt;
+    }
+
+    /**
+     * 旧路径：响应 DTO 序列化为 JSON 字符串随快照传递 (同时用于持久化)，提示词构建时解析为嵌套 Map 再渲染
+     */
+    @SuppressWarnings("unchecked")
+    private String legacyPath() throws Exception {
+        String json = objectMapper.writeValueAsString(response);
+        MarketSnapshotEntity market = snapshot();
+        StringBuilder sb = new StringBuilder();
+        sb.append("Symbol: ").append(market.getSymbol()).append("\n");
+        sb.append("Current Price: ").append(market.getPrice()).append("\n");
+        sb.append("Timestamp: ").append(market.getTimestamp()).append("\n");
+        sb.append("\nTechnical Indicators:\n");
+
+        Map<String, Object> data = (Map<String, Object>) objectMapper.readValue(json, Map.class).get("indicators");
+        Map<String, Object> rsi = (Map<String, Object>) data.get("rsi");
+        sb.append("- RSI: ").append(rsi.get("value")).append(" (").append(rsi.get("signal")).append(")\n");
+        Map<String, Object> macd = (Map<String, Object>) data.get("macd");
+        sb.append("- MACD: ").append(macd.get("macd")).append(", Signal: ").append(macd.get("signal"))
+          .append(", Histogram: ").append(macd.get("histogram")).append("\n");
+        Map<String, Object> sma = (Map<String, Object>) data.get("sma");
+        sb.append("- SMA20: ").append(sma.get("sma_20")).append(", SMA50: ").append(sma.get("sma_50"))
+          .append(", SMA200: ").append(sma.get("sma_200")).append("\n");
+        Map<String, Object> ema = (Map<String, Object>) data.get("ema");
+        sb.append("- EMA12: ").append(ema.get("ema_12")).append(", EMA26: ").append(ema.get("ema_26")).append("\n");
+        return sb.toString();
+    }
+
+    private long allocatedPerOp(ThrowingSupplier op) throws Exception {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            if (op.get() == null) {
+                fail("empty prompt");
+            }
+        }
+        return (threadBean.getThreadAllocatedBytes(threadId) - before) / ITERATIONS;
+    }
+
+    private static MarketSnapshotEntity snapshot() {
+        return MarketSnapshotEntity.builder()
+                .symbol("BTC/USDT")
+                .price(new BigDecimal("97500.12"))
+                .timestamp(LocalDateTime.of(2025, 12, 1, 10, 0))
+                .build();
+    }
+
+    private static CalculateIndicatorsResponseDTO sampleResponse() {
+        return CalculateIndicatorsResponseDTO.builder()
+                .symbol("BTC/USDT")
+                .timestamp("2025-12-01T10:00:00")
+                .price(CalculateIndicatorsResponseDTO.PriceInfoDTO.builder()
+                        .current(new BigDecimal("97500.12")).open(new BigDecimal("96000"))
+                        .high(new BigDecimal("98000")).low(new BigDecimal("95500")).volume(new BigDecimal("12345.6"))
+                        .build())
+                .indicators(CalculateIndicatorsResponseDTO.IndicatorsDTO.builder()
+                        .sma(new CalculateIndicatorsResponseDTO.SmaDTO(new BigDecimal("97123.12345678"),
+                                new BigDecimal("95012.5"), new BigDecimal("88000.25")))
+                        .ema(new CalculateIndicatorsResponseDTO.EmaDTO(new BigDecimal("97300.5"), new BigDecimal("96100.75")))
+                        .rsi(new CalculateIndicatorsResponseDTO.RsiDTO(new BigDecimal("61.23456789"), "neutral"))
+                        .macd(new CalculateIndicatorsResponseDTO.MacdDTO(new BigDecimal("1199.75"),
+                                new BigDecimal("1050.5"), new BigDecimal("149.25")))
+                        .bollingerBands(new CalculateIndicatorsResponseDTO.BollingerBandsDTO(new BigDecimal("99500"),
+                                new BigDecimal("97123.12"), new BigDecimal("94746.24")))
+                        .kdj(new CalculateIndicatorsResponseDTO.KdjDTO(new BigDecimal("72.5"), new BigDecimal("65.25")))
+                        .atr(new BigDecimal("1850.5"))
+                        .build())
+                .build();
+    }
+
+    private interface ThrowingSupplier {
+        String get() throws Exception;
+    }
+}
@@ -0,0 +1,149 @@
+package com.weihua.test.market;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.weihua.infrastructure.adapter.factory.LlmFactory;
+import com.weihua.infrastructure.adapter.port.LlmPort;
+import com.weihua.infrastructure.config.LlmProperties;
+import com.weihua.infrastructure.llm.DecisionCache;
+import com.weihua.infrastructure.prompt.PromptTemplateRegistry;
+import com.weihua.strategy.domain.model.entity.MarketSnapshotEntity;
+import com.weihua.strategy.domain.model.entity.PortfolioSnapshotEntity;
+import com.weihua.strategy.domain.model.entity.StrategyConfigEntity;
+import com.weihua.strategy.domain.model.valobj.CycleDeadline;
+import com.weihua.strategy.domain.model.valobj.TechnicalIndicators;
+import com.weihua.strategy.domain.service.provider.LlmConfigProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * 技术指标提示词格式化单元测试
+ * 测试类型化技术指标经 askForPlan 渲染到提示词中的文本、缺失指标不输出对应行、过期报价标注
+ */
+@Slf4j
+public class IndicatorPromptFormattingTest {
+
+    private static final String PLAN = "{\"rationale\": \"wait\", \"instructions\": []}";
+
+    private final AtomicReference<String> prompt = new AtomicReference<>();
+    private LlmPort llmPort;
+
+    @Before
+    public void setUp() {
+        ChatModel chatModel = mock(ChatModel.class);
+        when(chatModel.call(anyString())).thenAnswer(inv -> {
+            prompt.set(inv.getArgument(0));
+            return PLAN;
+        });
+        LlmFactory llmFactory = mock(LlmFactory.class);
+        when(llmFactory.getChatModel(any())).thenReturn(chatModel);
+        LlmConfigProvider llmConfigProvider = mock(LlmConfigProvider.class);
+        when(llmConfigProvider.getModelId(anyString())).thenReturn("deepseek-v3");
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PromptTemplateRegistry promptTemplateRegistry = new PromptTemplateRegistry();
+        ReflectionTestUtils.setField(promptTemplateRegistry, "meterRegistry", meterRegistry);
+        promptTemplateRegistry.init();
+
+        llmPort = new LlmPort();
+        ReflectionTestUtils.setField(llmPort, "llmFactory", llmFactory);
+        ReflectionTestUtils.setField(llmPort, "llmConfigProvider", llmConfigProvider);
+        ReflectionTestUtils.setField(llmPort, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(llmPort, "promptTemplateRegistry", promptTemplateRegistry);
+        ReflectionTestUtils.setField(llmPort, "llmProperties", new LlmProperties());
+        ReflectionTestUtils.setField(llmPort, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(llmPort, "decisionCache", mock(DecisionCache.class));
+        llmPort.init();
+    }
+
+    @After
+    public void tearDown() {
+        llmPort.destroy();
+    }
+
+    @Test
+    public void testIndicatorsRenderedIntoPrompt() {
+        MarketSnapshotEntity market = snapshot(TechnicalIndicators.builder()
+                .rsi(new BigDecimal("61.23456789")).rsiSignal("neutral")
+                .macd(new BigDecimal("1199.75")).macdSignal(new BigDecimal("1050.5")).macdHistogram(new BigDecimal("149.25"))
+                .sma20(new BigDecimal("97123.12345678")).sma50(new BigDecimal("95012.5")).sma200(new BigDecimal("88000.25"))
+                .ema12(new BigDecimal("97300.5")).ema26(new BigDecimal("96100.75"))
+                .build());
+
+        askForPlan(market);
+
+        String rendered = prompt.get();
+        assertNotNull(rendered);
+        assertTrue(rendered.contains("Symbol: BTC/USDT\nCurrent Price: 97500.12\nTimestamp: 2025-12-01T10:00\n"));
+        assertTrue(rendered.contains("\nTechnical Indicators:\n"
+                + "- RSI: 61.23456789 (neutral)\n"
+                + "- MACD: 1199.75, Signal: 1050.5, Histogram: 149.25\n"
+                + "- SMA20: 97123.12345678, SMA50: 95012.5, SMA200: 88000.25\n"
+                + "- EMA12: 97300.5, EMA26: 96100.75\n"));
+        assertFalse(rendered.contains("Quote Status: STALE"));
+    }
+
+    @Test
+    public void testMissingIndicatorsOmitted() {
+        askForPlan(snapshot(TechnicalIndicators.builder()
+                .rsi(new BigDecimal("30")).rsiSignal("oversold")
+                .build()));
+
+        String rendered = prompt.get();
+        assertTrue(rendered.contains("- RSI: 30 (oversold)\n"));
+        assertFalse(rendered.contains("- MACD:"));
+        assertFalse(rendered.contains("- SMA20:"));
+        assertFalse(rendered.contains("- EMA12:"));
+
+        askForPlan(snapshot(null));
+        assertFalse(prompt.get().contains("Technical Indicators:"));
+    }
+
+    @Test
+    public void testStaleQuoteFlagged() {
+        MarketSnapshotEntity market = snapshot(null);
+        market.setStale(true);
+
+        askForPlan(market);
+
+        assertTrue(prompt.get().contains("Quote Status: STALE"));
+    }
+
+    private void askForPlan(MarketSnapshotEntity market) {
+        PortfolioSnapshotEntity portfolio = PortfolioSnapshotEntity.builder()
+                .totalBalance(new BigDecimal("10000"))
+                .availableBalance(new BigDecimal("10000"))
+                .positions(new ArrayList<>())
+                .build();
+        StrategyConfigEntity config = StrategyConfigEntity.builder()
+                .strategyName("test")
+                .symbols(List.of("BTC/USDT"))
+                .riskLevel("LOW")
+                .build();
+        assertNotNull(llmPort.askForPlan("s-1", market, portfolio, config, CycleDeadline.none()));
+    }
+
+    private static MarketSnapshotEntity snapshot(TechnicalIndicators indicators) {
+        return MarketSnapshotEntity.builder()
+                .symbol("BTC/USDT")
+                .price(new BigDecimal("97500.12"))
+                .timestamp(LocalDateTime.of(2025, 12, 1, 10, 0))
+                .indicators(indicators)
+                .build();
+    }
+}
@@ -0,0 +1,113 @@
+package com.weihua.test.market;
+
+import com.weihua.strategy.domain.adapter.port.IMarketDataPort;
+import com.weihua.strategy.domain.model.aggregate.StrategyInstanceAggregate;
+import com.weihua.strategy.domain.model.entity.MarketSnapshotEntity;
+import com.weihua.strategy.domain.model.entity.StrategyConfigEntity;
+import com.weihua.strategy.domain.model.valobj.CycleDeadline;
+import com.weihua.strategy.domain.model.valobj.MarketContext;
+import com.weihua.strategy.domain.model.valobj.StrategyStatus;
+import com.weihua.strategy.domain.model.valobj.TechnicalIndicators;
+import com.weihua.strategy.domain.repository.IStrategyInstanceRepository;
+import com.weihua.strategy.domain.repository.IVirtualAccountRepository;
+import com.weihua.strategy.domain.service.MarketAnalysisDomainService;
+import com.weihua.types.enums.ResponseCode;
+import com.weihua.types.exception.AppException;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * MarketAnalysisDomainService 单元测试
+ * 测试价格与技术指标并发请求、请求内的超时异常原样抛出、提前返回或失败时取消未完成的行情请求
+ */
+@Slf4j
+public class MarketContextPreparationTest {
+
+    private IMarketDataPort marketDataPort;
+    private MarketAnalysisDomainService service;
+
+    @Before
+    public void setUp() {
+        IStrategyInstanceRepository strategyRepository = mock(IStrategyInstanceRepository.class);
+        when(strategyRepository.findByStrategyId("s1")).thenReturn(StrategyInstanceAggregate.builder()
+                .strategyId("s1")
+                .status(StrategyStatus.RUNNING)
+                .config(StrategyConfigEntity.builder().symbols(List.of("BTC/USDT", "ETH/USDT")).build())
+                .build());
+        marketDataPort = mock(IMarketDataPort.class);
+        service = new MarketAnalysisDomainService(strategyRepository, mock(IVirtualAccountRepository.class), marketDataPort, null);
+    }
+
+    @Test
+    public void testPricesAndIndicatorsRequestedConcurrently() {
+        CountDownLatch indicatorsRequested = new CountDownLatch(1);
+        when(marketDataPort.fetchLatestPricesAsync(anyList(), any())).thenAnswer(inv -> CompletableFuture.supplyAsync(() -> {
+            // 指标请求在价格返回之前发出
+            try {
+                assertTrue("indicators should be requested while prices are in flight",
+                        indicatorsRequested.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            Map<String, MarketSnapshotEntity> prices = new HashMap<>();
+            prices.put("BTC/USDT", MarketSnapshotEntity.builder().symbol("BTC/USDT").price(new BigDecimal("90000")).build());
+            return prices;
+        }, Executors.newVirtualThreadPerTaskExecutor()));
+        when(marketDataPort.fetchTechnicalIndicatorsAsync(anyString(), any())).thenAnswer(inv -> {
+            indicatorsRequested.countDown();
+            return CompletableFuture.completedFuture(TechnicalIndicators.builder().rsi(new BigDecimal("42")).build());
+        });
+
+        MarketContext context = service.prepareContext("s1", CycleDeadline.none());
+
+        assertNotNull(context);
+        assertEquals(new BigDecimal("42"), context.getPrimaryMarket().getIndicators().getRsi());
+        assertEquals(new BigDecimal("42"), context.getPrimaryMarket().getRsi());
+        verify(marketDataPort).fetchTechnicalIndicatorsAsync(eq("BTC/USDT"), any());
+        verify(marketDataPort, never()).fetchLatestPrices(anyList(), any());
+    }
+
+    @Test
+    public void testDeadlineExceededInFlightIsRethrown() {
+        when(marketDataPort.fetchLatestPricesAsync(anyList(), any())).thenReturn(CompletableFuture.failedFuture(
+                new AppException(ResponseCode.CYCLE_DEADLINE_EXCEEDED.getCode(), "market-prices")));
+        CompletableFuture<TechnicalIndicators> indicators = new CompletableFuture<>();
+        when(marketDataPort.fetchTechnicalIndicatorsAsync(anyString(), any())).thenReturn(indicators);
+
+        try {
+            service.prepareContext("s1", CycleDeadline.none());
+            fail("deadline exceeded should propagate");
+        } catch (AppException e) {
+            assertTrue(CycleDeadline.isDeadlineExceeded(e));
+        }
+        assertTrue("pending indicators request should be cancelled", indicators.isCancelled());
+    }
+
+    @Test
+    public void testMissingPrimaryPriceCancelsIndicators() {
+        Map<String, MarketSnapshotEntity> prices = new HashMap<>();
+        prices.put("ETH/USDT", MarketSnapshotEntity.builder().symbol("ETH/USDT").price(new BigDecimal("3000")).build());
+        when(marketDataPort.fetchLatestPricesAsync(anyList(), any())).thenReturn(CompletableFuture.completedFuture(prices));
+        CompletableFuture<TechnicalIndicators> indicators = new CompletableFuture<>();
+        when(marketDataPort.fetchTechnicalIndicatorsAsync(anyString(), any())).thenReturn(indicators);
+
+        assertNull(service.prepareContext("s1", CycleDeadline.none()));
+        assertTrue("indicators are not needed without a primary price", indicators.isCancelled());
+    }
+}
@@ -0,0 +1,156 @@
+package com.weihua.test.market;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.weihua.infrastructure.gateway.StockMcpPriceStream;
+import com.weihua.infrastructure.market.LastPriceTable;
+import com.weihua.strategy.domain.model.entity.MarketSnapshotEntity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.OkHttpClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+/**
+ * 价格推送订阅与最新价格表单元测试
+ * 测试本地 SSE 桩服务的事件写入价格表、新交易对触发重新订阅、断线后重连，以及价格表的过期判定
+ */
+@Slf4j
+public class PriceStreamTest {
+
+    private HttpServer server;
+    private final List<String> subscriptions = new CopyOnWriteArrayList<>();
+    private final CountDownLatch shutdown = new CountDownLatch(1);
+    /** 为 true 时桩服务发送完事件后保持连接，否则立即关闭 */
+    private volatile boolean holdOpen = true;
+    private volatile int price = 100;
+
+    private SimpleMeterRegistry meterRegistry;
+    private LastPriceTable table;
+    private StockMcpPriceStream stream;
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/api/v1/market/prices/stream", this::serveEvents);
+        server.start();
+
+        meterRegistry = new SimpleMeterRegistry();
+        table = new LastPriceTable(5000L, meterRegistry);
+        stream = new StockMcpPriceStream(new OkHttpClient(),
+                "http://127.0.0.1:" + server.getAddress().getPort() + "/api/v1/market/prices/stream",
+                10000L, 20L, 200L, meterRegistry);
+    }
+
+    @After
+    public void tearDown() {
+        stream.close();
+        shutdown.countDown();
+        server.stop(0);
+    }
+
+    @Test
+    public void testEventsPopulateTable() throws Exception {
+        stream.subscribe(List.of("CRYPTO:BTC", "CRYPTO:ETH"));
+        stream.start(price -> table.update(price.getTicker(), price.getPrice(), LocalDateTime.parse(price.getTimestamp())));
+
+        await(() -> table.size() == 2);
+        MarketSnapshotEntity btc = table.get("CRYPTO:BTC");
+        assertEquals(new BigDecimal("100"), btc.getPrice());
+        assertEquals(LocalDateTime.of(2025, 12, 1, 10, 0), btc.getTimestamp());
+        assertTrue(stream.isConnected());
+        assertEquals("CRYPTO:BTC,CRYPTO:ETH", subscriptions.get(0));
+        assertEquals(2.0D, meterRegistry.get("market.stream.events").tag("result", "received").counter().count(), 0.0D);
+    }
+
+    @Test
+    public void testNewSymbolResubscribes() throws Exception {
+        stream.subscribe(List.of("CRYPTO:BTC"));
+        stream.start(price -> table.update(price.getTicker(), price.getPrice(), null));
+        await(() -> table.get("CRYPTO:BTC") != null);
+
+        // 已订阅的交易对不触发重连
+        stream.subscribe(List.of("CRYPTO:BTC"));
+        stream.subscribe(List.of("CRYPTO:BTC", "CRYPTO:SOL"));
+        await(() -> table.get("CRYPTO:SOL") != null);
+        assertEquals(List.of("CRYPTO:BTC", "CRYPTO:BTC,CRYPTO:SOL"), subscriptions);
+        assertEquals(0.0D, meterRegistry.get("market.stream.reconnects").counter().count(), 0.0D);
+    }
+
+    @Test
+    public void testReconnectsAfterDisconnect() throws Exception {
+        holdOpen = false;
+        stream.subscribe(List.of("CRYPTO:BTC"));
+        stream.start(price -> table.update(price.getTicker(), price.getPrice(), null));
+        await(() -> table.get("CRYPTO:BTC") != null);
+
+        price = 101;
+        await(() -> subscriptions.size() >= 3);
+        await(() -> new BigDecimal("101").equals(table.get("CRYPTO:BTC").getPrice()));
+        assertTrue(meterRegistry.get("market.stream.reconnects").counter().count() >= 2.0D);
+    }
+
+    @Test
+    public void testTableExpiresOldQuotes() {
+        AtomicLong now = new AtomicLong(1_000_000L);
+        LastPriceTable expiring = new LastPriceTable(5000L, new SimpleMeterRegistry(), now::get);
+        expiring.update("CRYPTO:BTC", new BigDecimal("100"), null);
+
+        MarketSnapshotEntity first = expiring.get("CRYPTO:BTC");
+        first.setPrice(BigDecimal.ONE);
+        // 返回的快照不共享
+        assertEquals(new BigDecimal("100"), expiring.get("CRYPTO:BTC").getPrice());
+
+        now.addAndGet(5001L);
+        assertNull(expiring.get("CRYPTO:BTC"));
+        assertTrue(expiring.getAll(List.of("CRYPTO:BTC", "CRYPTO:ETH")).isEmpty());
+    }
+
+    private void serveEvents(HttpExchange exchange) {
+        String query = exchange.getRequestURI().getQuery();
+        String tickers = query.substring(query.indexOf('=') + 1);
+        subscriptions.add(tickers);
+        try (OutputStream out = exchange.getResponseBody()) {
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            StringBuilder events = new StringBuilder(": ping\n\n");
+            for (String ticker : tickers.split(",")) {
+                events.append("event: price\n")
+                        .append("data: {\"ticker\":\"").append(ticker).append("\",\"price\":").append(price)
+                        .append(",\"timestamp\":\"2025-12-01T10:00:00\",\"extra\":1}\n\n");
+            }
+            out.write(events.toString().getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            if (holdOpen) {
+                shutdown.await(10, TimeUnit.SECONDS);
+            }
+        } catch (Exception e) {
+            log.debug("stub connection closed: {}", e.getMessage());
+        }
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue("condition not reached in time", System.nanoTime() - deadline < 0);
+            Thread.onSpinWait();
+        }
+    }
+}
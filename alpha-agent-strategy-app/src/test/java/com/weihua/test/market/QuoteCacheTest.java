@@ -0,0 +1,164 @@
+package com.weihua.test.market;
+
+import com.weihua.infrastructure.market.QuoteCache;
+import com.weihua.strategy.domain.model.entity.MarketSnapshotEntity;
+import com.weihua.strategy.domain.model.valobj.TechnicalIndicators;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+/**
+ * QuoteCache 单元测试
+ * 测试新鲜期命中、过期后先返回旧值再后台刷新、超过最大陈旧时长同步请求、预取、返回的快照与缓存隔离
+ */
+@Slf4j
+public class QuoteCacheTest {
+
+    private static final long FRESH_MS = 1000L;
+    private static final long MAX_STALE_MS = 10000L;
+    private static final long LAST_KNOWN_GOOD_MS = 60000L;
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+    private final List<List<String>> upstreamCalls = new ArrayList<>();
+    private final List<Runnable> pendingRefreshes = new ArrayList<>();
+    private SimpleMeterRegistry meterRegistry;
+    private QuoteCache cache;
+    private BigDecimal upstreamPrice;
+
+    @Before
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        upstreamPrice = new BigDecimal("90000");
+        // 刷新任务先挂起，由测试手动执行
+        cache = new QuoteCache(FRESH_MS, MAX_STALE_MS, LAST_KNOWN_GOOD_MS, 100, upstream(), pendingRefreshes::add, meterRegistry, now::get);
+    }
+
+    private Function<List<String>, Map<String, MarketSnapshotEntity>> upstream() {
+        return symbols -> {
+            upstreamCalls.add(symbols);
+            Map<String, MarketSnapshotEntity> result = new HashMap<>();
+            for (String symbol : symbols) {
+                result.put(symbol, MarketSnapshotEntity.builder().symbol(symbol).price(upstreamPrice).build());
+            }
+            return result;
+        };
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("market.quote.cache").tag("result", result).counter().count();
+    }
+
+    @Test
+    public void testStrategiesShareOneUpstreamCallPerSymbol() {
+        for (int i = 0; i < 150; i++) {
+            Map<String, MarketSnapshotEntity> prices = cache.get(List.of("BTC/USDT", "ETH/USDT"), upstream());
+            assertEquals(2, prices.size());
+        }
+
+        assertEquals(1, upstreamCalls.size());
+        assertEquals(2.0D, count("miss"), 0.0D);
+        assertEquals(298.0D, count("hit"), 0.0D);
+
+        // 新交易对只请求缺失部分
+        cache.get(List.of("BTC/USDT", "SOL/USDT"), upstream());
+        assertEquals(List.of("SOL/USDT"), upstreamCalls.get(1));
+    }
+
+    @Test
+    public void testStaleWhileRevalidate() {
+        cache.get(List.of("BTC/USDT"), upstream());
+        upstreamPrice = new BigDecimal("91000");
+        now.addAndGet(FRESH_MS + 1);
+
+        // 过期后返回旧值，只登记一次后台刷新
+        assertEquals(new BigDecimal("90000"), cache.get(List.of("BTC/USDT"), upstream()).get("BTC/USDT").getPrice());
+        assertEquals(new BigDecimal("90000"), cache.get(List.of("BTC/USDT"), upstream()).get("BTC/USDT").getPrice());
+        assertEquals(1, upstreamCalls.size());
+        assertEquals(1, pendingRefreshes.size());
+        assertEquals(2.0D, count("stale"), 0.0D);
+
+        pendingRefreshes.get(0).run();
+        assertEquals(2, upstreamCalls.size());
+        assertEquals(new BigDecimal("91000"), cache.get(List.of("BTC/USDT"), upstream()).get("BTC/USDT").getPrice());
+        assertEquals(1.0D, count("hit"), 0.0D);
+    }
+
+    @Test
+    public void testFailedRefreshKeepsServingUntilMaxStale() {
+        QuoteCache failing = new QuoteCache(FRESH_MS, MAX_STALE_MS, LAST_KNOWN_GOOD_MS, 100, symbols -> {
+            throw new IllegalStateException("upstream down");
+        }, Runnable::run, meterRegistry, now::get);
+        failing.get(List.of("BTC/USDT"), upstream());
+
+        now.addAndGet(FRESH_MS + 1);
+        assertEquals(1, failing.get(List.of("BTC/USDT"), upstream()).size());
+        assertEquals(1.0D, meterRegistry.get("market.quote.refresh").tag("result", "failure").counter().count(), 0.0D);
+
+        // 超过最大陈旧时长后不再返回旧值，同步请求上游
+        now.addAndGet(MAX_STALE_MS);
+        failing.get(List.of("BTC/USDT"), upstream());
+        assertEquals(2, upstreamCalls.size());
+    }
+
+    @Test
+    public void testPrefetchedQuotesServeLaterCycles() {
+        cache.get(List.of("BTC/USDT"), upstream());
+        now.addAndGet(FRESH_MS + 1);
+
+        // 陈旧与缺失的交易对都需要预取，预取后各策略直接命中
+        List<String> expiring = cache.notFresh(List.of("BTC/USDT", "ETH/USDT"));
+        assertEquals(List.of("BTC/USDT", "ETH/USDT"), expiring);
+        assertEquals(2, cache.prefetch(expiring, upstream()));
+        assertTrue(cache.notFresh(List.of("BTC/USDT", "ETH/USDT")).isEmpty());
+
+        for (int i = 0; i < 10; i++) {
+            cache.get(List.of("BTC/USDT", "ETH/USDT"), upstream());
+        }
+        assertEquals(2, upstreamCalls.size());
+        assertEquals(20.0D, count("hit"), 0.0D);
+        assertTrue(pendingRefreshes.isEmpty());
+    }
+
+    @Test
+    public void testReturnedSnapshotsAreIsolated() {
+        cache.get(List.of("BTC/USDT"), upstream()).get("BTC/USDT").setIndicators(TechnicalIndicators.builder().build());
+
+        assertNull(cache.get(List.of("BTC/USDT"), upstream()).get("BTC/USDT").getIndicators());
+    }
+
+    @Test
+    public void testLastKnownGoodServedWithStaleFlag() {
+        cache.get(List.of("BTC/USDT"), upstream());
+
+        Map<String, MarketSnapshotEntity> recent = cache.lastKnownGood(List.of("BTC/USDT", "ETH/USDT"));
+        assertEquals(1, recent.size());
+        assertFalse(recent.get("BTC/USDT").isStale());
+
+        // 超过最大陈旧时长：正常读取视为缺失，降级时仍返回并标记 stale
+        now.addAndGet(MAX_STALE_MS);
+        try {
+            cache.get(List.of("BTC/USDT"), symbols -> {
+                throw new IllegalStateException("circuit open");
+            });
+            fail("expired quote should be reloaded");
+        } catch (IllegalStateException expected) {
+            MarketSnapshotEntity fallback = cache.lastKnownGood(List.of("BTC/USDT")).get("BTC/USDT");
+            assertTrue(fallback.isStale());
+            assertEquals(upstreamPrice, fallback.getPrice());
+        }
+
+        now.addAndGet(LAST_KNOWN_GOOD_MS);
+        assertTrue(cache.lastKnownGood(List.of("BTC/USDT")).isEmpty());
+    }
+}
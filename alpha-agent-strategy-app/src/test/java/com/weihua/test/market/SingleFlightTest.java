@@ -0,0 +1,186 @@
+package com.weihua.test.market;
+
+import com.weihua.infrastructure.market.SingleFlight;
+import com.weihua.strategy.domain.model.valobj.CycleDeadline;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+/**
+ * SingleFlight 单元测试
+ * 测试并发同 key 请求只发起一次、批量请求只为未进行中的 key 发起、失败传递给等待方、等待方按自己的截止时间超时
+ */
+@Slf4j
+public class SingleFlightTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private double count(String endpoint, String result) {
+        return meterRegistry.get("market.upstream.flight").tag("endpoint", endpoint).tag("result", result).counter().count();
+    }
+
+    @Test
+    public void testConcurrentCallersShareOneCall() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>("indicators", meterRegistry);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> flight.execute("BTC", () -> {
+            calls.incrementAndGet();
+            started.countDown();
+            await(release);
+            return "{\"RSI\": 55}";
+        }, CycleDeadline.none()), executor);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        List<CompletableFuture<String>> followers = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            followers.add(CompletableFuture.supplyAsync(() -> flight.execute("BTC", () -> {
+                calls.incrementAndGet();
+                return "unexpected";
+            }, CycleDeadline.none()), executor));
+        }
+        waitUntil(() -> count("indicators", "collapsed") == 20.0D);
+        release.countDown();
+
+        assertEquals("{\"RSI\": 55}", leader.get(5, TimeUnit.SECONDS));
+        for (CompletableFuture<String> follower : followers) {
+            assertEquals("{\"RSI\": 55}", follower.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, calls.get());
+        assertEquals(1.0D, count("indicators", "executed"), 0.0D);
+        assertEquals(0, flight.getInFlightCount());
+
+        // 请求结束后不保留结果，下一次重新发起
+        flight.execute("BTC", () -> {
+            calls.incrementAndGet();
+            return "{}";
+        }, CycleDeadline.none());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testBatchOnlyRequestsKeysNotInFlight() throws Exception {
+        SingleFlight<String, Integer> flight = new SingleFlight<>("prices", meterRegistry);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<List<String>> batches = new ArrayList<>();
+
+        CompletableFuture<Map<String, Integer>> first = CompletableFuture.supplyAsync(() ->
+                flight.executeAll(List.of("BTC", "ETH"), keys -> {
+                    synchronized (batches) {
+                        batches.add(keys);
+                    }
+                    started.countDown();
+                    await(release);
+                    return prices(keys);
+                }, CycleDeadline.none()), executor);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<Map<String, Integer>> second = CompletableFuture.supplyAsync(() ->
+                flight.executeAll(List.of("ETH", "SOL"), keys -> {
+                    synchronized (batches) {
+                        batches.add(keys);
+                    }
+                    return prices(keys);
+                }, CycleDeadline.none()), executor);
+        waitUntil(() -> count("prices", "collapsed") == 1.0D);
+        release.countDown();
+
+        assertEquals(2, first.get(5, TimeUnit.SECONDS).size());
+        Map<String, Integer> secondResult = second.get(5, TimeUnit.SECONDS);
+        assertEquals(Integer.valueOf(3), secondResult.get("ETH"));
+        assertEquals(Integer.valueOf(3), secondResult.get("SOL"));
+        assertEquals(List.of(List.of("BTC", "ETH"), List.of("SOL")), batches);
+        assertEquals(3.0D, count("prices", "executed"), 0.0D);
+    }
+
+    @Test
+    public void testFailureIsSharedAndFollowerRespectsOwnDeadline() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>("indicators", meterRegistry);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> flight.execute("BTC", () -> {
+            started.countDown();
+            await(release);
+            throw new IllegalStateException("upstream 503");
+        }, CycleDeadline.none()), executor);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // 截止时间很短的等待方先超时返回
+        try {
+            flight.execute("BTC", () -> "unexpected", CycleDeadline.after(Duration.ofMillis(50)));
+            fail("follower should time out");
+        } catch (RuntimeException e) {
+            assertTrue(CycleDeadline.isDeadlineExceeded(e));
+        }
+
+        CompletableFuture<String> follower = CompletableFuture.supplyAsync(() ->
+                flight.execute("BTC", () -> "unexpected", CycleDeadline.none()), executor);
+        waitUntil(() -> count("indicators", "collapsed") == 2.0D);
+        release.countDown();
+
+        for (CompletableFuture<String> future : List.of(leader, follower)) {
+            try {
+                future.get(5, TimeUnit.SECONDS);
+                fail("failure should propagate");
+            } catch (Exception e) {
+                assertEquals("upstream 503", e.getCause().getMessage());
+            }
+        }
+        assertEquals(0, flight.getInFlightCount());
+    }
+
+    private static Map<String, Integer> prices(List<String> keys) {
+        Map<String, Integer> result = new HashMap<>();
+        keys.forEach(key -> result.put(key, key.length()));
+        return result;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue("condition not reached in time", System.nanoTime() - deadline < 0);
+            Thread.onSpinWait();
+        }
+    }
+}
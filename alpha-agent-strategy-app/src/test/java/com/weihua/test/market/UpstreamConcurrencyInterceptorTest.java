@@ -0,0 +1,144 @@
+package com.weihua.test.market;
+
+import com.weihua.infrastructure.gateway.UpstreamConcurrencyInterceptor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Timeout;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * UpstreamConcurrencyInterceptor 单元测试
+ * 测试同步调用按 host 限流排队、名额占用到响应体关闭、排队超过调用超时后失败、排队与请求指标
+ */
+@Slf4j
+public class UpstreamConcurrencyInterceptorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private UpstreamConcurrencyInterceptor interceptor;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Before
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        interceptor = new UpstreamConcurrencyInterceptor(1, meterRegistry);
+    }
+
+    private Interceptor.Chain chain(String url, long callTimeoutMs, CountDownLatch release) throws Exception {
+        return chain(url, callTimeoutMs, release, null);
+    }
+
+    private Interceptor.Chain chain(String url, long callTimeoutMs, CountDownLatch release, String body) throws Exception {
+        Request request = new Request.Builder().url(url).build();
+        Call call = mock(Call.class);
+        when(call.timeout()).thenReturn(new Timeout().timeout(callTimeoutMs, TimeUnit.MILLISECONDS));
+        Interceptor.Chain chain = mock(Interceptor.Chain.class);
+        when(chain.request()).thenReturn(request);
+        when(chain.call()).thenReturn(call);
+        when(chain.proceed(request)).thenAnswer(inv -> {
+            release.await(5, TimeUnit.SECONDS);
+            return new Response.Builder().request(request).protocol(Protocol.HTTP_1_1).code(200).message("OK")
+                    .body(body == null ? null : ResponseBody.create(body, MediaType.get("application/json")))
+                    .build();
+        });
+        return chain;
+    }
+
+    @Test
+    public void testRequestsBeyondPerHostLimitQueue() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Response> first = CompletableFuture.supplyAsync(() -> intercept(
+                "http://stock-mcp/api/v1/market/prices/batch", 0L, release), executor);
+        CompletableFuture<Response> second = CompletableFuture.supplyAsync(() -> intercept(
+                "http://stock-mcp/api/v1/market/prices/batch", 0L, release), executor);
+
+        awaitGauge("market.upstream.http.queued", 1.0D);
+        assertEquals(1.0D, meterRegistry.get("market.upstream.http.in.flight").gauge().value(), 0.0D);
+
+        // 其他 host 不受影响
+        Response other = interceptor.intercept(chain("http://other-host/health", 0L, new CountDownLatch(0)));
+        assertEquals(200, other.code());
+
+        release.countDown();
+        assertEquals(200, first.get(5, TimeUnit.SECONDS).code());
+        assertEquals(200, second.get(5, TimeUnit.SECONDS).code());
+        assertEquals(3L, meterRegistry.get("market.upstream.http.queue.wait").timer().count());
+        assertEquals(2L, meterRegistry.get("market.upstream.http.requests")
+                .tag("endpoint", "/api/v1/market/prices/batch").tag("status", "200").timer().count());
+    }
+
+    @Test
+    public void testPermitHeldUntilBodyClosed() throws Exception {
+        String url = "http://stock-mcp/api/v1/market/prices/batch";
+        Response first = interceptor.intercept(chain(url, 0L, new CountDownLatch(0), "{\"prices\":[]}"));
+        assertEquals(200, first.code());
+
+        // 响应头已返回但响应体未读完，名额仍被占用
+        CompletableFuture<Response> second = CompletableFuture.supplyAsync(() -> intercept(url, 0L, new CountDownLatch(0)), executor);
+        awaitGauge("market.upstream.http.queued", 1.0D);
+        assertEquals(1.0D, meterRegistry.get("market.upstream.http.in.flight").gauge().value(), 0.0D);
+        assertEquals(0, meterRegistry.find("market.upstream.http.requests").timers().size());
+
+        assertEquals("{\"prices\":[]}", first.body().string());
+        assertEquals(200, second.get(5, TimeUnit.SECONDS).code());
+
+        // 重复关闭不会多归还名额
+        first.close();
+        assertEquals(0.0D, meterRegistry.get("market.upstream.http.in.flight").gauge().value(), 0.0D);
+        assertEquals(2L, meterRegistry.get("market.upstream.http.requests")
+                .tag("endpoint", "/api/v1/market/prices/batch").tag("status", "200").timer().count());
+    }
+
+    @Test
+    public void testQueuedRequestFailsAfterCallTimeout() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Response> first = CompletableFuture.supplyAsync(() -> intercept(
+                "http://stock-mcp/api/v1/market/indicators/calculate", 0L, release), executor);
+        awaitGauge("market.upstream.http.in.flight", 1.0D);
+
+        try {
+            interceptor.intercept(chain("http://stock-mcp/api/v1/market/indicators/calculate", 50L, release));
+            fail("queued request should time out");
+        } catch (InterruptedIOException expected) {
+            log.info("rejected: {}", expected.getMessage());
+        }
+        assertEquals(0.0D, meterRegistry.get("market.upstream.http.queued").gauge().value(), 0.0D);
+
+        release.countDown();
+        assertEquals(200, first.get(5, TimeUnit.SECONDS).code());
+        assertEquals(0.0D, meterRegistry.get("market.upstream.http.in.flight").gauge().value(), 0.0D);
+    }
+
+    private Response intercept(String url, long callTimeoutMs, CountDownLatch release) {
+        try {
+            return interceptor.intercept(chain(url, callTimeoutMs, release));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void awaitGauge(String name, double expected) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get(name).gauge().value() != expected) {
+            assertTrue(name + " did not reach " + expected, System.nanoTime() - deadline < 0);
+            Thread.onSpinWait();
+        }
+    }
+}
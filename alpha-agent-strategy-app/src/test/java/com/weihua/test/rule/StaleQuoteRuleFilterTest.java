@@ -0,0 +1,144 @@
+package com.weihua.test.rule;
+
+import com.weihua.strategy.domain.model.aggregate.VirtualAccountAggregate;
+import com.weihua.strategy.domain.model.entity.DecisionEntity;
+import com.weihua.strategy.domain.model.entity.MarketSnapshotEntity;
+import com.weihua.strategy.domain.model.entity.TradeInstruction;
+import com.weihua.strategy.domain.model.entity.TradePlan;
+import com.weihua.strategy.domain.model.valobj.TradeAction;
+import com.weihua.strategy.domain.service.rule.TradeRuleService;
+import com.weihua.strategy.domain.service.rule.factory.TradeRuleFilterFactory;
+import com.weihua.strategy.domain.service.rule.filter.ComplianceRuleFilter;
+import com.weihua.strategy.domain.service.rule.filter.FundAvailabilityRuleFilter;
+import com.weihua.strategy.domain.service.rule.filter.LeverageRuleFilter;
+import com.weihua.strategy.domain.service.rule.filter.PositionCheckRuleFilter;
+import com.weihua.strategy.domain.service.rule.filter.StaleQuoteRuleFilter;
+import com.weihua.strategy.domain.service.rule.filter.StopLossRuleFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * StaleQuoteRuleFilter 单元测试
+ * 测试最后已知报价 (stale) 下拒绝 BUY/SELL、放行 HOLD，按指令交易对的行情判断新鲜度，
+ * 以及整条规则链对 stale 行情不产生成交指令
+ */
+@Slf4j
+public class StaleQuoteRuleFilterTest {
+
+    private StaleQuoteRuleFilter filter;
+    private VirtualAccountAggregate account;
+
+    @Before
+    public void setUp() {
+        filter = new StaleQuoteRuleFilter();
+
+        HashMap<String, VirtualAccountAggregate.Position> positions = new HashMap<>();
+        positions.put("BTC", VirtualAccountAggregate.Position.builder()
+                .symbol("BTC")
+                .quantity(new BigDecimal("0.5"))
+                .avgPrice(new BigDecimal("90000"))
+                .build());
+
+        account = VirtualAccountAggregate.builder()
+                .strategyId("test-strategy-id")
+                .balance(new BigDecimal("10000"))
+                .frozen(BigDecimal.ZERO)
+                .positions(positions)
+                .build();
+    }
+
+    @Test
+    public void test_报价新鲜_放行() {
+        TradeRuleFilterFactory.DynamicContext context = TradeRuleFilterFactory.DynamicContext.create(account, market(false));
+
+        assertNotEquals(Boolean.FALSE, filter.apply(instruction(TradeAction.BUY, "0.01"), context));
+        assertNotEquals(Boolean.FALSE, filter.apply(instruction(TradeAction.SELL, "0.01"), context));
+    }
+
+    @Test
+    public void test_报价陈旧_拒绝买卖() {
+        TradeRuleFilterFactory.DynamicContext context = TradeRuleFilterFactory.DynamicContext.create(account, market(true));
+
+        assertEquals(Boolean.FALSE, filter.apply(instruction(TradeAction.BUY, "0.01"), context));
+        assertEquals(Boolean.FALSE, filter.apply(instruction(TradeAction.SELL, "0.01"), context));
+        assertNotEquals(Boolean.FALSE, filter.apply(instruction(TradeAction.HOLD, "0"), context));
+    }
+
+    @Test
+    public void test_主行情新鲜_其它交易对陈旧_按指令交易对拒绝() {
+        MarketSnapshotEntity btc = market("BTC", false);
+        Map<String, MarketSnapshotEntity> snapshots = new HashMap<>();
+        snapshots.put("BTC", btc);
+        snapshots.put("ETH", market("ETH", true));
+        TradeRuleFilterFactory.DynamicContext context = TradeRuleFilterFactory.DynamicContext.create(account, btc, snapshots);
+
+        assertEquals(Boolean.FALSE, filter.apply(instruction(TradeAction.BUY, "ETH", "0.01"), context));
+        assertEquals(Boolean.FALSE, filter.apply(instruction(TradeAction.SELL, "ETH", "0.01"), context));
+        assertNotEquals(Boolean.FALSE, filter.apply(instruction(TradeAction.HOLD, "ETH", "0"), context));
+        assertNotEquals(Boolean.FALSE, filter.apply(instruction(TradeAction.BUY, "BTC", "0.01"), context));
+    }
+
+    @Test
+    public void test_指令交易对无行情_拒绝买卖() {
+        MarketSnapshotEntity btc = market("BTC", false);
+        TradeRuleFilterFactory.DynamicContext context = TradeRuleFilterFactory.DynamicContext.create(account, btc, Map.of("BTC", btc));
+
+        assertEquals(Boolean.FALSE, filter.apply(instruction(TradeAction.BUY, "SOL", "0.01"), context));
+        assertNotEquals(Boolean.FALSE, filter.apply(instruction(TradeAction.BUY, "BTC", "0.01"), context));
+    }
+
+    @Test
+    public void test_报价陈旧_规则链不产生成交指令() {
+        TradeRuleService tradeRuleService = new TradeRuleService();
+        ReflectionTestUtils.setField(tradeRuleService, "tradeRuleFilter",
+                new TradeRuleFilterFactory().tradeRuleFilter(filter, new ComplianceRuleFilter(),
+                        new PositionCheckRuleFilter(), new LeverageRuleFilter(),
+                        new FundAvailabilityRuleFilter(), new StopLossRuleFilter()));
+
+        List<TradeInstruction> instructions = new ArrayList<>();
+        instructions.add(instruction(TradeAction.BUY, "0.01"));
+        instructions.add(instruction(TradeAction.SELL, "0.1"));
+        TradePlan plan = TradePlan.builder().rationale("Test").instructions(instructions).build();
+
+        DecisionEntity stale = tradeRuleService.filter(plan, account, market(true));
+        assertTrue("stale 行情不应产生 BUY/SELL", stale.getInstructions().isEmpty());
+
+        DecisionEntity fresh = tradeRuleService.filter(plan, account, market(false));
+        assertEquals(2, fresh.getInstructions().size());
+    }
+
+    private static MarketSnapshotEntity market(boolean stale) {
+        return market("BTC", stale);
+    }
+
+    private static MarketSnapshotEntity market(String symbol, boolean stale) {
+        return MarketSnapshotEntity.builder()
+                .symbol(symbol)
+                .price(new BigDecimal("90000"))
+                .stale(stale)
+                .build();
+    }
+
+    private static TradeInstruction instruction(TradeAction action, String quantity) {
+        return instruction(action, "BTC", quantity);
+    }
+
+    private static TradeInstruction instruction(TradeAction action, String symbol, String quantity) {
+        return TradeInstruction.builder()
+                .action(action)
+                .symbol(symbol)
+                .quantity(new BigDecimal(quantity))
+                .rationale("Test")
+                .build();
+    }
+}
@@ -0,0 +1,257 @@
+package com.weihua.strategy.application.engine;
+
+import com.weihua.strategy.application.guard.CycleBudgetPolicy;
+import com.weihua.strategy.application.lifecycle.CycleDrainCoordinator;
+import com.weihua.strategy.domain.model.entity.DecisionEntity;
+import com.weihua.strategy.domain.model.entity.TradePlan;
+import com.weihua.strategy.domain.model.valobj.CycleDeadline;
+import com.weihua.strategy.domain.model.valobj.MarketContext;
+import com.weihua.strategy.domain.service.MarketAnalysisDomainService;
+import com.weihua.strategy.domain.service.StrategyComposerDomainService;
+import com.weihua.strategy.domain.service.TradeExecutionDomainService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.concurrent.Queues;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 交易循环分阶段执行引擎 (Reactor)
+ *
+ * 上下文准备 → LLM 决策 → 风控过滤 → 执行持久化 四个阶段各自拥有独立的调度器和并发上限，
+ * 阶段之间通过 flatMap 的请求量传递背压：LLM 阶段满载时上游不再拉取，
+ * 突发的大量到期策略堆积在入口的有界队列中，而不是占用大量阻塞线程
+ *
+ * 入口队列满时提交立即失败 (RejectedExecutionException)，由调用方决定是否重试
+ */
+@Slf4j
+@Component
+public class TradingCycleEngine {
+
+    private static final String METRIC_STAGE_ACTIVE = "strategy.cycle.engine.active";
+
+    private final MarketAnalysisDomainService marketService;
+    private final StrategyComposerDomainService composerService;
+    private final TradeExecutionDomainService executionService;
+    private final CycleBudgetPolicy cycleBudgetPolicy;
+    private final CycleDrainCoordinator cycleDrainCoordinator;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${strategy.cycle.engine.queue-capacity:2048}")
+    private int queueCapacity;
+
+    @Value("${strategy.cycle.engine.context-concurrency:32}")
+    private int contextConcurrency;
+
+    @Value("${strategy.cycle.engine.llm-concurrency:64}")
+    private int llmConcurrency;
+
+    @Value("${strategy.cycle.engine.rule-concurrency:4}")
+    private int ruleConcurrency;
+
+    @Value("${strategy.cycle.engine.persist-concurrency:16}")
+    private int persistConcurrency;
+
+    private final Object emitLock = new Object();
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private Sinks.Many<CycleJob> intake;
+    private Scheduler contextScheduler;
+    private Scheduler llmScheduler;
+    private Scheduler ruleScheduler;
+    private Scheduler persistScheduler;
+    private Disposable pipeline;
+    private Counter rejectedCounter;
+    private Counter expiredCounter;
+
+    public TradingCycleEngine(MarketAnalysisDomainService marketService,
+                              StrategyComposerDomainService composerService,
+                              TradeExecutionDomainService executionService,
+                              CycleBudgetPolicy cycleBudgetPolicy,
+                              CycleDrainCoordinator cycleDrainCoordinator,
+                              MeterRegistry meterRegistry) {
+        this.marketService = marketService;
+        this.composerService = composerService;
+        this.executionService = executionService;
+        this.cycleBudgetPolicy = cycleBudgetPolicy;
+        this.cycleDrainCoordinator = cycleDrainCoordinator;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        intake = Sinks.many().unicast().onBackpressureBuffer(Queues.<CycleJob>get(queueCapacity).get());
+
+        // 各阶段调度器线程数与并发上限一致，任务排队由 flatMap 背压控制
+        contextScheduler = Schedulers.newBoundedElastic(contextConcurrency, queueCapacity, "cycle-context");
+        llmScheduler = Schedulers.newBoundedElastic(llmConcurrency, queueCapacity, "cycle-llm");
+        ruleScheduler = Schedulers.newParallel("cycle-rule", ruleConcurrency);
+        persistScheduler = Schedulers.newBoundedElastic(persistConcurrency, queueCapacity, "cycle-persist");
+
+        Stage context = new Stage("context", contextScheduler, contextConcurrency);
+        Stage llm = new Stage("llm", llmScheduler, llmConcurrency);
+        Stage rule = new Stage("rule", ruleScheduler, ruleConcurrency);
+        Stage persist = new Stage("persist", persistScheduler, persistConcurrency);
+
+        pipeline = intake.asFlux()
+                .doOnNext(job -> queued.decrementAndGet())
+                .flatMap(context.of(this::prepareContext), context.concurrency, 1)
+                .flatMap(llm.of(this::proposePlan), llm.concurrency, 1)
+                .flatMap(rule.of(this::applyRules), rule.concurrency, 1)
+                .flatMap(persist.of(this::persist), persist.concurrency, 1)
+                .subscribe(
+                        job -> job.done.complete(null),
+                        error -> log.error("Trading cycle pipeline terminated unexpectedly", error));
+
+        rejectedCounter = Counter.builder("strategy.cycle.engine.rejected")
+                .description("入口队列已满被拒绝的交易循环").register(meterRegistry);
+        expiredCounter = Counter.builder("strategy.cycle.engine.expired")
+                .description("超出时间预算被取消的交易循环").register(meterRegistry);
+        Gauge.builder("strategy.cycle.engine.queued", queued, AtomicInteger::get)
+                .description("入口队列中等待的交易循环").register(meterRegistry);
+
+        log.info("Trading cycle engine started: queue={}, context={}, llm={}, rule={}, persist={}",
+                queueCapacity, contextConcurrency, llmConcurrency, ruleConcurrency, persistConcurrency);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (pipeline != null) {
+            pipeline.dispose();
+        }
+        contextScheduler.dispose();
+        llmScheduler.dispose();
+        ruleScheduler.dispose();
+        persistScheduler.dispose();
+    }
+
+    /**
+     * 提交一次交易循环
+     * @param deadline 整个循环的截止时间，排队时间同样计入；过期的循环在进入下一阶段前被取消
+     * @return 循环结束 (含上下文准备失败、超出预算而跳过、停机排空) 时完成的 Future；阶段异常时异常完成
+     */
+    public CompletableFuture<Void> submit(String strategyId, CycleDeadline deadline) {
+        CycleJob job = new CycleJob(UUID.randomUUID().toString(), strategyId, deadline);
+        if (!cycleDrainCoordinator.begin(job.cycleId, strategyId)) {
+            log.info("Node draining, trading cycle not submitted for strategy: {}", strategyId);
+            job.done.complete(null);
+            return job.done;
+        }
+        job.done.whenComplete((v, error) -> cycleDrainCoordinator.end(job.cycleId));
+
+        Sinks.EmitResult result;
+        synchronized (emitLock) {
+            result = intake.tryEmitNext(job);
+        }
+        if (result.isFailure()) {
+            rejectedCounter.increment();
+            log.warn("Trading cycle rejected: strategyId={}, reason={}", strategyId, result);
+            job.done.completeExceptionally(new RejectedExecutionException("Trading cycle queue is full: " + result));
+        } else {
+            queued.incrementAndGet();
+        }
+        return job.done;
+    }
+
+    private CycleJob prepareContext(CycleJob job) {
+        log.info("Starting trading cycle for strategy: {}, cycleId={}, {}", job.strategyId, job.cycleId, job.deadline);
+        job.context = marketService.prepareContext(job.strategyId, cycleBudgetPolicy.contextStage(job.deadline));
+        if (job.context == null) {
+            log.warn("Skipping cycle: context preparation failed.");
+            job.done.complete(null);
+            return null;
+        }
+        return job;
+    }
+
+    private CycleJob proposePlan(CycleJob job) {
+        job.plan = composerService.proposePlan(job.context, cycleBudgetPolicy.llmStage(job.deadline));
+        return job;
+    }
+
+    private CycleJob applyRules(CycleJob job) {
+        job.decision = composerService.applyRules(job.plan, job.context);
+        cycleDrainCoordinator.decided(job.cycleId, job.decision, job.context);
+        return job;
+    }
+
+    private CycleJob persist(CycleJob job) {
+        executionService.executeAndPersist(job.cycleId, job.decision, job.context, cycleBudgetPolicy.persistStage(job.deadline));
+        return job;
+    }
+
+    /**
+     * 流水线阶段：固定调度器 + 并发上限，异常只终止当前循环，不影响流水线
+     */
+    private class Stage {
+        private final String name;
+        private final Scheduler scheduler;
+        private final int concurrency;
+        private final AtomicInteger active = new AtomicInteger();
+
+        private Stage(String name, Scheduler scheduler, int concurrency) {
+            this.name = name;
+            this.scheduler = scheduler;
+            this.concurrency = concurrency;
+            Gauge.builder(METRIC_STAGE_ACTIVE, active, AtomicInteger::get)
+                    .tag("stage", name)
+                    .description("各阶段正在处理的交易循环").register(meterRegistry);
+        }
+
+        private Function<CycleJob, Mono<CycleJob>> of(Function<CycleJob, CycleJob> step) {
+            return job -> Mono.fromCallable(() -> {
+                        // 排队等待期间可能已过期，过期的循环不再进入后续阶段
+                        job.deadline.remainderOfCycle().checkNotExpired(name);
+                        active.incrementAndGet();
+                        try {
+                            return step.apply(job);
+                        } finally {
+                            active.decrementAndGet();
+                        }
+                    })
+                    .subscribeOn(scheduler)
+                    .onErrorResume(error -> {
+                        if (CycleDeadline.isDeadlineExceeded(error)) {
+                            expiredCounter.increment();
+                            log.warn("Trading cycle cancelled at {} stage for strategy: {}, deadline exceeded", name, job.strategyId);
+                            job.done.complete(null);
+                            return Mono.empty();
+                        }
+                        log.error("Error during trading cycle {} stage for strategy: {}", name, job.strategyId, error);
+                        job.done.completeExceptionally(error);
+                        return Mono.empty();
+                    });
+        }
+    }
+
+    private static class CycleJob {
+        private final String cycleId;
+        private final String strategyId;
+        private final CycleDeadline deadline;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private MarketContext context;
+        private TradePlan plan;
+        private DecisionEntity decision;
+
+        private CycleJob(String cycleId, String strategyId, CycleDeadline deadline) {
+            this.cycleId = cycleId;
+            this.strategyId = strategyId;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.weihua.strategy.application.guard;
+
+import com.weihua.strategy.domain.model.valobj.CycleDeadline;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 交易循环时间预算
+ * 整个循环的预算 = 策略间隔 × budget-ratio，保证本轮在下一轮触发前结束；
+ * 上下文准备、LLM 决策各占整个预算的一定比例，执行持久化使用剩余时间
+ */
+@Component
+public class CycleBudgetPolicy {
+
+    /** 是否启用截止时间，关闭时各阶段不限时 (旧行为) */
+    @Value("${strategy.cycle.budget.enabled:true}")
+    private boolean enabled;
+
+    /** 整个循环可占用策略间隔的比例 */
+    @Value("${strategy.cycle.budget.ratio:0.9}")
+    private double ratio;
+
+    /** 上下文准备 (数据库 + 行情) 占整个预算的比例 */
+    @Value("${strategy.cycle.budget.context-ratio:0.3}")
+    private double contextRatio;
+
+    /** LLM 决策占整个预算的比例 */
+    @Value("${strategy.cycle.budget.llm-ratio:0.6}")
+    private double llmRatio;
+
+    /** 策略未配置 intervalSeconds 时使用的间隔 */
+    @Value("${strategy.scheduler.default-interval-seconds:60}")
+    private int defaultIntervalSeconds;
+
+    /**
+     * 按策略间隔为新一轮循环创建截止时间
+     */
+    public CycleDeadline newDeadline(Integer intervalSeconds) {
+        if (!enabled) {
+            return CycleDeadline.none();
+        }
+        int seconds = intervalSeconds != null && intervalSeconds > 0 ? intervalSeconds : defaultIntervalSeconds;
+        return CycleDeadline.after(Duration.ofMillis((long) (seconds * 1000L * ratio)));
+    }
+
+    public CycleDeadline contextStage(CycleDeadline deadline) {
+        return deadline.stage(contextRatio);
+    }
+
+    public CycleDeadline llmStage(CycleDeadline deadline) {
+        return deadline.stage(llmRatio);
+    }
+
+    public CycleDeadline persistStage(CycleDeadline deadline) {
+        return deadline.remainderOfCycle();
+    }
+}
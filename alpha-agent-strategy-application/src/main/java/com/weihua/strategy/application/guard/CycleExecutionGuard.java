@@ -0,0 +1,218 @@
+package com.weihua.strategy.application.guard;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 单策略交易循环互斥守卫
+ * 同一策略同一时刻最多只有一个交易循环在执行 (手动触发、调度触发、上一轮超时未结束均适用)，
+ * 避免并行加载、修改、保存同一个虚拟账户
+ *
+ * 基于 in-flight 表实现，占位、重叠判断与释放占位都在同一策略键的原子操作 (compute) 内完成，
+ * 重叠请求按策略 (strategy.cycle.guard-policy) 处理：
+ * SKIP      直接丢弃
+ * COALESCE  不再发起新循环，等待正在执行的循环结束后一并返回
+ * QUEUE_ONE 当前循环结束后最多补跑一次，期间的其它请求合并到这一次
+ */
+@Slf4j
+@Component
+public class CycleExecutionGuard {
+
+    public enum Policy {
+        SKIP, COALESCE, QUEUE_ONE
+    }
+
+    public enum Outcome {
+        /** 由当前调用方执行 */
+        EXECUTED,
+        /** 已有循环在执行，被丢弃 */
+        SKIPPED,
+        /** 合并到正在执行或已排队的循环 */
+        COALESCED,
+        /** 已排队，在当前循环结束后补跑 */
+        QUEUED,
+        /** 节点正在停机排空，不再接收新循环 */
+        REJECTED
+    }
+
+    private static final String METRIC_NAME = "strategy.cycle.guard";
+
+    private final Policy policy;
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter skippedCounter;
+    private final Counter coalescedCounter;
+    private final Counter queuedCounter;
+
+    public CycleExecutionGuard(MeterRegistry meterRegistry,
+                               @Value("${strategy.cycle.guard-policy:SKIP}") String policy) {
+        this.policy = Policy.valueOf(policy.trim().toUpperCase());
+        this.skippedCounter = Counter.builder(METRIC_NAME).tag("outcome", "skipped")
+                .description("被丢弃的重叠交易循环").register(meterRegistry);
+        this.coalescedCounter = Counter.builder(METRIC_NAME).tag("outcome", "coalesced")
+                .description("被合并的重叠交易循环").register(meterRegistry);
+        this.queuedCounter = Counter.builder(METRIC_NAME).tag("outcome", "queued")
+                .description("排队补跑的交易循环").register(meterRegistry);
+        Gauge.builder("strategy.cycle.in.flight", inFlight, Map::size)
+                .description("正在执行交易循环的策略数").register(meterRegistry);
+    }
+
+    /**
+     * 在守卫下同步执行一次交易循环
+     */
+    public Outcome execute(String strategyId, Runnable cycle) {
+        InFlight mine = new InFlight();
+        CompletableFuture<Outcome> overlap = acquire(strategyId, mine);
+        if (overlap != null) {
+            return overlap.join();
+        }
+
+        try {
+            do {
+                cycle.run();
+            } while (shouldRerun(strategyId, mine));
+        } finally {
+            inFlight.remove(strategyId, mine);
+            mine.done.complete(null);
+        }
+        return Outcome.EXECUTED;
+    }
+
+    /**
+     * 在守卫下异步执行一次交易循环，占位在 cycle 返回的 Future 完成时释放
+     */
+    public CompletableFuture<Outcome> executeAsync(String strategyId, Supplier<CompletableFuture<Void>> cycle) {
+        InFlight mine = new InFlight();
+        CompletableFuture<Outcome> overlap = acquire(strategyId, mine);
+        if (overlap != null) {
+            return overlap;
+        }
+
+        CompletableFuture<Outcome> result = new CompletableFuture<>();
+        runAsync(strategyId, mine, cycle, result);
+        return result;
+    }
+
+    private void runAsync(String strategyId, InFlight mine, Supplier<CompletableFuture<Void>> cycle,
+                          CompletableFuture<Outcome> result) {
+        CompletableFuture<Void> run;
+        try {
+            run = cycle.get();
+        } catch (Exception e) {
+            run = CompletableFuture.failedFuture(e);
+        }
+        run.whenComplete((v, error) -> {
+            if (error == null && shouldRerun(strategyId, mine)) {
+                runAsync(strategyId, mine, cycle, result);
+                return;
+            }
+            inFlight.remove(strategyId, mine);
+            mine.done.complete(null);
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(Outcome.EXECUTED);
+            }
+        });
+    }
+
+    /**
+     * 占位，已有循环在执行时在同一个原子操作内决定重叠请求的结果
+     * @return 占位成功返回 null，否则返回重叠请求的结果
+     */
+    private CompletableFuture<Outcome> acquire(String strategyId, InFlight mine) {
+        Outcome[] overlap = new Outcome[1];
+        InFlight owner = inFlight.compute(strategyId, (id, current) -> {
+            if (current == null) {
+                return mine;
+            }
+            overlap[0] = overlapOutcome(current);
+            return current;
+        });
+        if (owner == mine) {
+            return null;
+        }
+        return onOverlap(strategyId, owner, overlap[0]);
+    }
+
+    /**
+     * 重叠请求的结果，只在 compute 内调用，与 shouldRerun 的释放占位互斥
+     */
+    private Outcome overlapOutcome(InFlight current) {
+        switch (policy) {
+            case COALESCE:
+                return Outcome.COALESCED;
+            case QUEUE_ONE:
+                if (!current.rerun) {
+                    current.rerun = true;
+                    return Outcome.QUEUED;
+                }
+                return Outcome.COALESCED;
+            case SKIP:
+            default:
+                return Outcome.SKIPPED;
+        }
+    }
+
+    /**
+     * 本轮结束后是否需要补跑
+     * 与重叠判断在同一个原子操作内完成：有排队的请求时保留占位并补跑，否则释放占位，排队请求不会落在已释放的占位上
+     */
+    private boolean shouldRerun(String strategyId, InFlight mine) {
+        boolean[] rerun = new boolean[1];
+        inFlight.computeIfPresent(strategyId, (id, current) -> {
+            if (current != mine) {
+                return current;
+            }
+            rerun[0] = mine.rerun;
+            mine.rerun = false;
+            return rerun[0] ? mine : null;
+        });
+        return rerun[0];
+    }
+
+    private CompletableFuture<Outcome> onOverlap(String strategyId, InFlight existing, Outcome outcome) {
+        switch (outcome) {
+            case QUEUED:
+                queuedCounter.increment();
+                log.info("Cycle already running, queued one more: strategyId={}", strategyId);
+                return CompletableFuture.completedFuture(Outcome.QUEUED);
+            case COALESCED:
+                coalescedCounter.increment();
+                if (policy == Policy.COALESCE) {
+                    log.info("Cycle already running, waiting for it: strategyId={}", strategyId);
+                    return existing.done.thenApply(v -> Outcome.COALESCED);
+                }
+                log.info("Cycle already queued, coalesced: strategyId={}", strategyId);
+                return CompletableFuture.completedFuture(Outcome.COALESCED);
+            case SKIPPED:
+            default:
+                skippedCounter.increment();
+                log.info("Cycle already running, skipped: strategyId={}", strategyId);
+                return CompletableFuture.completedFuture(Outcome.SKIPPED);
+        }
+    }
+
+    public boolean isRunning(String strategyId) {
+        return inFlight.containsKey(strategyId);
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    private static class InFlight {
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        /** 是否有排队的补跑，只在 in-flight 表对该策略的 compute 内读写 */
+        private boolean rerun;
+    }
+}
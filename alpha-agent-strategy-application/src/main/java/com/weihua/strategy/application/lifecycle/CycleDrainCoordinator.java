@@ -0,0 +1,292 @@
+package com.weihua.strategy.application.lifecycle;
+
+import com.weihua.strategy.application.guard.CycleExecutionGuard;
+import com.weihua.strategy.domain.model.aggregate.StrategyInstanceAggregate;
+import com.weihua.strategy.domain.model.aggregate.VirtualAccountAggregate;
+import com.weihua.strategy.domain.model.entity.CycleCheckpointEntity;
+import com.weihua.strategy.domain.model.entity.DecisionEntity;
+import com.weihua.strategy.domain.model.valobj.CycleDeadline;
+import com.weihua.strategy.domain.model.valobj.MarketContext;
+import com.weihua.strategy.domain.model.valobj.StrategyStatus;
+import com.weihua.strategy.domain.repository.ICycleCheckpointRepository;
+import com.weihua.strategy.domain.repository.IStrategyInstanceRepository;
+import com.weihua.strategy.domain.repository.IVirtualAccountRepository;
+import com.weihua.strategy.domain.service.TradeExecutionDomainService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 交易循环停机排空与检查点重放
+ *
+ * 停机 (SmartLifecycle.stop，先于 Web 服务器和各执行器关闭)：
+ * 1. 不再接收新循环 (executeCycle / submitCycle 返回 REJECTED)
+ * 2. 在 strategy.cycle.drain.timeout-ms 内等待执行中的循环结束
+ * 3. 超时后仍未结束的循环中，已拿到决策但尚未持久化的保存为检查点，其余放弃
+ *
+ * 启动时后台重放未过期的检查点：按保存的决策和行情直接执行持久化，不再请求 LLM；
+ * cycleId 在循环开始时生成并贯穿到持久化，重放与停机前未确认的提交重叠时按 cycleId 幂等
+ */
+@Slf4j
+@Component
+public class CycleDrainCoordinator implements SmartLifecycle {
+
+    private static final String METRIC_CHECKPOINT = "strategy.cycle.checkpoint";
+
+    private final ICycleCheckpointRepository checkpointRepository;
+    private final IStrategyInstanceRepository strategyInstanceRepository;
+    private final IVirtualAccountRepository virtualAccountRepository;
+    private final TradeExecutionDomainService executionService;
+    private final CycleExecutionGuard cycleExecutionGuard;
+
+    @Value("${strategy.cycle.drain.timeout-ms:20000}")
+    private long drainTimeoutMs;
+
+    @Value("${strategy.cycle.drain.replay-max-age-seconds:300}")
+    private long replayMaxAgeSeconds;
+
+    @Value("${strategy.cycle.drain.replay-batch:200}")
+    private int replayBatch;
+
+    private final Map<String, InFlightCycle> inFlight = new ConcurrentHashMap<>();
+    private volatile boolean accepting = true;
+    private volatile boolean running = false;
+
+    private final Counter savedCounter;
+    private final Counter replayedCounter;
+    private final Counter discardedCounter;
+
+    public CycleDrainCoordinator(ICycleCheckpointRepository checkpointRepository,
+                                 IStrategyInstanceRepository strategyInstanceRepository,
+                                 IVirtualAccountRepository virtualAccountRepository,
+                                 TradeExecutionDomainService executionService,
+                                 CycleExecutionGuard cycleExecutionGuard,
+                                 MeterRegistry meterRegistry) {
+        this.checkpointRepository = checkpointRepository;
+        this.strategyInstanceRepository = strategyInstanceRepository;
+        this.virtualAccountRepository = virtualAccountRepository;
+        this.executionService = executionService;
+        this.cycleExecutionGuard = cycleExecutionGuard;
+        this.savedCounter = Counter.builder(METRIC_CHECKPOINT).tag("result", "saved")
+                .description("停机时保存的检查点").register(meterRegistry);
+        this.replayedCounter = Counter.builder(METRIC_CHECKPOINT).tag("result", "replayed")
+                .description("启动时重放的检查点").register(meterRegistry);
+        this.discardedCounter = Counter.builder(METRIC_CHECKPOINT).tag("result", "discarded")
+                .description("过期或重放失败而放弃的检查点").register(meterRegistry);
+        Gauge.builder("strategy.cycle.drain.in.flight", inFlight, Map::size)
+                .description("已开始尚未结束的交易循环").register(meterRegistry);
+    }
+
+    /**
+     * 登记一个开始执行的循环
+     * @return 正在排空时返回 false，调用方不应继续执行
+     */
+    public boolean begin(String cycleId, String strategyId) {
+        if (!accepting) {
+            return false;
+        }
+        inFlight.put(cycleId, new InFlightCycle(strategyId));
+        if (!accepting) {
+            // 与 stop 并发：要么排空线程能看到这条登记，要么这里撤回
+            inFlight.remove(cycleId);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 记录循环已拿到风控后的决策，此后排空超时会保存为检查点
+     */
+    public void decided(String cycleId, DecisionEntity decision, MarketContext context) {
+        InFlightCycle cycle = inFlight.get(cycleId);
+        if (cycle != null) {
+            cycle.context = context;
+            cycle.decision = decision;
+        }
+    }
+
+    public void end(String cycleId) {
+        inFlight.remove(cycleId);
+    }
+
+    public boolean isAccepting() {
+        return accepting;
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    @Override
+    public void start() {
+        accepting = true;
+        running = true;
+        Thread.ofVirtual().name("cycle-checkpoint-replay").start(this::replayCheckpoints);
+    }
+
+    @Override
+    public void stop() {
+        drain();
+    }
+
+    @Override
+    public void stop(Runnable callback) {
+        Thread.ofVirtual().name("cycle-drain").start(() -> {
+            try {
+                drain();
+            } finally {
+                callback.run();
+            }
+        });
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 最高阶段：最先停止，在 Web 服务器、调度器和执行器关闭之前完成排空；
+     * 排空时长需小于 spring.lifecycle.timeout-per-shutdown-phase
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE;
+    }
+
+    /**
+     * 停止接收新循环，等待执行中的循环结束，超时后保存已决策未持久化的循环
+     */
+    public void drain() {
+        accepting = false;
+        long deadline = System.currentTimeMillis() + drainTimeoutMs;
+        log.info("Draining trading cycles: inFlight={}, timeout={}ms", inFlight.size(), drainTimeoutMs);
+
+        try {
+            while (!inFlight.isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        int saved = 0;
+        int abandoned = 0;
+        for (Map.Entry<String, InFlightCycle> entry : inFlight.entrySet()) {
+            InFlightCycle cycle = entry.getValue();
+            DecisionEntity decision = cycle.decision;
+            MarketContext context = cycle.context;
+            if (decision == null || context == null) {
+                abandoned++;
+                continue;
+            }
+            try {
+                checkpointRepository.save(CycleCheckpointEntity.builder()
+                        .cycleId(entry.getKey())
+                        .strategyId(cycle.strategyId)
+                        .decision(decision)
+                        .marketData(context.getMarketData())
+                        .primarySymbol(context.getPrimaryMarket() != null ? context.getPrimaryMarket().getSymbol() : null)
+                        .build());
+                savedCounter.increment();
+                saved++;
+            } catch (Exception e) {
+                log.error("Failed to checkpoint trading cycle: cycleId={}, strategyId={}", entry.getKey(), cycle.strategyId, e);
+            }
+        }
+
+        running = false;
+        log.info("Trading cycle drain finished: remaining={}, checkpointed={}, abandoned={}",
+                inFlight.size(), saved, abandoned);
+    }
+
+    /**
+     * 重放未过期的检查点，过期或策略已停止的检查点放弃
+     */
+    public void replayCheckpoints() {
+        try {
+            List<CycleCheckpointEntity> pending = checkpointRepository.findPending(replayBatch);
+            if (pending.isEmpty()) {
+                return;
+            }
+            log.info("Replaying {} trading cycle checkpoints", pending.size());
+            for (CycleCheckpointEntity checkpoint : pending) {
+                replay(checkpoint);
+            }
+        } catch (Exception e) {
+            log.error("Trading cycle checkpoint replay failed", e);
+        }
+    }
+
+    private void replay(CycleCheckpointEntity checkpoint) {
+        String cycleId = checkpoint.getCycleId();
+        String strategyId = checkpoint.getStrategyId();
+        if (checkpoint.getCreateTime() != null
+                && checkpoint.getCreateTime().isBefore(LocalDateTime.now().minusSeconds(replayMaxAgeSeconds))) {
+            discard(cycleId, "expired");
+            return;
+        }
+        if (!checkpointRepository.claim(cycleId)) {
+            // 已被其他节点领取
+            return;
+        }
+
+        try {
+            StrategyInstanceAggregate strategy = strategyInstanceRepository.findByStrategyId(strategyId);
+            if (strategy == null || strategy.getStatus() != StrategyStatus.RUNNING) {
+                discard(cycleId, "strategy not running");
+                return;
+            }
+            VirtualAccountAggregate account = virtualAccountRepository.findByStrategyId(strategyId, "USDT");
+            if (account == null || checkpoint.getMarketData() == null) {
+                discard(cycleId, "account or market data missing");
+                return;
+            }
+
+            // 账户按当前状态重新加载，行情使用决策时的快照
+            MarketContext context = MarketContext.builder()
+                    .strategyId(strategyId)
+                    .marketData(checkpoint.getMarketData())
+                    .primaryMarket(checkpoint.getMarketData().get(checkpoint.getPrimarySymbol()))
+                    .account(account)
+                    .build();
+
+            CycleExecutionGuard.Outcome outcome = cycleExecutionGuard.execute(strategyId,
+                    () -> executionService.executeAndPersist(cycleId, checkpoint.getDecision(), context, CycleDeadline.none()));
+            if (outcome != CycleExecutionGuard.Outcome.EXECUTED) {
+                discard(cycleId, "overlapped: " + outcome);
+                return;
+            }
+            replayedCounter.increment();
+            log.info("Trading cycle checkpoint replayed: cycleId={}, strategyId={}", cycleId, strategyId);
+        } catch (Exception e) {
+            log.error("Failed to replay trading cycle checkpoint: cycleId={}, strategyId={}", cycleId, strategyId, e);
+            discard(cycleId, e.getMessage());
+        }
+    }
+
+    private void discard(String cycleId, String reason) {
+        discardedCounter.increment();
+        log.warn("Trading cycle checkpoint discarded: cycleId={}, reason={}", cycleId, reason);
+        checkpointRepository.discard(cycleId, reason);
+    }
+
+    private static class InFlightCycle {
+        private final String strategyId;
+        private volatile MarketContext context;
+        private volatile DecisionEntity decision;
+
+        private InFlightCycle(String strategyId) {
+            this.strategyId = strategyId;
+        }
+    }
+}
@@ -1,14 +1,27 @@
 package com.weihua.strategy.application.service;
 
+import com.weihua.strategy.application.engine.TradingCycleEngine;
+import com.weihua.strategy.application.guard.CycleBudgetPolicy;
+import com.weihua.strategy.application.guard.CycleExecutionGuard;
+import com.weihua.strategy.application.lifecycle.CycleDrainCoordinator;
+import com.weihua.strategy.domain.model.aggregate.StrategyInstanceAggregate;
 import com.weihua.strategy.domain.model.entity.DecisionEntity;
+import com.weihua.strategy.domain.model.entity.TradePlan;
+import com.weihua.strategy.domain.model.valobj.CycleDeadline;
 import com.weihua.strategy.domain.model.valobj.MarketContext;
 import com.weihua.strategy.domain.service.MarketAnalysisDomainService;
 import com.weihua.strategy.domain.service.StrategyComposerDomainService;
 import com.weihua.strategy.domain.service.TradeExecutionDomainService;
+import com.weihua.types.exception.AppException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 /**
  * 应用服务：交易循环
  * 负责编排交易流程，不包含具体业务逻辑
@@ -21,30 +34,100 @@ public class TradingCycleAppService {
     private final MarketAnalysisDomainService marketService;
     private final StrategyComposerDomainService composerService;
     private final TradeExecutionDomainService executionService;
+    private final CycleExecutionGuard cycleExecutionGuard;
+    private final TradingCycleEngine tradingCycleEngine;
+    private final CycleBudgetPolicy cycleBudgetPolicy;
+    private final CycleDrainCoordinator cycleDrainCoordinator;
+
+    /**
+     * 执行一次交易循环 (按默认间隔计算时间预算)
+     */
+    public CycleExecutionGuard.Outcome executeCycle(String strategyId) {
+        return executeCycle(strategyId, null);
+    }
 
     /**
      * 执行一次交易循环
+     * 同一策略的重叠调用由 CycleExecutionGuard 按配置的策略丢弃、合并或排队；
+     * 时间预算由策略间隔推导，每次 (包括补跑) 开始执行时重新计时；
+     * 停机排空期间返回 REJECTED，取得守卫后才开始排空、循环 (包括补跑) 一次也未开始时同样返回 REJECTED
+     */
+    public CycleExecutionGuard.Outcome executeCycle(String strategyId, Integer intervalSeconds) {
+        if (!cycleDrainCoordinator.isAccepting()) {
+            return CycleExecutionGuard.Outcome.REJECTED;
+        }
+        AtomicBoolean started = new AtomicBoolean(false);
+        CycleExecutionGuard.Outcome outcome = cycleExecutionGuard.execute(strategyId, () -> {
+            if (runCycle(strategyId, cycleBudgetPolicy.newDeadline(intervalSeconds))) {
+                started.set(true);
+            }
+        });
+        if (outcome == CycleExecutionGuard.Outcome.EXECUTED && !started.get()) {
+            return CycleExecutionGuard.Outcome.REJECTED;
+        }
+        return outcome;
+    }
+
+    /**
+     * 异步提交一次交易循环到分阶段执行引擎，不占用调用线程
+     * 同样受 CycleExecutionGuard 约束，时间预算从提交时开始计算 (包含排队时间)
      */
-    public void executeCycle(String strategyId) {
-        log.info("Starting trading cycle for strategy: {}", strategyId);
+    public CompletableFuture<CycleExecutionGuard.Outcome> submitCycle(String strategyId, Integer intervalSeconds) {
+        if (!cycleDrainCoordinator.isAccepting()) {
+            return CompletableFuture.completedFuture(CycleExecutionGuard.Outcome.REJECTED);
+        }
+        return cycleExecutionGuard.executeAsync(strategyId,
+                () -> tradingCycleEngine.submit(strategyId, cycleBudgetPolicy.newDeadline(intervalSeconds)));
+    }
+
+    /**
+     * 在提交一批到期策略之前预取它们交易对的行情，上游请求数随交易对并集增长而不是随策略数增长
+     */
+    public int prefetchMarketData(List<StrategyInstanceAggregate> strategies) {
+        if (strategies.isEmpty()) {
+            return 0;
+        }
+        return marketService.prefetchMarketData(strategies);
+    }
+
+    /**
+     * @return 循环是否已开始；节点正在排空而未开始时返回 false
+     */
+    private boolean runCycle(String strategyId, CycleDeadline deadline) {
+        // cycleId 在循环开始时生成，排空检查点与持久化使用同一个 ID
+        String cycleId = UUID.randomUUID().toString();
+        if (!cycleDrainCoordinator.begin(cycleId, strategyId)) {
+            log.info("Node draining, trading cycle not started for strategy: {}", strategyId);
+            return false;
+        }
+        log.info("Starting trading cycle for strategy: {}, cycleId={}, {}", strategyId, cycleId, deadline);
 
         try {
             // 1. 编排：准备上下文 (行情、账户、配置)
-            MarketContext context = marketService.prepareContext(strategyId);
+            MarketContext context = marketService.prepareContext(strategyId, cycleBudgetPolicy.contextStage(deadline));
             if (context == null) {
                 log.warn("Skipping cycle: context preparation failed.");
-                return;
+                return true;
             }
 
-            // 2. 编排：制定决策 (LLM + 风控)
-            DecisionEntity decision = composerService.makeDecision(context);
+            // 2. 编排：制定决策 (LLM 超时降级为观望 + 风控)
+            TradePlan plan = composerService.proposePlan(context, cycleBudgetPolicy.llmStage(deadline));
+            DecisionEntity decision = composerService.applyRules(plan, context);
+            cycleDrainCoordinator.decided(cycleId, decision, context);
 
-            // 3. 编排：执行交易 (下单 + 持久化)
-            executionService.executeAndPersist(decision, context);
+            // 3. 编排：执行交易 (下单 + 持久化)，已超出预算则放弃
+            executionService.executeAndPersist(cycleId, decision, context, cycleBudgetPolicy.persistStage(deadline));
 
         } catch (Exception e) {
+            if (CycleDeadline.isDeadlineExceeded(e)) {
+                log.warn("Trading cycle cancelled for strategy: {}, {}", strategyId, ((AppException) e).getInfo());
+                return true;
+            }
             log.error("Error during trading cycle execution for strategy: {}", strategyId, e);
             // 这里可以添加告警通知逻辑
+        } finally {
+            cycleDrainCoordinator.end(cycleId);
         }
+        return true;
     }
 }
@@ -4,6 +4,7 @@ import com.weihua.strategy.domain.model.entity.MarketSnapshotEntity;
 import com.weihua.strategy.domain.model.entity.PortfolioSnapshotEntity;
 import com.weihua.strategy.domain.model.entity.StrategyConfigEntity;
 import com.weihua.strategy.domain.model.entity.TradePlan;
+import com.weihua.strategy.domain.model.valobj.CycleDeadline;
 
 /**
  * LLM 端口
@@ -13,10 +14,23 @@ public interface ILlmPort {
     /**
      * 获取交易计划 (Raw Plan)
      */
-    TradePlan askForPlan(
+    default TradePlan askForPlan(
             String strategyId,
             MarketSnapshotEntity market,
             PortfolioSnapshotEntity portfolio,
             StrategyConfigEntity config
+    ) {
+        return askForPlan(strategyId, market, portfolio, config, CycleDeadline.none());
+    }
+
+    /**
+     * 获取交易计划，超过 deadline 时放弃调用并降级为观望 (HOLD)
+     */
+    TradePlan askForPlan(
+            String strategyId,
+            MarketSnapshotEntity market,
+            PortfolioSnapshotEntity portfolio,
+            StrategyConfigEntity config,
+            CycleDeadline deadline
     );
 }
@@ -1,9 +1,14 @@
 package com.weihua.strategy.domain.adapter.port;
 
 import com.weihua.strategy.domain.model.entity.MarketSnapshotEntity;
+import com.weihua.strategy.domain.model.valobj.CycleDeadline;
+import com.weihua.strategy.domain.model.valobj.TechnicalIndicators;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 市场数据端口
@@ -15,12 +20,48 @@ public interface IMarketDataPort {
      * @param symbols 交易对列表，如 ["BTC/USDT", "ETH/USDT"]
      * @return Map<Symbol, Price>
      */
-    Map<String, MarketSnapshotEntity> fetchLatestPrices(List<String> symbols);
+    default Map<String, MarketSnapshotEntity> fetchLatestPrices(List<String> symbols) {
+        return fetchLatestPrices(symbols, CycleDeadline.none());
+    }
+
+    /**
+     * 批量获取最新价格，请求超时不超过 deadline 的剩余时间
+     */
+    Map<String, MarketSnapshotEntity> fetchLatestPrices(List<String> symbols, CycleDeadline deadline);
+
+    /**
+     * 异步批量获取最新价格，调用线程不阻塞；默认在调用线程同步完成
+     */
+    default CompletableFuture<Map<String, MarketSnapshotEntity>> fetchLatestPricesAsync(List<String> symbols, CycleDeadline deadline) {
+        return CompletableFuture.completedFuture(fetchLatestPrices(symbols, deadline));
+    }
+
+    /**
+     * 预取一批交易对的最新价格 (调度 tick 内所有到期策略的交易对并集)，之后各策略的 fetchLatestPrices 直接命中
+     * @return 实际请求上游的交易对数
+     */
+    default int prefetchPrices(Collection<String> symbols) {
+        return fetchLatestPrices(new ArrayList<>(symbols)).size();
+    }
 
     /**
      * 获取技术指标 (RSI, MACD, EMA等)
      * @param symbol 交易对
-     * @return JSON String (直接返回 Python 端计算好的 JSON)
+     * @return 技术指标，不可用时返回 null
+     */
+    default TechnicalIndicators fetchTechnicalIndicators(String symbol) {
+        return fetchTechnicalIndicators(symbol, CycleDeadline.none());
+    }
+
+    /**
+     * 获取技术指标，请求超时不超过 deadline 的剩余时间
+     */
+    TechnicalIndicators fetchTechnicalIndicators(String symbol, CycleDeadline deadline);
+
+    /**
+     * 异步获取技术指标，可与价格请求并发；默认在调用线程同步完成
      */
-    String fetchTechnicalIndicators(String symbol);
+    default CompletableFuture<TechnicalIndicators> fetchTechnicalIndicatorsAsync(String symbol, CycleDeadline deadline) {
+        return CompletableFuture.completedFuture(fetchTechnicalIndicators(symbol, deadline));
+    }
 }
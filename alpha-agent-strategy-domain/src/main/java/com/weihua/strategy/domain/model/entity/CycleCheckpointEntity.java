@@ -0,0 +1,31 @@
+package com.weihua.strategy.domain.model.entity;
+
+import com.weihua.strategy.domain.model.valobj.CycleCheckpointStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * 交易循环检查点
+ * 停机排空超时时，已拿到 LLM 决策但尚未持久化的循环保存为检查点，下次启动时直接执行，不再重新请求 LLM
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CycleCheckpointEntity {
+    private String cycleId;
+    private String strategyId;
+    /** 已通过风控的决策 */
+    private DecisionEntity decision;
+    /** 决策时的行情 (按决策时的价格成交) */
+    private Map<String, MarketSnapshotEntity> marketData;
+    private String primarySymbol;
+    private CycleCheckpointStatus status;
+    private String lastError;
+    private LocalDateTime createTime;
+}
@@ -0,0 +1,34 @@
+package com.weihua.strategy.domain.model.entity;
+
+import com.weihua.strategy.domain.model.valobj.CycleJobStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 分布式交易循环任务
+ * 每个 RUNNING 策略在任务表中始终只有一条未完成任务 (PENDING / RUNNING)，
+ * 完成后在同一事务内写入下一轮任务
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CycleJobEntity {
+    private Long id;
+    private String strategyId;
+    private String userId;
+    /** 本轮应开始的时刻 (epoch 毫秒)，与 strategyId 唯一 */
+    private Long dueAtMs;
+    /** 入队时的策略间隔 (秒) */
+    private Integer intervalSeconds;
+    private CycleJobStatus status;
+    /** 持有租约的节点 */
+    private String workerId;
+    /** 租约到期时刻 (epoch 毫秒)，过期后其他节点可重新领取 */
+    private Long leaseUntilMs;
+    /** 领取次数，同时作为租约的栅栏令牌 */
+    private Integer attempts;
+    private String lastError;
+}
@@ -30,4 +30,9 @@ public class DecisionEntity {
      * 原始计划 (可选，用于追溯)
      */
     private TradePlan rawPlan;
+
+    /**
+     * 原始计划是否来自决策缓存 (行情与持仓无实质变化，复用上一轮计划)
+     */
+    private boolean cached;
 }
@@ -1,5 +1,6 @@
 package com.weihua.strategy.domain.model.entity;
 
+import com.weihua.strategy.domain.model.valobj.TechnicalIndicators;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -18,7 +19,9 @@ public class MarketSnapshotEntity {
     private BigDecimal price;
     private BigDecimal rsi;
     private BigDecimal fundingRate;
-    /** 技术指标 JSON 字符串 */
-    private String indicatorsJson;
+    /** 技术指标 (仅主要交易对) */
+    private TechnicalIndicators indicators;
     private LocalDateTime timestamp;
+    /** 行情源不可用时返回的最后已知报价，已超过正常的陈旧容忍时长 */
+    private boolean stale;
 }
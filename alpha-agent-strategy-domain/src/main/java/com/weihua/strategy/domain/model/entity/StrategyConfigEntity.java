@@ -26,6 +26,9 @@ public class StrategyConfigEntity {
     private java.math.BigDecimal initialCapital;
     private java.math.BigDecimal leverage;
     private String configJson;
+
+    /** 调度优先级，越大越优先 (容量不足时先执行)，默认 0 */
+    private Integer priority;
     
     /** 用户选择的模型 ID (如 "deepseek", "dashscope", "google")，如果为 null 则使用系统默认模型 */
     private String modelId;
@@ -25,4 +25,14 @@ public class TradePlan {
      * 原始指令列表
      */
     private List<TradeInstruction> instructions;
+
+    /**
+     * 是否复用了决策缓存中的计划 (本轮未调用 LLM)
+     */
+    private boolean cached;
+
+    /**
+     * 是否为降级计划 (LLM 调用失败、超时或输出无法解析时的观望计划)，降级计划不进入决策缓存
+     */
+    private boolean fallback;
 }
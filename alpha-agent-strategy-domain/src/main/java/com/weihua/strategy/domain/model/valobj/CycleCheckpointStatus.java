@@ -0,0 +1,27 @@
+package com.weihua.strategy.domain.model.valobj;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 交易循环检查点状态
+ */
+@Getter
+@AllArgsConstructor
+public enum CycleCheckpointStatus {
+    PENDING("PENDING", "待重放"),
+    REPLAYED("REPLAYED", "已重放"),
+    DISCARDED("DISCARDED", "已放弃");
+
+    private final String code;
+    private final String desc;
+
+    public static CycleCheckpointStatus fromCode(String code) {
+        for (CycleCheckpointStatus status : values()) {
+            if (status.code.equalsIgnoreCase(code)) {
+                return status;
+            }
+        }
+        return DISCARDED; // 默认值
+    }
+}
@@ -0,0 +1,117 @@
+package com.weihua.strategy.domain.model.valobj;
+
+import com.weihua.types.enums.ResponseCode;
+import com.weihua.types.exception.AppException;
+
+import java.time.Duration;
+
+/**
+ * 交易循环截止时间
+ * 由策略的 intervalSeconds 推导，沿 行情 → LLM → 持久化 各阶段传递，
+ * 保证一次循环不会占用下一次循环的时间窗口
+ *
+ * 基于 System.nanoTime，不受系统时钟调整影响
+ */
+public final class CycleDeadline {
+
+    private static final CycleDeadline NONE = new CycleDeadline(0L, Long.MAX_VALUE, Long.MAX_VALUE);
+
+    /** 整个循环的预算 (纳秒) */
+    private final long budgetNanos;
+
+    /** 整个循环的截止时刻 (nanoTime) */
+    private final long cycleDeadlineNanos;
+
+    /** 当前阶段的截止时刻 (nanoTime)，不晚于 cycleDeadlineNanos */
+    private final long deadlineNanos;
+
+    private CycleDeadline(long budgetNanos, long cycleDeadlineNanos, long deadlineNanos) {
+        this.budgetNanos = budgetNanos;
+        this.cycleDeadlineNanos = cycleDeadlineNanos;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * 从现在起 budget 后截止
+     */
+    public static CycleDeadline after(Duration budget) {
+        long deadline = System.nanoTime() + budget.toNanos();
+        return new CycleDeadline(budget.toNanos(), deadline, deadline);
+    }
+
+    /**
+     * 不限时 (兼容未传入截止时间的调用方)
+     */
+    public static CycleDeadline none() {
+        return NONE;
+    }
+
+    /**
+     * 为下一阶段划定预算：从现在起最多占整个循环预算的 fraction，且不超过整个循环的截止时间
+     */
+    public CycleDeadline stage(double fraction) {
+        if (isUnbounded()) {
+            return this;
+        }
+        long stageDeadline = System.nanoTime() + (long) (budgetNanos * fraction);
+        return new CycleDeadline(budgetNanos, cycleDeadlineNanos, Math.min(cycleDeadlineNanos, stageDeadline));
+    }
+
+    /**
+     * 整个循环剩余的预算 (脱离当前阶段限制)
+     */
+    public CycleDeadline remainderOfCycle() {
+        if (isUnbounded()) {
+            return this;
+        }
+        return new CycleDeadline(budgetNanos, cycleDeadlineNanos, cycleDeadlineNanos);
+    }
+
+    public boolean isUnbounded() {
+        return deadlineNanos == Long.MAX_VALUE;
+    }
+
+    public boolean isExpired() {
+        return !isUnbounded() && System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    /**
+     * 当前阶段剩余毫秒数，已过期时为 0；不限时为 Long.MAX_VALUE
+     */
+    public long remainingMillis() {
+        if (isUnbounded()) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0L, (deadlineNanos - System.nanoTime()) / 1_000_000L);
+    }
+
+    /**
+     * 当前阶段剩余秒数 (向上取整，至少 1 秒)，用于事务 / 语句超时；不限时为 -1 (即不设置超时)
+     */
+    public int remainingSecondsForTimeout() {
+        if (isUnbounded()) {
+            return -1;
+        }
+        return (int) Math.max(1L, Math.min(Integer.MAX_VALUE, (remainingMillis() + 999L) / 1000L));
+    }
+
+    /**
+     * 当前阶段已过期时抛出 AppException(CYCLE_DEADLINE_EXCEEDED)
+     */
+    public void checkNotExpired(String stage) {
+        if (isExpired()) {
+            throw new AppException(ResponseCode.CYCLE_DEADLINE_EXCEEDED.getCode(),
+                    "Cycle deadline exceeded at stage: " + stage);
+        }
+    }
+
+    public static boolean isDeadlineExceeded(Throwable e) {
+        return e instanceof AppException
+                && ResponseCode.CYCLE_DEADLINE_EXCEEDED.getCode().equals(((AppException) e).getCode());
+    }
+
+    @Override
+    public String toString() {
+        return isUnbounded() ? "CycleDeadline{none}" : "CycleDeadline{remaining=" + remainingMillis() + "ms}";
+    }
+}
@@ -0,0 +1,30 @@
+package com.weihua.strategy.domain.model.valobj;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 分布式交易循环任务状态
+ */
+@Getter
+@AllArgsConstructor
+public enum CycleJobStatus {
+    PENDING("PENDING", "待领取"),
+    RUNNING("RUNNING", "执行中"),
+    DONE("DONE", "已完成"),
+    FAILED("FAILED", "重试耗尽或提交失败"),
+    SKIPPED("SKIPPED", "未执行 (过期、被分发器丢弃或去重)"),
+    CANCELLED("CANCELLED", "已取消");
+
+    private final String code;
+    private final String desc;
+
+    public static CycleJobStatus fromCode(String code) {
+        for (CycleJobStatus status : values()) {
+            if (status.code.equalsIgnoreCase(code)) {
+                return status;
+            }
+        }
+        return PENDING; // 默认值
+    }
+}
@@ -0,0 +1,18 @@
+package com.weihua.strategy.domain.model.valobj;
+
+import com.weihua.strategy.domain.model.aggregate.StrategyInstanceAggregate;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 策略变更事件
+ * 策略创建、启停或配置变更后发布，供调度器增量更新排期
+ */
+@Getter
+@AllArgsConstructor
+public class StrategyChangedEvent {
+    private final String strategyId;
+    private final StrategyStatus status;
+    /** 变更后的策略快照；仅更新状态时为 null */
+    private final StrategyInstanceAggregate strategy;
+}
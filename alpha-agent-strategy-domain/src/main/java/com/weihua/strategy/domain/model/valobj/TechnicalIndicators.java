@@ -0,0 +1,43 @@
+package com.weihua.strategy.domain.model.valobj;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * 技术指标
+ * 由行情端口一次构建，经 MarketContext 传递给提示词构建与持久化，历史 K 线不足时对应字段为 null；
+ * 同一实例可能被指标缓存共享给多个策略，构建后不应再修改
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TechnicalIndicators {
+    private BigDecimal sma20;
+    private BigDecimal sma50;
+    private BigDecimal sma200;
+
+    private BigDecimal ema12;
+    private BigDecimal ema26;
+
+    private BigDecimal rsi;
+    /** overbought / oversold / neutral */
+    private String rsiSignal;
+
+    private BigDecimal macd;
+    private BigDecimal macdSignal;
+    private BigDecimal macdHistogram;
+
+    private BigDecimal bollingerUpper;
+    private BigDecimal bollingerMiddle;
+    private BigDecimal bollingerLower;
+
+    private BigDecimal kdjK;
+    private BigDecimal kdjD;
+
+    private BigDecimal atr;
+}
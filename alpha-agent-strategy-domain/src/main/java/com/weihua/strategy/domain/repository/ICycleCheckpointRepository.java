@@ -0,0 +1,28 @@
+package com.weihua.strategy.domain.repository;
+
+import com.weihua.strategy.domain.model.entity.CycleCheckpointEntity;
+
+import java.util.List;
+
+/**
+ * 交易循环检查点仓储
+ */
+public interface ICycleCheckpointRepository {
+
+    void save(CycleCheckpointEntity checkpoint);
+
+    /**
+     * 查询待重放的检查点，按创建时间升序
+     */
+    List<CycleCheckpointEntity> findPending(int limit);
+
+    /**
+     * 领取检查点 (PENDING → REPLAYED)，多个节点同时启动时只有一个能领取成功
+     */
+    boolean claim(String cycleId);
+
+    /**
+     * 放弃检查点 (过期、策略已停止、重放失败)
+     */
+    void discard(String cycleId, String reason);
+}
@@ -0,0 +1,48 @@
+package com.weihua.strategy.domain.repository;
+
+import com.weihua.strategy.domain.model.entity.CycleJobEntity;
+import com.weihua.strategy.domain.model.valobj.CycleJobStatus;
+
+import java.util.List;
+
+/**
+ * 分布式交易循环任务仓储
+ * 多个无状态节点共享同一张任务表，按 领取 → 心跳续约 → 完成 的协议执行到期循环
+ */
+public interface ICycleJobRepository {
+
+    /**
+     * 为策略登记一轮任务；策略已有未完成任务或该轮已存在时不做任何事 (幂等)
+     * @return 是否新写入
+     */
+    boolean enqueue(CycleJobEntity job);
+
+    /**
+     * 领取最多 limit 个到期任务 (PENDING 且已到期，或 RUNNING 但租约已过期)，
+     * 领取后状态为 RUNNING，attempts + 1，租约持续 leaseMs
+     */
+    List<CycleJobEntity> claim(String workerId, int limit, long leaseMs, long nowMs);
+
+    /**
+     * 续约；任务已被其他节点接管 (attempts 不一致) 时返回 false
+     */
+    boolean heartbeat(CycleJobEntity job, long leaseMs, long nowMs);
+
+    /**
+     * 结束任务并在同一事务内登记下一轮
+     * @param status DONE、FAILED 或 SKIPPED
+     * @param next 下一轮任务，策略已停止时为 null
+     * @return 仍持有租约并成功结束时返回 true
+     */
+    boolean finish(CycleJobEntity job, CycleJobStatus status, String error, CycleJobEntity next);
+
+    /**
+     * 取消策略尚未领取的任务 (策略停止、暂停)
+     */
+    int cancelPending(String strategyId);
+
+    /**
+     * 清理 beforeMs 之前到期且已结束的任务
+     */
+    int purgeFinished(long beforeMs);
+}
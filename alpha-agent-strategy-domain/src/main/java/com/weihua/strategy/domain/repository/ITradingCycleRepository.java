@@ -21,4 +21,9 @@ public interface ITradingCycleRepository {
      * @param cycle 交易周期聚合根
      */
     void save(com.weihua.strategy.domain.model.aggregate.TradingCycleAggregate cycle);
+
+    /**
+     * 交易周期是否已持久化 (按 cycleId 幂等重放)
+     */
+    boolean existsCycle(String cycleId);
 }
@@ -4,18 +4,26 @@ import com.weihua.strategy.domain.adapter.port.IMarketDataPort;
 import com.weihua.strategy.domain.model.aggregate.StrategyInstanceAggregate;
 import com.weihua.strategy.domain.model.aggregate.VirtualAccountAggregate;
 import com.weihua.strategy.domain.model.entity.MarketSnapshotEntity;
+import com.weihua.strategy.domain.model.valobj.CycleDeadline;
 import com.weihua.strategy.domain.model.valobj.MarketContext;
 import com.weihua.strategy.domain.model.valobj.StrategyStatus;
+import com.weihua.strategy.domain.model.valobj.TechnicalIndicators;
 import com.weihua.strategy.domain.repository.IStrategyInstanceRepository;
 import com.weihua.strategy.domain.repository.IVirtualAccountRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
 
 /**
  * 领域服务：行情分析
@@ -29,20 +37,47 @@ public class MarketAnalysisDomainService {
     private final IStrategyInstanceRepository strategyInstanceRepository;
     private final IVirtualAccountRepository virtualAccountRepository;
     private final IMarketDataPort marketDataPort;
+    private final TransactionTemplate transactionTemplate;
 
     /**
      * 准备市场上下文
      */
     public MarketContext prepareContext(String strategyId) {
+        return prepareContext(strategyId, CycleDeadline.none());
+    }
+
+    /**
+     * 准备市场上下文，数据库查询与行情请求均不超过 deadline
+     */
+    public MarketContext prepareContext(String strategyId, CycleDeadline deadline) {
         // 1. 加载策略实例
-        StrategyInstanceAggregate strategy = strategyInstanceRepository.findByStrategyId(strategyId);
+        StrategyInstanceAggregate strategy = query(deadline, () -> strategyInstanceRepository.findByStrategyId(strategyId));
         if (strategy == null || strategy.getStatus() != StrategyStatus.RUNNING) {
             log.warn("Strategy {} is not running or not found.", strategyId);
             return null;
         }
 
-        // 2. 加载虚拟账户 (默认 USDT)
-        VirtualAccountAggregate account = virtualAccountRepository.findByStrategyId(strategyId, "USDT");
+        // 2. 并发请求价格与主要交易对 (假设第一个为主要) 的技术指标，请求进行期间加载账户
+        List<String> symbols = strategy.getConfig().getSymbols();
+        if (symbols == null || symbols.isEmpty()) {
+            log.warn("Strategy {} has no symbols configured.", strategyId);
+            return null;
+        }
+        String primarySymbol = symbols.get(0);
+        CompletableFuture<Map<String, MarketSnapshotEntity>> pricesFuture = marketDataPort.fetchLatestPricesAsync(symbols, deadline);
+        CompletableFuture<TechnicalIndicators> indicatorsFuture = marketDataPort.fetchTechnicalIndicatorsAsync(primarySymbol, deadline);
+
+        VirtualAccountAggregate account;
+        Map<String, MarketSnapshotEntity> marketData;
+        try {
+            // 3. 加载虚拟账户 (默认 USDT)
+            account = query(deadline, () -> virtualAccountRepository.findByStrategyId(strategyId, "USDT"));
+            // 4. 汇总市场数据，耗时取决于最慢的一个请求
+            marketData = join(pricesFuture);
+        } catch (RuntimeException e) {
+            cancel(pricesFuture, indicatorsFuture);
+            throw e;
+        }
         if (account == null) {
             // 初始化默认账户 (仅用于测试/容错)
             account = VirtualAccountAggregate.builder()
@@ -54,27 +89,17 @@ public class MarketAnalysisDomainService {
                     .build();
         }
 
-        // 3. 获取市场数据
-        List<String> symbols = strategy.getConfig().getSymbols();
-        if (symbols == null || symbols.isEmpty()) {
-            log.warn("Strategy {} has no symbols configured.", strategyId);
-            return null;
-        }
-
-        Map<String, MarketSnapshotEntity> marketData = marketDataPort.fetchLatestPrices(symbols);
-        
-        // 获取主要交易对的市场数据 (假设第一个为主要)
-        String primarySymbol = symbols.get(0);
         MarketSnapshotEntity primaryMarket = marketData.get(primarySymbol);
-        
-        // 获取技术指标
-        if (primaryMarket != null) {
-            String indicators = marketDataPort.fetchTechnicalIndicators(primarySymbol);
-            primaryMarket.setIndicatorsJson(indicators);
-        } else {
+        if (primaryMarket == null) {
             log.warn("Failed to fetch market data for primary symbol: {}", primarySymbol);
+            cancel(indicatorsFuture);
             return null;
         }
+        TechnicalIndicators indicators = join(indicatorsFuture);
+        primaryMarket.setIndicators(indicators);
+        if (indicators != null) {
+            primaryMarket.setRsi(indicators.getRsi());
+        }
 
         return MarketContext.builder()
                 .strategyId(strategyId)
@@ -83,4 +108,63 @@ public class MarketAnalysisDomainService {
                 .account(account)
                 .build();
     }
+
+    /**
+     * 预取一批策略的行情：合并所有策略配置的交易对，按批请求一次，失败不影响各策略自行获取
+     * @return 实际请求上游的交易对数
+     */
+    public int prefetchMarketData(List<StrategyInstanceAggregate> strategies) {
+        Set<String> symbols = new LinkedHashSet<>();
+        for (StrategyInstanceAggregate strategy : strategies) {
+            if (strategy.getConfig() != null && strategy.getConfig().getSymbols() != null) {
+                symbols.addAll(strategy.getConfig().getSymbols());
+            }
+        }
+        if (symbols.isEmpty()) {
+            return 0;
+        }
+        try {
+            return marketDataPort.prefetchPrices(symbols);
+        } catch (Exception e) {
+            log.warn("Market data prefetch failed for {} symbols: {}", symbols.size(), e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * 等待异步行情结果，请求内抛出的异常 (如 CYCLE_DEADLINE_EXCEEDED) 原样抛出
+     */
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 本轮不再需要的行情请求：尚未开始的不再执行，已开始的结果被丢弃
+     */
+    private static void cancel(CompletableFuture<?>... futures) {
+        for (CompletableFuture<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * 在只读事务中执行查询，事务超时取 deadline 剩余时间 (MyBatis 据此设置语句超时)，其余事务属性沿用注入的事务模板
+     */
+    private <T> T query(CycleDeadline deadline, Supplier<T> query) {
+        if (deadline.isUnbounded()) {
+            return query.get();
+        }
+        deadline.checkNotExpired("load");
+        TransactionTemplate template = new TransactionTemplate(transactionTemplate.getTransactionManager(), transactionTemplate);
+        template.setReadOnly(true);
+        template.setTimeout(deadline.remainingSecondsForTimeout());
+        return template.execute(status -> query.get());
+    }
 }
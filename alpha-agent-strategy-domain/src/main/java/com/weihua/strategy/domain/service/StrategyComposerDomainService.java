@@ -6,6 +6,7 @@ import com.weihua.strategy.domain.model.aggregate.VirtualAccountAggregate;
 import com.weihua.strategy.domain.model.entity.DecisionEntity;
 import com.weihua.strategy.domain.model.entity.PortfolioSnapshotEntity;
 import com.weihua.strategy.domain.model.entity.TradePlan;
+import com.weihua.strategy.domain.model.valobj.CycleDeadline;
 import com.weihua.strategy.domain.model.valobj.MarketContext;
 import com.weihua.strategy.domain.repository.IStrategyInstanceRepository;
 import com.weihua.strategy.domain.service.rule.TradeRuleService;
@@ -32,25 +33,44 @@ public class StrategyComposerDomainService {
     private final IStrategyInstanceRepository strategyInstanceRepository;
 
     /**
-     * 制定决策
+     * 制定决策 (LLM + 风控)
      */
     public DecisionEntity makeDecision(MarketContext context) {
+        TradePlan plan = proposePlan(context);
+        return applyRules(plan, context);
+    }
+
+    public TradePlan proposePlan(MarketContext context) {
+        return proposePlan(context, CycleDeadline.none());
+    }
+
+    /**
+     * 调用 LLM 获取原始交易计划，超过 deadline 时由 LLM 端口降级为观望；
+     * 重新加载策略配置后预算已耗尽则抛出 CYCLE_DEADLINE_EXCEEDED，不再发起 LLM 调用
+     */
+    public TradePlan proposePlan(MarketContext context, CycleDeadline deadline) {
         // 重新加载策略配置以确保是最新的
         StrategyInstanceAggregate strategy = strategyInstanceRepository.findByStrategyId(context.getStrategyId());
+        deadline.checkNotExpired("strategy-load");
         
         // 构建资产快照供 LLM 参考
         PortfolioSnapshotEntity portfolioSnapshot = buildPortfolioSnapshot(context.getAccount());
 
-        // 1. 调用 LLM 获取交易计划
-        TradePlan plan = llmPort.askForPlan(
+        return llmPort.askForPlan(
                 context.getStrategyId(), 
                 context.getPrimaryMarket(), 
                 portfolioSnapshot, 
-                strategy.getConfig()
+                strategy.getConfig(),
+                deadline
         );
+    }
 
-        // 2. 风控规则过滤
-        DecisionEntity decision = tradeRuleService.filter(plan, context.getAccount(), context.getPrimaryMarket());
+    /**
+     * 风控规则过滤，将原始计划转化为最终决策
+     */
+    public DecisionEntity applyRules(TradePlan plan, MarketContext context) {
+        DecisionEntity decision = tradeRuleService.filter(plan, context.getAccount(), context.getPrimaryMarket(),
+                context.getMarketData());
         
         log.info("Decision made for strategy {}: {}", context.getStrategyId(), decision.getRationale());
         return decision;
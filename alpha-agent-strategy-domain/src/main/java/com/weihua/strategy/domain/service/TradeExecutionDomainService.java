@@ -7,6 +7,7 @@ import com.weihua.strategy.domain.model.entity.MarketSnapshotEntity;
 import com.weihua.strategy.domain.model.entity.PortfolioSnapshotEntity;
 import com.weihua.strategy.domain.model.entity.TradeExecutionEntity;
 import com.weihua.strategy.domain.model.entity.TradeInstruction;
+import com.weihua.strategy.domain.model.valobj.CycleDeadline;
 import com.weihua.strategy.domain.model.valobj.ExecutionStatus;
 import com.weihua.strategy.domain.model.valobj.MarketContext;
 import com.weihua.strategy.domain.model.valobj.TradeAction;
@@ -41,13 +42,38 @@ public class TradeExecutionDomainService {
      * 执行并持久化
      */
     public void executeAndPersist(DecisionEntity decision, MarketContext context) {
-        String cycleId = UUID.randomUUID().toString();
+        executeAndPersist(decision, context, CycleDeadline.none());
+    }
+
+    /**
+     * 执行并持久化 (生成新的 cycleId)
+     */
+    public void executeAndPersist(DecisionEntity decision, MarketContext context, CycleDeadline deadline) {
+        executeAndPersist(UUID.randomUUID().toString(), decision, context, deadline);
+    }
+
+    /**
+     * 执行并持久化；循环已超出截止时间时放弃执行 (过期的决策不再下单)，事务超时取剩余时间，其余事务属性沿用注入的事务模板
+     * 同一 cycleId 只会持久化一次，检查点重放与停机前未确认的提交重叠时不会重复下单
+     */
+    public void executeAndPersist(String cycleId, DecisionEntity decision, MarketContext context, CycleDeadline deadline) {
+        deadline.checkNotExpired("persist");
+        TransactionTemplate template = transactionTemplate;
+        if (!deadline.isUnbounded()) {
+            template = new TransactionTemplate(transactionTemplate.getTransactionManager(), transactionTemplate);
+            template.setTimeout(deadline.remainingSecondsForTimeout());
+        }
+
         String strategyId = context.getStrategyId();
         VirtualAccountAggregate account = context.getAccount();
         MarketSnapshotEntity primaryMarket = context.getPrimaryMarket();
         Map<String, MarketSnapshotEntity> marketData = context.getMarketData();
 
-        transactionTemplate.execute(status -> {
+        Boolean persisted = template.execute(status -> {
+            if (tradingCycleRepository.existsCycle(cycleId)) {
+                return false;
+            }
+
             // 1. 执行指令
             List<TradeExecutionEntity> executions = decision.getInstructions().stream()
                     .map(instruction -> executeInstruction(instruction, marketData, primaryMarket, account))
@@ -73,9 +99,14 @@ public class TradeExecutionDomainService {
                     .build();
 
             tradingCycleRepository.save(cycle);
-            return null;
+            return true;
         });
-        
+
+        if (!Boolean.TRUE.equals(persisted)) {
+            log.info("Trading cycle already persisted, skipped: {}", cycleId);
+            return;
+        }
+
         log.info("Completed trading cycle execution: {}, trades: {}", cycleId, decision.getInstructions().size());
     }
 
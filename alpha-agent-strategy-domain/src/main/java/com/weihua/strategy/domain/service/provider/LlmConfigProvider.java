@@ -16,5 +16,12 @@ public interface LlmConfigProvider {
      * @return 模型 ID (如 "deepseek", "dashscope", "google")，如果返回 null 则使用系统默认模型
      */
     String getModelId(String strategyId);
+
+    /**
+     * 获取模型所引用的渠道 ID (Provider)，用于按渠道做并发限流
+     * @param modelId 模型 ID，如果为 null 则按系统默认模型解析
+     * @return 渠道 ID (如 "deepseek-official")，无法解析时返回 null
+     */
+    String getProviderId(String modelId);
 }
 
@@ -14,6 +14,7 @@ import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 交易规则领域服务
@@ -31,7 +32,16 @@ public class TradeRuleService {
      * 过滤并规范化交易计划
      */
     public DecisionEntity filter(TradePlan plan, VirtualAccountAggregate account, MarketSnapshotEntity market) {
-        TradeRuleFilterFactory.DynamicContext context = TradeRuleFilterFactory.DynamicContext.create(account, market);
+        return filter(plan, account, market, null);
+    }
+
+    /**
+     * 过滤并规范化交易计划
+     * @param marketData 按交易对的行情快照，用于检查每条指令成交价的新鲜度
+     */
+    public DecisionEntity filter(TradePlan plan, VirtualAccountAggregate account, MarketSnapshotEntity market,
+                                 Map<String, MarketSnapshotEntity> marketData) {
+        TradeRuleFilterFactory.DynamicContext context = TradeRuleFilterFactory.DynamicContext.create(account, market, marketData);
         List<TradeInstruction> validInstructions = new ArrayList<>();
 
         if (plan.getInstructions() != null) {
@@ -64,6 +74,7 @@ public class TradeRuleService {
                 .rationale(plan.getRationale())
                 .instructions(validInstructions)
                 .rawPlan(plan)
+                .cached(plan.isCached())
                 .build();
     }
 }
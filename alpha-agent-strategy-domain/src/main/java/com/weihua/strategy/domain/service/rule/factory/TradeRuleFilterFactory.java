@@ -7,6 +7,7 @@ import com.weihua.strategy.domain.service.rule.filter.ComplianceRuleFilter;
 import com.weihua.strategy.domain.service.rule.filter.FundAvailabilityRuleFilter;
 import com.weihua.strategy.domain.service.rule.filter.LeverageRuleFilter;
 import com.weihua.strategy.domain.service.rule.filter.PositionCheckRuleFilter;
+import com.weihua.strategy.domain.service.rule.filter.StaleQuoteRuleFilter;
 import com.weihua.strategy.domain.service.rule.filter.StopLossRuleFilter;
 import com.weihua.types.design.framework.link.model2.chain.BusinessLinkedList;
 import com.weihua.types.design.framework.link.model2.chain.LinkedList;
@@ -29,6 +30,7 @@ public class TradeRuleFilterFactory {
 
     @Bean("tradeRuleFilter")
     public BusinessLinkedList<TradeInstruction, DynamicContext, Boolean> tradeRuleFilter(
+            StaleQuoteRuleFilter staleQuoteRuleFilter,
             ComplianceRuleFilter complianceRuleFilter,
             PositionCheckRuleFilter positionCheckRuleFilter,
             LeverageRuleFilter leverageRuleFilter,
@@ -36,14 +38,16 @@ public class TradeRuleFilterFactory {
             StopLossRuleFilter stopLossRuleFilter) {
         
         // 手动组装链条 (按执行顺序)
-        // 1. Compliance: 快速拒绝不合规的指令
-        // 2. Position: 检查持仓是否充足
-        // 3. Leverage: 检查杠杆限制
-        // 4. FundAvailability: 检查资金是否充足
-        // 5. StopLoss: 最高优先级,触发时强制平仓
+        // 1. StaleQuote: 最后已知报价不可成交,拒绝 BUY/SELL
+        // 2. Compliance: 快速拒绝不合规的指令
+        // 3. Position: 检查持仓是否充足
+        // 4. Leverage: 检查杠杆限制
+        // 5. FundAvailability: 检查资金是否充足
+        // 6. StopLoss: 最高优先级,触发时强制平仓
         BusinessLinkedList<TradeInstruction, DynamicContext, Boolean> link = 
                 new BusinessLinkedList<>("tradeRuleFilter");
         
+        link.add(staleQuoteRuleFilter);
         link.add(complianceRuleFilter);
         link.add(positionCheckRuleFilter);
         link.add(leverageRuleFilter);
@@ -60,6 +64,11 @@ public class TradeRuleFilterFactory {
     public static class DynamicContext extends com.weihua.types.design.framework.link.model2.DynamicContext {
         private VirtualAccountAggregate account;
         private MarketSnapshotEntity marketData;
+
+        /**
+         * 按交易对的行情快照 (成交时按指令的交易对取价)，未提供时为 null
+         */
+        private Map<String, MarketSnapshotEntity> marketSnapshots;
         
         /**
          * 运行时余额 (随着买单的确认而减少)
@@ -72,9 +81,15 @@ public class TradeRuleFilterFactory {
         private Map<String, BigDecimal> runningPositions;
 
         public static DynamicContext create(VirtualAccountAggregate account, MarketSnapshotEntity marketData) {
+            return create(account, marketData, null);
+        }
+
+        public static DynamicContext create(VirtualAccountAggregate account, MarketSnapshotEntity marketData,
+                                            Map<String, MarketSnapshotEntity> marketSnapshots) {
             DynamicContext context = DynamicContext.builder()
                     .account(account)
                     .marketData(marketData)
+                    .marketSnapshots(marketSnapshots)
                     .runningBalance(account.getBalance())
                     .runningPositions(new HashMap<>())
                     .build();
@@ -0,0 +1,59 @@
+package com.weihua.strategy.domain.service.rule.filter;
+
+import com.weihua.strategy.domain.model.entity.MarketSnapshotEntity;
+import com.weihua.strategy.domain.model.entity.TradeInstruction;
+import com.weihua.strategy.domain.model.valobj.TradeAction;
+import com.weihua.strategy.domain.service.rule.factory.TradeRuleFilterFactory;
+import com.weihua.types.design.framework.link.model2.handler.ILogicHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * 报价新鲜度规则过滤器
+ * 行情源不可用时返回的最后已知报价 (stale) 只用于决策参考，不能作为成交价:
+ * 1. HOLD 指令放行
+ * 2. 指令交易对的行情 (即成交价来源) 标记 stale 或缺失时拒绝 BUY/SELL 指令 (包括止损平仓)；
+ *    主行情新鲜不代表其它交易对新鲜，部分交易对可能只拿到最后已知报价
+ * 3. 未提供按交易对的行情时按主行情判断
+ */
+@Component
+public class StaleQuoteRuleFilter implements ILogicHandler<TradeInstruction, TradeRuleFilterFactory.DynamicContext, Boolean> {
+
+    private static final Logger logger = LoggerFactory.getLogger(StaleQuoteRuleFilter.class);
+
+    @Override
+    public Boolean apply(TradeInstruction instruction, TradeRuleFilterFactory.DynamicContext context) {
+        if (instruction.getAction() == TradeAction.HOLD) {
+            return next(instruction, context);
+        }
+
+        MarketSnapshotEntity market = quoteFor(instruction.getSymbol(), context);
+        if (market == null || market.isStale() || market.getPrice() == null) {
+            logger.warn("Rejecting {} {} {}: quote is stale or missing (price: {}, timestamp: {})",
+                    instruction.getAction(), instruction.getQuantity(), instruction.getSymbol(),
+                    market != null ? market.getPrice() : null, market != null ? market.getTimestamp() : null);
+            return stop(instruction, context, false);
+        }
+
+        return next(instruction, context);
+    }
+
+    /**
+     * 指令交易对的行情，没有该交易对的行情时返回 null
+     */
+    private static MarketSnapshotEntity quoteFor(String symbol, TradeRuleFilterFactory.DynamicContext context) {
+        MarketSnapshotEntity primary = context.getMarketData();
+        Map<String, MarketSnapshotEntity> snapshots = context.getMarketSnapshots();
+        if (snapshots == null) {
+            return primary;
+        }
+        MarketSnapshotEntity market = snapshots.get(symbol);
+        if (market == null && primary != null && symbol != null && symbol.equals(primary.getSymbol())) {
+            return primary;
+        }
+        return market;
+    }
+}
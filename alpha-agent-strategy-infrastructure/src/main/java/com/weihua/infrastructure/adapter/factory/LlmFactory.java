@@ -1,22 +1,37 @@
 package com.weihua.infrastructure.adapter.factory;
 
 import com.weihua.infrastructure.config.LlmProperties;
+import com.weihua.infrastructure.llm.TradePlanSchema;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.model.SimpleApiKey;
 import org.springframework.ai.openai.OpenAiChatModel;
 import org.springframework.ai.openai.OpenAiChatOptions;
 import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.ai.openai.api.ResponseFormat;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.cloud.context.scope.refresh.RefreshScopeRefreshedEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import jakarta.annotation.PostConstruct;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * LLM 模型工厂
  * 根据 modelId 从 Nacos 配置中查找并构建 ChatModel 实例
  * 
  * 设计理念：系统内置模型配置，用户只需选择 modelId
+ *
+ * 构建好的 ChatModel 按 modelId 缓存，同一渠道的模型共用一个 OpenAiApi (及其 HTTP 连接池)，
+ * 每个循环不再重新创建客户端和握手；app.llm 配置经 Nacos 刷新后整体失效，下次使用时按新配置重建
  */
 @Slf4j
 @Component
@@ -31,37 +46,123 @@ public class LlmFactory {
     @Autowired
     private LlmProperties llmProperties;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 当前配置下的模型索引与已构建实例，配置刷新时整体替换
+     */
+    private volatile ModelRegistry registry;
+
+    /** 收到 app.llm 配置变更，等待 RefreshScope 重建 LlmProperties 后再失效一次 */
+    private volatile boolean refreshPending;
+
+    private Counter hitCounter;
+    private Counter buildCounter;
+    private Counter invalidateCounter;
+
+    @PostConstruct
+    public void init() {
+        hitCounter = Counter.builder("llm.model.cache").tag("result", "hit")
+                .description("复用已构建的 ChatModel").register(meterRegistry);
+        buildCounter = Counter.builder("llm.model.cache").tag("result", "build")
+                .description("新建 ChatModel").register(meterRegistry);
+        invalidateCounter = Counter.builder("llm.model.cache.invalidations")
+                .description("LLM 配置刷新导致的缓存失效").register(meterRegistry);
+    }
+
     /**
-     * 根据 modelId 创建 ChatModel
+     * 根据 modelId 获取 ChatModel，已构建过的直接复用
      * @param modelId 模型标识符 (如 "deepseek-v3", "gpt-4o")，如果为 null 则使用默认模型
      * @return ChatModel 实例
      */
-    public ChatModel createChatModel(String modelId) {
+    public ChatModel getChatModel(String modelId) {
+        ModelRegistry current = currentRegistry();
         // 1. 确定使用哪个 modelId
-        String targetModelId = (modelId != null && !modelId.isEmpty()) 
-                ? modelId 
-                : llmProperties.getDefaultModel();
-        
-        log.info("Creating ChatModel for modelId: {}", targetModelId);
-        
-        // Debug: 打印当前加载的所有模型
-        if (llmProperties.getModels() != null) {
-            log.info("Available models in config: {}", llmProperties.getModels().stream()
-                    .map(LlmProperties.ModelConfig::getId)
-                    .collect(java.util.stream.Collectors.joining(", ")));
-        } else {
-            log.warn("Configured models list is NULL");
+        String targetModelId = (modelId != null && !modelId.isEmpty())
+                ? modelId
+                : current.defaultModel;
+
+        ChatModel chatModel = current.chatModels.get(targetModelId);
+        if (chatModel != null) {
+            hitCounter.increment();
+            return chatModel;
         }
-        
+        return current.chatModels.computeIfAbsent(targetModelId, id -> {
+            buildCounter.increment();
+            return createChatModel(current, id);
+        });
+    }
+
+    /**
+     * 查询模型所属渠道 (providerRef)，按当前配置的索引直接查表
+     * @param modelId 模型标识符，如果为 null 则使用默认模型
+     * @return 未知模型返回 null
+     */
+    public String getProviderId(String modelId) {
+        ModelRegistry current = currentRegistry();
+        String targetModelId = (modelId != null && !modelId.isEmpty())
+                ? modelId
+                : current.defaultModel;
+        return targetModelId != null ? current.providerIds.get(targetModelId) : null;
+    }
+
+    /**
+     * 丢弃已构建的模型，下次使用时按最新配置重建
+     */
+    public void invalidate() {
+        registry = null;
+        invalidateCounter.increment();
+        log.info("LLM model cache invalidated");
+    }
+
+    @EventListener
+    public void onEnvironmentChange(EnvironmentChangeEvent event) {
+        if (event.getKeys().stream().anyMatch(key -> key.startsWith("app.llm."))) {
+            refreshPending = true;
+            invalidate();
+        }
+    }
+
+    @EventListener
+    public void onRefreshScopeRefreshed(RefreshScopeRefreshedEvent event) {
+        // 环境变更事件早于 RefreshScope 重建 LlmProperties，期间重建的缓存可能仍是旧配置
+        if (refreshPending) {
+            refreshPending = false;
+            invalidate();
+        }
+    }
+
+    private ModelRegistry currentRegistry() {
+        ModelRegistry current = registry;
+        if (current == null) {
+            synchronized (this) {
+                current = registry;
+                if (current == null) {
+                    current = new ModelRegistry(llmProperties);
+                    registry = current;
+                    log.info("LLM models loaded, default: {}, available: {}", current.defaultModel, current.models.keySet());
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 按配置构建 ChatModel
+     */
+    private ChatModel createChatModel(ModelRegistry current, String targetModelId) {
+        log.info("Creating ChatModel for modelId: {}", targetModelId);
+
         // 2. 查找 ModelConfig
-        LlmProperties.ModelConfig modelConfig = llmProperties.getModels().stream()
-                .filter(m -> m.getId().equals(targetModelId))
-                .findFirst()
-                .orElseThrow(() -> new IllegalArgumentException("Unknown model ID: " + targetModelId));
-        
+        LlmProperties.ModelConfig modelConfig = current.models.get(targetModelId);
+        if (modelConfig == null) {
+            throw new IllegalArgumentException("Unknown model ID: " + targetModelId);
+        }
+
         // 3. 查找引用的 ProviderConfig
         String providerRef = modelConfig.getProviderRef();
-        LlmProperties.ProviderConfig providerConfig = llmProperties.getProviders().get(providerRef);
+        LlmProperties.ProviderConfig providerConfig = current.providers.get(providerRef);
         if (providerConfig == null) {
             throw new IllegalArgumentException("Model " + targetModelId + " references unknown provider: " + providerRef);
         }
@@ -69,7 +170,8 @@ public class LlmFactory {
         // 4. 根据 providerType 构建对应的 ChatModel
         String providerType = providerConfig.getType();
         if ("openai".equalsIgnoreCase(providerType)) {
-            return createOpenAiChatModel(providerConfig, modelConfig);
+            OpenAiApi openAiApi = current.openAiApis.computeIfAbsent(providerRef, ref -> createOpenAiApi(providerConfig));
+            return createOpenAiChatModel(openAiApi, modelConfig);
         }
         
         // TODO: 支持其他 Provider Type
@@ -77,18 +179,13 @@ public class LlmFactory {
     }
 
     /**
-     * 构建 OpenAI 兼容的 ChatModel
-     * 结合 Provider 的连接信息和 Model 的参数信息
+     * 构建 OpenAI 兼容渠道的 API 客户端，同一渠道的模型共用
      */
-    private ChatModel createOpenAiChatModel(LlmProperties.ProviderConfig providerConfig, LlmProperties.ModelConfig modelConfig) {
+    private OpenAiApi createOpenAiApi(LlmProperties.ProviderConfig providerConfig) {
         // 连接信息来自 Provider
         String apiKey = providerConfig.getApiKey();
         String baseUrl = providerConfig.getBaseUrl();
-        
-        // 模型参数来自 Model
-        String modelName = modelConfig.getModelName();
-        Double temperature = modelConfig.getTemperature();
-        
+
         // 验证必要参数
         if (apiKey == null || apiKey.isEmpty()) {
             throw new IllegalArgumentException("API Key is required for provider type: " + providerConfig.getType());
@@ -96,21 +193,32 @@ public class LlmFactory {
         if (baseUrl == null || baseUrl.isEmpty()) {
             throw new IllegalArgumentException("Base URL is required for provider type: " + providerConfig.getType());
         }
-        
-        log.debug("Building OpenAI-compatible ChatModel: baseUrl={}, model={}", baseUrl, modelName);
-        
-        // 构建 OpenAiApi
-        OpenAiApi openAiApi = OpenAiApi.builder()
+
+        log.debug("Building OpenAI-compatible API client: baseUrl={}", baseUrl);
+        return OpenAiApi.builder()
                 .baseUrl(baseUrl)
                 .apiKey(new SimpleApiKey(apiKey))
                 .restClientBuilder(restClientBuilder)
                 .webClientBuilder(webClientBuilder)
                 .build();
-        
+    }
+
+    /**
+     * 构建 OpenAI 兼容的 ChatModel
+     * 结合 Provider 的连接信息和 Model 的参数信息
+     */
+    private ChatModel createOpenAiChatModel(OpenAiApi openAiApi, LlmProperties.ModelConfig modelConfig) {
+        // 模型参数来自 Model
+        String modelName = modelConfig.getModelName();
+        Double temperature = modelConfig.getTemperature();
+
+        log.debug("Building OpenAI-compatible ChatModel: model={}", modelName);
+
         // 构建 ChatOptions
         OpenAiChatOptions options = OpenAiChatOptions.builder()
                 .model(modelName)
                 .temperature(temperature != null ? temperature : 0.7)
+                .responseFormat(createResponseFormat(modelConfig))
                 .build();
 
         // 构建并返回 ChatModel
@@ -119,4 +227,52 @@ public class LlmFactory {
                 .defaultOptions(options)
                 .build();
     }
+
+    /**
+     * 按模型配置构建结构化输出格式，TEXT 时返回 null (不下发 response_format)
+     */
+    private ResponseFormat createResponseFormat(LlmProperties.ModelConfig modelConfig) {
+        String format = modelConfig.getResponseFormat();
+        if ("JSON_OBJECT".equalsIgnoreCase(format)) {
+            return ResponseFormat.builder().type(ResponseFormat.Type.JSON_OBJECT).build();
+        }
+        if ("JSON_SCHEMA".equalsIgnoreCase(format)) {
+            return ResponseFormat.builder()
+                    .type(ResponseFormat.Type.JSON_SCHEMA)
+                    .jsonSchema(ResponseFormat.JsonSchema.builder()
+                            .name(TradePlanSchema.NAME)
+                            .schema(TradePlanSchema.JSON_SCHEMA)
+                            .strict(true)
+                            .build())
+                    .build();
+        }
+        return null;
+    }
+
+    /**
+     * 某一版配置下的模型索引 (modelId -> ModelConfig / providerRef) 与已构建的实例
+     */
+    private static final class ModelRegistry {
+        private final String defaultModel;
+        private final Map<String, LlmProperties.ModelConfig> models = new HashMap<>();
+        private final Map<String, String> providerIds = new HashMap<>();
+        private final Map<String, LlmProperties.ProviderConfig> providers;
+        private final Map<String, OpenAiApi> openAiApis = new ConcurrentHashMap<>();
+        private final Map<String, ChatModel> chatModels = new ConcurrentHashMap<>();
+
+        private ModelRegistry(LlmProperties properties) {
+            this.defaultModel = properties.getDefaultModel();
+            if (properties.getModels() != null) {
+                for (LlmProperties.ModelConfig model : properties.getModels()) {
+                    if (model.getId() != null && models.putIfAbsent(model.getId(), model) == null
+                            && model.getProviderRef() != null) {
+                        providerIds.put(model.getId(), model.getProviderRef());
+                    }
+                }
+            } else {
+                log.warn("Configured models list is NULL");
+            }
+            this.providers = properties.getProviders() != null ? new HashMap<>(properties.getProviders()) : new HashMap<>();
+        }
+    }
 }
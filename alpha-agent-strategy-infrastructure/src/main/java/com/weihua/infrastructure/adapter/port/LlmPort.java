@@ -8,25 +8,54 @@
 package com.weihua.infrastructure.adapter.port;
 
 import com.alibaba.cloud.ai.agent.nacos.NacosOptions;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.weihua.infrastructure.config.LlmProperties;
 import com.weihua.infrastructure.config.StrategyAgentPromptConfig;
+import com.weihua.infrastructure.llm.DecisionCache;
+import com.weihua.infrastructure.llm.StreamingPlanParser;
+import com.weihua.infrastructure.llm.TradePlanSchema;
+import com.weihua.infrastructure.prompt.PromptTemplate;
+import com.weihua.infrastructure.prompt.PromptTemplateRegistry;
 import com.weihua.strategy.domain.adapter.port.ILlmPort;
 import com.weihua.strategy.domain.model.entity.DecisionEntity;
 import com.weihua.strategy.domain.model.entity.MarketSnapshotEntity;
 import com.weihua.strategy.domain.model.entity.PortfolioSnapshotEntity;
 import com.weihua.strategy.domain.model.entity.StrategyConfigEntity;
 import com.weihua.strategy.domain.model.entity.TradePlan;
+import com.weihua.strategy.domain.model.valobj.CycleDeadline;
+import com.weihua.strategy.domain.model.valobj.TechnicalIndicators;
+import com.weihua.types.enums.ResponseCode;
+import com.weihua.types.exception.AppException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
 
 import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -50,17 +79,80 @@ public class LlmPort implements ILlmPort {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private PromptTemplateRegistry promptTemplateRegistry;
+
+    @Autowired
+    private LlmProperties llmProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private DecisionCache decisionCache;
+
+    private static final String SYSTEM_TEMPLATE_ID = "strategy-agent-system";
+    private static final String[] PROMPT_VARIABLES = {"market_data", "portfolio", "strategy_config"};
+    private static final Pattern JSON_CODE_BLOCK = Pattern.compile("```json\\s*([\\s\\S]*?)```");
+
     /**
-     * 从 Nacos 加载的 Prompt 模板缓存
+     * LLM 调用执行器 (虚拟线程)，用于在截止时间到达时放弃阻塞中的调用
      */
-    private volatile String cachedPromptTemplate = null;
+    private final ExecutorService llmCallExecutor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("llm-call-", 0).factory());
+
+    private Timer callDecisionTimer;
+    private Timer streamDecisionTimer;
+    private DistributionSummary decisionChunks;
+    private DistributionSummary afterDecisionChunks;
+    private DistributionSummary trailingChars;
+    private Counter earlyStopCounter;
+    private Counter directParseCounter;
+    private Counter regexParseCounter;
+    private Counter failedParseCounter;
+    private Counter invalidPlanCounter;
+
+    /** TradePlan 反序列化器，初始化时按 ObjectMapper 配置构建一次 */
+    private ObjectReader planReader;
+
+    @PostConstruct
+    public void init() {
+        callDecisionTimer = Timer.builder("llm.decision.latency").tag("mode", "call")
+                .description("从发出请求到得到完整交易计划的时长").register(meterRegistry);
+        streamDecisionTimer = Timer.builder("llm.decision.latency").tag("mode", "stream")
+                .description("从发出请求到得到完整交易计划的时长").register(meterRegistry);
+        decisionChunks = DistributionSummary.builder("llm.stream.chunks").tag("phase", "decision")
+                .description("得到完整计划前收到的流式片段数").register(meterRegistry);
+        afterDecisionChunks = DistributionSummary.builder("llm.stream.chunks").tag("phase", "after_decision")
+                .description("计划完整后、取消生效前仍收到的流式片段数").register(meterRegistry);
+        trailingChars = DistributionSummary.builder("llm.response.trailing.chars")
+                .description("CALL 模式下计划 JSON 结束后的输出字符数，即流式模式可省去等待的部分").register(meterRegistry);
+        earlyStopCounter = Counter.builder("llm.stream.early_stop")
+                .description("计划完整后提前取消的流式输出").register(meterRegistry);
+        directParseCounter = Counter.builder("llm.plan.parse").tag("path", "direct")
+                .description("响应即 JSON 对象，直接反序列化").register(meterRegistry);
+        regexParseCounter = Counter.builder("llm.plan.parse").tag("path", "regex")
+                .description("从响应文本中提取 JSON 的旧格式兜底").register(meterRegistry);
+        failedParseCounter = Counter.builder("llm.plan.parse").tag("path", "failed")
+                .description("响应无法解析为交易计划").register(meterRegistry);
+        invalidPlanCounter = Counter.builder("llm.plan.schema.violations")
+                .description("不符合交易计划 Schema 而被丢弃的计划").register(meterRegistry);
+        planReader = objectMapper.readerFor(TradePlan.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        llmCallExecutor.shutdownNow();
+    }
 
     @Override
     public TradePlan askForPlan(
             String strategyId,
             MarketSnapshotEntity market,
             PortfolioSnapshotEntity portfolio,
-            StrategyConfigEntity config
+            StrategyConfigEntity config,
+            CycleDeadline deadline
     ) {
         log.info("Requesting LLM plan for strategy: {}, symbol: {}", 
                 config.getStrategyName(), market.getSymbol());
@@ -69,47 +161,178 @@ public class LlmPort implements ILlmPort {
             // 1. 获取模型 ID (从策略配置或使用默认)
             String modelId = llmConfigProvider.getModelId(strategyId);
             
-            // 2. 动态构建 ChatModel (LlmFactory 会从 Nacos 查找配置)
-            org.springframework.ai.chat.model.ChatModel chatModel = llmFactory.createChatModel(modelId);
-            
-            // 3. 加载 Prompt 模板
-            String promptTemplate = loadPromptTemplate();
+            // 2. 获取预编译的 Prompt 模板
+            PromptTemplate promptTemplate = loadPromptTemplate();
+
+            // 3. 输入与上一轮无实质变化时复用缓存计划 (过期报价不参与缓存)
+            String fingerprint = decisionCache.isEnabled() && !market.isStale()
+                    ? decisionCache.fingerprint(market, portfolio, config, modelId, promptTemplate.getVersion())
+                    : null;
+            if (fingerprint != null) {
+                TradePlan cachedPlan = decisionCache.get(strategyId, fingerprint);
+                if (cachedPlan != null) {
+                    log.info("Reusing cached plan for strategy: {}, inputs unchanged", strategyId);
+                    return cachedPlan;
+                }
+            }
+
+            // 4. 获取 ChatModel (LlmFactory 按 Nacos 配置构建并按 modelId 复用)
+            ChatModel chatModel = llmFactory.getChatModel(modelId);
 
-            // 4. 构建完整的 Prompt
+            // 5. 构建完整的 Prompt
             String fullPrompt = buildPrompt(promptTemplate, market, portfolio, config);
             
             log.debug("LLM Prompt:\n{}", fullPrompt);
 
-            // 5. 调用 ChatModel
-            // 使用 ChatClient 包装 ChatModel 以获得更流畅的 API (可选，或者直接调用 chatModel.call)
-            // 这里直接调用 chatModel
-            String response = chatModel.call(fullPrompt);
-
-            log.debug("LLM Response:\n{}", response);
-
-            // 6. 解析 JSON 响应
-            TradePlan plan = parsePlan(response);
+            // 6. 调用 ChatModel 并解析 JSON 响应 (受循环截止时间约束)
+            long start = System.nanoTime();
+            TradePlan plan;
+            if ("STREAM".equalsIgnoreCase(llmProperties.getResponseMode())) {
+                plan = streamPlan(chatModel, fullPrompt, deadline);
+                streamDecisionTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            } else {
+                String response = callWithDeadline(chatModel, fullPrompt, deadline);
+                log.debug("LLM Response:\n{}", response);
+                plan = parsePlan(response);
+                callDecisionTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                recordTrailingOutput(response);
+            }
             
             log.info("LLM Plan: rationale={}, instructions_count={}", 
                     plan.getRationale(), 
                     plan.getInstructions() != null ? plan.getInstructions().size() : 0);
 
+            if (fingerprint != null) {
+                decisionCache.put(strategyId, fingerprint, plan);
+            }
             return plan;
 
         } catch (Exception e) {
-            log.error("Failed to get LLM plan: {}", e.getMessage(), e);
+            if (CycleDeadline.isDeadlineExceeded(e)) {
+                log.warn("LLM call exceeded cycle budget for strategy: {}", strategyId);
+            } else {
+                log.error("Failed to get LLM plan: {}", e.getMessage(), e);
+            }
             // 降级到保守决策
             return getFallbackPlan(config);
         }
     }
 
     /**
-     * 加载 Prompt 模板
-     * 优先从 Nacos 加载，降级到本地文件
+     * 调用 ChatModel，超过截止时间时中断调用并抛出 CYCLE_DEADLINE_EXCEEDED
+     */
+    private String callWithDeadline(ChatModel chatModel, String prompt, CycleDeadline deadline) throws Exception {
+        if (deadline.isUnbounded()) {
+            return chatModel.call(prompt);
+        }
+        deadline.checkNotExpired("llm");
+
+        Future<String> future = llmCallExecutor.submit(() -> chatModel.call(prompt));
+        try {
+            return future.get(deadline.remainingMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new AppException(ResponseCode.CYCLE_DEADLINE_EXCEEDED.getCode(), "LLM call exceeded cycle budget", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    /**
+     * 流式调用 ChatModel，边接收边增量解析，计划完整 (instructions 数组闭合且已有 rationale，或根对象闭合) 时
+     * 立即返回并取消剩余输出；输出结束仍不完整时按整段文本兜底解析，超过截止时间时抛出 CYCLE_DEADLINE_EXCEEDED
+     */
+    private TradePlan streamPlan(ChatModel chatModel, String prompt, CycleDeadline deadline) throws Exception {
+        deadline.checkNotExpired("llm");
+
+        StreamingPlanParser parser = new StreamingPlanParser(objectMapper);
+        CompletableFuture<TradePlan> decided = new CompletableFuture<>();
+        AtomicInteger chunks = new AtomicInteger();
+        AtomicInteger chunksAfterDecision = new AtomicInteger();
+        AtomicBoolean finished = new AtomicBoolean();
+        Disposable subscription = chatModel.stream(prompt).subscribe(
+                chunk -> {
+                    if (decided.isDone()) {
+                        chunksAfterDecision.incrementAndGet();
+                        return;
+                    }
+                    chunks.incrementAndGet();
+                    try {
+                        if (chunk != null && parser.feed(chunk)) {
+                            decided.complete(parser.toPlan());
+                        }
+                    } catch (JsonProcessingException e) {
+                        decided.completeExceptionally(e);
+                    }
+                },
+                error -> {
+                    finished.set(true);
+                    decided.completeExceptionally(error);
+                },
+                () -> {
+                    finished.set(true);
+                    // null 表示输出已结束但计划不完整
+                    decided.complete(null);
+                });
+
+        try {
+            TradePlan plan = deadline.isUnbounded()
+                    ? decided.get()
+                    : decided.get(deadline.remainingMillis(), TimeUnit.MILLISECONDS);
+            if (plan == null) {
+                log.debug("LLM Response:\n{}", parser.getText());
+                return parsePlan(parser.getText());
+            }
+            if (!finished.get()) {
+                earlyStopCounter.increment();
+            }
+            log.debug("LLM streamed plan after {} chunks:\n{}", chunks.get(), parser.getText());
+            return validated(plan);
+        } catch (TimeoutException e) {
+            throw new AppException(ResponseCode.CYCLE_DEADLINE_EXCEEDED.getCode(), "LLM call exceeded cycle budget", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        } finally {
+            // 计划已完整或放弃等待，取消剩余输出
+            subscription.dispose();
+            decisionChunks.record(chunks.get());
+            afterDecisionChunks.record(chunksAfterDecision.get());
+        }
+    }
+
+    /**
+     * CALL 模式下记录计划 JSON 结束后仍生成的字符数，用于评估流式模式省去的输出
+     */
+    private void recordTrailingOutput(String response) {
+        if (response == null) {
+            return;
+        }
+        try {
+            StreamingPlanParser parser = new StreamingPlanParser(objectMapper);
+            if (parser.feed(response)) {
+                trailingChars.record(parser.trailingChars());
+            }
+        } catch (JsonProcessingException e) {
+            log.debug("Skip trailing output metric: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 获取 Prompt 模板
+     * 首次使用或 agent.prompts 配置刷新后读取并编译一次，之后直接复用
      */
-    private String loadPromptTemplate() {
-        // TODO: 未来可以集成 Nacos 动态配置
-        // 目前使用本地文件
+    private PromptTemplate loadPromptTemplate() {
+        String version = promptConfig != null && promptConfig.getStrategyAgentInstruction() != null
+                ? promptConfig.getStrategyAgentInstruction().getDescription()
+                : "default";
+        return promptTemplateRegistry.get(SYSTEM_TEMPLATE_ID, version, this::readPromptTemplate, PROMPT_VARIABLES);
+    }
+
+    /**
+     * 读取 Prompt 模板内容
+     * 优先从配置的资源加载，降级到默认模板
+     */
+    private String readPromptTemplate() {
         if (promptConfig != null && promptConfig.getStrategyAgentInstruction() != null) {
             try {
                 String template = promptConfig.getStrategyAgentInstruction()
@@ -130,7 +353,7 @@ public class LlmPort implements ILlmPort {
      * 构建完整的 Prompt
      */
     private String buildPrompt(
-            String template,
+            PromptTemplate template,
             MarketSnapshotEntity market,
             PortfolioSnapshotEntity portfolio,
             StrategyConfigEntity config
@@ -144,11 +367,8 @@ public class LlmPort implements ILlmPort {
         // 构建策略配置描述
         String strategyConfig = buildStrategyConfigDescription(config);
 
-        // 替换模板变量
-        return template
-                .replace("{market_data}", marketData)
-                .replace("{portfolio}", portfolioData)
-                .replace("{strategy_config}", strategyConfig);
+        // 按 PROMPT_VARIABLES 的顺序一次渲染
+        return template.render(marketData, portfolioData, strategyConfig);
     }
 
     /**
@@ -159,62 +379,40 @@ public class LlmPort implements ILlmPort {
         sb.append("Symbol: ").append(market.getSymbol()).append("\n");
         sb.append("Current Price: ").append(market.getPrice()).append("\n");
         sb.append("Timestamp: ").append(market.getTimestamp()).append("\n");
+        if (market.isStale()) {
+            sb.append("Quote Status: STALE (last known quote, market data source unavailable)\n");
+        }
         
         // 添加技术指标（如果有）
-        if (market.getIndicatorsJson() != null && !market.getIndicatorsJson().isEmpty()) {
+        if (market.getIndicators() != null) {
             sb.append("\nTechnical Indicators:\n");
-            sb.append(formatIndicatorsJson(market.getIndicatorsJson()));
+            appendIndicators(sb, market.getIndicators());
         }
         
         return sb.toString();
     }
 
     /**
-     * 格式化技术指标 JSON 为可读文本
+     * 技术指标格式化为可读文本，直接写入提示词缓冲区
      */
-    private String formatIndicatorsJson(String indicatorsJson) {
-        try {
-            Map<String, Object> indicators = objectMapper.readValue(indicatorsJson, Map.class);
-            StringBuilder sb = new StringBuilder();
-            
-            // 提取关键指标
-            Map<String, Object> indicatorsData = (Map<String, Object>) indicators.get("indicators");
-            if (indicatorsData != null) {
-                // RSI
-                Map<String, Object> rsi = (Map<String, Object>) indicatorsData.get("rsi");
-                if (rsi != null) {
-                    sb.append("- RSI: ").append(rsi.get("value"))
-                      .append(" (").append(rsi.get("signal")).append(")\n");
-                }
-                
-                // MACD
-                Map<String, Object> macd = (Map<String, Object>) indicatorsData.get("macd");
-                if (macd != null) {
-                    sb.append("- MACD: ").append(macd.get("macd"))
-                      .append(", Signal: ").append(macd.get("signal"))
-                      .append(", Histogram: ").append(macd.get("histogram")).append("\n");
-                }
-                
-                // SMA
-                Map<String, Object> sma = (Map<String, Object>) indicatorsData.get("sma");
-                if (sma != null) {
-                    sb.append("- SMA20: ").append(sma.get("sma_20"))
-                      .append(", SMA50: ").append(sma.get("sma_50"))
-                      .append(", SMA200: ").append(sma.get("sma_200")).append("\n");
-                }
-                
-                // EMA
-                Map<String, Object> ema = (Map<String, Object>) indicatorsData.get("ema");
-                if (ema != null) {
-                    sb.append("- EMA12: ").append(ema.get("ema_12"))
-                      .append(", EMA26: ").append(ema.get("ema_26")).append("\n");
-                }
-            }
-            
-            return sb.toString();
-        } catch (Exception e) {
-            log.warn("Failed to format indicators JSON: {}", e.getMessage());
-            return indicatorsJson;
+    private void appendIndicators(StringBuilder sb, TechnicalIndicators indicators) {
+        if (indicators.getRsi() != null) {
+            sb.append("- RSI: ").append(indicators.getRsi())
+              .append(" (").append(indicators.getRsiSignal()).append(")\n");
+        }
+        if (indicators.getMacd() != null) {
+            sb.append("- MACD: ").append(indicators.getMacd())
+              .append(", Signal: ").append(indicators.getMacdSignal())
+              .append(", Histogram: ").append(indicators.getMacdHistogram()).append("\n");
+        }
+        if (indicators.getSma20() != null) {
+            sb.append("- SMA20: ").append(indicators.getSma20())
+              .append(", SMA50: ").append(indicators.getSma50())
+              .append(", SMA200: ").append(indicators.getSma200()).append("\n");
+        }
+        if (indicators.getEma12() != null) {
+            sb.append("- EMA12: ").append(indicators.getEma12())
+              .append(", EMA26: ").append(indicators.getEma26()).append("\n");
         }
     }
 
@@ -255,55 +453,104 @@ public class LlmPort implements ILlmPort {
     }
 
     /**
-     * 解析 LLM 响应为 TradePlan
+     * 解析 LLM 响应
+     * 响应本身是 JSON 对象 (结构化输出) 时用预构建的 ObjectReader 直接反序列化，否则走正则提取兜底；
+     * 反序列化结果按 TradePlanSchema 校验，不通过时返回空指令计划 (观望)
      */
     private TradePlan parsePlan(String response) {
         try {
+            TradePlan plan = readPlanDirect(response);
+            if (plan != null) {
+                directParseCounter.increment();
+                return validated(plan);
+            }
+
             // 提取 JSON 部分（LLM 可能返回带有额外文字的响应）
             String jsonStr = extractJson(response);
             
             if (jsonStr == null || jsonStr.isEmpty()) {
                 log.warn("No valid JSON found in LLM response");
+                failedParseCounter.increment();
                 return TradePlan.builder()
                         .rationale("Failed to parse LLM response")
                         .instructions(new ArrayList<>())
+                        .fallback(true)
                         .build();
             }
 
             // 解析 JSON
-            return objectMapper.readValue(jsonStr, TradePlan.class);
+            regexParseCounter.increment();
+            return validated(planReader.readValue(jsonStr));
 
         } catch (Exception e) {
             log.error("Failed to parse LLM plan: {}", e.getMessage(), e);
+            failedParseCounter.increment();
             return TradePlan.builder()
                     .rationale("Parse error: " + e.getMessage())
                     .instructions(new ArrayList<>())
+                    .fallback(true)
                     .build();
         }
     }
 
     /**
-     * 从响应中提取 JSON
+     * 响应以 JSON 对象开头时直接反序列化 (对象之后的多余输出忽略)，不是 JSON 或反序列化失败时返回 null
+     */
+    private TradePlan readPlanDirect(String response) {
+        if (response == null) {
+            return null;
+        }
+        int i = 0;
+        int n = response.length();
+        while (i < n && Character.isWhitespace(response.charAt(i))) {
+            i++;
+        }
+        if (i == n || response.charAt(i) != '{') {
+            return null;
+        }
+        try {
+            return planReader.readValue(response);
+        } catch (JsonProcessingException e) {
+            log.debug("Direct plan deserialization failed, falling back to extraction: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 按 Schema 校验计划，不通过时返回空指令计划
+     */
+    private TradePlan validated(TradePlan plan) {
+        List<String> violations = TradePlanSchema.validate(plan);
+        if (violations.isEmpty()) {
+            // 标记位只由本端口设置，不接受模型输出中的同名字段
+            plan.setCached(false);
+            plan.setFallback(false);
+            return plan;
+        }
+        log.warn("LLM plan violates schema: {}", violations);
+        invalidPlanCounter.increment();
+        return TradePlan.builder()
+                .rationale("Schema violation: " + String.join("; ", violations))
+                .instructions(new ArrayList<>())
+                .fallback(true)
+                .build();
+    }
+
+    /**
+     * 从响应中提取 JSON (旧格式兜底，输出未受结构化约束时使用)
      */
     private String extractJson(String response) {
         // 尝试找到 JSON 代码块
-        Pattern codeBlockPattern = Pattern.compile("```json\\s*([\\s\\S]*?)```", Pattern.MULTILINE);
-        Matcher matcher = codeBlockPattern.matcher(response);
+        Matcher matcher = JSON_CODE_BLOCK.matcher(response);
         if (matcher.find()) {
             return matcher.group(1).trim();
         }
 
-        // 尝试找到纯 JSON 对象
-        Pattern jsonPattern = Pattern.compile("\\{[\\s\\S]*\\}", Pattern.MULTILINE);
-        matcher = jsonPattern.matcher(response);
-        if (matcher.find()) {
-            return matcher.group(0).trim();
-        }
-
-        // 如果整个响应看起来像 JSON，直接返回
-        String trimmed = response.trim();
-        if (trimmed.startsWith("{") && trimmed.endsWith("}")) {
-            return trimmed;
+        // 尝试找到纯 JSON 对象 (第一个 '{' 到最后一个 '}')
+        int begin = response.indexOf('{');
+        int end = response.lastIndexOf('}');
+        if (begin >= 0 && end > begin) {
+            return response.substring(begin, end + 1).trim();
         }
 
         return null;
@@ -318,6 +565,7 @@ public class LlmPort implements ILlmPort {
         return TradePlan.builder()
                 .rationale("Fallback plan due to LLM error - conservative HOLD")
                 .instructions(new ArrayList<>()) // 空指令列表表示观望
+                .fallback(true)
                 .build();
     }
 
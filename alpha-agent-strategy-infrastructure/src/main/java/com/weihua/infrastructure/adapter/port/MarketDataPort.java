@@ -7,29 +7,73 @@
  */
 package com.weihua.infrastructure.adapter.port;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+import com.weihua.infrastructure.config.MarketDataProperties;
 import com.weihua.infrastructure.gateway.IStockMcpService;
+import com.weihua.infrastructure.gateway.StockMcpPriceStream;
 import com.weihua.infrastructure.gateway.dto.BatchPricesRequestDTO;
 import com.weihua.infrastructure.gateway.dto.BatchPricesResponseDTO;
 import com.weihua.infrastructure.gateway.dto.CalculateIndicatorsRequestDTO;
 import com.weihua.infrastructure.gateway.dto.CalculateIndicatorsResponseDTO;
+import com.weihua.infrastructure.gateway.dto.MarketHistoryRequestDTO;
+import com.weihua.infrastructure.gateway.dto.MarketHistoryResponseDTO;
+import com.weihua.infrastructure.market.CandleInterval;
+import com.weihua.infrastructure.market.CircuitBreaker;
+import com.weihua.infrastructure.market.IndicatorCache;
+import com.weihua.infrastructure.market.LastPriceTable;
+import com.weihua.infrastructure.market.LatencyTracker;
+import com.weihua.infrastructure.market.QuoteCache;
+import com.weihua.infrastructure.market.SingleFlight;
+import com.weihua.infrastructure.market.indicator.Candle;
+import com.weihua.infrastructure.market.indicator.IndicatorEngine;
+import com.weihua.infrastructure.market.indicator.IndicatorValues;
 import com.weihua.strategy.domain.adapter.port.IMarketDataPort;
 import com.weihua.strategy.domain.model.entity.MarketSnapshotEntity;
+import com.weihua.strategy.domain.model.valobj.CycleDeadline;
+import com.weihua.strategy.domain.model.valobj.TechnicalIndicators;
+import com.weihua.types.enums.ResponseCode;
+import com.weihua.types.exception.AppException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import retrofit2.Call;
 import retrofit2.Response;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.annotation.Resource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 市场数据端口实现
- * 通过 Stock MCP HTTP 服务获取实时价格和技术指标
+ * 通过 Stock MCP HTTP 服务获取实时价格和技术指标，价格经跨策略共享的报价缓存，指标缓存到下一个 K 线边界；
+ * NATIVE 指标来源下由进程内增量引擎计算指标，Stock MCP 只提供历史 K 线；
+ * 异步接口在虚拟线程上执行，价格与指标请求可并发进行；
+ * 所有 Stock MCP 调用经过熔断器，上游不可用时价格降级为最后已知报价 (标记 stale)，不再使用固定的 Mock 价格；
+ * STREAM 价格来源下订阅价格推送，价格直接从内存中的最新价格表读取，推送缺失或过旧的交易对回退到轮询
  */
 @Service
 @Slf4j
@@ -39,138 +83,575 @@ public class MarketDataPort implements IMarketDataPort {
     private IStockMcpService stockMcpService;
 
     @Resource
-    private ObjectMapper objectMapper;
+    private MarketDataProperties marketDataProperties;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private StockMcpPriceStream priceStream;
+
+    /**
+     * 行情请求执行器 (虚拟线程)：报价后台刷新、预取与异步请求，阻塞的 HTTP 调用只占用虚拟线程
+     */
+    private final ExecutorService marketExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private QuoteCache quoteCache;
+    private SingleFlight<String, MarketSnapshotEntity> priceFlight;
+    private SingleFlight<String, TechnicalIndicators> indicatorFlight;
+    private IndicatorCache<TechnicalIndicators> indicatorCache;
+    private CandleInterval indicatorInterval;
+    /** 仅 NATIVE 指标来源下创建 */
+    private IndicatorEngine indicatorEngine;
+    private SingleFlight<String, Boolean> historyFlight;
+    /** 仅 STREAM 价格来源下创建 */
+    private LastPriceTable lastPrices;
+
+    private CircuitBreaker stockMcpBreaker;
+    private LatencyTracker priceLatency;
+    private Counter hedgeFiredCounter;
+    private Counter hedgeWonCounter;
+
+    @PostConstruct
+    public void init() {
+        priceFlight = new SingleFlight<>("prices", meterRegistry);
+        indicatorFlight = new SingleFlight<>("indicators", meterRegistry);
+        stockMcpBreaker = new CircuitBreaker("stock-mcp",
+                marketDataProperties.getCircuitFailureRatePercent(),
+                marketDataProperties.getCircuitSlowCallMs(),
+                marketDataProperties.getCircuitWindowSize(),
+                marketDataProperties.getCircuitMinimumCalls(),
+                marketDataProperties.getCircuitOpenMs(),
+                marketDataProperties.getCircuitHalfOpenProbes(),
+                meterRegistry);
+        priceLatency = new LatencyTracker(256, marketDataProperties.getHedgeQuantile(), 20);
+        hedgeFiredCounter = Counter.builder("market.upstream.hedge").tag("result", "fired")
+                .description("发出的对冲价格请求").register(meterRegistry);
+        hedgeWonCounter = Counter.builder("market.upstream.hedge").tag("result", "won")
+                .description("对冲请求先于原请求返回的次数").register(meterRegistry);
+        // 后台刷新不受单个循环的截止时间约束，使用客户端默认超时
+        quoteCache = new QuoteCache(marketDataProperties.getQuoteFreshTtlMs(),
+                marketDataProperties.getQuoteMaxStaleMs(),
+                marketDataProperties.getQuoteLastKnownGoodMs(),
+                marketDataProperties.getQuoteCacheMaxSize(),
+                symbols -> priceFlight.executeAll(symbols,
+                        owned -> fetchRemotePrices(owned, CycleDeadline.none()), CycleDeadline.none()),
+                marketExecutor, meterRegistry);
+        indicatorInterval = CandleInterval.parse(marketDataProperties.getIndicatorInterval());
+        indicatorCache = new IndicatorCache<>(
+                IndicatorCache.RefreshPolicy.valueOf(marketDataProperties.getIndicatorRefreshPolicy().trim().toUpperCase()),
+                marketDataProperties.getIndicatorIntrabarRefreshMs(),
+                marketDataProperties.getIndicatorCloseDelayMs(),
+                marketDataProperties.getIndicatorCacheMaxSize(),
+                meterRegistry);
+        if ("NATIVE".equalsIgnoreCase(marketDataProperties.getIndicatorSource().trim())) {
+            indicatorEngine = new IndicatorEngine(indicatorInterval, meterRegistry);
+            historyFlight = new SingleFlight<>("history", meterRegistry);
+            log.info("Technical indicators computed in-process, interval: {}", indicatorInterval);
+        }
+        if ("STREAM".equalsIgnoreCase(marketDataProperties.getPriceSource().trim())) {
+            lastPrices = new LastPriceTable(marketDataProperties.getPriceStreamMaxAgeMs(), meterRegistry);
+            priceStream.start(this::onStreamPrice);
+            log.info("Prices read from Stock MCP price stream, max age: {}ms", marketDataProperties.getPriceStreamMaxAgeMs());
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        marketExecutor.shutdownNow();
+    }
 
     @Override
-    public Map<String, MarketSnapshotEntity> fetchLatestPrices(List<String> symbols) {
-        log.info("Fetching latest prices for symbols: {}", symbols);
-        
+    public Map<String, MarketSnapshotEntity> fetchLatestPrices(List<String> symbols, CycleDeadline deadline) {
+        log.debug("Fetching latest prices for symbols: {}", symbols);
+        deadline.checkNotExpired("market-prices");
+
+        if (lastPrices == null) {
+            return fetchPolledPrices(symbols, deadline);
+        }
+        // 推送价格表直接读取，新交易对加入订阅，缺失或过旧的交易对本次回退到轮询
+        priceStream.subscribe(symbols);
+        Map<String, MarketSnapshotEntity> result = lastPrices.getAll(symbols);
+        if (result.size() < symbols.size()) {
+            List<String> missing = new ArrayList<>();
+            for (String symbol : symbols) {
+                if (!result.containsKey(symbol)) {
+                    missing.add(symbol);
+                }
+            }
+            result.putAll(fetchPolledPrices(missing, deadline));
+        }
+        return result;
+    }
+
+    /**
+     * 经报价缓存轮询价格，上游不可用时降级为最后已知报价
+     */
+    private Map<String, MarketSnapshotEntity> fetchPolledPrices(List<String> symbols, CycleDeadline deadline) {
         try {
-            // 构建请求参数
-            BatchPricesRequestDTO requestDTO = BatchPricesRequestDTO.builder()
-                    .tickers(symbols)
-                    .build();
-            
-            // 调用 Stock MCP 服务
-            Response<BatchPricesResponseDTO> response = stockMcpService.getBatchPrices(requestDTO).execute();
-            
-            if (!response.isSuccessful() || response.body() == null) {
-                log.error("Failed to fetch prices from Stock MCP, code: {}, message: {}", 
-                         response.code(), response.message());
-                return getMockPrices(symbols);
+            // 跨策略共享报价缓存，只有缺失或过旧的交易对才同步请求上游，并发的同一交易对请求合并为一次
+            Map<String, MarketSnapshotEntity> result = quoteCache.get(symbols, missing -> priceFlight.executeAll(missing,
+                    owned -> fetchRemotePrices(owned, deadline), deadline));
+            if (!result.isEmpty()) {
+                return result;
             }
-            
-            // BatchPricesResponseDTO 直接是 Map<String, PriceDataDTO>
-            BatchPricesResponseDTO pricesMap = response.body();
-            
-            if (pricesMap.isEmpty()) {
-                log.warn("Empty price data returned from Stock MCP");
-                return getMockPrices(symbols);
+            log.warn("Empty price data returned from Stock MCP");
+
+        } catch (AppException e) {
+            if (!ResponseCode.UPSTREAM_CIRCUIT_OPEN.getCode().equals(e.getCode())) {
+                log.error("Exception when fetching prices from Stock MCP: {}", e.getMessage(), e);
             }
-            
-            // 转换为 MarketSnapshotEntity
-            Map<String, MarketSnapshotEntity> result = new HashMap<>();
+        } catch (Exception e) {
+            log.error("Exception when fetching prices from Stock MCP: {}", e.getMessage(), e);
+        }
+
+        // 降级为最后已知报价 (标记 stale)；没有最后已知值的交易对不返回，由调用方跳过本轮
+        Map<String, MarketSnapshotEntity> fallback = quoteCache.lastKnownGood(symbols);
+        log.warn("Stock MCP unavailable, serving last known quotes for {}/{} symbols (circuit: {})",
+                fallback.size(), symbols.size(), stockMcpBreaker.getState());
+        return fallback;
+    }
+
+    @Override
+    public CompletableFuture<Map<String, MarketSnapshotEntity>> fetchLatestPricesAsync(List<String> symbols, CycleDeadline deadline) {
+        return CompletableFuture.supplyAsync(() -> fetchLatestPrices(symbols, deadline), marketExecutor);
+    }
+
+    @Override
+    public int prefetchPrices(Collection<String> symbols) {
+        if (lastPrices != null) {
+            // 推送模式下预取只需订阅，价格表中已有的交易对不再轮询
+            priceStream.subscribe(symbols);
+            List<String> notStreamed = new ArrayList<>();
             for (String symbol : symbols) {
-                BatchPricesResponseDTO.PriceDataDTO priceData = pricesMap.get(symbol);
-                if (priceData != null) {
-                    result.put(symbol, MarketSnapshotEntity.builder()
-                            .symbol(symbol)
-                            .price(priceData.getPrice())
-                            .timestamp(parseTimestamp(priceData.getTimestamp()))
-                            .build());
-                    log.debug("Fetched price for {}: {}", symbol, priceData.getPrice());
-                } else {
-                    log.warn("No price data for symbol: {}", symbol);
+                if (lastPrices.get(symbol) == null) {
+                    notStreamed.add(symbol);
                 }
             }
-            
-            return result;
-            
-        } catch (Exception e) {
-            log.error("Exception when fetching prices from Stock MCP: {}", e.getMessage(), e);
-            // 降级到 Mock 数据
-            return getMockPrices(symbols);
+            symbols = notStreamed;
+        }
+        List<String> expiring = quoteCache.notFresh(symbols);
+        if (expiring.isEmpty()) {
+            return 0;
+        }
+
+        // 分批并行请求，与各策略的同步请求共用 single-flight，预取进行中到达的循环直接等待预取结果
+        CycleDeadline deadline = CycleDeadline.after(Duration.ofMillis(marketDataProperties.getPrefetchTimeoutMs()));
+        List<CompletableFuture<Integer>> batches = new ArrayList<>();
+        for (List<String> batch : Lists.partition(expiring, Math.max(1, marketDataProperties.getPrefetchBatchSize()))) {
+            batches.add(CompletableFuture.supplyAsync(() -> quoteCache.prefetch(batch, missing -> priceFlight.executeAll(missing,
+                    owned -> fetchRemotePrices(owned, deadline), deadline)), marketExecutor));
+        }
+
+        int fetched = 0;
+        for (CompletableFuture<Integer> batch : batches) {
+            try {
+                fetched += batch.get(Math.max(1L, deadline.remainingMillis()), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.warn("Price prefetch batch failed: {}", e.getMessage());
+            }
         }
+        log.info("Prefetched prices for {}/{} symbols in {} batches", fetched, expiring.size(), batches.size());
+        return fetched;
+    }
+
+    /**
+     * 价格推送回调 (推送线程)：更新最新价格表并推进进程内指标引擎
+     */
+    private void onStreamPrice(BatchPricesResponseDTO.PriceDataDTO priceData) {
+        lastPrices.update(priceData.getTicker(), priceData.getPrice(), parseTimestamp(priceData.getTimestamp()));
+        if (indicatorEngine != null) {
+            indicatorEngine.onTick(priceData.getTicker(), priceData.getPrice().doubleValue(), System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * 从 Stock MCP 批量获取价格，请求失败时抛出异常 (不写入缓存)
+     */
+    private Map<String, MarketSnapshotEntity> fetchRemotePrices(List<String> symbols, CycleDeadline deadline) {
+        log.info("Fetching latest prices from Stock MCP for symbols: {}", symbols);
+        // 构建请求参数
+        BatchPricesRequestDTO requestDTO = BatchPricesRequestDTO.builder()
+                .tickers(symbols)
+                .build();
+
+        // 调用 Stock MCP 服务
+        Response<BatchPricesResponseDTO> response = executeHedged(requestDTO, deadline);
+
+        if (!response.isSuccessful() || response.body() == null) {
+            throw new IllegalStateException("Failed to fetch prices from Stock MCP, code: "
+                    + response.code() + ", message: " + response.message());
+        }
+
+        // BatchPricesResponseDTO 直接是 Map<String, PriceDataDTO>
+        BatchPricesResponseDTO pricesMap = response.body();
+
+        // 转换为 MarketSnapshotEntity
+        Map<String, MarketSnapshotEntity> result = new HashMap<>();
+        for (String symbol : symbols) {
+            BatchPricesResponseDTO.PriceDataDTO priceData = pricesMap.get(symbol);
+            if (priceData != null) {
+                result.put(symbol, MarketSnapshotEntity.builder()
+                        .symbol(symbol)
+                        .price(priceData.getPrice())
+                        .timestamp(parseTimestamp(priceData.getTimestamp()))
+                        .build());
+                log.debug("Fetched price for {}: {}", symbol, priceData.getPrice());
+            } else {
+                log.warn("No price data for symbol: {}", symbol);
+            }
+        }
+
+        // 新报价推进进程内指标引擎的未收盘 K 线
+        if (indicatorEngine != null) {
+            long now = System.currentTimeMillis();
+            result.forEach((symbol, snapshot) -> {
+                if (snapshot.getPrice() != null) {
+                    indicatorEngine.onTick(symbol, snapshot.getPrice().doubleValue(), now);
+                }
+            });
+        }
+
+        return result;
     }
 
     @Override
-    public String fetchTechnicalIndicators(String symbol) {
-        log.info("Fetching technical indicators for: {}", symbol);
-        
-        try {
-            // 构建请求参数
-            CalculateIndicatorsRequestDTO requestDTO = CalculateIndicatorsRequestDTO.builder()
-                    .symbol(symbol)
-                    .period("30d")
-                    .interval("1d")
-                    .build();
-            
-            // 调用 Stock MCP 服务
-            Response<CalculateIndicatorsResponseDTO> response = stockMcpService
-                    .calculateIndicators(requestDTO).execute();
-            
-            if (!response.isSuccessful() || response.body() == null) {
-                log.error("Failed to fetch indicators from Stock MCP, code: {}, message: {}", 
-                         response.code(), response.message());
-                return getMockIndicators();
+    public TechnicalIndicators fetchTechnicalIndicators(String symbol, CycleDeadline deadline) {
+        log.debug("Fetching technical indicators for: {}", symbol);
+        deadline.checkNotExpired("market-indicators");
+
+        if (indicatorEngine != null) {
+            try {
+                return fetchNativeIndicators(symbol, deadline);
+            } catch (Exception e) {
+                log.warn("In-process indicators unavailable for {}, falling back to Stock MCP: {}", symbol, e.getMessage());
             }
-            
-            CalculateIndicatorsResponseDTO responseDTO = response.body();
-            
-            // 转换为 JSON 字符串
-            String indicatorsJson = objectMapper.writeValueAsString(responseDTO);
-            log.debug("Fetched indicators for {}: {}", symbol, indicatorsJson);
-            
-            return indicatorsJson;
-            
+        }
+
+        String period = marketDataProperties.getIndicatorPeriod();
+        try {
+            // 指标缓存到下一个 K 线边界；缓存失效时同一交易对、同一参数的并发请求合并为一次
+            return indicatorCache.get(symbol, period, indicatorInterval, () -> indicatorFlight.execute(
+                    symbol + "|" + period + "|" + indicatorInterval,
+                    () -> fetchRemoteIndicators(symbol, period, indicatorInterval.toString(), deadline), deadline));
+
         } catch (Exception e) {
             log.error("Exception when fetching indicators from Stock MCP: {}", e.getMessage(), e);
-            // 降级到 Mock 数据
-            return getMockIndicators();
+            // 降级为无指标，提示词中省略指标部分
+            return null;
         }
     }
 
+    @Override
+    public CompletableFuture<TechnicalIndicators> fetchTechnicalIndicatorsAsync(String symbol, CycleDeadline deadline) {
+        return CompletableFuture.supplyAsync(() -> fetchTechnicalIndicators(symbol, deadline), marketExecutor);
+    }
+
     /**
-     * 解析时间戳
-     * 支持 ISO 8601 格式
+     * 从 Stock MCP 计算技术指标，请求失败时抛出异常
      */
-    private LocalDateTime parseTimestamp(String timestamp) {
+    private TechnicalIndicators fetchRemoteIndicators(String symbol, String period, String interval, CycleDeadline deadline) {
+        log.info("Fetching technical indicators from Stock MCP for: {}", symbol);
+        // 构建请求参数
+        CalculateIndicatorsRequestDTO requestDTO = CalculateIndicatorsRequestDTO.builder()
+                .symbol(symbol)
+                .period(period)
+                .interval(interval)
+                .build();
+
+        // 调用 Stock MCP 服务
+        Response<CalculateIndicatorsResponseDTO> response = execute(stockMcpService.calculateIndicators(requestDTO), deadline);
+
+        if (!response.isSuccessful() || response.body() == null) {
+            throw new IllegalStateException("Failed to fetch indicators from Stock MCP, code: "
+                    + response.code() + ", message: " + response.message());
+        }
+
+        TechnicalIndicators indicators = toTechnicalIndicators(response.body().getIndicators());
+        log.debug("Fetched indicators for {}: {}", symbol, indicators);
+        return indicators;
+    }
+
+    /**
+     * 由进程内引擎计算指标，交易对未跟踪或 K 线已滚动时先用历史 K 线引导
+     */
+    private TechnicalIndicators fetchNativeIndicators(String symbol, CycleDeadline deadline) {
+        if (indicatorEngine.needsBootstrap(symbol)) {
+            try {
+                historyFlight.execute(symbol, () -> bootstrapIndicators(symbol, deadline), deadline);
+            } catch (RuntimeException e) {
+                if (!indicatorEngine.isTracked(symbol)) {
+                    throw e;
+                }
+                // 已有由报价推进的近似状态，本次先使用，下次再尝试校正
+                log.warn("Indicator resync failed for {}, using tick-driven state: {}", symbol, e.getMessage());
+            }
+        }
+
+        IndicatorValues values = indicatorEngine.snapshot(symbol);
+        if (values == null) {
+            throw new IllegalStateException("No candles available for " + symbol);
+        }
+        return toTechnicalIndicators(values);
+    }
+
+    /**
+     * 从 Stock MCP 拉取历史 K 线并重建引擎状态
+     */
+    private Boolean bootstrapIndicators(String symbol, CycleDeadline deadline) {
+        log.info("Fetching candle history from Stock MCP for: {}", symbol);
+        MarketHistoryRequestDTO requestDTO = MarketHistoryRequestDTO.builder()
+                .symbol(symbol)
+                .period(marketDataProperties.getIndicatorHistoryPeriod())
+                .interval(indicatorInterval.toString())
+                .build();
+
+        Response<MarketHistoryResponseDTO> response = execute(stockMcpService.getHistory(requestDTO), deadline);
+        if (!response.isSuccessful() || response.body() == null || response.body().getCandles() == null) {
+            throw new IllegalStateException("Failed to fetch candle history from Stock MCP, code: "
+                    + response.code() + ", message: " + response.message());
+        }
+
+        List<Candle> candles = new ArrayList<>(response.body().getCandles().size());
+        for (MarketHistoryResponseDTO.CandleDTO dto : response.body().getCandles()) {
+            if (dto.getClose() == null) {
+                continue;
+            }
+            double close = dto.getClose().doubleValue();
+            candles.add(Candle.builder()
+                    .openTimeMs(parseEpochMillis(dto.getTimestamp()))
+                    .open(dto.getOpen() != null ? dto.getOpen().doubleValue() : close)
+                    .high(dto.getHigh() != null ? dto.getHigh().doubleValue() : close)
+                    .low(dto.getLow() != null ? dto.getLow().doubleValue() : close)
+                    .close(close)
+                    .volume(dto.getVolume() != null ? dto.getVolume().doubleValue() : 0.0D)
+                    .build());
+        }
+        if (candles.isEmpty()) {
+            throw new IllegalStateException("Empty candle history from Stock MCP for " + symbol);
+        }
+        indicatorEngine.bootstrap(symbol, candles, System.currentTimeMillis());
+        return Boolean.TRUE;
+    }
+
+    /**
+     * Stock MCP 计算结果转换为领域指标
+     */
+    private static TechnicalIndicators toTechnicalIndicators(CalculateIndicatorsResponseDTO.IndicatorsDTO dto) {
+        TechnicalIndicators.TechnicalIndicatorsBuilder builder = TechnicalIndicators.builder();
+        if (dto == null) {
+            return builder.build();
+        }
+        if (dto.getSma() != null) {
+            builder.sma20(dto.getSma().getSma20()).sma50(dto.getSma().getSma50()).sma200(dto.getSma().getSma200());
+        }
+        if (dto.getEma() != null) {
+            builder.ema12(dto.getEma().getEma12()).ema26(dto.getEma().getEma26());
+        }
+        if (dto.getRsi() != null) {
+            builder.rsi(dto.getRsi().getValue()).rsiSignal(dto.getRsi().getSignal());
+        }
+        if (dto.getMacd() != null) {
+            builder.macd(dto.getMacd().getMacd()).macdSignal(dto.getMacd().getSignal()).macdHistogram(dto.getMacd().getHistogram());
+        }
+        if (dto.getBollingerBands() != null) {
+            builder.bollingerUpper(dto.getBollingerBands().getUpper())
+                    .bollingerMiddle(dto.getBollingerBands().getMiddle())
+                    .bollingerLower(dto.getBollingerBands().getLower());
+        }
+        if (dto.getKdj() != null) {
+            builder.kdjK(dto.getKdj().getK()).kdjD(dto.getKdj().getD());
+        }
+        return builder.atr(dto.getAtr()).build();
+    }
+
+    /**
+     * 进程内引擎的计算结果转换为领域指标
+     */
+    private static TechnicalIndicators toTechnicalIndicators(IndicatorValues values) {
+        return TechnicalIndicators.builder()
+                .sma20(decimal(values.getSma20()))
+                .sma50(decimal(values.getSma50()))
+                .sma200(decimal(values.getSma200()))
+                .ema12(decimal(values.getEma12()))
+                .ema26(decimal(values.getEma26()))
+                .rsi(decimal(values.getRsi()))
+                .rsiSignal(rsiSignal(values.getRsi()))
+                .macd(decimal(values.getMacd()))
+                .macdSignal(decimal(values.getMacdSignal()))
+                .macdHistogram(decimal(values.getMacdHistogram()))
+                .bollingerUpper(decimal(values.getBollingerUpper()))
+                .bollingerMiddle(decimal(values.getBollingerMiddle()))
+                .bollingerLower(decimal(values.getBollingerLower()))
+                .kdjK(decimal(values.getKdjK()))
+                .kdjD(decimal(values.getKdjD()))
+                .atr(decimal(values.getAtr()))
+                .build();
+    }
+
+    private static String rsiSignal(Double rsi) {
+        if (rsi == null) {
+            return null;
+        }
+        if (rsi >= 70.0D) {
+            return "overbought";
+        }
+        return rsi <= 30.0D ? "oversold" : "neutral";
+    }
+
+    private static BigDecimal decimal(Double value) {
+        return value == null || value.isNaN() || value.isInfinite()
+                ? null : BigDecimal.valueOf(value).setScale(8, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * 解析 K 线时间：带偏移的 ISO 8601、不带偏移的 ISO 8601 / 日期 (按 UTC) 或 epoch 毫秒
+     */
+    private static long parseEpochMillis(String timestamp) {
+        if (timestamp == null || timestamp.isBlank()) {
+            throw new IllegalStateException("Candle without timestamp");
+        }
+        String text = timestamp.trim();
+        if (text.chars().allMatch(Character::isDigit)) {
+            return Long.parseLong(text);
+        }
+        if (text.length() == 10) {
+            return LocalDate.parse(text).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        }
         try {
-            return LocalDateTime.parse(timestamp, DateTimeFormatter.ISO_DATE_TIME);
+            return OffsetDateTime.parse(text).toInstant().toEpochMilli();
         } catch (Exception e) {
-            log.warn("Failed to parse timestamp: {}, using current time", timestamp);
-            return LocalDateTime.now();
+            return LocalDateTime.parse(text, DateTimeFormatter.ISO_DATE_TIME).toInstant(ZoneOffset.UTC).toEpochMilli();
         }
     }
 
     /**
-     * Mock 价格数据（降级方案）
+     * 价格请求：开启对冲且已有足够的耗时样本时，原请求超过近期分位数耗时仍未返回则再发一次，取先成功的结果并取消另一个
      */
-    private Map<String, MarketSnapshotEntity> getMockPrices(List<String> symbols) {
-        log.warn("Using mock prices for symbols: {}", symbols);
-        Map<String, MarketSnapshotEntity> result = new HashMap<>();
-        for (String symbol : symbols) {
-            BigDecimal mockPrice = new BigDecimal("50000.00");
-            if (symbol.contains("ETH")) {
-                mockPrice = new BigDecimal("3000.00");
-            } else if (symbol.contains("AAPL")) {
-                mockPrice = new BigDecimal("277.55");
+    private Response<BatchPricesResponseDTO> executeHedged(BatchPricesRequestDTO requestDTO, CycleDeadline deadline) {
+        long quantileMs = priceLatency.quantileMs();
+        long hedgeDelayMs = Math.max(marketDataProperties.getHedgeMinDelayMs(), quantileMs);
+        if (!marketDataProperties.isHedgeEnabled() || quantileMs < 0
+                || (!deadline.isUnbounded() && deadline.remainingMillis() <= hedgeDelayMs)) {
+            return executeTimed(stockMcpService.getBatchPrices(requestDTO), deadline);
+        }
+
+        Call<BatchPricesResponseDTO> primary = stockMcpService.getBatchPrices(requestDTO);
+        CompletableFuture<Response<BatchPricesResponseDTO>> first = CompletableFuture.supplyAsync(
+                () -> executeTimed(primary, deadline), marketExecutor);
+        try {
+            return first.get(hedgeDelayMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.debug("Price request exceeded {}ms, sending hedged request", hedgeDelayMs);
+        } catch (ExecutionException e) {
+            throw propagate(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            primary.cancel();
+            throw new IllegalStateException("Interrupted while fetching prices", e);
+        }
+
+        hedgeFiredCounter.increment();
+        Call<BatchPricesResponseDTO> backup = stockMcpService.getBatchPrices(requestDTO);
+        CompletableFuture<Response<BatchPricesResponseDTO>> second = CompletableFuture.supplyAsync(
+                () -> executeTimed(backup, deadline), marketExecutor);
+
+        CompletableFuture<Response<BatchPricesResponseDTO>> winner = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        first.whenComplete((response, error) -> {
+            if (error == null) {
+                winner.complete(response);
+            } else if (failures.incrementAndGet() == 2) {
+                winner.completeExceptionally(error);
             }
-            result.put(symbol, MarketSnapshotEntity.builder()
-                    .symbol(symbol)
-                    .price(mockPrice)
-                    .timestamp(LocalDateTime.now())
-                    .build());
+        });
+        second.whenComplete((response, error) -> {
+            if (error == null) {
+                if (winner.complete(response)) {
+                    hedgeWonCounter.increment();
+                }
+            } else if (failures.incrementAndGet() == 2) {
+                winner.completeExceptionally(error);
+            }
+        });
+        try {
+            return winner.join();
+        } catch (CompletionException e) {
+            throw propagate(e.getCause());
+        } finally {
+            // 落后的请求被取消，不计入熔断统计
+            primary.cancel();
+            backup.cancel();
         }
-        return result;
     }
 
     /**
-     * Mock 技术指标数据（降级方案）
+     * 执行并记录成功调用的耗时，作为对冲延迟的依据
      */
-    private String getMockIndicators() {
-        log.warn("Using mock technical indicators");
-        return "{\"RSI\": 50.0, \"MACD\": 0.0, \"signal\": \"neutral\"}";
+    private <T> Response<T> executeTimed(Call<T> call, CycleDeadline deadline) {
+        long start = System.nanoTime();
+        Response<T> response = execute(call, deadline);
+        if (response.isSuccessful()) {
+            priceLatency.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+        return response;
+    }
+
+    /**
+     * 经熔断器执行 Stock MCP 调用：熔断打开时立即抛出 UPSTREAM_CIRCUIT_OPEN；
+     * IO 异常与 5xx 计为失败，被主动取消的调用不计入
+     */
+    private <T> Response<T> execute(Call<T> call, CycleDeadline deadline) {
+        stockMcpBreaker.acquire();
+        long start = System.nanoTime();
+        try {
+            Response<T> response = withDeadline(call, deadline).execute();
+            if (response.code() >= 500) {
+                stockMcpBreaker.onFailure();
+            } else {
+                stockMcpBreaker.onSuccess(System.nanoTime() - start);
+            }
+            return response;
+        } catch (IOException e) {
+            if (call.isCanceled()) {
+                stockMcpBreaker.onIgnored();
+            } else {
+                stockMcpBreaker.onFailure();
+            }
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            stockMcpBreaker.onFailure();
+            throw e;
+        }
+    }
+
+    private static RuntimeException propagate(Throwable cause) {
+        return cause instanceof RuntimeException runtime ? runtime : new IllegalStateException(cause);
     }
-}
 
+    /**
+     * 将调用的整体超时 (连接 + 读写) 限制在截止时间内，不限时则沿用客户端默认超时
+     */
+    private <T> Call<T> withDeadline(Call<T> call, CycleDeadline deadline) {
+        if (!deadline.isUnbounded()) {
+            call.timeout().timeout(Math.max(1L, deadline.remainingMillis()), TimeUnit.MILLISECONDS);
+        }
+        return call;
+    }
+
+    /**
+     * 解析时间戳
+     * 支持 ISO 8601 格式
+     */
+    private LocalDateTime parseTimestamp(String timestamp) {
+        try {
+            return LocalDateTime.parse(timestamp, DateTimeFormatter.ISO_DATE_TIME);
+        } catch (Exception e) {
+            log.warn("Failed to parse timestamp: {}, using current time", timestamp);
+            return LocalDateTime.now();
+        }
+    }
+}
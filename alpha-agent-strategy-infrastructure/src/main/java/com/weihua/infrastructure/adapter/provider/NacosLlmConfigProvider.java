@@ -1,5 +1,6 @@
 package com.weihua.infrastructure.adapter.provider;
 
+import com.weihua.infrastructure.adapter.factory.LlmFactory;
 import com.weihua.infrastructure.config.LlmProperties;
 import com.weihua.strategy.domain.service.provider.LlmConfigProvider;
 import lombok.extern.slf4j.Slf4j;
@@ -26,6 +27,9 @@ public class NacosLlmConfigProvider implements LlmConfigProvider {
     @Autowired
     private LlmProperties llmProperties;
 
+    @Autowired
+    private LlmFactory llmFactory;
+
     // TODO: 注入策略仓储，从数据库读取策略配置的 modelId
     // @Autowired
     // private IStrategyInstanceRepository strategyRepository;
@@ -45,5 +49,12 @@ public class NacosLlmConfigProvider implements LlmConfigProvider {
         
         return defaultModel; // 返回默认模型 ID
     }
-}
 
+    /**
+     * 每个循环都会调用 (分发器按渠道限流)，读取 LlmFactory 随配置刷新重建的 modelId -> providerRef 索引
+     */
+    @Override
+    public String getProviderId(String modelId) {
+        return llmFactory.getProviderId(modelId);
+    }
+}
@@ -0,0 +1,96 @@
+package com.weihua.infrastructure.adapter.repository;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.weihua.infrastructure.dao.ICycleCheckpointDao;
+import com.weihua.infrastructure.dao.po.CycleCheckpointPO;
+import com.weihua.strategy.domain.model.entity.CycleCheckpointEntity;
+import com.weihua.strategy.domain.model.entity.DecisionEntity;
+import com.weihua.strategy.domain.model.entity.MarketSnapshotEntity;
+import com.weihua.strategy.domain.model.valobj.CycleCheckpointStatus;
+import com.weihua.strategy.domain.repository.ICycleCheckpointRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Repository;
+
+import jakarta.annotation.Resource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 交易循环检查点仓储实现
+ * 决策与行情以 JSON 保存，cycle_id 唯一，重复保存被忽略
+ */
+@Slf4j
+@Repository
+public class CycleCheckpointRepositoryImpl implements ICycleCheckpointRepository {
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    @Resource
+    private ICycleCheckpointDao cycleCheckpointDao;
+
+    @Resource
+    private ObjectMapper objectMapper;
+
+    @Override
+    public void save(CycleCheckpointEntity checkpoint) {
+        try {
+            CycleCheckpointPO po = new CycleCheckpointPO();
+            po.setCycleId(checkpoint.getCycleId());
+            po.setStrategyId(checkpoint.getStrategyId());
+            po.setDecisionJson(objectMapper.writeValueAsString(checkpoint.getDecision()));
+            po.setMarketJson(objectMapper.writeValueAsString(checkpoint.getMarketData()));
+            po.setPrimarySymbol(checkpoint.getPrimarySymbol());
+            cycleCheckpointDao.insertIgnore(po);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to save cycle checkpoint: " + checkpoint.getCycleId(), e);
+        }
+    }
+
+    @Override
+    public List<CycleCheckpointEntity> findPending(int limit) {
+        List<CycleCheckpointPO> rows = cycleCheckpointDao.selectPending(limit);
+        List<CycleCheckpointEntity> checkpoints = new ArrayList<>();
+        if (rows == null) {
+            return checkpoints;
+        }
+        for (CycleCheckpointPO po : rows) {
+            try {
+                checkpoints.add(CycleCheckpointEntity.builder()
+                        .cycleId(po.getCycleId())
+                        .strategyId(po.getStrategyId())
+                        .decision(objectMapper.readValue(po.getDecisionJson(), DecisionEntity.class))
+                        .marketData(objectMapper.readValue(po.getMarketJson(),
+                                new TypeReference<Map<String, MarketSnapshotEntity>>() {}))
+                        .primarySymbol(po.getPrimarySymbol())
+                        .status(CycleCheckpointStatus.fromCode(po.getStatus()))
+                        .lastError(po.getLastError())
+                        .createTime(po.getCreateTime())
+                        .build());
+            } catch (Exception e) {
+                // 无法解析的检查点直接放弃，避免每次启动都重试
+                log.error("Failed to parse cycle checkpoint: {}", po.getCycleId(), e);
+                discard(po.getCycleId(), "unreadable: " + e.getMessage());
+            }
+        }
+        return checkpoints;
+    }
+
+    @Override
+    public boolean claim(String cycleId) {
+        return cycleCheckpointDao.updateStatus(cycleId, CycleCheckpointStatus.PENDING.getCode(),
+                CycleCheckpointStatus.REPLAYED.getCode(), null) > 0;
+    }
+
+    @Override
+    public void discard(String cycleId, String reason) {
+        String error = reason != null && reason.length() > MAX_ERROR_LENGTH ? reason.substring(0, MAX_ERROR_LENGTH) : reason;
+        // 领取后重放失败的检查点同样记为放弃
+        if (cycleCheckpointDao.updateStatus(cycleId, CycleCheckpointStatus.PENDING.getCode(),
+                CycleCheckpointStatus.DISCARDED.getCode(), error) == 0) {
+            cycleCheckpointDao.updateStatus(cycleId, CycleCheckpointStatus.REPLAYED.getCode(),
+                    CycleCheckpointStatus.DISCARDED.getCode(), error);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.weihua.infrastructure.adapter.repository;
+
+import com.weihua.infrastructure.dao.ICycleJobDao;
+import com.weihua.infrastructure.dao.po.CycleJobPO;
+import com.weihua.strategy.domain.model.entity.CycleJobEntity;
+import com.weihua.strategy.domain.model.valobj.CycleJobStatus;
+import com.weihua.strategy.domain.repository.ICycleJobRepository;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 分布式交易循环任务仓储实现 (MySQL 8)
+ * 领取使用 SELECT ... FOR UPDATE SKIP LOCKED，先取到期的 PENDING 任务，再取租约过期的 RUNNING 任务，
+ * 两条查询各自走 (status, due_at_ms) / (status, lease_until_ms) 索引，并发领取的节点各自拿到不相交的任务集合；
+ * 续约与结束都以 (worker_id, attempts) 作为栅栏，租约被接管后旧节点的写入不再生效
+ */
+@Repository
+public class CycleJobRepositoryImpl implements ICycleJobRepository {
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    @Resource
+    private ICycleJobDao cycleJobDao;
+
+    @Override
+    public boolean enqueue(CycleJobEntity job) {
+        try {
+            return cycleJobDao.insert(toPO(job)) > 0;
+        } catch (DuplicateKeyException e) {
+            // 该轮已存在或策略已有未完成任务
+            return false;
+        }
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public List<CycleJobEntity> claim(String workerId, int limit, long leaseMs, long nowMs) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        List<CycleJobPO> rows = new ArrayList<>(limit);
+        List<CycleJobPO> pending = cycleJobDao.selectPendingDueForUpdate(nowMs, limit);
+        if (pending != null) {
+            rows.addAll(pending);
+        }
+        if (rows.size() < limit) {
+            List<CycleJobPO> expired = cycleJobDao.selectLeaseExpiredForUpdate(nowMs, limit - rows.size());
+            if (expired != null) {
+                rows.addAll(expired);
+            }
+        }
+        if (rows.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        long leaseUntilMs = nowMs + leaseMs;
+        List<Long> ids = new ArrayList<>(rows.size());
+        for (CycleJobPO row : rows) {
+            ids.add(row.getId());
+        }
+        cycleJobDao.markClaimed(ids, workerId, leaseUntilMs);
+
+        List<CycleJobEntity> claimed = new ArrayList<>(rows.size());
+        for (CycleJobPO row : rows) {
+            CycleJobEntity job = toEntity(row);
+            job.setStatus(CycleJobStatus.RUNNING);
+            job.setWorkerId(workerId);
+            job.setLeaseUntilMs(leaseUntilMs);
+            job.setAttempts((row.getAttempts() != null ? row.getAttempts() : 0) + 1);
+            claimed.add(job);
+        }
+        return claimed;
+    }
+
+    @Override
+    public boolean heartbeat(CycleJobEntity job, long leaseMs, long nowMs) {
+        long leaseUntilMs = nowMs + leaseMs;
+        boolean renewed = cycleJobDao.renewLease(job.getId(), job.getWorkerId(), job.getAttempts(), leaseUntilMs) > 0;
+        if (renewed) {
+            job.setLeaseUntilMs(leaseUntilMs);
+        }
+        return renewed;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean finish(CycleJobEntity job, CycleJobStatus status, String error, CycleJobEntity next) {
+        if (cycleJobDao.finish(job.getId(), job.getWorkerId(), job.getAttempts(), status.getCode(), truncate(error)) == 0) {
+            return false;
+        }
+        if (next != null) {
+            enqueue(next);
+        }
+        return true;
+    }
+
+    @Override
+    public int cancelPending(String strategyId) {
+        return cycleJobDao.cancelPending(strategyId);
+    }
+
+    @Override
+    public int purgeFinished(long beforeMs) {
+        return cycleJobDao.deleteFinishedBefore(beforeMs);
+    }
+
+    private static String truncate(String error) {
+        return error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+
+    private static CycleJobPO toPO(CycleJobEntity job) {
+        CycleJobPO po = new CycleJobPO();
+        po.setStrategyId(job.getStrategyId());
+        po.setUserId(job.getUserId());
+        po.setDueAtMs(job.getDueAtMs());
+        po.setIntervalSeconds(job.getIntervalSeconds());
+        return po;
+    }
+
+    private static CycleJobEntity toEntity(CycleJobPO po) {
+        return CycleJobEntity.builder()
+                .id(po.getId())
+                .strategyId(po.getStrategyId())
+                .userId(po.getUserId())
+                .dueAtMs(po.getDueAtMs())
+                .intervalSeconds(po.getIntervalSeconds())
+                .status(CycleJobStatus.fromCode(po.getStatus()))
+                .workerId(po.getWorkerId())
+                .leaseUntilMs(po.getLeaseUntilMs())
+                .attempts(po.getAttempts())
+                .lastError(po.getLastError())
+                .build();
+    }
+}
@@ -8,10 +8,12 @@ import com.weihua.infrastructure.dao.IStrategyInstanceDao;
 import com.weihua.infrastructure.dao.po.StrategyInstancePO;
 import com.weihua.strategy.domain.model.aggregate.StrategyInstanceAggregate;
 import com.weihua.strategy.domain.model.entity.StrategyConfigEntity;
+import com.weihua.strategy.domain.model.valobj.StrategyChangedEvent;
 import com.weihua.strategy.domain.model.valobj.StrategyStatus;
 import com.weihua.strategy.domain.model.valobj.TradingMode;
 import com.weihua.strategy.domain.repository.IStrategyInstanceRepository;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Repository;
 
 import jakarta.annotation.Resource;
@@ -31,6 +33,9 @@ public class StrategyInstanceRepositoryImpl implements IStrategyInstanceReposito
     @Resource
     private ObjectMapper objectMapper;
 
+    @Resource
+    private ApplicationEventPublisher eventPublisher;
+
     @Override
     public StrategyInstanceAggregate findByStrategyId(String strategyId) {
         StrategyInstancePO po = strategyInstanceDao.selectByStrategyId(strategyId);
@@ -62,6 +67,8 @@ public class StrategyInstanceRepositoryImpl implements IStrategyInstanceReposito
             // For now, assuming status and configJson are the main mutable parts during runtime.
             // If metadata changes, we might need a more comprehensive update.
         }
+
+        eventPublisher.publishEvent(new StrategyChangedEvent(aggregate.getStrategyId(), aggregate.getStatus(), aggregate));
     }
 
     @Override
@@ -78,6 +85,7 @@ public class StrategyInstanceRepositoryImpl implements IStrategyInstanceReposito
     @Override
     public void updateStatus(String strategyId, StrategyStatus status) {
         strategyInstanceDao.updateStatusByStrategyId(strategyId, status.name());
+        eventPublisher.publishEvent(new StrategyChangedEvent(strategyId, status, null));
     }
 
     @Override
@@ -138,6 +146,7 @@ public class StrategyInstanceRepositoryImpl implements IStrategyInstanceReposito
                     if (trading.has("maxPositionSize")) config.setMaxPositionSize(new BigDecimal(trading.get("maxPositionSize").asText()));
                     if (trading.has("initialCapital")) config.setInitialCapital(new BigDecimal(trading.get("initialCapital").asText()));
                     if (trading.has("leverage")) config.setLeverage(new BigDecimal(trading.get("leverage").asText()));
+                    if (trading.has("priority") && !trading.get("priority").isNull()) config.setPriority(trading.get("priority").asInt());
                 }
             } catch (Exception e) {
                 log.warn("Failed to parse configJson for strategy {}", po.getStrategyId(), e);
@@ -72,7 +72,8 @@ public class TradingCycleRepositoryImpl implements ITradingCycleRepository {
                     .price(snapshot.getPrice())
                     .rsi(snapshot.getRsi())
                     .fundingRate(snapshot.getFundingRate())
-                    .indicatorsJson(snapshot.getIndicatorsJson())
+                    .indicatorsJson(snapshot.getIndicators() != null
+                            ? objectMapper.writeValueAsString(snapshot.getIndicators()) : null)
                     .recordedAt(snapshot.getTimestamp() != null ? snapshot.getTimestamp() : LocalDateTime.now())
                     .createTime(LocalDateTime.now())
                     .updateTime(LocalDateTime.now())
@@ -202,4 +203,9 @@ public class TradingCycleRepositoryImpl implements ITradingCycleRepository {
             }
         }
     }
+
+    @Override
+    public boolean existsCycle(String cycleId) {
+        return cycleId != null && decisionLogDao.countByCycleId(cycleId) > 0;
+    }
 }
@@ -24,6 +24,13 @@ public class LlmProperties {
     /** 默认使用的模型 ID (对应 models 列表中的 id) */
     private String defaultModel = "deepseek-v3";
 
+    /**
+     * 决策响应模式
+     * CALL: 等待完整输出后解析
+     * STREAM: 流式接收并增量解析，交易计划完整后取消剩余输出
+     */
+    private String responseMode = "CALL";
+
     /** 
      * 渠道配置集合
      * Key: providerId (e.g., "openai-official", "deepseek-official") 
@@ -36,6 +43,11 @@ public class LlmProperties {
      */
     private List<ModelConfig> models = new java.util.ArrayList<>();
 
+    /**
+     * 决策缓存配置
+     */
+    private DecisionCacheConfig decisionCache = new DecisionCacheConfig();
+
     /**
      * 渠道配置 (Connection Layer)
      */
@@ -47,6 +59,27 @@ public class LlmProperties {
         private String baseUrl;
     }
 
+    /**
+     * 决策缓存配置
+     * 行情、指标、持仓与策略配置按容差量化后指纹不变时，复用上一轮的交易计划，不再调用 LLM
+     */
+    @Data
+    public static class DecisionCacheConfig {
+        private boolean enabled = false;
+
+        /** 缓存计划的最长复用时间 (毫秒) */
+        private long maxAgeMs = 300000;
+
+        /** 价格及价格量纲指标 (均线、布林带、ATR、MACD) 的分桶宽度 (百分比) */
+        private double priceTolerancePct = 0.2;
+
+        /** RSI / KDJ 等 0-100 振荡指标的分桶宽度 */
+        private double oscillatorStep = 2.0;
+
+        /** 可用余额的分桶宽度 (百分比) */
+        private double balanceTolerancePct = 1.0;
+    }
+
     /**
      * 模型配置 (Capability Layer)
      */
@@ -66,6 +99,14 @@ public class LlmProperties {
         
         /** 默认温度参数 */
         private Double temperature = 0.7;
+
+        /**
+         * 响应格式，取决于渠道对结构化输出的支持
+         * TEXT: 不约束输出格式
+         * JSON_OBJECT: JSON 模式，保证输出为单个 JSON 对象
+         * JSON_SCHEMA: 按交易计划 Schema 严格约束输出
+         */
+        private String responseFormat = "TEXT";
     }
 }
 
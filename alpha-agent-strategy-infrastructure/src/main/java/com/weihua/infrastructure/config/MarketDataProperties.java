@@ -0,0 +1,129 @@
+package com.weihua.infrastructure.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 行情数据配置属性类
+ *
+ * 报价缓存按交易对共享，所有策略同一交易对的报价在新鲜期内只请求一次上游：
+ * - 新鲜期内直接命中
+ * - 超过新鲜期但未超过最大陈旧时长：先返回旧值，后台异步刷新
+ * - 超过最大陈旧时长或缓存中没有：同步请求上游
+ *
+ * 调度 tick 在提交到期策略之前，按所有到期策略交易对的并集分批预取价格
+ *
+ * 技术指标按 (symbol, period, interval) 缓存到下一个 K 线边界；
+ * indicator-source=NATIVE 时改由进程内增量引擎计算，Stock MCP 只提供历史 K 线引导
+ *
+ * Stock MCP 调用经过熔断器：失败或慢调用比例过高时熔断，期间价格直接降级为最后已知报价 (标记 stale)；
+ * 价格请求可选对冲：超过近期 p95 耗时仍未返回时再发一次，取先返回的结果
+ *
+ * price-source=STREAM 时订阅 Stock MCP 价格推送 (SSE)，价格从内存中的最新价格表读取，
+ * 推送缺失或过旧的交易对回退到上述轮询路径
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.market")
+public class MarketDataProperties {
+
+    /** 报价新鲜期 (毫秒) */
+    private long quoteFreshTtlMs = 1000L;
+
+    /** 报价最大陈旧时长 (毫秒)，期间先返回旧值再后台刷新 */
+    private long quoteMaxStaleMs = 10000L;
+
+    /** 缓存的交易对上限 */
+    private long quoteCacheMaxSize = 10000L;
+
+    /** 上游不可用时最后已知报价的保留时长 (毫秒)，超过后该交易对不再有报价，循环跳过 */
+    private long quoteLastKnownGoodMs = 900000L;
+
+    /** 调度 tick 预取时每个批量价格请求的交易对数 */
+    private int prefetchBatchSize = 100;
+
+    /** 调度 tick 预取的总超时 (毫秒)，超时后未完成的交易对由各策略自行获取 */
+    private long prefetchTimeoutMs = 3000L;
+
+    /** 技术指标回看区间 */
+    private String indicatorPeriod = "30d";
+
+    /** 技术指标 K 线周期，指标缓存在该周期的下一个 K 线边界失效 */
+    private String indicatorInterval = "1d";
+
+    /**
+     * 指标缓存刷新策略
+     * CANDLE_CLOSE: 只在 K 线收盘后失效
+     * INTRABAR: 另外按 indicator-intrabar-refresh-ms 定期失效，反映未收盘 K 线的变化
+     */
+    private String indicatorRefreshPolicy = "CANDLE_CLOSE";
+
+    /** INTRABAR 策略下的刷新间隔 (毫秒) */
+    private long indicatorIntrabarRefreshMs = 300000L;
+
+    /** K 线收盘后延迟失效的时长 (毫秒)，等待行情源落盘 */
+    private long indicatorCloseDelayMs = 5000L;
+
+    /** 缓存的指标 key 上限 */
+    private long indicatorCacheMaxSize = 10000L;
+
+    /**
+     * 技术指标来源
+     * REMOTE: 由 Stock MCP 计算
+     * NATIVE: 进程内增量计算，用历史 K 线引导后随报价更新，失败时回退到 REMOTE
+     */
+    private String indicatorSource = "REMOTE";
+
+    /** NATIVE 模式引导时拉取的历史 K 线区间，需覆盖最长指标 (SMA200) 及 EMA 收敛所需的 K 线数 */
+    private String indicatorHistoryPeriod = "1y";
+
+    /** 熔断：计数窗口内失败 (含慢调用) 比例达到该百分比时打开 */
+    private int circuitFailureRatePercent = 50;
+
+    /** 熔断：耗时超过该值 (毫秒) 的调用按失败计 */
+    private long circuitSlowCallMs = 5000L;
+
+    /** 熔断：计数窗口大小 (最近调用次数) */
+    private int circuitWindowSize = 20;
+
+    /** 熔断：窗口内至少有这么多次调用才计算失败比例 */
+    private int circuitMinimumCalls = 10;
+
+    /** 熔断打开后多久 (毫秒) 进入半开探测 */
+    private long circuitOpenMs = 30000L;
+
+    /** 半开状态放行的探测调用数，全部成功则关闭 */
+    private int circuitHalfOpenProbes = 3;
+
+    /** 价格请求对冲开关 */
+    private boolean hedgeEnabled = false;
+
+    /** 对冲触发延迟取近期价格请求耗时的该分位数 */
+    private double hedgeQuantile = 0.95D;
+
+    /** 对冲触发延迟下限 (毫秒)，避免上游很快时也频繁对冲 */
+    private long hedgeMinDelayMs = 50L;
+
+    /**
+     * 价格来源
+     * POLL: 每次按需请求批量价格接口 (经报价缓存)
+     * STREAM: 订阅价格推送，读取最新价格表
+     */
+    private String priceSource = "POLL";
+
+    /** 价格推送接口路径 (相对 stock-mcp.base-url) */
+    private String priceStreamPath = "/api/v1/market/prices/stream";
+
+    /** 推送价格的最大年龄 (毫秒)，超过后该交易对回退到轮询 */
+    private long priceStreamMaxAgeMs = 5000L;
+
+    /** 推送连接的空闲超时 (毫秒)，期间没有任何数据 (含心跳) 则断开重连 */
+    private long priceStreamIdleTimeoutMs = 30000L;
+
+    /** 推送断线重连的初始退避 (毫秒)，连续失败时加倍 */
+    private long priceStreamReconnectMinMs = 500L;
+
+    /** 推送断线重连的最大退避 (毫秒) */
+    private long priceStreamReconnectMaxMs = 30000L;
+}
@@ -0,0 +1,13 @@
+package com.weihua.infrastructure.dao;
+
+import com.weihua.infrastructure.dao.po.CycleCheckpointPO;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import java.util.List;
+
+@Mapper
+public interface ICycleCheckpointDao {
+    int insertIgnore(CycleCheckpointPO po);
+    List<CycleCheckpointPO> selectPending(@Param("limit") int limit);
+    int updateStatus(@Param("cycleId") String cycleId, @Param("fromStatus") String fromStatus, @Param("toStatus") String toStatus, @Param("lastError") String lastError);
+}
@@ -0,0 +1,18 @@
+package com.weihua.infrastructure.dao;
+
+import com.weihua.infrastructure.dao.po.CycleJobPO;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import java.util.List;
+
+@Mapper
+public interface ICycleJobDao {
+    int insert(CycleJobPO po);
+    List<CycleJobPO> selectPendingDueForUpdate(@Param("nowMs") long nowMs, @Param("limit") int limit);
+    List<CycleJobPO> selectLeaseExpiredForUpdate(@Param("nowMs") long nowMs, @Param("limit") int limit);
+    int markClaimed(@Param("ids") List<Long> ids, @Param("workerId") String workerId, @Param("leaseUntilMs") long leaseUntilMs);
+    int renewLease(@Param("id") Long id, @Param("workerId") String workerId, @Param("attempts") Integer attempts, @Param("leaseUntilMs") long leaseUntilMs);
+    int finish(@Param("id") Long id, @Param("workerId") String workerId, @Param("attempts") Integer attempts, @Param("status") String status, @Param("lastError") String lastError);
+    int cancelPending(@Param("strategyId") String strategyId);
+    int deleteFinishedBefore(@Param("beforeMs") long beforeMs);
+}
@@ -8,4 +8,5 @@ import java.util.List;
 public interface IDecisionLogDao {
     int insert(DecisionLogPO po);
     List<DecisionLogPO> selectByStrategyId(Long strategyInstanceId);
+    int countByCycleId(String cycleId);
 }
@@ -0,0 +1,31 @@
+package com.weihua.infrastructure.dao.po;
+
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 交易循环检查点持久化对象
+ */
+@Data
+public class CycleCheckpointPO {
+    /** 主键ID */
+    private Long id;
+    /** 决策循环ID(UUID) */
+    private String cycleId;
+    /** 策略业务ID */
+    private String strategyId;
+    /** 状态: PENDING, REPLAYED, DISCARDED */
+    private String status;
+    /** 已通过风控的决策JSON */
+    private String decisionJson;
+    /** 决策时的行情JSON */
+    private String marketJson;
+    /** 主交易对 */
+    private String primarySymbol;
+    /** 放弃原因 */
+    private String lastError;
+    /** 创建时间 */
+    private LocalDateTime createTime;
+    /** 更新时间 */
+    private LocalDateTime updateTime;
+}
@@ -0,0 +1,35 @@
+package com.weihua.infrastructure.dao.po;
+
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 分布式交易循环任务持久化对象
+ */
+@Data
+public class CycleJobPO {
+    /** 主键ID */
+    private Long id;
+    /** 策略业务ID */
+    private String strategyId;
+    /** 用户ID */
+    private String userId;
+    /** 本轮应开始的时刻 (epoch 毫秒) */
+    private Long dueAtMs;
+    /** 策略间隔(秒) */
+    private Integer intervalSeconds;
+    /** 状态: PENDING, RUNNING, DONE, FAILED, CANCELLED */
+    private String status;
+    /** 持有租约的节点 */
+    private String workerId;
+    /** 租约到期时刻 (epoch 毫秒) */
+    private Long leaseUntilMs;
+    /** 领取次数 (租约栅栏令牌) */
+    private Integer attempts;
+    /** 最近一次错误 */
+    private String lastError;
+    /** 创建时间 */
+    private LocalDateTime createTime;
+    /** 更新时间 */
+    private LocalDateTime updateTime;
+}
@@ -9,6 +9,8 @@ import com.weihua.infrastructure.gateway.dto.BatchPricesRequestDTO;
 import com.weihua.infrastructure.gateway.dto.BatchPricesResponseDTO;
 import com.weihua.infrastructure.gateway.dto.CalculateIndicatorsRequestDTO;
 import com.weihua.infrastructure.gateway.dto.CalculateIndicatorsResponseDTO;
+import com.weihua.infrastructure.gateway.dto.MarketHistoryRequestDTO;
+import com.weihua.infrastructure.gateway.dto.MarketHistoryResponseDTO;
 import retrofit2.Call;
 import retrofit2.http.Body;
 import retrofit2.http.POST;
@@ -36,4 +38,13 @@ public interface IStockMcpService {
      */
     @POST("/api/v1/market/indicators/calculate")
     Call<CalculateIndicatorsResponseDTO> calculateIndicators(@Body CalculateIndicatorsRequestDTO requestDTO);
+
+    /**
+     * 获取历史 K 线
+     * 
+     * @param requestDTO 请求参数
+     * @return 按开盘时间升序的 K 线
+     */
+    @POST("/api/v1/market/history")
+    Call<MarketHistoryResponseDTO> getHistory(@Body MarketHistoryRequestDTO requestDTO);
 }
@@ -0,0 +1,226 @@
+package com.weihua.infrastructure.gateway;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.weihua.infrastructure.gateway.dto.BatchPricesResponseDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Stock MCP 价格推送订阅 (Server-Sent Events)
+ *
+ * GET {streamUrl}?tickers=A,B 保持长连接，每个事件的 data 是一条 PriceDataDTO JSON，以 ":" 开头的注释行作为心跳。
+ * 订阅集合只增不减，出现新交易对时断开重连以更新订阅；连接失败或超过 idleTimeoutMs 没有任何数据时按指数退避重连。
+ *
+ * 长连接不经过 UpstreamConcurrencyInterceptor，不占用同步请求的并发名额。
+ */
+@Slf4j
+public class StockMcpPriceStream implements AutoCloseable {
+
+    private final OkHttpClient client;
+    private final HttpUrl streamUrl;
+    private final long reconnectMinMs;
+    private final long reconnectMaxMs;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final Set<String> symbols = ConcurrentHashMap.newKeySet();
+    /** 订阅集合有变化，当前连接需要以新集合重连 */
+    private final AtomicBoolean resubscribe = new AtomicBoolean();
+    private final AtomicBoolean connected = new AtomicBoolean();
+    private volatile boolean running;
+    private volatile Call current;
+    private volatile Thread worker;
+    private volatile Consumer<BatchPricesResponseDTO.PriceDataDTO> listener;
+
+    private final Counter eventCounter;
+    private final Counter invalidCounter;
+    private final Counter reconnectCounter;
+
+    public StockMcpPriceStream(OkHttpClient baseClient, String streamUrl, long idleTimeoutMs,
+                               long reconnectMinMs, long reconnectMaxMs, MeterRegistry meterRegistry) {
+        OkHttpClient.Builder builder = baseClient.newBuilder()
+                .readTimeout(idleTimeoutMs, TimeUnit.MILLISECONDS)
+                .callTimeout(0L, TimeUnit.MILLISECONDS);
+        builder.interceptors().clear();
+        this.client = builder.build();
+        this.streamUrl = HttpUrl.get(streamUrl);
+        this.reconnectMinMs = Math.max(1L, reconnectMinMs);
+        this.reconnectMaxMs = Math.max(this.reconnectMinMs, reconnectMaxMs);
+        this.eventCounter = Counter.builder("market.stream.events").tag("result", "received")
+                .description("收到的价格推送事件").register(meterRegistry);
+        this.invalidCounter = Counter.builder("market.stream.events").tag("result", "invalid")
+                .description("无法解析的价格推送事件").register(meterRegistry);
+        this.reconnectCounter = Counter.builder("market.stream.reconnects")
+                .description("价格推送断线重连次数").register(meterRegistry);
+        Gauge.builder("market.stream.connected", connected, flag -> flag.get() ? 1 : 0)
+                .description("价格推送连接状态").register(meterRegistry);
+    }
+
+    /**
+     * 启动订阅线程，每个价格事件回调一次 listener (在订阅线程上执行，应尽快返回)
+     */
+    public synchronized void start(Consumer<BatchPricesResponseDTO.PriceDataDTO> listener) {
+        if (running) {
+            return;
+        }
+        this.listener = listener;
+        running = true;
+        worker = Thread.ofVirtual().name("stock-mcp-price-stream").start(this::run);
+        log.info("Price stream started: {}", streamUrl);
+    }
+
+    /**
+     * 加入订阅，有新交易对时触发重连
+     */
+    public void subscribe(Collection<String> tickers) {
+        if (!symbols.addAll(tickers)) {
+            return;
+        }
+        resubscribe.set(true);
+        Call call = current;
+        if (call != null) {
+            call.cancel();
+        }
+        Thread thread = worker;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    public boolean isConnected() {
+        return connected.get();
+    }
+
+    @Override
+    public synchronized void close() {
+        running = false;
+        Call call = current;
+        if (call != null) {
+            call.cancel();
+        }
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    private void run() {
+        long backoffMs = reconnectMinMs;
+        while (running) {
+            if (symbols.isEmpty()) {
+                LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1));
+                continue;
+            }
+
+            resubscribe.set(false);
+            Call call = client.newCall(new Request.Builder()
+                    .url(streamUrl.newBuilder().setQueryParameter("tickers", String.join(",", new TreeSet<>(symbols))).build())
+                    .header("Accept", "text/event-stream")
+                    .build());
+            current = call;
+            if (resubscribe.get()) {
+                call.cancel();
+            }
+
+            try (Response response = call.execute()) {
+                ResponseBody body = response.body();
+                if (!response.isSuccessful() || body == null) {
+                    throw new IOException("HTTP " + response.code());
+                }
+                connected.set(true);
+                log.info("Price stream connected, {} symbols", symbols.size());
+                if (readEvents(body.source())) {
+                    backoffMs = reconnectMinMs;
+                }
+            } catch (IOException e) {
+                if (running && !resubscribe.get()) {
+                    log.warn("Price stream disconnected: {}", e.getMessage());
+                }
+            } finally {
+                connected.set(false);
+                current = null;
+            }
+
+            if (!running) {
+                break;
+            }
+            if (resubscribe.get()) {
+                continue;
+            }
+            reconnectCounter.increment();
+            try {
+                Thread.sleep(backoffMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            backoffMs = Math.min(reconnectMaxMs, backoffMs * 2);
+        }
+        log.info("Price stream stopped");
+    }
+
+    /**
+     * 逐行读取事件直到连接关闭，返回是否收到过有效事件
+     */
+    private boolean readEvents(BufferedSource source) throws IOException {
+        boolean received = false;
+        StringBuilder data = new StringBuilder();
+        String line;
+        while ((line = source.readUtf8Line()) != null) {
+            if (line.isEmpty()) {
+                if (data.length() > 0) {
+                    received |= dispatch(data.toString());
+                    data.setLength(0);
+                }
+            } else if (line.startsWith("data:")) {
+                if (data.length() > 0) {
+                    data.append('\n');
+                }
+                data.append(line, line.startsWith("data: ") ? 6 : 5, line.length());
+            }
+            // event / id / retry 字段与注释行 (心跳) 忽略
+        }
+        return received;
+    }
+
+    private boolean dispatch(String data) {
+        BatchPricesResponseDTO.PriceDataDTO price;
+        try {
+            price = objectMapper.readValue(data, BatchPricesResponseDTO.PriceDataDTO.class);
+            if (price.getTicker() == null || price.getPrice() == null) {
+                invalidCounter.increment();
+                return false;
+            }
+            eventCounter.increment();
+        } catch (IOException e) {
+            invalidCounter.increment();
+            log.debug("Invalid price event: {}", data);
+            return false;
+        }
+        try {
+            listener.accept(price);
+        } catch (RuntimeException e) {
+            log.warn("Price stream listener failed for {}: {}", price.getTicker(), e.getMessage());
+        }
+        return true;
+    }
+}
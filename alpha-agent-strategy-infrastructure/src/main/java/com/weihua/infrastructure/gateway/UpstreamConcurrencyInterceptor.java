@@ -0,0 +1,161 @@
+package com.weihua.infrastructure.gateway;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 上游 HTTP 并发限制与请求指标
+ *
+ * OkHttp Dispatcher 的 maxRequestsPerHost 只约束 enqueue 的异步调用，execute 的同步调用 (行情端口在虚拟线程上使用) 不受限制，
+ * 因此在应用拦截器中按 host 限制并发请求数：超过上限的调用排队等待，最长等待到调用自身的超时 (含循环截止时间)；
+ * 同时记录排队等待时长与请求耗时
+ *
+ * 名额一直占用到响应体关闭 (Retrofit 在转换完响应体后关闭)，而不是拿到响应头时就归还，
+ * 否则读取响应体期间的连接不计入并发；响应体必须关闭，这也是 OkHttp 本身的要求
+ */
+@Slf4j
+public class UpstreamConcurrencyInterceptor implements Interceptor {
+
+    private final int maxRequestsPerHost;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Semaphore> permits = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Timer queueWaitTimer;
+
+    public UpstreamConcurrencyInterceptor(int maxRequestsPerHost, MeterRegistry meterRegistry) {
+        this.maxRequestsPerHost = Math.max(1, maxRequestsPerHost);
+        this.meterRegistry = meterRegistry;
+        this.queueWaitTimer = Timer.builder("market.upstream.http.queue.wait")
+                .description("等待单 host 并发名额的时长").register(meterRegistry);
+        Gauge.builder("market.upstream.http.in.flight", inFlight, AtomicInteger::get)
+                .description("进行中的上游 HTTP 请求数").register(meterRegistry);
+        Gauge.builder("market.upstream.http.queued", queued, AtomicInteger::get)
+                .description("等待并发名额的上游 HTTP 请求数").register(meterRegistry);
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        Semaphore semaphore = permits.computeIfAbsent(request.url().host(), host -> new Semaphore(maxRequestsPerHost, true));
+        acquire(semaphore, chain.call().timeout().timeoutNanos(), request);
+
+        inFlight.incrementAndGet();
+        long start = System.nanoTime();
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException | RuntimeException | Error e) {
+            release(semaphore, request, "IO_ERROR", start);
+            throw e;
+        }
+
+        String outcome = String.valueOf(response.code());
+        ResponseBody body = response.body();
+        if (body == null) {
+            release(semaphore, request, outcome, start);
+            return response;
+        }
+        AtomicBoolean released = new AtomicBoolean(false);
+        return response.newBuilder()
+                .body(new PermitReleasingBody(body, () -> {
+                    if (released.compareAndSet(false, true)) {
+                        release(semaphore, request, outcome, start);
+                    }
+                }))
+                .build();
+    }
+
+    private void release(Semaphore semaphore, Request request, String outcome, long start) {
+        inFlight.decrementAndGet();
+        semaphore.release();
+        Timer.builder("market.upstream.http.requests")
+                .tag("endpoint", request.url().encodedPath())
+                .tag("status", outcome)
+                .description("上游 HTTP 请求耗时 (含读取响应体，不含排队)")
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private void acquire(Semaphore semaphore, long timeoutNanos, Request request) throws IOException {
+        if (semaphore.tryAcquire()) {
+            queueWaitTimer.record(0L, TimeUnit.NANOSECONDS);
+            return;
+        }
+        queued.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            if (timeoutNanos > 0) {
+                if (!semaphore.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS)) {
+                    log.warn("Timed out waiting for upstream slot: {} {}", request.method(), request.url().encodedPath());
+                    throw new InterruptedIOException("timeout waiting for upstream concurrency slot");
+                }
+            } else {
+                semaphore.acquire();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted waiting for upstream concurrency slot");
+        } finally {
+            queued.decrementAndGet();
+            queueWaitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 关闭时归还并发名额的响应体
+     */
+    private static final class PermitReleasingBody extends ResponseBody {
+
+        private final ResponseBody delegate;
+        private final BufferedSource source;
+
+        private PermitReleasingBody(ResponseBody delegate, Runnable onClose) {
+            this.delegate = delegate;
+            this.source = Okio.buffer(new ForwardingSource(delegate.source()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        onClose.run();
+                    }
+                }
+            });
+        }
+
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return delegate.contentLength();
+        }
+
+        @Override
+        public BufferedSource source() {
+            return source;
+        }
+    }
+}
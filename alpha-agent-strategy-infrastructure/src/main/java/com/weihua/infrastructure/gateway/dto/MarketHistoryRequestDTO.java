@@ -0,0 +1,40 @@
+/*
+ * @Author: weihua hu
+ * @Date: 2025-12-08 10:12:00
+ * @Description: 历史 K 线请求 DTO
+ */
+package com.weihua.infrastructure.gateway.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 历史 K 线请求参数
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class MarketHistoryRequestDTO {
+    /**
+     * 资产代码
+     * 格式: "CRYPTO:BTC"
+     */
+    private String symbol;
+
+    /**
+     * 数据周期
+     * 如: "90d", "1y"
+     */
+    @Builder.Default
+    private String period = "1y";
+
+    /**
+     * K线间隔
+     * 如: "1d", "1h", "15m"
+     */
+    @Builder.Default
+    private String interval = "1d";
+}
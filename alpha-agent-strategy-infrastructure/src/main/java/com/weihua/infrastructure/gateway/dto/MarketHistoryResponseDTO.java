@@ -0,0 +1,44 @@
+/*
+ * @Author: weihua hu
+ * @Date: 2025-12-08 10:12:00
+ * @Description: 历史 K 线响应 DTO
+ */
+package com.weihua.infrastructure.gateway.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 历史 K 线响应数据，candles 按开盘时间升序
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class MarketHistoryResponseDTO {
+    private String symbol;
+    private String interval;
+    private List<CandleDTO> candles;
+
+    /**
+     * 单根 K 线
+     */
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class CandleDTO {
+        /** 开盘时间，ISO 8601 或 epoch 毫秒 */
+        private String timestamp;
+        private BigDecimal open;
+        private BigDecimal high;
+        private BigDecimal low;
+        private BigDecimal close;
+        private BigDecimal volume;
+    }
+}
@@ -0,0 +1,285 @@
+package com.weihua.infrastructure.llm;
+
+import com.weihua.infrastructure.config.LlmProperties;
+import com.weihua.strategy.domain.model.entity.MarketSnapshotEntity;
+import com.weihua.strategy.domain.model.entity.PortfolioSnapshotEntity;
+import com.weihua.strategy.domain.model.entity.StrategyConfigEntity;
+import com.weihua.strategy.domain.model.entity.TradeInstruction;
+import com.weihua.strategy.domain.model.entity.TradePlan;
+import com.weihua.strategy.domain.model.valobj.TechnicalIndicators;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * 决策缓存，位于 LLM 调用之前
+ *
+ * 每个策略保存上一轮成功的计划及其输入指纹。指纹把价格与价格量纲指标按对数分桶 (priceTolerancePct)、
+ * 振荡指标按固定步长分桶、可用余额按对数分桶，持仓数量与策略配置、模型、提示词版本原样参与；
+ * 指纹不变且未超过 maxAgeMs 时直接复用计划 (标记 cached)，降级计划不缓存。
+ *
+ * 分桶是固定边界，输入恰好跨过桶边界时即使变化很小也会重新调用 LLM
+ */
+@Slf4j
+@Component
+public class DecisionCache {
+
+    private static final long MINUTE_MS = 60_000L;
+    private static final int WINDOW_MINUTES = 60;
+
+    @Autowired
+    private LlmProperties llmProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private LongSupplier clock = System::currentTimeMillis;
+
+    /** strategyId -> 上一轮计划 */
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /** 最近一小时每分钟的命中数 (按分钟轮转的环形槽位，近似值) */
+    private final AtomicLongArray savedPerMinute = new AtomicLongArray(WINDOW_MINUTES);
+    private final AtomicLongArray slotMinutes = new AtomicLongArray(WINDOW_MINUTES);
+
+    private Counter hitCounter;
+    private Counter missCounter;
+
+    @PostConstruct
+    public void init() {
+        hitCounter = Counter.builder("llm.decision.cache").tag("result", "hit")
+                .description("复用缓存计划、省去的 LLM 调用").register(meterRegistry);
+        missCounter = Counter.builder("llm.decision.cache").tag("result", "miss")
+                .description("输入有实质变化或缓存过期，需要调用 LLM").register(meterRegistry);
+        Gauge.builder("llm.decision.cache.hit.ratio", this, DecisionCache::hitRatio)
+                .description("决策缓存命中率").register(meterRegistry);
+        Gauge.builder("llm.decision.cache.saved.hourly", this, DecisionCache::savedLastHour)
+                .description("最近一小时省去的 LLM 调用数").register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return llmProperties.getDecisionCache().isEnabled();
+    }
+
+    /**
+     * 读取缓存计划，指纹一致且未过期时返回副本 (cached=true)，否则返回 null
+     */
+    public TradePlan get(String strategyId, String fingerprint) {
+        Entry entry = entries.get(strategyId);
+        long now = clock.getAsLong();
+        if (entry == null || !entry.fingerprint.equals(fingerprint)
+                || now - entry.createdAtMs > llmProperties.getDecisionCache().getMaxAgeMs()) {
+            missCounter.increment();
+            return null;
+        }
+        hitCounter.increment();
+        recordSaved(now);
+        return copyOf(entry.plan, true);
+    }
+
+    /**
+     * 保存本轮 LLM 给出的计划，降级计划不保存 (并清除该策略的旧计划)
+     */
+    public void put(String strategyId, String fingerprint, TradePlan plan) {
+        if (plan == null || plan.isFallback()) {
+            entries.remove(strategyId);
+            return;
+        }
+        // 调用方 (风控过滤) 可能修改计划中的指令，缓存保存副本
+        entries.put(strategyId, new Entry(fingerprint, copyOf(plan, false), clock.getAsLong()));
+    }
+
+    public void invalidate(String strategyId) {
+        entries.remove(strategyId);
+    }
+
+    /**
+     * 计算决策输入的量纲化指纹
+     */
+    public String fingerprint(MarketSnapshotEntity market, PortfolioSnapshotEntity portfolio,
+                              StrategyConfigEntity config, String modelId, String promptVersion) {
+        LlmProperties.DecisionCacheConfig tolerance = llmProperties.getDecisionCache();
+        double pricePct = tolerance.getPriceTolerancePct();
+        double oscillatorStep = tolerance.getOscillatorStep();
+
+        StringBuilder sb = new StringBuilder(256);
+        sb.append(modelId).append('|').append(promptVersion);
+
+        // 策略配置
+        if (config != null) {
+            sb.append("|cfg:").append(config.getStrategyType())
+                    .append(',').append(config.getTradingMode())
+                    .append(',').append(config.getTemplateId())
+                    .append(',').append(Objects.hashCode(config.getPromptText()))
+                    .append(',').append(config.getSymbols())
+                    .append(',').append(config.getRiskLevel())
+                    .append(',').append(plain(config.getMaxPositionSize()))
+                    .append(',').append(plain(config.getLeverage()))
+                    .append(',').append(Objects.hashCode(config.getConfigJson()));
+        }
+
+        // 行情与指标
+        BigDecimal price = market.getPrice();
+        sb.append("|mkt:").append(market.getSymbol())
+                .append(',').append(logBucket(price, pricePct))
+                .append(',').append(linearBucket(market.getRsi(), oscillatorStep))
+                .append(',').append(plain(market.getFundingRate()));
+        TechnicalIndicators indicators = market.getIndicators();
+        if (indicators != null) {
+            sb.append("|ind:");
+            appendLevel(sb, price, indicators.getSma20(), pricePct);
+            appendLevel(sb, price, indicators.getSma50(), pricePct);
+            appendLevel(sb, price, indicators.getSma200(), pricePct);
+            appendLevel(sb, price, indicators.getEma12(), pricePct);
+            appendLevel(sb, price, indicators.getEma26(), pricePct);
+            appendLevel(sb, price, indicators.getBollingerUpper(), pricePct);
+            appendLevel(sb, price, indicators.getBollingerMiddle(), pricePct);
+            appendLevel(sb, price, indicators.getBollingerLower(), pricePct);
+            sb.append(linearBucket(indicators.getRsi(), oscillatorStep)).append(',')
+                    .append(indicators.getRsiSignal()).append(',')
+                    .append(linearBucket(indicators.getKdjK(), oscillatorStep)).append(',')
+                    .append(linearBucket(indicators.getKdjD(), oscillatorStep)).append(',')
+                    .append(signedLogBucket(indicators.getMacd(), pricePct)).append(',')
+                    .append(signedLogBucket(indicators.getMacdSignal(), pricePct)).append(',')
+                    .append(signedLogBucket(indicators.getMacdHistogram(), pricePct)).append(',')
+                    .append(logBucket(indicators.getAtr(), pricePct));
+        }
+
+        // 持仓
+        if (portfolio != null) {
+            sb.append("|pf:").append(logBucket(portfolio.getAvailableBalance(), tolerance.getBalanceTolerancePct()));
+            if (portfolio.getPositions() != null) {
+                List<PortfolioSnapshotEntity.PositionEntity> positions = new ArrayList<>(portfolio.getPositions());
+                positions.sort(Comparator.comparing(PortfolioSnapshotEntity.PositionEntity::getSymbol,
+                        Comparator.nullsFirst(Comparator.naturalOrder())));
+                for (PortfolioSnapshotEntity.PositionEntity position : positions) {
+                    sb.append(',').append(position.getSymbol()).append('=').append(plain(position.getQuantity()));
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 最近一小时命中数 (即省去的 LLM 调用)
+     */
+    public long savedLastHour() {
+        long minute = clock.getAsLong() / MINUTE_MS;
+        long total = 0;
+        for (int i = 0; i < WINDOW_MINUTES; i++) {
+            if (minute - slotMinutes.get(i) < WINDOW_MINUTES) {
+                total += savedPerMinute.get(i);
+            }
+        }
+        return total;
+    }
+
+    private double hitRatio() {
+        double hits = hitCounter.count();
+        double total = hits + missCounter.count();
+        return total == 0 ? 0.0D : hits / total;
+    }
+
+    private void recordSaved(long now) {
+        long minute = now / MINUTE_MS;
+        int slot = (int) (minute % WINDOW_MINUTES);
+        long slotMinute = slotMinutes.get(slot);
+        if (slotMinute != minute && slotMinutes.compareAndSet(slot, slotMinute, minute)) {
+            savedPerMinute.set(slot, 0);
+        }
+        savedPerMinute.incrementAndGet(slot);
+    }
+
+    /**
+     * 价格量纲指标：相对价格的方向 + 自身分桶，均线交叉等位置变化必然改变指纹
+     */
+    private static void appendLevel(StringBuilder sb, BigDecimal price, BigDecimal level, double pct) {
+        if (level == null) {
+            sb.append("n,");
+            return;
+        }
+        int side = price == null ? 0 : price.compareTo(level);
+        sb.append(side > 0 ? '+' : side < 0 ? '-' : '=').append(logBucket(level, pct)).append(',');
+    }
+
+    /**
+     * 正数按对数分桶，相邻桶相差 pct%；非正数只保留符号
+     */
+    private static String logBucket(BigDecimal value, double pct) {
+        if (value == null) {
+            return "n";
+        }
+        if (value.signum() <= 0 || pct <= 0) {
+            return value.signum() <= 0 ? String.valueOf(value.signum()) : plain(value);
+        }
+        return String.valueOf((long) Math.floor(Math.log(value.doubleValue()) / Math.log1p(pct / 100.0D)));
+    }
+
+    private static String signedLogBucket(BigDecimal value, double pct) {
+        if (value == null) {
+            return "n";
+        }
+        return (value.signum() < 0 ? "-" : "+") + logBucket(value.abs(), pct);
+    }
+
+    private static String linearBucket(BigDecimal value, double step) {
+        if (value == null) {
+            return "n";
+        }
+        if (step <= 0) {
+            return plain(value);
+        }
+        return String.valueOf((long) Math.floor(value.doubleValue() / step));
+    }
+
+    private static String plain(BigDecimal value) {
+        return value == null ? "n" : value.stripTrailingZeros().toPlainString();
+    }
+
+    private static TradePlan copyOf(TradePlan plan, boolean cached) {
+        List<TradeInstruction> instructions = new ArrayList<>();
+        if (plan.getInstructions() != null) {
+            for (TradeInstruction instruction : plan.getInstructions()) {
+                instructions.add(TradeInstruction.builder()
+                        .action(instruction.getAction())
+                        .symbol(instruction.getSymbol())
+                        .quantity(instruction.getQuantity())
+                        .rationale(instruction.getRationale())
+                        .meta(instruction.getMeta() != null ? new HashMap<>(instruction.getMeta()) : null)
+                        .build());
+            }
+        }
+        return TradePlan.builder()
+                .rationale(plan.getRationale())
+                .instructions(instructions)
+                .cached(cached)
+                .build();
+    }
+
+    private static final class Entry {
+        private final String fingerprint;
+        private final TradePlan plan;
+        private final long createdAtMs;
+
+        private Entry(String fingerprint, TradePlan plan, long createdAtMs) {
+            this.fingerprint = fingerprint;
+            this.plan = plan;
+            this.createdAtMs = createdAtMs;
+        }
+    }
+}
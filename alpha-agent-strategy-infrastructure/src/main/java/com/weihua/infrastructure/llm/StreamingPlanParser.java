@@ -0,0 +1,219 @@
+package com.weihua.infrastructure.llm;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.weihua.strategy.domain.model.entity.TradeInstruction;
+import com.weihua.strategy.domain.model.entity.TradePlan;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 交易计划的增量 JSON 解析器
+ *
+ * 随 LLM 流式输出逐段喂入文本，只扫描新到达的字符：从第一个 '{' 开始跟踪根对象的顶层字段，
+ * instructions 数组中的每个指令对象闭合时立即反序列化，rationale 字符串闭合时立即取值。
+ * 根对象闭合，或 instructions 数组与 rationale 都已解析完成时计划即完整，调用方可以取消后续输出。
+ *
+ * 根对象之前的文字 (如 ```json 代码块标记) 忽略；非线程安全，一个流使用一个实例
+ */
+public class StreamingPlanParser {
+
+    private static final String FIELD_RATIONALE = "rationale";
+    private static final String FIELD_INSTRUCTIONS = "instructions";
+
+    /** 根对象中顶层字段的解析状态 */
+    private enum State {
+        KEY, COLON, VALUE, IN_VALUE, IN_PRIMITIVE, AFTER_VALUE
+    }
+
+    private final ObjectMapper objectMapper;
+    private final StringBuilder text = new StringBuilder();
+    private int scanned;
+
+    private boolean started;
+    private int depth;
+    private boolean inString;
+    private boolean escape;
+
+    private State state = State.KEY;
+    private int keyStart = -1;
+    private String currentKey;
+    private int valueStart = -1;
+    private boolean inInstructions;
+    private int elementStart = -1;
+
+    private String rationale;
+    private boolean rationaleSeen;
+    private List<TradeInstruction> instructions;
+    private boolean instructionsClosed;
+    private boolean rootClosed;
+    private int completedAt = -1;
+
+    public StreamingPlanParser(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 追加一段输出，返回计划是否已完整
+     * @throws JsonProcessingException 指令对象或 rationale 无法反序列化
+     */
+    public boolean feed(CharSequence chunk) throws JsonProcessingException {
+        if (isComplete()) {
+            return true;
+        }
+        text.append(chunk);
+        int length = text.length();
+        while (scanned < length && !isComplete()) {
+            accept(text.charAt(scanned), scanned);
+            scanned++;
+        }
+        return isComplete();
+    }
+
+    public boolean isComplete() {
+        return completedAt >= 0;
+    }
+
+    /**
+     * instructions 数组是否已闭合 (此时指令已全部解析)
+     */
+    public boolean isInstructionsClosed() {
+        return instructionsClosed;
+    }
+
+    /**
+     * 已收到的全部文本，计划不完整时供整段解析兜底
+     */
+    public String getText() {
+        return text.toString();
+    }
+
+    /**
+     * 计划完整时根对象 (或 instructions 数组) 结束位置之后已经收到的字符数
+     */
+    public int trailingChars() {
+        return isComplete() ? text.length() - completedAt : 0;
+    }
+
+    public TradePlan toPlan() {
+        return TradePlan.builder()
+                .rationale(rationale)
+                .instructions(instructions != null ? instructions : new ArrayList<>())
+                .build();
+    }
+
+    private void accept(char c, int i) throws JsonProcessingException {
+        if (!started) {
+            if (c == '{') {
+                started = true;
+                depth = 1;
+            }
+            return;
+        }
+        if (inString) {
+            if (escape) {
+                escape = false;
+            } else if (c == '\\') {
+                escape = true;
+            } else if (c == '"') {
+                inString = false;
+                onStringEnd(i);
+            }
+            return;
+        }
+
+        switch (c) {
+            case '"' -> {
+                inString = true;
+                if (depth == 1) {
+                    if (state == State.KEY) {
+                        keyStart = i;
+                    } else if (state == State.VALUE) {
+                        valueStart = i;
+                        state = State.IN_VALUE;
+                    }
+                }
+            }
+            case '{', '[' -> {
+                if (depth == 1 && state == State.VALUE) {
+                    valueStart = i;
+                    state = State.IN_VALUE;
+                    inInstructions = c == '[' && FIELD_INSTRUCTIONS.equals(currentKey);
+                    if (inInstructions) {
+                        instructions = new ArrayList<>();
+                    }
+                } else if (inInstructions && depth == 2 && c == '{') {
+                    elementStart = i;
+                }
+                depth++;
+            }
+            case '}', ']' -> {
+                depth--;
+                if (depth == 0) {
+                    finishPrimitive(i);
+                    rootClosed = true;
+                    completedAt = i + 1;
+                } else if (depth == 1 && state == State.IN_VALUE) {
+                    onValue(text.substring(valueStart, i + 1));
+                } else if (inInstructions && depth == 2 && c == '}' && elementStart >= 0) {
+                    instructions.add(objectMapper.readValue(text.substring(elementStart, i + 1), TradeInstruction.class));
+                    elementStart = -1;
+                }
+            }
+            case ':' -> {
+                if (depth == 1 && state == State.COLON) {
+                    state = State.VALUE;
+                }
+            }
+            case ',' -> {
+                if (depth == 1) {
+                    finishPrimitive(i);
+                    state = State.KEY;
+                }
+            }
+            default -> {
+                if (depth == 1 && state == State.VALUE && !Character.isWhitespace(c)) {
+                    valueStart = i;
+                    state = State.IN_PRIMITIVE;
+                }
+            }
+        }
+    }
+
+    private void onStringEnd(int i) throws JsonProcessingException {
+        if (depth != 1) {
+            return;
+        }
+        if (state == State.KEY && keyStart >= 0) {
+            currentKey = text.substring(keyStart + 1, i);
+            keyStart = -1;
+            state = State.COLON;
+        } else if (state == State.IN_VALUE) {
+            onValue(text.substring(valueStart, i + 1));
+        }
+    }
+
+    private void finishPrimitive(int end) throws JsonProcessingException {
+        if (state == State.IN_PRIMITIVE) {
+            onValue(text.substring(valueStart, end).trim());
+        }
+    }
+
+    /**
+     * 顶层字段的值解析完成
+     */
+    private void onValue(String raw) throws JsonProcessingException {
+        state = State.AFTER_VALUE;
+        if (FIELD_RATIONALE.equals(currentKey)) {
+            rationale = objectMapper.readValue(raw, String.class);
+            rationaleSeen = true;
+        } else if (FIELD_INSTRUCTIONS.equals(currentKey)) {
+            instructionsClosed = inInstructions;
+            inInstructions = false;
+        }
+        if (instructionsClosed && rationaleSeen) {
+            completedAt = scanned + 1;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.weihua.infrastructure.llm;
+
+import com.weihua.strategy.domain.model.entity.TradeInstruction;
+import com.weihua.strategy.domain.model.entity.TradePlan;
+import com.weihua.strategy.domain.model.valobj.TradeAction;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 交易计划的输出 Schema
+ *
+ * JSON Schema 随请求下发给支持结构化输出的模型 (response_format=json_schema)；
+ * 反序列化后的 TradePlan 按同一组约束校验，不再回头扫描响应文本
+ */
+public final class TradePlanSchema {
+
+    public static final String NAME = "trade_plan";
+
+    /**
+     * 严格模式要求所有字段 required 且不允许额外字段
+     */
+    public static final String JSON_SCHEMA = """
+            {
+              "type": "object",
+              "properties": {
+                "rationale": {"type": "string"},
+                "instructions": {
+                  "type": "array",
+                  "items": {
+                    "type": "object",
+                    "properties": {
+                      "action": {"type": "string", "enum": ["BUY", "SELL", "HOLD"]},
+                      "symbol": {"type": "string"},
+                      "quantity": {"type": "number", "minimum": 0},
+                      "rationale": {"type": "string"}
+                    },
+                    "required": ["action", "symbol", "quantity", "rationale"],
+                    "additionalProperties": false
+                  }
+                }
+              },
+              "required": ["rationale", "instructions"],
+              "additionalProperties": false
+            }
+            """;
+
+    private TradePlanSchema() {
+    }
+
+    /**
+     * 校验反序列化后的计划，返回违反的约束，为空表示通过
+     */
+    public static List<String> validate(TradePlan plan) {
+        List<String> violations = new ArrayList<>();
+        if (plan == null) {
+            violations.add("plan is null");
+            return violations;
+        }
+        if (plan.getInstructions() == null) {
+            violations.add("instructions is required");
+            return violations;
+        }
+        for (int i = 0; i < plan.getInstructions().size(); i++) {
+            TradeInstruction instruction = plan.getInstructions().get(i);
+            if (instruction == null) {
+                violations.add("instructions[" + i + "] is null");
+                continue;
+            }
+            if (instruction.getAction() == null) {
+                violations.add("instructions[" + i + "].action is required");
+            }
+            if (instruction.getAction() == TradeAction.HOLD) {
+                continue;
+            }
+            if (instruction.getSymbol() == null || instruction.getSymbol().isBlank()) {
+                violations.add("instructions[" + i + "].symbol is required");
+            }
+            BigDecimal quantity = instruction.getQuantity();
+            if (quantity == null) {
+                violations.add("instructions[" + i + "].quantity is required");
+            } else if (quantity.signum() < 0) {
+                violations.add("instructions[" + i + "].quantity must not be negative");
+            }
+        }
+        return violations;
+    }
+}
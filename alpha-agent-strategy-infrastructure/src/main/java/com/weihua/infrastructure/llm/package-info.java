@@ -0,0 +1,4 @@
+/**
+ * LLM 决策缓存，以及响应的流式处理、结构化输出约束与解析，供 adapter 中的 LLM 端口使用。
+ */
+package com.weihua.infrastructure.llm;
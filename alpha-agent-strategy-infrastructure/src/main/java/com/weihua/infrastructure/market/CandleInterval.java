@@ -0,0 +1,74 @@
+package com.weihua.infrastructure.market;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * K 线周期 (如 1m / 15m / 1h / 4h / 1d / 1w)
+ *
+ * 按 UTC 对齐 K 线边界，与主流交易所一致：日线从 00:00 UTC 开始，周线从周一 00:00 UTC 开始
+ */
+public final class CandleInterval {
+
+    /** 1970-01-01 是周四，周线边界向后偏移 4 天对齐到周一 */
+    private static final long WEEK_OFFSET_MS = TimeUnit.DAYS.toMillis(4);
+
+    private final String text;
+    private final long lengthMs;
+    private final long offsetMs;
+
+    private CandleInterval(String text, long lengthMs, long offsetMs) {
+        this.text = text;
+        this.lengthMs = lengthMs;
+        this.offsetMs = offsetMs;
+    }
+
+    /**
+     * 解析周期字符串，支持 m / h / d / w 单位
+     * @throws IllegalArgumentException 格式不支持时
+     */
+    public static CandleInterval parse(String text) {
+        if (text == null || text.length() < 2) {
+            throw new IllegalArgumentException("Unsupported candle interval: " + text);
+        }
+        String value = text.trim().toLowerCase();
+        long amount;
+        try {
+            amount = Long.parseLong(value.substring(0, value.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Unsupported candle interval: " + text);
+        }
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Unsupported candle interval: " + text);
+        }
+        return switch (value.charAt(value.length() - 1)) {
+            case 'm' -> new CandleInterval(value, TimeUnit.MINUTES.toMillis(amount), 0L);
+            case 'h' -> new CandleInterval(value, TimeUnit.HOURS.toMillis(amount), 0L);
+            case 'd' -> new CandleInterval(value, TimeUnit.DAYS.toMillis(amount), 0L);
+            case 'w' -> new CandleInterval(value, TimeUnit.DAYS.toMillis(7 * amount), WEEK_OFFSET_MS);
+            default -> throw new IllegalArgumentException("Unsupported candle interval: " + text);
+        };
+    }
+
+    /**
+     * 时间戳所在 K 线的开盘时间
+     */
+    public long candleStart(long timestampMs) {
+        return Math.floorDiv(timestampMs - offsetMs, lengthMs) * lengthMs + offsetMs;
+    }
+
+    /**
+     * 时间戳之后的下一个 K 线边界 (即当前 K 线的收盘时间)
+     */
+    public long nextBoundary(long timestampMs) {
+        return candleStart(timestampMs) + lengthMs;
+    }
+
+    public long getLengthMs() {
+        return lengthMs;
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
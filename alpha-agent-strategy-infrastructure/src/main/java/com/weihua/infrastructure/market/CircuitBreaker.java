@@ -0,0 +1,177 @@
+package com.weihua.infrastructure.market;
+
+import com.weihua.types.enums.ResponseCode;
+import com.weihua.types.exception.AppException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 上游熔断器 (基于最近 windowSize 次调用的计数窗口)
+ *
+ * - CLOSED：记录每次调用结果，失败 (含超过 slowCallThresholdMs 的慢调用) 比例达到阈值时打开
+ * - OPEN：直接拒绝调用 (UPSTREAM_CIRCUIT_OPEN)，调用方立即降级，openMs 后进入半开
+ * - HALF_OPEN：只放行 halfOpenProbes 个探测调用，全部成功则关闭，任一失败重新打开
+ *
+ * 调用方在 acquire 成功后必须以 onSuccess / onFailure / onIgnored 之一结束本次调用
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    private static final String METRIC = "market.upstream.circuit";
+
+    private final String name;
+    private final int failureRatePercent;
+    private final long slowCallThresholdNanos;
+    private final int minimumCalls;
+    private final long openMs;
+    private final int halfOpenProbes;
+    private final LongSupplier clock;
+
+    /** 计数窗口：true 表示失败 */
+    private final boolean[] window;
+    private int windowHead;
+    private int windowCount;
+    private int windowFailures;
+
+    private State state = State.CLOSED;
+    private long openedAtMs;
+    private int probesInFlight;
+    private int probeSuccesses;
+
+    private final Counter rejectedCounter;
+    private final Counter openedCounter;
+
+    public CircuitBreaker(String name, int failureRatePercent, long slowCallThresholdMs, int windowSize, int minimumCalls,
+                          long openMs, int halfOpenProbes, MeterRegistry meterRegistry) {
+        this(name, failureRatePercent, slowCallThresholdMs, windowSize, minimumCalls, openMs, halfOpenProbes,
+                meterRegistry, System::currentTimeMillis);
+    }
+
+    public CircuitBreaker(String name, int failureRatePercent, long slowCallThresholdMs, int windowSize, int minimumCalls,
+                          long openMs, int halfOpenProbes, MeterRegistry meterRegistry, LongSupplier clock) {
+        this.name = name;
+        this.failureRatePercent = failureRatePercent;
+        this.slowCallThresholdNanos = slowCallThresholdMs > 0 ? TimeUnit.MILLISECONDS.toNanos(slowCallThresholdMs) : Long.MAX_VALUE;
+        this.window = new boolean[Math.max(1, windowSize)];
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, window.length));
+        this.openMs = openMs;
+        this.halfOpenProbes = Math.max(1, halfOpenProbes);
+        this.clock = clock;
+        this.rejectedCounter = Counter.builder(METRIC).tag("name", name).tag("result", "rejected")
+                .description("熔断期间被拒绝的调用").register(meterRegistry);
+        this.openedCounter = Counter.builder(METRIC).tag("name", name).tag("result", "opened")
+                .description("熔断器打开次数").register(meterRegistry);
+        Gauge.builder(METRIC + ".state", this, breaker -> breaker.getState().ordinal())
+                .tag("name", name).description("熔断器状态: 0 关闭, 1 半开, 2 打开").register(meterRegistry);
+    }
+
+    /**
+     * 申请调用许可，熔断打开或半开探测名额已满时抛出 AppException(UPSTREAM_CIRCUIT_OPEN)
+     */
+    public synchronized void acquire() {
+        if (state == State.OPEN && clock.getAsLong() - openedAtMs >= openMs) {
+            state = State.HALF_OPEN;
+            probesInFlight = 0;
+            probeSuccesses = 0;
+            log.info("Circuit {} half-open, probing upstream", name);
+        }
+        if (state == State.OPEN || (state == State.HALF_OPEN && probesInFlight >= halfOpenProbes)) {
+            rejectedCounter.increment();
+            throw new AppException(ResponseCode.UPSTREAM_CIRCUIT_OPEN.getCode(), "Circuit open: " + name);
+        }
+        if (state == State.HALF_OPEN) {
+            probesInFlight++;
+        }
+    }
+
+    /**
+     * 调用成功，耗时超过慢调用阈值时按失败记录
+     */
+    public synchronized void onSuccess(long durationNanos) {
+        if (durationNanos >= slowCallThresholdNanos) {
+            recordFailure();
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            probesInFlight--;
+            if (++probeSuccesses >= halfOpenProbes) {
+                state = State.CLOSED;
+                resetWindow();
+                log.info("Circuit {} closed", name);
+            }
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void onFailure() {
+        recordFailure();
+    }
+
+    /**
+     * 调用被主动取消 (如对冲请求中的落后者)，不计入结果
+     */
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN) {
+            probesInFlight--;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void recordFailure() {
+        if (state == State.HALF_OPEN) {
+            open("probe failed");
+            return;
+        }
+        record(true);
+    }
+
+    private void record(boolean failure) {
+        if (state != State.CLOSED) {
+            return;
+        }
+        if (windowCount == window.length) {
+            if (window[windowHead]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowHead] = failure;
+        if (failure) {
+            windowFailures++;
+        }
+        windowHead = (windowHead + 1) % window.length;
+
+        if (windowCount >= minimumCalls && windowFailures * 100 >= failureRatePercent * windowCount) {
+            open("failure rate " + windowFailures + "/" + windowCount);
+        }
+    }
+
+    private void open(String reason) {
+        state = State.OPEN;
+        openedAtMs = clock.getAsLong();
+        probesInFlight = 0;
+        resetWindow();
+        openedCounter.increment();
+        log.warn("Circuit {} opened for {}ms: {}", name, openMs, reason);
+    }
+
+    private void resetWindow() {
+        windowHead = 0;
+        windowCount = 0;
+        windowFailures = 0;
+    }
+}
@@ -0,0 +1,107 @@
+package com.weihua.infrastructure.market;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 技术指标缓存，按 (symbol, period, interval) 缓存上游计算结果
+ *
+ * @param <V> 指标类型，缓存的实例会被所有请求共享，调用方不应修改
+ *
+ * 指标基于已收盘的 K 线计算，只在 K 线收盘后变化，因此缓存在下一个 K 线边界 (加 closeDelayMs，等待行情源落盘) 失效：
+ * - CANDLE_CLOSE：只在 K 线边界失效，日线指标一天只计算一次
+ * - INTRABAR：另外按 intrabarRefreshMs 定期失效，让最后一根未收盘 K 线的变化也能反映到指标中
+ */
+@Slf4j
+public class IndicatorCache<V> {
+
+    public enum RefreshPolicy {
+        CANDLE_CLOSE, INTRABAR
+    }
+
+    private static final String METRIC = "market.indicator.cache";
+
+    private final Cache<String, CachedIndicators<V>> cache;
+    private final RefreshPolicy policy;
+    private final long intrabarRefreshMs;
+    private final long closeDelayMs;
+    private final LongSupplier clock;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    public IndicatorCache(RefreshPolicy policy, long intrabarRefreshMs, long closeDelayMs, long maxSize,
+                          MeterRegistry meterRegistry) {
+        this(policy, intrabarRefreshMs, closeDelayMs, maxSize, meterRegistry, System::currentTimeMillis);
+    }
+
+    public IndicatorCache(RefreshPolicy policy, long intrabarRefreshMs, long closeDelayMs, long maxSize,
+                          MeterRegistry meterRegistry, LongSupplier clock) {
+        this.policy = policy;
+        this.intrabarRefreshMs = intrabarRefreshMs;
+        this.closeDelayMs = Math.max(0L, closeDelayMs);
+        this.clock = clock;
+        this.cache = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+        this.hitCounter = Counter.builder(METRIC).tag("result", "hit")
+                .description("命中缓存的指标请求").register(meterRegistry);
+        this.missCounter = Counter.builder(METRIC).tag("result", "miss")
+                .description("请求上游计算的指标请求").register(meterRegistry);
+    }
+
+    /**
+     * 获取指标，缓存失效时调用 loader 并写入缓存；loader 抛出的异常直接抛给调用方，不写入缓存
+     */
+    public V get(String symbol, String period, CandleInterval interval, Supplier<V> loader) {
+        String key = symbol + "|" + period + "|" + interval;
+        long now = clock.getAsLong();
+        CachedIndicators<V> cached = cache.getIfPresent(key);
+        if (cached != null && now < cached.expiresAtMs) {
+            hitCounter.increment();
+            return cached.value;
+        }
+
+        missCounter.increment();
+        V value = loader.get();
+        long fetchedAtMs = clock.getAsLong();
+        long expiresAtMs = expiresAt(interval, fetchedAtMs);
+        cache.put(key, new CachedIndicators<>(value, expiresAtMs));
+        log.debug("Indicators cached: key={}, expiresIn={}ms", key, expiresAtMs - fetchedAtMs);
+        return value;
+    }
+
+    /**
+     * 失效时间：下一个 K 线边界 + closeDelayMs；
+     * 在边界后的 closeDelayMs 内请求到的结果可能尚未包含刚收盘的 K 线，只缓存到延迟结束
+     */
+    public long expiresAt(CandleInterval interval, long fetchedAtMs) {
+        long expiresAtMs = interval.nextBoundary(fetchedAtMs - closeDelayMs) + closeDelayMs;
+        if (policy == RefreshPolicy.INTRABAR && intrabarRefreshMs > 0) {
+            expiresAtMs = Math.min(expiresAtMs, fetchedAtMs + intrabarRefreshMs);
+        }
+        return expiresAtMs;
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    private static class CachedIndicators<V> {
+        private final V value;
+        private final long expiresAtMs;
+
+        private CachedIndicators(V value, long expiresAtMs) {
+            this.value = value;
+            this.expiresAtMs = expiresAtMs;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.weihua.infrastructure.market;
+
+import com.weihua.strategy.domain.model.entity.MarketSnapshotEntity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * 推送行情的最新价格表 (按交易对)
+ *
+ * 每个交易对一个槽位，槽位创建后只做 volatile 写入不可变的报价，读写都不加锁，所有策略的读取都是 O(1) 的内存访问。
+ * 超过 maxAgeMs 未更新 (推送中断或该交易对没有成交) 的报价视为缺失，由调用方回退到轮询。
+ *
+ * 返回的快照每次新建，调用方可以修改 (如写入技术指标)。
+ */
+public class LastPriceTable {
+
+    private static final String METRIC = "market.stream.read";
+
+    private final Map<String, Slot> slots = new ConcurrentHashMap<>();
+    private final long maxAgeMs;
+    private final LongSupplier clock;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    public LastPriceTable(long maxAgeMs, MeterRegistry meterRegistry) {
+        this(maxAgeMs, meterRegistry, System::currentTimeMillis);
+    }
+
+    public LastPriceTable(long maxAgeMs, MeterRegistry meterRegistry, LongSupplier clock) {
+        this.maxAgeMs = maxAgeMs;
+        this.clock = clock;
+        this.hitCounter = Counter.builder(METRIC).tag("result", "hit")
+                .description("从推送价格表读到的报价").register(meterRegistry);
+        this.missCounter = Counter.builder(METRIC).tag("result", "miss")
+                .description("推送价格表中缺失或过旧、需回退轮询的报价").register(meterRegistry);
+        Gauge.builder("market.stream.symbols", slots, Map::size)
+                .description("推送价格表中的交易对数").register(meterRegistry);
+    }
+
+    /**
+     * 写入推送的最新价格
+     */
+    public void update(String symbol, BigDecimal price, LocalDateTime timestamp) {
+        Slot slot = slots.get(symbol);
+        if (slot == null) {
+            slot = slots.computeIfAbsent(symbol, key -> new Slot());
+        }
+        slot.quote = new Quote(price, timestamp, clock.getAsLong());
+    }
+
+    /**
+     * 读取最新价格，缺失或超过 maxAgeMs 时返回 null
+     */
+    public MarketSnapshotEntity get(String symbol) {
+        Slot slot = slots.get(symbol);
+        Quote quote = slot == null ? null : slot.quote;
+        if (quote == null || clock.getAsLong() - quote.receivedAtMs > maxAgeMs) {
+            missCounter.increment();
+            return null;
+        }
+        hitCounter.increment();
+        return MarketSnapshotEntity.builder()
+                .symbol(symbol)
+                .price(quote.price)
+                .timestamp(quote.timestamp)
+                .build();
+    }
+
+    /**
+     * 批量读取，只返回有效的交易对
+     */
+    public Map<String, MarketSnapshotEntity> getAll(Collection<String> symbols) {
+        Map<String, MarketSnapshotEntity> result = new HashMap<>();
+        for (String symbol : symbols) {
+            MarketSnapshotEntity snapshot = get(symbol);
+            if (snapshot != null) {
+                result.put(symbol, snapshot);
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return slots.size();
+    }
+
+    private static final class Slot {
+        private volatile Quote quote;
+    }
+
+    private static final class Quote {
+        private final BigDecimal price;
+        private final LocalDateTime timestamp;
+        private final long receivedAtMs;
+
+        private Quote(BigDecimal price, LocalDateTime timestamp, long receivedAtMs) {
+            this.price = price;
+            this.timestamp = timestamp;
+            this.receivedAtMs = receivedAtMs;
+        }
+    }
+}
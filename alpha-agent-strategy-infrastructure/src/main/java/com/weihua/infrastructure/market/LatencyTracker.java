@@ -0,0 +1,48 @@
+package com.weihua.infrastructure.market;
+
+import java.util.Arrays;
+
+/**
+ * 最近 N 次调用耗时的分位数，用作对冲请求的触发延迟
+ *
+ * 每累计 RECOMPUTE_EVERY 个样本重新排序计算一次分位数，读取无锁
+ */
+public class LatencyTracker {
+
+    private static final int RECOMPUTE_EVERY = 16;
+
+    private final long[] samples;
+    private final double quantile;
+    private final int minimumSamples;
+    private int head;
+    private int count;
+    private int sinceRecompute;
+    private volatile long quantileMs = -1L;
+
+    public LatencyTracker(int size, double quantile, int minimumSamples) {
+        this.samples = new long[Math.max(1, size)];
+        this.quantile = quantile;
+        this.minimumSamples = Math.max(1, Math.min(minimumSamples, samples.length));
+    }
+
+    public synchronized void record(long durationMs) {
+        samples[head] = durationMs;
+        head = (head + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+        if (count >= minimumSamples && (++sinceRecompute >= RECOMPUTE_EVERY || quantileMs < 0)) {
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            quantileMs = sorted[(int) Math.min(count - 1, Math.ceil(quantile * count) - 1)];
+            sinceRecompute = 0;
+        }
+    }
+
+    /**
+     * 当前分位数 (毫秒)，样本不足时返回 -1
+     */
+    public long quantileMs() {
+        return quantileMs;
+    }
+}
@@ -0,0 +1,259 @@
+package com.weihua.infrastructure.market;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.weihua.strategy.domain.model.entity.MarketSnapshotEntity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * 跨策略共享的报价缓存 (按交易对)
+ *
+ * 新鲜期内直接命中；超过新鲜期但未超过最大陈旧时长时先返回旧值，并在后台批量刷新
+ * (同一交易对同时只有一个刷新)；超过最大陈旧时长或从未请求过的交易对同步请求上游。
+ * 上游请求数因此随不同交易对的数量增长，而不是随策略数量增长。
+ *
+ * 缓存中的快照与返回给调用方的快照互不共享，调用方可以修改 (如写入技术指标)。
+ *
+ * 超过最大陈旧时长的报价在 lastKnownGoodMs 内继续保留，只在上游不可用 (熔断或请求失败) 时
+ * 作为最后已知值返回，并标记 stale。
+ */
+@Slf4j
+public class QuoteCache {
+
+    private static final String METRIC_CACHE = "market.quote.cache";
+    private static final String METRIC_REFRESH = "market.quote.refresh";
+
+    private final Cache<String, CachedQuote> cache;
+    private final long freshTtlMs;
+    private final long maxStaleMs;
+    private final long lastKnownGoodMs;
+    private final Function<List<String>, Map<String, MarketSnapshotEntity>> refresher;
+    private final Executor refreshExecutor;
+    private final LongSupplier clock;
+
+    /** 正在后台刷新的交易对 */
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    private final Counter hitCounter;
+    private final Counter staleCounter;
+    private final Counter missCounter;
+    private final Counter refreshSuccessCounter;
+    private final Counter refreshFailureCounter;
+    private final Counter prefetchCounter;
+    private final Counter lastKnownGoodCounter;
+
+    public QuoteCache(long freshTtlMs, long maxStaleMs, long lastKnownGoodMs, long maxSize,
+                      Function<List<String>, Map<String, MarketSnapshotEntity>> refresher,
+                      Executor refreshExecutor, MeterRegistry meterRegistry) {
+        this(freshTtlMs, maxStaleMs, lastKnownGoodMs, maxSize, refresher, refreshExecutor, meterRegistry, System::currentTimeMillis);
+    }
+
+    public QuoteCache(long freshTtlMs, long maxStaleMs, long lastKnownGoodMs, long maxSize,
+                      Function<List<String>, Map<String, MarketSnapshotEntity>> refresher,
+                      Executor refreshExecutor, MeterRegistry meterRegistry, LongSupplier clock) {
+        this.freshTtlMs = freshTtlMs;
+        this.maxStaleMs = Math.max(freshTtlMs, maxStaleMs);
+        this.lastKnownGoodMs = Math.max(this.maxStaleMs, lastKnownGoodMs);
+        this.refresher = refresher;
+        this.refreshExecutor = refreshExecutor;
+        this.clock = clock;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                // 超过最后已知值保留时长的报价直接淘汰
+                .expireAfterWrite(this.lastKnownGoodMs, TimeUnit.MILLISECONDS)
+                .ticker(new Ticker() {
+                    @Override
+                    public long read() {
+                        return TimeUnit.MILLISECONDS.toNanos(clock.getAsLong());
+                    }
+                })
+                .build();
+
+        this.hitCounter = Counter.builder(METRIC_CACHE).tag("result", "hit")
+                .description("新鲜期内命中的报价").register(meterRegistry);
+        this.staleCounter = Counter.builder(METRIC_CACHE).tag("result", "stale")
+                .description("返回旧值并后台刷新的报价").register(meterRegistry);
+        this.missCounter = Counter.builder(METRIC_CACHE).tag("result", "miss")
+                .description("同步请求上游的报价").register(meterRegistry);
+        this.refreshSuccessCounter = Counter.builder(METRIC_REFRESH).tag("result", "success")
+                .description("后台刷新报价的批次").register(meterRegistry);
+        this.refreshFailureCounter = Counter.builder(METRIC_REFRESH).tag("result", "failure")
+                .description("后台刷新失败的批次").register(meterRegistry);
+        this.prefetchCounter = Counter.builder("market.quote.prefetch")
+                .description("调度 tick 预取的报价").register(meterRegistry);
+        this.lastKnownGoodCounter = Counter.builder(METRIC_CACHE).tag("result", "last_known_good")
+                .description("上游不可用时返回的最后已知报价").register(meterRegistry);
+        Gauge.builder("market.quote.cache.size", cache, Cache::size)
+                .description("缓存的交易对数").register(meterRegistry);
+    }
+
+    /**
+     * 获取一组交易对的报价
+     * @param loader 同步请求缺失交易对的上游调用，异常直接抛给调用方
+     * @return 有报价的交易对，上游没有返回的交易对不包含在内
+     */
+    public Map<String, MarketSnapshotEntity> get(List<String> symbols,
+                                                 Function<List<String>, Map<String, MarketSnapshotEntity>> loader) {
+        long now = clock.getAsLong();
+        Map<String, MarketSnapshotEntity> result = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        List<String> stale = new ArrayList<>();
+
+        for (String symbol : symbols) {
+            if (result.containsKey(symbol) || missing.contains(symbol)) {
+                continue;
+            }
+            CachedQuote quote = cache.getIfPresent(symbol);
+            long age = quote != null ? now - quote.fetchedAtMs : Long.MAX_VALUE;
+            if (age >= maxStaleMs) {
+                missing.add(symbol);
+                missCounter.increment();
+                continue;
+            }
+            result.put(symbol, copy(quote.snapshot));
+            if (age >= freshTtlMs) {
+                stale.add(symbol);
+                staleCounter.increment();
+            } else {
+                hitCounter.increment();
+            }
+        }
+
+        if (!stale.isEmpty()) {
+            refreshAsync(stale);
+        }
+        if (!missing.isEmpty()) {
+            Map<String, MarketSnapshotEntity> loaded = loader.apply(missing);
+            put(loaded);
+            loaded.forEach((symbol, snapshot) -> result.put(symbol, copy(snapshot)));
+        }
+        return result;
+    }
+
+    /**
+     * 筛出不在新鲜期内的交易对 (缺失、陈旧或过期)
+     */
+    public List<String> notFresh(Collection<String> symbols) {
+        long now = clock.getAsLong();
+        List<String> result = new ArrayList<>();
+        for (String symbol : symbols) {
+            CachedQuote quote = cache.getIfPresent(symbol);
+            if (quote == null || now - quote.fetchedAtMs >= freshTtlMs) {
+                result.add(symbol);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 预取：直接请求上游并写入缓存，不经过新鲜度判断
+     * @return 写入缓存的交易对数
+     */
+    public int prefetch(List<String> symbols, Function<List<String>, Map<String, MarketSnapshotEntity>> loader) {
+        Map<String, MarketSnapshotEntity> loaded = loader.apply(symbols);
+        put(loaded);
+        prefetchCounter.increment(loaded.size());
+        return loaded.size();
+    }
+
+    /**
+     * 上游不可用时的降级：返回保留期内的最后已知报价，超过最大陈旧时长的标记 stale；
+     * 保留期外或从未请求过的交易对不包含在内
+     */
+    public Map<String, MarketSnapshotEntity> lastKnownGood(Collection<String> symbols) {
+        long now = clock.getAsLong();
+        Map<String, MarketSnapshotEntity> result = new HashMap<>();
+        for (String symbol : symbols) {
+            CachedQuote quote = cache.getIfPresent(symbol);
+            if (quote == null || result.containsKey(symbol)) {
+                continue;
+            }
+            MarketSnapshotEntity snapshot = copy(quote.snapshot);
+            snapshot.setStale(now - quote.fetchedAtMs >= maxStaleMs);
+            result.put(symbol, snapshot);
+            lastKnownGoodCounter.increment();
+        }
+        return result;
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    private void refreshAsync(List<String> stale) {
+        List<String> batch = new ArrayList<>(stale.size());
+        for (String symbol : stale) {
+            if (refreshing.add(symbol)) {
+                batch.add(symbol);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    put(refresher.apply(batch));
+                    refreshSuccessCounter.increment();
+                } catch (Exception e) {
+                    // 刷新失败时继续返回旧值，直到超过最大陈旧时长
+                    refreshFailureCounter.increment();
+                    log.warn("Quote refresh failed for {}: {}", batch, e.getMessage());
+                } finally {
+                    batch.forEach(refreshing::remove);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            batch.forEach(refreshing::remove);
+            log.warn("Quote refresh rejected for {}", batch);
+        }
+    }
+
+    private void put(Map<String, MarketSnapshotEntity> snapshots) {
+        long fetchedAtMs = clock.getAsLong();
+        snapshots.forEach((symbol, snapshot) -> {
+            if (snapshot != null && snapshot.getPrice() != null) {
+                cache.put(symbol, new CachedQuote(copy(snapshot), fetchedAtMs));
+            }
+        });
+    }
+
+    private static MarketSnapshotEntity copy(MarketSnapshotEntity snapshot) {
+        return MarketSnapshotEntity.builder()
+                .symbol(snapshot.getSymbol())
+                .price(snapshot.getPrice())
+                .rsi(snapshot.getRsi())
+                .fundingRate(snapshot.getFundingRate())
+                .indicators(snapshot.getIndicators())
+                .stale(snapshot.isStale())
+                .timestamp(snapshot.getTimestamp())
+                .build();
+    }
+
+    private static class CachedQuote {
+        private final MarketSnapshotEntity snapshot;
+        private final long fetchedAtMs;
+
+        private CachedQuote(MarketSnapshotEntity snapshot, long fetchedAtMs) {
+            this.snapshot = snapshot;
+            this.fetchedAtMs = fetchedAtMs;
+        }
+    }
+}
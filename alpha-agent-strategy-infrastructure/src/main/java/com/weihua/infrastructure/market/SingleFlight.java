@@ -0,0 +1,141 @@
+package com.weihua.infrastructure.market;
+
+import com.weihua.strategy.domain.model.valobj.CycleDeadline;
+import com.weihua.types.enums.ResponseCode;
+import com.weihua.types.exception.AppException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 上游请求合并 (single-flight)
+ *
+ * 同一个 key 同时只有一个上游请求：第一个调用方发起请求，其余并发调用方等待同一个 Future。
+ * 请求结束即移除，不缓存结果；缓存由 QuoteCache 负责，这里只消除冷缓存时的并发重复请求。
+ * 等待方按自己的截止时间等待，超时抛出 CYCLE_DEADLINE_EXCEEDED，发起方的请求不受影响。
+ */
+public class SingleFlight<K, V> {
+
+    private static final String METRIC = "market.upstream.flight";
+
+    private final String endpoint;
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter executedCounter;
+    private final Counter collapsedCounter;
+
+    public SingleFlight(String endpoint, MeterRegistry meterRegistry) {
+        this.endpoint = endpoint;
+        this.executedCounter = Counter.builder(METRIC).tag("endpoint", endpoint).tag("result", "executed")
+                .description("实际发往上游的请求 key 数").register(meterRegistry);
+        this.collapsedCounter = Counter.builder(METRIC).tag("endpoint", endpoint).tag("result", "collapsed")
+                .description("合并到进行中请求的 key 数").register(meterRegistry);
+    }
+
+    /**
+     * 单个 key 的请求合并
+     */
+    public V execute(K key, Supplier<V> call, CycleDeadline deadline) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            collapsedCounter.increment();
+            return await(existing, deadline);
+        }
+
+        executedCounter.increment();
+        try {
+            V value = call.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * 批量请求合并：没有进行中请求的 key 合并为一次批量调用，其余 key 等待各自进行中的请求
+     * @return 有结果的 key，批量调用没有返回的 key 不包含在内
+     */
+    public Map<K, V> executeAll(Collection<K> keys, Function<List<K>, Map<K, V>> batchCall, CycleDeadline deadline) {
+        Map<K, CompletableFuture<V>> owned = new LinkedHashMap<>();
+        Map<K, CompletableFuture<V>> joined = new HashMap<>();
+        for (K key : keys) {
+            if (owned.containsKey(key) || joined.containsKey(key)) {
+                continue;
+            }
+            CompletableFuture<V> flight = new CompletableFuture<>();
+            CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+            if (existing != null) {
+                joined.put(key, existing);
+            } else {
+                owned.put(key, flight);
+            }
+        }
+
+        Map<K, V> result = new HashMap<>();
+        if (!owned.isEmpty()) {
+            executedCounter.increment(owned.size());
+            try {
+                Map<K, V> values = batchCall.apply(new ArrayList<>(owned.keySet()));
+                owned.forEach((key, flight) -> flight.complete(values.get(key)));
+                result.putAll(values);
+            } catch (RuntimeException e) {
+                owned.values().forEach(flight -> flight.completeExceptionally(e));
+                throw e;
+            } finally {
+                owned.forEach(inFlight::remove);
+            }
+        }
+
+        if (!joined.isEmpty()) {
+            collapsedCounter.increment(joined.size());
+            joined.forEach((key, flight) -> {
+                V value = await(flight, deadline);
+                if (value != null) {
+                    result.put(key, value);
+                }
+            });
+        }
+        return result;
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    private V await(CompletableFuture<V> flight, CycleDeadline deadline) {
+        try {
+            return deadline.isUnbounded()
+                    ? flight.get()
+                    : flight.get(Math.max(1L, deadline.remainingMillis()), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new AppException(ResponseCode.CYCLE_DEADLINE_EXCEEDED.getCode(),
+                    "Cycle deadline exceeded while waiting for in-flight " + endpoint + " request");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new CompletionException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.weihua.infrastructure.market.indicator;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * K 线 (指标计算使用 double，只在输出时转换为 BigDecimal)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Candle {
+    /** 开盘时间 (epoch 毫秒，按 CandleInterval 对齐) */
+    private long openTimeMs;
+    private double open;
+    private double high;
+    private double low;
+    private double close;
+    private double volume;
+}
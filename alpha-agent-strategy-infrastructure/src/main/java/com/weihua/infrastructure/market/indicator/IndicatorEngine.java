@@ -0,0 +1,150 @@
+package com.weihua.infrastructure.market.indicator;
+
+import com.weihua.infrastructure.market.CandleInterval;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进程内增量指标引擎
+ *
+ * 每个交易对维护一份 IndicatorSeries 和一根未收盘 K 线：
+ * 1. 引导：用 Stock MCP 返回的历史 K 线重建状态 (bootstrap)，这是唯一需要请求上游的步骤
+ * 2. 报价：onTick 更新未收盘 K 线的高低收，O(1)；snapshot 按"未收盘 K 线此刻收盘"计算指标
+ * 3. 收盘：报价跨过 K 线边界时把旧 K 线并入状态；由于报价采样得到的高低点只是近似，
+ *    同时标记需要重新引导，下一次取指标时用上游的准确 K 线校正；报价中断超过一根 K 线同样重新引导
+ */
+@Slf4j
+public class IndicatorEngine {
+
+    private final CandleInterval interval;
+    private final Map<String, SymbolState> states = new ConcurrentHashMap<>();
+    private final Counter bootstrapCounter;
+    private final Counter rolloverCounter;
+
+    public IndicatorEngine(CandleInterval interval, MeterRegistry meterRegistry) {
+        this.interval = interval;
+        this.bootstrapCounter = Counter.builder("market.indicator.engine.bootstrap")
+                .description("用历史 K 线重建指标状态的次数").register(meterRegistry);
+        this.rolloverCounter = Counter.builder("market.indicator.engine.rollover")
+                .description("报价跨过 K 线边界的次数").register(meterRegistry);
+        Gauge.builder("market.indicator.engine.symbols", states, Map::size)
+                .description("引擎维护的交易对数").register(meterRegistry);
+    }
+
+    /**
+     * 用历史 K 线 (按开盘时间升序) 重建交易对的状态；与当前时间同一周期的最后一根作为未收盘 K 线
+     */
+    public void bootstrap(String symbol, List<Candle> history, long nowMs) {
+        IndicatorSeries series = new IndicatorSeries();
+        long currentStart = interval.candleStart(nowMs);
+        Candle forming = null;
+        for (Candle candle : history) {
+            long openTime = interval.candleStart(candle.getOpenTimeMs());
+            if (openTime >= currentStart) {
+                forming = copy(candle, openTime);
+                break;
+            }
+            series.commit(candle);
+        }
+        states.put(symbol, new SymbolState(series, forming));
+        bootstrapCounter.increment();
+        log.debug("Indicator state bootstrapped: symbol={}, interval={}, candles={}", symbol, interval, series.count());
+    }
+
+    /**
+     * 更新未收盘 K 线
+     * @return 交易对未被引擎跟踪时返回 false
+     */
+    public boolean onTick(String symbol, double price, long timestampMs) {
+        SymbolState state = states.get(symbol);
+        if (state == null) {
+            return false;
+        }
+        synchronized (state) {
+            long openTime = interval.candleStart(timestampMs);
+            Candle forming = state.forming;
+            if (forming == null) {
+                state.forming = new Candle(openTime, price, price, price, price, 0.0D);
+                state.resync = state.resync || state.series.count() == 0
+                        || state.lastCommittedOpenTime() + interval.getLengthMs() < openTime;
+                return true;
+            }
+            if (openTime < forming.getOpenTimeMs()) {
+                // 迟到的报价
+                return true;
+            }
+            if (openTime == forming.getOpenTimeMs()) {
+                forming.setHigh(Math.max(forming.getHigh(), price));
+                forming.setLow(Math.min(forming.getLow(), price));
+                forming.setClose(price);
+                return true;
+            }
+            state.series.commit(forming);
+            state.lastCommittedOpenTime = forming.getOpenTimeMs();
+            state.forming = new Candle(openTime, price, price, price, price, 0.0D);
+            state.resync = true;
+            rolloverCounter.increment();
+            return true;
+        }
+    }
+
+    /**
+     * 当前指标值 (含未收盘 K 线)；交易对未被跟踪或没有任何 K 线时返回 null
+     */
+    public IndicatorValues snapshot(String symbol) {
+        SymbolState state = states.get(symbol);
+        if (state == null) {
+            return null;
+        }
+        synchronized (state) {
+            if (state.forming != null) {
+                return state.series.evaluate(copy(state.forming, state.forming.getOpenTimeMs()));
+            }
+            return state.series.last();
+        }
+    }
+
+    /**
+     * 交易对未被跟踪，或 K 线已滚动 / 报价中断需要用上游 K 线校正
+     */
+    public boolean needsBootstrap(String symbol) {
+        SymbolState state = states.get(symbol);
+        return state == null || state.resync;
+    }
+
+    public boolean isTracked(String symbol) {
+        return states.containsKey(symbol);
+    }
+
+    public CandleInterval getInterval() {
+        return interval;
+    }
+
+    private static Candle copy(Candle candle, long openTime) {
+        return new Candle(openTime, candle.getOpen(), candle.getHigh(), candle.getLow(), candle.getClose(), candle.getVolume());
+    }
+
+    private static class SymbolState {
+        private final IndicatorSeries series;
+        private Candle forming;
+        private long lastCommittedOpenTime;
+        private boolean resync;
+
+        private SymbolState(IndicatorSeries series, Candle forming) {
+            this.series = series;
+            this.forming = forming;
+            IndicatorValues last = series.last();
+            this.lastCommittedOpenTime = last != null ? last.getCandle().getOpenTimeMs() : Long.MIN_VALUE / 2;
+        }
+
+        private long lastCommittedOpenTime() {
+            return lastCommittedOpenTime;
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.weihua.infrastructure.market.indicator;
+
+/**
+ * 单个交易对、单个 K 线周期的指标滚动状态
+ *
+ * commit 把一根已收盘的 K 线并入状态，evaluate 计算"假设该 K 线此刻收盘"的指标值而不修改状态，
+ * 因此未收盘 K 线的每个报价都可以 O(1) 重新计算，收盘时再 commit。
+ *
+ * 约定与 TA-Lib 一致：EMA / Wilder 平滑用前 n 个值的简单平均作为种子，布林带使用总体标准差
+ */
+public class IndicatorSeries {
+
+    private final RollingWindow closes20 = new RollingWindow(20);
+    private final RollingWindow closes50 = new RollingWindow(50);
+    private final RollingWindow closes200 = new RollingWindow(200);
+    private final RollingWindow highs9 = new RollingWindow(9);
+    private final RollingWindow lows9 = new RollingWindow(9);
+
+    private final Smoother ema12 = Smoother.ema(12);
+    private final Smoother ema26 = Smoother.ema(26);
+    private final Smoother macdSignal = Smoother.ema(9);
+    private final Smoother avgGain = Smoother.wilder(14);
+    private final Smoother avgLoss = Smoother.wilder(14);
+    private final Smoother atr = Smoother.wilder(14);
+
+    private double kdjK = 50.0D;
+    private double kdjD = 50.0D;
+    private boolean kdjStarted = false;
+
+    private Double prevClose;
+    private long count;
+    private IndicatorValues last;
+
+    /**
+     * 并入一根已收盘的 K 线
+     */
+    public IndicatorValues commit(Candle candle) {
+        IndicatorValues values = evaluate(candle);
+        double close = candle.getClose();
+
+        closes20.add(close);
+        closes50.add(close);
+        closes200.add(close);
+        highs9.add(candle.getHigh());
+        lows9.add(candle.getLow());
+
+        Double e12 = ema12.update(close);
+        Double e26 = ema26.update(close);
+        if (e12 != null && e26 != null) {
+            macdSignal.update(e12 - e26);
+        }
+        if (prevClose != null) {
+            double change = close - prevClose;
+            avgGain.update(Math.max(change, 0.0D));
+            avgLoss.update(Math.max(-change, 0.0D));
+            atr.update(trueRange(candle, prevClose));
+        }
+        if (values.getKdjK() != null) {
+            kdjK = values.getKdjK();
+            kdjD = values.getKdjD();
+            kdjStarted = true;
+        }
+
+        prevClose = close;
+        count++;
+        last = values;
+        return values;
+    }
+
+    /**
+     * 计算假设 candle 收盘时的指标值，不修改状态
+     */
+    public IndicatorValues evaluate(Candle candle) {
+        double close = candle.getClose();
+
+        Double sma20 = closes20.peekMean(close);
+        Double e12 = ema12.peek(close);
+        Double e26 = ema26.peek(close);
+        Double macd = e12 != null && e26 != null ? e12 - e26 : null;
+        Double signal = macd != null ? macdSignal.peek(macd) : null;
+
+        Double rsi = null;
+        Double atrValue = null;
+        if (prevClose != null) {
+            double change = close - prevClose;
+            Double gain = avgGain.peek(Math.max(change, 0.0D));
+            Double loss = avgLoss.peek(Math.max(-change, 0.0D));
+            if (gain != null && loss != null) {
+                rsi = loss == 0.0D ? 100.0D : 100.0D - 100.0D / (1.0D + gain / loss);
+            }
+            atrValue = atr.peek(trueRange(candle, prevClose));
+        }
+
+        Double bollUpper = null;
+        Double bollLower = null;
+        if (sma20 != null) {
+            double width = 2.0D * closes20.peekStdDev(close);
+            bollUpper = sma20 + width;
+            bollLower = sma20 - width;
+        }
+
+        Double k = null;
+        Double d = null;
+        Double highest = highs9.peekMax(candle.getHigh());
+        Double lowest = lows9.peekMin(candle.getLow());
+        if (highest != null && lowest != null) {
+            double rsv = highest > lowest ? (close - lowest) / (highest - lowest) * 100.0D : 50.0D;
+            double prevK = kdjStarted ? kdjK : 50.0D;
+            double prevD = kdjStarted ? kdjD : 50.0D;
+            k = prevK * 2.0D / 3.0D + rsv / 3.0D;
+            d = prevD * 2.0D / 3.0D + k / 3.0D;
+        }
+
+        return IndicatorValues.builder()
+                .candle(candle)
+                .sma20(sma20)
+                .sma50(closes50.peekMean(close))
+                .sma200(closes200.peekMean(close))
+                .ema12(e12)
+                .ema26(e26)
+                .rsi(rsi)
+                .macd(macd)
+                .macdSignal(signal)
+                .macdHistogram(macd != null && signal != null ? macd - signal : null)
+                .bollingerUpper(bollUpper)
+                .bollingerMiddle(sma20)
+                .bollingerLower(bollLower)
+                .kdjK(k)
+                .kdjD(d)
+                .atr(atrValue)
+                .build();
+    }
+
+    /**
+     * 最后一次 commit 的指标值
+     */
+    public IndicatorValues last() {
+        return last;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    private static double trueRange(Candle candle, double prevClose) {
+        return Math.max(candle.getHigh() - candle.getLow(),
+                Math.max(Math.abs(candle.getHigh() - prevClose), Math.abs(candle.getLow() - prevClose)));
+    }
+
+    /**
+     * 指数平滑：EMA (alpha = 2 / (n + 1)) 或 Wilder (alpha = 1 / n)，前 n 个值的简单平均作为种子
+     */
+    static final class Smoother {
+        private final int period;
+        private final double alpha;
+        private int count;
+        private double seedSum;
+        private Double value;
+
+        private Smoother(int period, double alpha) {
+            this.period = period;
+            this.alpha = alpha;
+        }
+
+        static Smoother ema(int period) {
+            return new Smoother(period, 2.0D / (period + 1));
+        }
+
+        static Smoother wilder(int period) {
+            return new Smoother(period, 1.0D / period);
+        }
+
+        Double update(double x) {
+            value = peek(x);
+            if (count < period) {
+                seedSum += x;
+            }
+            count++;
+            return value;
+        }
+
+        Double peek(double x) {
+            if (count + 1 < period) {
+                return null;
+            }
+            if (count + 1 == period) {
+                return (seedSum + x) / period;
+            }
+            return alpha * x + (1.0D - alpha) * value;
+        }
+    }
+
+    /**
+     * 固定长度滑动窗口：维护和与平方和，均值与标准差 O(1)；最值窗口很短 (9)，直接扫描
+     */
+    static final class RollingWindow {
+        /** 每累计这么多次更新从缓冲区重算一次和，避免浮点误差累积 */
+        private static final int RESUM_INTERVAL = 4096;
+
+        private final double[] buffer;
+        private int size;
+        private int head;
+        private double sum;
+        private double sumSq;
+        private int sinceResum;
+
+        RollingWindow(int length) {
+            this.buffer = new double[length];
+        }
+
+        void add(double x) {
+            if (size == buffer.length) {
+                double oldest = buffer[head];
+                sum -= oldest;
+                sumSq -= oldest * oldest;
+            } else {
+                size++;
+            }
+            buffer[head] = x;
+            head = (head + 1) % buffer.length;
+            sum += x;
+            sumSq += x * x;
+            if (++sinceResum >= RESUM_INTERVAL) {
+                resum();
+            }
+        }
+
+        /** 加入 x 后窗口的均值，窗口未满时返回 null */
+        Double peekMean(double x) {
+            if (size + 1 < buffer.length) {
+                return null;
+            }
+            return (sum - evicted() + x) / buffer.length;
+        }
+
+        /** 加入 x 后窗口的总体标准差，调用方保证窗口已满 */
+        double peekStdDev(double x) {
+            double evicted = evicted();
+            double n = buffer.length;
+            double mean = (sum - evicted + x) / n;
+            double variance = (sumSq - evicted * evicted + x * x) / n - mean * mean;
+            return Math.sqrt(Math.max(0.0D, variance));
+        }
+
+        Double peekMax(double x) {
+            if (size + 1 < buffer.length) {
+                return null;
+            }
+            double max = x;
+            for (int i = 0; i < size; i++) {
+                if (!isOldest(i)) {
+                    max = Math.max(max, buffer[i]);
+                }
+            }
+            return max;
+        }
+
+        Double peekMin(double x) {
+            if (size + 1 < buffer.length) {
+                return null;
+            }
+            double min = x;
+            for (int i = 0; i < size; i++) {
+                if (!isOldest(i)) {
+                    min = Math.min(min, buffer[i]);
+                }
+            }
+            return min;
+        }
+
+        /** 窗口已满时加入新值会挤出的最旧值 */
+        private double evicted() {
+            return size == buffer.length ? buffer[head] : 0.0D;
+        }
+
+        private boolean isOldest(int index) {
+            return size == buffer.length && index == head;
+        }
+
+        private void resum() {
+            sum = 0.0D;
+            sumSq = 0.0D;
+            for (int i = 0; i < size; i++) {
+                sum += buffer[i];
+                sumSq += buffer[i] * buffer[i];
+            }
+            sinceResum = 0;
+        }
+    }
+}
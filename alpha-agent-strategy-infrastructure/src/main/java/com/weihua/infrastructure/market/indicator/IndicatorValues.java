@@ -0,0 +1,45 @@
+package com.weihua.infrastructure.market.indicator;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 某一时刻的指标值，字段与 Stock MCP 的 IndicatorsDTO 一一对应；历史 K 线不足时对应字段为 null
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IndicatorValues {
+    /** 计算所用最后一根 K 线 (可能尚未收盘) */
+    private Candle candle;
+
+    private Double sma20;
+    private Double sma50;
+    private Double sma200;
+
+    private Double ema12;
+    private Double ema26;
+
+    /** Wilder RSI(14) */
+    private Double rsi;
+
+    /** MACD(12, 26, 9) */
+    private Double macd;
+    private Double macdSignal;
+    private Double macdHistogram;
+
+    /** 布林带 (20, 2σ) */
+    private Double bollingerUpper;
+    private Double bollingerMiddle;
+    private Double bollingerLower;
+
+    /** KDJ (9, 3, 3) */
+    private Double kdjK;
+    private Double kdjD;
+
+    /** Wilder ATR(14) */
+    private Double atr;
+}
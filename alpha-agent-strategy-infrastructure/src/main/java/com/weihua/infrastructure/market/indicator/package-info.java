@@ -0,0 +1,4 @@
+/**
+ * 进程内增量技术指标引擎：按交易对维护滚动状态，每根 K 线或每个报价 O(1) 更新。
+ */
+package com.weihua.infrastructure.market.indicator;
\ No newline at end of file
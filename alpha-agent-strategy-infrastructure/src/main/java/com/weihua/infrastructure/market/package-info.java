@@ -0,0 +1,4 @@
+/**
+ * 行情数据的本地缓存与请求合并，供 adapter 中的行情端口使用。
+ */
+package com.weihua.infrastructure.market;
\ No newline at end of file
@@ -0,0 +1,124 @@
+package com.weihua.infrastructure.prompt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 预编译的提示词模板
+ *
+ * 编译时把模板拆成字面量片段与占位符，渲染时按片段顺序一次写入预先按总长度分配的缓冲区，不再逐个变量做整串替换。
+ * - {name}：name 在编译时声明的变量列表中才是占位符，否则按字面量保留
+ * - {{ 与 }}：转义为单个花括号，模板中的 JSON 示例可以照写
+ *
+ * 编译后不可变，可被多个线程共享
+ */
+public final class PromptTemplate {
+
+    private final String id;
+    private final String version;
+    private final List<String> variables;
+    /** 字面量片段，比占位符多一个 (首尾可以为空串) */
+    private final String[] literals;
+    /** 第 i 个占位符对应的变量下标，位于 literals[i] 与 literals[i + 1] 之间 */
+    private final int[] slots;
+    private final int literalLength;
+
+    private PromptTemplate(String id, String version, List<String> variables, String[] literals, int[] slots) {
+        this.id = id;
+        this.version = version;
+        this.variables = variables;
+        this.literals = literals;
+        this.slots = slots;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * 编译模板
+     * @param variables 占位符变量名，render 时按同样的顺序传值
+     */
+    public static PromptTemplate compile(String id, String version, String source, String... variables) {
+        List<String> names = List.of(variables);
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+
+        int i = 0;
+        int n = source.length();
+        while (i < n) {
+            char c = source.charAt(i);
+            if ((c == '{' || c == '}') && i + 1 < n && source.charAt(i + 1) == c) {
+                literal.append(c);
+                i += 2;
+                continue;
+            }
+            if (c == '{') {
+                int end = source.indexOf('}', i + 1);
+                int slot = end > 0 ? names.indexOf(source.substring(i + 1, end)) : -1;
+                if (slot >= 0) {
+                    literals.add(literal.toString());
+                    literal.setLength(0);
+                    slots.add(slot);
+                    i = end + 1;
+                    continue;
+                }
+            }
+            literal.append(c);
+            i++;
+        }
+        literals.add(literal.toString());
+
+        return new PromptTemplate(id, version, names, literals.toArray(new String[0]),
+                slots.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * 渲染模板，values 与编译时的变量一一对应，null 按空串处理
+     */
+    public String render(String... values) {
+        if (values.length != variables.size()) {
+            throw new IllegalArgumentException("Template " + id + " expects " + variables + ", got " + values.length + " values");
+        }
+        int length = literalLength;
+        for (int slot : slots) {
+            String value = values[slot];
+            length += value != null ? value.length() : 0;
+        }
+
+        StringBuilder sb = new StringBuilder(length);
+        sb.append(literals[0]);
+        for (int k = 0; k < slots.length; k++) {
+            String value = values[slots[k]];
+            if (value != null) {
+                sb.append(value);
+            }
+            sb.append(literals[k + 1]);
+        }
+        return sb.toString();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * 模板中的占位符数量 (同一变量可出现多次)
+     */
+    public int placeholderCount() {
+        return slots.length;
+    }
+
+    @Override
+    public String toString() {
+        return "PromptTemplate{id=" + id + ", version=" + version + ", segments=" + literals.length
+                + ", slots=" + Arrays.toString(slots) + "}";
+    }
+}
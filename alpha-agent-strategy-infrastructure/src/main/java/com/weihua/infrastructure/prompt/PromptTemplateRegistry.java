@@ -0,0 +1,78 @@
+package com.weihua.infrastructure.prompt;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 编译后提示词模板的缓存，按模板 ID 保存，版本变化时重新加载编译
+ *
+ * 版本由调用方给出 (如配置资源描述、数据库 update_time)；
+ * agent.prompts.* 经 Nacos 刷新时整体失效，下次使用时重新读取模板内容
+ */
+@Slf4j
+@Component
+public class PromptTemplateRegistry {
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, PromptTemplate> templates = new ConcurrentHashMap<>();
+
+    private Counter hitCounter;
+    private Counter compileCounter;
+
+    @PostConstruct
+    public void init() {
+        hitCounter = Counter.builder("llm.prompt.template").tag("result", "hit")
+                .description("复用已编译的提示词模板").register(meterRegistry);
+        compileCounter = Counter.builder("llm.prompt.template").tag("result", "compile")
+                .description("加载并编译提示词模板").register(meterRegistry);
+    }
+
+    /**
+     * 获取编译后的模板，缓存中没有或版本不同时调用 source 读取模板内容并编译
+     */
+    public PromptTemplate get(String id, String version, Supplier<String> source, String... variables) {
+        PromptTemplate template = templates.get(id);
+        if (template != null && Objects.equals(template.getVersion(), version)) {
+            hitCounter.increment();
+            return template;
+        }
+        return templates.compute(id, (key, current) -> {
+            if (current != null && Objects.equals(current.getVersion(), version)) {
+                return current;
+            }
+            compileCounter.increment();
+            PromptTemplate compiled = PromptTemplate.compile(id, version, source.get(), variables);
+            log.info("Compiled prompt template {} (version {}): {} placeholders", id, version, compiled.placeholderCount());
+            return compiled;
+        });
+    }
+
+    public void invalidate(String id) {
+        templates.remove(id);
+    }
+
+    public void invalidateAll() {
+        templates.clear();
+        log.info("Prompt template cache invalidated");
+    }
+
+    @EventListener
+    public void onEnvironmentChange(EnvironmentChangeEvent event) {
+        if (event.getKeys().stream().anyMatch(key -> key.startsWith("agent.prompts."))) {
+            invalidateAll();
+        }
+    }
+}
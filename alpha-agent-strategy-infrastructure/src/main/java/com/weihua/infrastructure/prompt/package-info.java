@@ -0,0 +1,4 @@
+/**
+ * 提示词模板的预编译与缓存，供 adapter 中的 LLM 端口使用。
+ */
+package com.weihua.infrastructure.prompt;
@@ -18,6 +18,27 @@ SET NAMES utf8mb4;
 
 SET FOREIGN_KEY_CHECKS = 0;
 
+-- ----------------------------
+-- Table structure for t_cycle_checkpoints
+-- ----------------------------
+DROP TABLE IF EXISTS `t_cycle_checkpoints`;
+
+CREATE TABLE `t_cycle_checkpoints` (
+    `id` bigint NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+    `cycle_id` varchar(64) NOT NULL COMMENT '决策循环ID(UUID)',
+    `strategy_id` varchar(64) NOT NULL COMMENT '策略业务ID',
+    `status` varchar(16) NOT NULL DEFAULT 'PENDING' COMMENT '状态: PENDING, REPLAYED, DISCARDED',
+    `decision_json` text COMMENT '已通过风控的决策JSON',
+    `market_json` text COMMENT '决策时的行情JSON',
+    `primary_symbol` varchar(32) DEFAULT NULL COMMENT '主交易对',
+    `last_error` varchar(512) DEFAULT NULL COMMENT '放弃原因',
+    `create_time` datetime DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    `update_time` datetime DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`id`),
+    UNIQUE KEY `uk_cycle_id` (`cycle_id`),
+    KEY `idx_status_create` (`status`, `create_time`)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci COMMENT = '交易循环检查点表';
+
 -- ----------------------------
 -- Table structure for t_decision_logs
 -- ----------------------------
@@ -114,6 +135,32 @@ CREATE TABLE `t_strategy_accounts` (
     KEY `idx_strategy_instance` (`strategy_instance_id`)
 ) ENGINE = InnoDB AUTO_INCREMENT = 2 DEFAULT CHARSET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci COMMENT = '策略账户表';
 
+-- ----------------------------
+-- Table structure for t_strategy_cycle_jobs
+-- ----------------------------
+DROP TABLE IF EXISTS `t_strategy_cycle_jobs`;
+
+CREATE TABLE `t_strategy_cycle_jobs` (
+    `id` bigint NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+    `strategy_id` varchar(64) NOT NULL COMMENT '策略业务ID',
+    `user_id` varchar(64) DEFAULT NULL COMMENT '用户ID',
+    `due_at_ms` bigint NOT NULL COMMENT '本轮应开始的时刻(epoch毫秒)',
+    `interval_seconds` int DEFAULT NULL COMMENT '决策间隔(秒)',
+    `status` varchar(16) NOT NULL DEFAULT 'PENDING' COMMENT '状态: PENDING, RUNNING, DONE, FAILED, SKIPPED, CANCELLED',
+    `worker_id` varchar(128) DEFAULT NULL COMMENT '持有租约的节点',
+    `lease_until_ms` bigint DEFAULT NULL COMMENT '租约到期时刻(epoch毫秒)',
+    `attempts` int NOT NULL DEFAULT 0 COMMENT '领取次数(租约栅栏令牌)',
+    `last_error` varchar(512) DEFAULT NULL COMMENT '最近一次错误',
+    `active_strategy_id` varchar(64) GENERATED ALWAYS AS (IF(`status` IN ('PENDING', 'RUNNING'), `strategy_id`, NULL)) VIRTUAL COMMENT '未完成任务的策略ID(每个策略最多一条)',
+    `create_time` datetime DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    `update_time` datetime DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`id`),
+    UNIQUE KEY `uk_strategy_due` (`strategy_id`, `due_at_ms`),
+    UNIQUE KEY `uk_active_strategy` (`active_strategy_id`),
+    KEY `idx_status_due` (`status`, `due_at_ms`) COMMENT '领取到期 PENDING 任务 (FOR UPDATE SKIP LOCKED)',
+    KEY `idx_status_lease` (`status`, `lease_until_ms`) COMMENT '领取租约过期 RUNNING 任务 (FOR UPDATE SKIP LOCKED)'
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci COMMENT = '分布式交易循环任务表';
+
 -- ----------------------------
 -- Table structure for t_strategy_instances
 -- ----------------------------
@@ -0,0 +1,177 @@
+package com.weihua.trigger.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 策略调度配置
+ * 对应 application.yml 中的 strategy.scheduler
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "strategy.scheduler")
+public class StrategySchedulerProperties {
+
+    /** 是否启用调度 */
+    private boolean enabled = true;
+
+    /** 时间轮 tick 间隔 (毫秒) */
+    private long tickMs = 1000L;
+
+    /** 时间轮槽位数 */
+    private int wheelSize = 512;
+
+    /** 策略未配置 intervalSeconds 时的默认间隔 (秒) */
+    private int defaultIntervalSeconds = 60;
+
+    /** 允许的最小间隔 (秒) */
+    private int minIntervalSeconds = 5;
+
+    /** 允许的最大间隔 (秒) */
+    private int maxIntervalSeconds = 3600;
+
+    /**
+     * 首次触发错峰模式
+     * NONE：下一个 tick 立即触发
+     * HASH：按 strategyId 哈希分散到整个间隔内
+     * CANDLE_CLOSE：对齐到 K 线收盘 (周期 = 策略间隔) 后再错开
+     */
+    private String staggerMode = "HASH";
+
+    /** 首次触发的随机抖动上限 (毫秒) */
+    private long jitterMs = 2000L;
+
+    /** CANDLE_CLOSE 模式下收盘后的延迟 (毫秒)，等待行情源落盘 */
+    private long candleCloseOffsetMs = 2000L;
+
+    /** CANDLE_CLOSE 模式下收盘后按哈希错开的窗口 (毫秒) */
+    private long candleSpreadMs = 10000L;
+
+    /** 负载预测指标的窗口 (秒) */
+    private int loadWindowSeconds = 60;
+
+    /** 全量对账间隔 (毫秒)，兜底处理直接改库的策略 */
+    private long reconcileIntervalMs = 600000L;
+
+    /** 提交到期策略前按交易对并集批量预取行情 (批大小与超时见 app.market.prefetch-*) */
+    private boolean prefetchMarketData = true;
+
+    /**
+     * 部署模式
+     * LOCAL：本节点时间轮触发，适用于单节点
+     * DISTRIBUTED：到期循环写入任务表 t_strategy_cycle_jobs，各节点按 领取 → 心跳续约 → 完成 的协议分担执行
+     */
+    private String mode = "LOCAL";
+
+    /** DISTRIBUTED：领取任务的轮询间隔 (毫秒) */
+    private long jobPollMs = 500L;
+
+    /** DISTRIBUTED：单次最多领取的任务数 */
+    private int jobClaimBatch = 16;
+
+    /** DISTRIBUTED：租约时长 (毫秒)，节点宕机后任务最迟在租约到期后被其他节点接管 */
+    private long jobLeaseMs = 30000L;
+
+    /** DISTRIBUTED：心跳续约间隔 (毫秒)，应明显小于租约时长 */
+    private long jobHeartbeatMs = 10000L;
+
+    /** DISTRIBUTED：同一轮任务最多被领取的次数，超过后本轮记为 FAILED 并登记下一轮 */
+    private int jobMaxAttempts = 3;
+
+    /** DISTRIBUTED：已结束任务的保留时长 (小时) */
+    private int jobRetentionHours = 24;
+
+    /**
+     * 执行模式
+     * SEQUENTIAL：在调度线程上逐个执行 (旧行为)
+     * CONCURRENT：提交到 strategyCycleExecutor 并发执行
+     * REACTIVE：提交到 TradingCycleEngine 分阶段流水线，由各阶段并发上限和背压控制
+     */
+    private String executionMode = "CONCURRENT";
+
+    /** 全局最大并发交易循环数 */
+    private int maxConcurrency = 64;
+
+    /** 单个 LLM 渠道默认最大并发数 */
+    private int defaultProviderConcurrency = 16;
+
+    /**
+     * 按渠道覆盖的最大并发数
+     * Key: providerId (对应 app.llm.providers 的 key)
+     */
+    private Map<String, Integer> providerConcurrency = new HashMap<>();
+
+    /*
+     * 准入控制：分发队列积压超过 SLO 时按级别丢弃模拟盘循环，保护实盘循环的时延
+     */
+
+    /** 是否启用准入控制 */
+    private boolean admissionEnabled = true;
+
+    /** 队列中最早一轮的迟到时长 (自应开始时刻起，毫秒) 超过该值进入 DEGRADED，丢弃低优先级模拟盘循环 */
+    private long sloQueueWaitMs = 5000L;
+
+    /** 队列中最早一轮的迟到时长 (毫秒) 超过该值进入 OVERLOADED，丢弃全部模拟盘循环 */
+    private long overloadQueueWaitMs = 15000L;
+
+    /** DEGRADED 时保留的模拟盘循环最低优先级 (tradingConfig.priority) */
+    private int protectedPriority = 1;
+
+    /*
+     * 加权公平排队：容量不足时决定到期循环的执行顺序
+     * 用户之间按权重轮流出队；单个循环的加成 (单位：轮) 可让其提前出队，上限为 maxBoost
+     */
+
+    /** 用户默认权重 */
+    private double defaultUserWeight = 1.0D;
+
+    /**
+     * 按用户覆盖的权重
+     * Key: userId
+     */
+    private Map<String, Double> userWeights = new HashMap<>();
+
+    /** 策略配置优先级 (tradingConfig.priority) 每一级的加成 */
+    private double priorityWeight = 0.5D;
+
+    /** 实盘 (LIVE) 策略的加成 */
+    private double liveBoost = 4.0D;
+
+    /** 初始资金加成系数，加成 = log10(1 + initialCapital) × 系数 */
+    private double capitalWeight = 0.5D;
+
+    /** 迟到加成系数，加成 = 入队时已迟到的时长 / 策略间隔 × 系数 */
+    private double latenessWeight = 2.0D;
+
+    /** 单个循环加成上限，保证任何用户都不会被饿死 */
+    private double maxBoost = 10.0D;
+
+    /**
+     * 策略实际使用的间隔 (秒)：未配置时取默认值，并限制在 [min, max] 范围内
+     */
+    public int intervalSeconds(Integer configured) {
+        int seconds = configured != null ? configured : defaultIntervalSeconds;
+        return Math.max(minIntervalSeconds, Math.min(maxIntervalSeconds, seconds));
+    }
+
+    public boolean isDistributed() {
+        return "DISTRIBUTED".equalsIgnoreCase(mode);
+    }
+
+    public boolean isConcurrent() {
+        return "CONCURRENT".equalsIgnoreCase(executionMode);
+    }
+
+    public boolean isReactive() {
+        return "REACTIVE".equalsIgnoreCase(executionMode);
+    }
+
+    public int providerLimit(String providerId) {
+        Integer limit = providerConcurrency.get(providerId);
+        return limit != null && limit > 0 ? limit : defaultProviderConcurrency;
+    }
+}
@@ -1,11 +1,15 @@
 package com.weihua.trigger.http;
 
+import com.weihua.strategy.api.dto.ScheduleLoadDTO;
+import com.weihua.strategy.application.guard.CycleExecutionGuard;
 import com.weihua.strategy.domain.model.aggregate.StrategyInstanceAggregate;
 import com.weihua.strategy.domain.model.entity.StrategyConfigEntity;
 import com.weihua.strategy.domain.model.valobj.StrategyStatus;
 import com.weihua.strategy.domain.model.valobj.TradingMode;
 import com.weihua.strategy.domain.repository.IStrategyInstanceRepository;
 
+import com.weihua.trigger.config.StrategySchedulerProperties;
+import com.weihua.trigger.job.StrategyScheduler;
 import com.weihua.types.model.Response;
 import org.springframework.web.bind.annotation.*;
 
@@ -23,14 +27,34 @@ public class StrategyController {
     @Resource
     private IStrategyInstanceRepository strategyInstanceRepository;
 
+    @Resource
+    private StrategySchedulerProperties strategySchedulerProperties;
+
+    @Resource
+    private StrategyScheduler strategyScheduler;
+
     /**
-     * 手动触发一次交易循环
+     * 手动触发一次交易循环，时间预算与调度触发一样按策略间隔计算
      */
     @PostMapping("/run/{id}")
     public Response<String> runCycle(@PathVariable String id) {
         try {
-            tradingCycleAppService.executeCycle(id);
-            return Response.success("Cycle executed successfully");
+            StrategyInstanceAggregate strategy = strategyInstanceRepository.findByStrategyId(id);
+            Integer configured = strategy != null && strategy.getConfig() != null ? strategy.getConfig().getIntervalSeconds() : null;
+            CycleExecutionGuard.Outcome outcome = tradingCycleAppService.executeCycle(id,
+                    strategySchedulerProperties.intervalSeconds(configured));
+            switch (outcome) {
+                case SKIPPED:
+                    return Response.success("Cycle skipped: another cycle is running");
+                case COALESCED:
+                    return Response.success("Cycle coalesced with the running cycle");
+                case QUEUED:
+                    return Response.success("Cycle queued after the running cycle");
+                case REJECTED:
+                    return Response.error("Node is draining, cycle rejected");
+                default:
+                    return Response.success("Cycle executed successfully");
+            }
         } catch (Exception e) {
             return Response.error("Failed to execute cycle: " + e.getMessage());
         }
@@ -91,6 +115,7 @@ public class StrategyController {
                     .initialCapital(tradingConfig != null ? tradingConfig.getInitialCapital() : java.math.BigDecimal.ZERO)
                     .leverage(tradingConfig != null ? tradingConfig.getLeverage() : java.math.BigDecimal.ONE)
                     .intervalSeconds(tradingConfig != null ? tradingConfig.getIntervalSeconds() : 60)
+                    .priority(tradingConfig != null ? tradingConfig.getPriority() : null)
                     .tradingMode(tradingConfig != null && "LIVE".equalsIgnoreCase(tradingConfig.getTradingMode()) ? TradingMode.LIVE : TradingMode.VIRTUAL)
                     .exchangeId(request.getExchangeConfig() != null ? request.getExchangeConfig().getExchangeId() : null)
                     .build();
@@ -111,6 +136,49 @@ public class StrategyController {
         }
     }
 
+    /**
+     * 停止策略 (同时从调度中移除)
+     */
+    @PostMapping("/stop/{id}")
+    public Response<String> stopStrategy(@PathVariable String id) {
+        try {
+            strategyInstanceRepository.updateStatus(id, StrategyStatus.STOPPED);
+            return Response.success(id);
+        } catch (Exception e) {
+            return Response.error("Failed to stop strategy: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 启动策略 (同时加入调度)
+     */
+    @PostMapping("/start/{id}")
+    public Response<String> startStrategy(@PathVariable String id) {
+        try {
+            StrategyInstanceAggregate strategy = strategyInstanceRepository.findByStrategyId(id);
+            if (strategy == null) {
+                return Response.error("Strategy not found: " + id);
+            }
+            strategy.start();
+            strategyInstanceRepository.save(strategy);
+            return Response.success(id);
+        } catch (Exception e) {
+            return Response.error("Failed to start strategy: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 调度负载预测：未来 windowSeconds 秒内每秒触发的交易循环数
+     */
+    @GetMapping("/schedule/load")
+    public Response<ScheduleLoadDTO> scheduleLoad(@RequestParam(defaultValue = "60") int windowSeconds) {
+        try {
+            return Response.success(strategyScheduler.projectedLoad(Math.min(windowSeconds, 3600)));
+        } catch (Exception e) {
+            return Response.error("Failed to project schedule load: " + e.getMessage());
+        }
+    }
+
     /**
      * 查询用户的所有策略
      */
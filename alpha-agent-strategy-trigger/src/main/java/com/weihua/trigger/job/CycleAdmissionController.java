@@ -0,0 +1,114 @@
+package com.weihua.trigger.job;
+
+import com.weihua.strategy.domain.model.aggregate.StrategyInstanceAggregate;
+import com.weihua.strategy.domain.model.entity.StrategyConfigEntity;
+import com.weihua.strategy.domain.model.valobj.TradingMode;
+import com.weihua.trigger.config.StrategySchedulerProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 交易循环准入控制 (按排队时延 SLO 分级降载)
+ *
+ * 以分发队列中最早一个循环的已等待时长衡量积压：
+ * NORMAL     等待时长低于 slo-queue-wait-ms，全部准入
+ * DEGRADED   超过 slo-queue-wait-ms，丢弃优先级低于 protected-priority 的模拟盘 (VIRTUAL) 循环
+ * OVERLOADED 超过 overload-queue-wait-ms，丢弃全部模拟盘循环
+ * 实盘 (LIVE) 循环任何级别都不丢弃；被丢弃的策略在下一个间隔正常触发
+ */
+public class CycleAdmissionController {
+
+    public enum Level {
+        NORMAL, DEGRADED, OVERLOADED
+    }
+
+    public enum ShedReason {
+        /** 同一策略已在队列中，合并 */
+        DUPLICATE,
+        /** DEGRADED：低优先级模拟盘循环 */
+        LOW_PRIORITY,
+        /** OVERLOADED：模拟盘循环 */
+        VIRTUAL,
+        /** 排队超过一个间隔，本轮作废 */
+        STALE
+    }
+
+    private final StrategySchedulerProperties properties;
+    private final Map<ShedReason, Counter> shedCounters = new EnumMap<>(ShedReason.class);
+    private final Timer queueWaitTimer;
+    private volatile Level level = Level.NORMAL;
+
+    public CycleAdmissionController(StrategySchedulerProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        for (ShedReason reason : ShedReason.values()) {
+            shedCounters.put(reason, Counter.builder("strategy.cycle.shed")
+                    .description("准入控制丢弃的交易循环数")
+                    .tag("reason", reason.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        queueWaitTimer = Timer.builder("strategy.cycle.queue.wait")
+                .description("交易循环在分发队列中的等待时长")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("strategy.cycle.admission.level", this, c -> c.level.ordinal())
+                .description("准入级别: 0 NORMAL, 1 DEGRADED, 2 OVERLOADED")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 按队列头部的等待时长更新准入级别
+     */
+    public Level update(long oldestWaitMs) {
+        Level next;
+        if (!properties.isAdmissionEnabled() || oldestWaitMs < properties.getSloQueueWaitMs()) {
+            next = Level.NORMAL;
+        } else if (oldestWaitMs < properties.getOverloadQueueWaitMs()) {
+            next = Level.DEGRADED;
+        } else {
+            next = Level.OVERLOADED;
+        }
+        level = next;
+        return next;
+    }
+
+    /**
+     * 判断当前级别下是否丢弃该循环
+     * @return 丢弃原因，准入时返回 null
+     */
+    public ShedReason evaluate(StrategyInstanceAggregate strategy, Level level) {
+        if (level == Level.NORMAL) {
+            return null;
+        }
+        StrategyConfigEntity config = strategy.getConfig();
+        if (config != null && config.getTradingMode() == TradingMode.LIVE) {
+            return null;
+        }
+        if (level == Level.OVERLOADED) {
+            return ShedReason.VIRTUAL;
+        }
+        int priority = config != null && config.getPriority() != null ? config.getPriority() : 0;
+        return priority < properties.getProtectedPriority() ? ShedReason.LOW_PRIORITY : null;
+    }
+
+    public void recordShed(ShedReason reason) {
+        shedCounters.get(reason).increment();
+    }
+
+    public void recordQueueWait(long waitMs) {
+        queueWaitTimer.record(Math.max(0, waitMs), TimeUnit.MILLISECONDS);
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public long getShedCount(ShedReason reason) {
+        return (long) shedCounters.get(reason).count();
+    }
+}
@@ -0,0 +1,358 @@
+package com.weihua.trigger.job;
+
+import com.weihua.strategy.application.lifecycle.CycleDrainCoordinator;
+import com.weihua.strategy.application.service.TradingCycleAppService;
+import com.weihua.strategy.domain.model.aggregate.StrategyInstanceAggregate;
+import com.weihua.strategy.domain.model.entity.CycleJobEntity;
+import com.weihua.strategy.domain.model.valobj.CycleJobStatus;
+import com.weihua.strategy.domain.model.valobj.StrategyStatus;
+import com.weihua.strategy.domain.repository.ICycleJobRepository;
+import com.weihua.strategy.domain.repository.IStrategyInstanceRepository;
+import com.weihua.trigger.config.StrategySchedulerProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分布式交易循环 Worker (strategy.scheduler.mode = DISTRIBUTED)
+ *
+ * 各节点无状态，共享任务表 t_strategy_cycle_jobs：
+ * 1. 排期：策略启动 / 对账时登记首轮任务 (每个策略最多一条未完成任务，重复登记无副作用)
+ * 2. 领取：按本节点空闲容量领取到期任务 (FOR UPDATE SKIP LOCKED)，节点之间互不阻塞
+ * 3. 执行：交给 StrategyCycleDispatcher，沿用本节点的公平排队和渠道并发上限
+ * 4. 续约：执行期间由独立线程定期心跳，不受 @Scheduled 调度线程上的阻塞影响；节点宕机时租约过期，任务由其他节点接管
+ * 5. 完成：以 (workerId, attempts) 为栅栏结束任务并登记下一轮，租约被接管的旧节点无法重复登记；
+ *    分发器未执行的轮次 (准入丢弃、去重) 记为 SKIPPED，提交失败记为 FAILED；
+ *    策略查询失败时不结束任务，租约到期后重新领取
+ */
+@Component
+public class DistributedCycleWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(DistributedCycleWorker.class);
+
+    @Resource
+    private ICycleJobRepository cycleJobRepository;
+
+    @Resource
+    private IStrategyInstanceRepository strategyInstanceRepository;
+
+    @Resource
+    private StrategyCycleDispatcher strategyCycleDispatcher;
+
+    @Resource
+    private TradingCycleAppService tradingCycleAppService;
+
+    @Resource
+    private CycleDrainCoordinator cycleDrainCoordinator;
+
+    @Resource
+    private StrategySchedulerProperties properties;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /** 领取后的准入检查、行情预取与提交在此执行，轮询线程只负责领取 */
+    @Resource(name = "strategyCycleExecutor")
+    private Executor strategyCycleExecutor;
+
+    private final String workerId = ManagementFactory.getRuntimeMXBean().getName()
+            + ":" + UUID.randomUUID().toString().substring(0, 8);
+
+    /** 本节点持有租约的任务 */
+    private final Map<Long, CycleJobEntity> inFlight = new ConcurrentHashMap<>();
+
+    /** 租约续约专用线程 */
+    private ScheduledExecutorService leaseRenewer;
+
+    private Counter claimedCounter;
+    private Counter lostCounter;
+    private Counter failedCounter;
+    private Counter skippedCounter;
+
+    @PostConstruct
+    public void init() {
+        claimedCounter = Counter.builder("strategy.cycle.jobs.claimed")
+                .description("本节点领取的分布式任务数").register(meterRegistry);
+        lostCounter = Counter.builder("strategy.cycle.jobs.lease.lost")
+                .description("执行期间租约被其他节点接管的任务数").register(meterRegistry);
+        failedCounter = Counter.builder("strategy.cycle.jobs.failed")
+                .description("领取次数耗尽的任务数").register(meterRegistry);
+        skippedCounter = Counter.builder("strategy.cycle.jobs.skipped")
+                .description("被分发器丢弃或去重、未执行的任务数").register(meterRegistry);
+        Gauge.builder("strategy.cycle.jobs.in.flight", inFlight, Map::size)
+                .description("本节点持有租约的任务数").register(meterRegistry);
+
+        if (properties.isEnabled() && properties.isDistributed()) {
+            long heartbeatMs = properties.getJobHeartbeatMs();
+            leaseRenewer = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("cycle-job-lease").daemon(true).factory());
+            leaseRenewer.scheduleWithFixedDelay(this::heartbeat, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (leaseRenewer != null) {
+            leaseRenewer.shutdownNow();
+        }
+    }
+
+    /**
+     * 登记策略的首轮任务；策略已有未完成任务时忽略
+     */
+    public void schedule(StrategyInstanceAggregate strategy, int intervalSeconds, long dueAtMs) {
+        boolean created = cycleJobRepository.enqueue(CycleJobEntity.builder()
+                .strategyId(strategy.getStrategyId())
+                .userId(strategy.getUserId())
+                .dueAtMs(dueAtMs)
+                .intervalSeconds(intervalSeconds)
+                .build());
+        if (created) {
+            logger.info("Strategy cycle job enqueued: strategyId={}, interval={}s, dueAt={}",
+                    strategy.getStrategyId(), intervalSeconds, dueAtMs);
+        }
+    }
+
+    /**
+     * 取消策略尚未领取的任务；执行中的任务结束时发现策略已停止，不再登记下一轮
+     */
+    public void cancel(String strategyId) {
+        if (cycleJobRepository.cancelPending(strategyId) > 0) {
+            logger.info("Strategy cycle job cancelled: strategyId={}", strategyId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${strategy.scheduler.job-poll-ms:500}")
+    public void poll() {
+        if (!properties.isEnabled() || !properties.isDistributed()) {
+            return;
+        }
+        try {
+            pollOnce(System.currentTimeMillis());
+        } catch (Exception e) {
+            logger.error("Cycle job poll failed: workerId={}", workerId, e);
+        }
+    }
+
+    /**
+     * 按空闲容量领取一批到期任务，交给 strategyCycleExecutor 做准入检查、预取行情并提交执行
+     * @return 领取的任务数
+     */
+    public int pollOnce(long nowMs) {
+        if (!cycleDrainCoordinator.isAccepting()) {
+            // 停机排空中不再领取，未领取的任务由其他节点执行
+            return 0;
+        }
+        int free = properties.getMaxConcurrency() - inFlight.size();
+        int limit = Math.min(free, properties.getJobClaimBatch());
+        if (limit <= 0) {
+            return 0;
+        }
+
+        List<CycleJobEntity> jobs = cycleJobRepository.claim(workerId, limit, properties.getJobLeaseMs(), nowMs);
+        if (jobs.isEmpty()) {
+            return 0;
+        }
+        claimedCounter.increment(jobs.size());
+        for (CycleJobEntity job : jobs) {
+            inFlight.put(job.getId(), job);
+        }
+        try {
+            strategyCycleExecutor.execute(() -> start(jobs, nowMs));
+        } catch (RejectedExecutionException e) {
+            // 不再持有：停止续约，租约到期后由其他节点 (或本节点) 重新领取
+            logger.error("Claimed cycle jobs rejected by executor, left to lease expiry: count={}", jobs.size(), e);
+            for (CycleJobEntity job : jobs) {
+                inFlight.remove(job.getId());
+            }
+        }
+        return jobs.size();
+    }
+
+    /**
+     * 检查领取的一批任务，本批要执行的策略合并预取行情后逐个提交
+     */
+    private void start(List<CycleJobEntity> jobs, long nowMs) {
+        Map<CycleJobEntity, StrategyInstanceAggregate> admitted = new LinkedHashMap<>();
+        for (CycleJobEntity job : jobs) {
+            try {
+                StrategyInstanceAggregate strategy = admit(job, nowMs);
+                if (strategy != null) {
+                    admitted.put(job, strategy);
+                }
+            } catch (Exception e) {
+                // 策略查询失败 (如数据库瞬时异常)：不结束任务，停止续约，租约到期后重新领取，受 job-max-attempts 限制
+                logger.error("Cycle job admission failed, left to lease expiry: strategyId={}, jobId={}",
+                        job.getStrategyId(), job.getId(), e);
+                inFlight.remove(job.getId());
+            }
+        }
+
+        // 本批领取的策略合并预取行情
+        if (!admitted.isEmpty() && properties.isPrefetchMarketData()) {
+            try {
+                tradingCycleAppService.prefetchMarketData(new ArrayList<>(admitted.values()));
+            } catch (Exception e) {
+                logger.warn("Market data prefetch failed, cycles fetch on demand: {}", e.getMessage());
+            }
+        }
+        admitted.forEach((job, strategy) -> {
+            try {
+                run(job, strategy);
+            } catch (Exception e) {
+                // 本轮没有执行，照常登记下一轮
+                logger.error("Cycle job submit failed: strategyId={}, jobId={}", job.getStrategyId(), job.getId(), e);
+                finish(job, CycleJobStatus.FAILED, e.getMessage(), strategy, intervalSeconds(strategy));
+            }
+        });
+    }
+
+    /**
+     * 为本节点持有的任务续约，由 leaseRenewer 线程按 job-heartbeat-ms 调用
+     */
+    public void heartbeat() {
+        if (inFlight.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (CycleJobEntity job : inFlight.values()) {
+            try {
+                if (!cycleJobRepository.heartbeat(job, properties.getJobLeaseMs(), now)) {
+                    // 已被其他节点接管，本节点的执行结果仍会落库，但不会再登记下一轮
+                    lostCounter.increment();
+                    logger.warn("Cycle job lease lost: strategyId={}, jobId={}, attempts={}",
+                            job.getStrategyId(), job.getId(), job.getAttempts());
+                }
+            } catch (Exception e) {
+                logger.warn("Cycle job heartbeat failed: jobId={}, error={}", job.getId(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 清理过期的已结束任务，与全量对账同频
+     */
+    @Scheduled(initialDelayString = "${strategy.scheduler.reconcile-interval-ms:600000}",
+            fixedRateString = "${strategy.scheduler.reconcile-interval-ms:600000}")
+    public void purge() {
+        if (!properties.isEnabled() || !properties.isDistributed()) {
+            return;
+        }
+        try {
+            long before = System.currentTimeMillis() - properties.getJobRetentionHours() * 3600_000L;
+            int purged = cycleJobRepository.purgeFinished(before);
+            if (purged > 0) {
+                logger.info("Purged {} finished cycle jobs", purged);
+            }
+        } catch (Exception e) {
+            logger.error("Cycle job purge failed", e);
+        }
+    }
+
+    public String getWorkerId() {
+        return workerId;
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * 检查领取的任务是否执行：策略已停止、领取次数耗尽或已过期的任务直接结束
+     * @return 需要执行的策略，不执行时返回 null
+     */
+    private StrategyInstanceAggregate admit(CycleJobEntity job, long nowMs) {
+        StrategyInstanceAggregate strategy = strategyInstanceRepository.findByStrategyId(job.getStrategyId());
+        if (strategy == null || strategy.getStatus() != StrategyStatus.RUNNING) {
+            logger.info("Strategy no longer running, job closed: strategyId={}", job.getStrategyId());
+            finish(job, CycleJobStatus.CANCELLED, null, null);
+            return null;
+        }
+
+        int intervalSeconds = intervalSeconds(strategy);
+
+        if (job.getAttempts() > properties.getJobMaxAttempts()) {
+            // 连续多个节点在执行期间失联，本轮放弃，避免同一轮被反复执行
+            failedCounter.increment();
+            logger.error("Cycle job attempts exhausted: strategyId={}, attempts={}", job.getStrategyId(), job.getAttempts());
+            finish(job, CycleJobStatus.FAILED, "attempts exhausted", strategy, intervalSeconds);
+            return null;
+        }
+        long lateMs = nowMs - job.getDueAtMs();
+        if (lateMs >= intervalSeconds * 1000L) {
+            // 与本地模式一致：迟到超过一个间隔的轮次作废
+            logger.warn("Cycle job stale, dropped: strategyId={}, late={}ms", job.getStrategyId(), lateMs);
+            finish(job, CycleJobStatus.SKIPPED, "stale", strategy, intervalSeconds);
+            return null;
+        }
+        return strategy;
+    }
+
+    private void run(CycleJobEntity job, StrategyInstanceAggregate strategy) {
+        int intervalSeconds = intervalSeconds(strategy);
+        strategyCycleDispatcher.submit(strategy, job.getDueAtMs()).whenComplete((executed, error) -> {
+            if (error == null && !Boolean.TRUE.equals(executed)) {
+                // 分发器丢弃或去重，本轮没有执行，不能记为 DONE
+                skippedCounter.increment();
+                finish(job, CycleJobStatus.SKIPPED, "not executed", strategy, intervalSeconds);
+                return;
+            }
+            finish(job, CycleJobStatus.DONE, error != null ? error.getMessage() : null, strategy, intervalSeconds);
+        });
+    }
+
+    private int intervalSeconds(StrategyInstanceAggregate strategy) {
+        return properties.intervalSeconds(
+                strategy.getConfig() != null ? strategy.getConfig().getIntervalSeconds() : null);
+    }
+
+    private void finish(CycleJobEntity job, CycleJobStatus status, String error,
+                        StrategyInstanceAggregate strategy, int intervalSeconds) {
+        long intervalMs = intervalSeconds * 1000L;
+        long now = System.currentTimeMillis();
+        // 从本轮的应开始时刻按间隔推进，保持相位；执行超时导致跨过的轮次直接跳过
+        long skipped = Math.max(0, (now - job.getDueAtMs()) / intervalMs);
+        CycleJobEntity next = CycleJobEntity.builder()
+                .strategyId(strategy.getStrategyId())
+                .userId(strategy.getUserId())
+                .dueAtMs(job.getDueAtMs() + (skipped + 1) * intervalMs)
+                .intervalSeconds(intervalSeconds)
+                .build();
+        finish(job, status, error, next);
+    }
+
+    private void finish(CycleJobEntity job, CycleJobStatus status, String error, CycleJobEntity next) {
+        try {
+            if (!cycleJobRepository.finish(job, status, error, next)) {
+                lostCounter.increment();
+                logger.warn("Cycle job finished after lease lost, next cycle left to new owner: strategyId={}, jobId={}",
+                        job.getStrategyId(), job.getId());
+            }
+        } catch (Exception e) {
+            // 租约到期后由其他节点接管
+            logger.error("Cycle job finish failed: strategyId={}, jobId={}", job.getStrategyId(), job.getId(), e);
+        } finally {
+            inFlight.remove(job.getId());
+        }
+    }
+}
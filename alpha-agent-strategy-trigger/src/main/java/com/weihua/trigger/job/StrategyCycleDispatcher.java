@@ -0,0 +1,292 @@
+package com.weihua.trigger.job;
+
+import com.weihua.strategy.application.guard.CycleExecutionGuard;
+import com.weihua.strategy.application.service.TradingCycleAppService;
+import com.weihua.strategy.domain.model.aggregate.StrategyInstanceAggregate;
+import com.weihua.strategy.domain.service.provider.LlmConfigProvider;
+import com.weihua.trigger.config.StrategySchedulerProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 交易循环并发分发器
+ * 将到期的策略放入加权公平队列 (WeightedFairCycleQueue)，在全局并发上限和单渠道并发上限内
+ * 按 用户公平份额 + 策略优先级 + 迟到程度 的顺序提交到 strategyCycleExecutor 执行
+ *
+ * 许可在提交前获取，等待中的循环只占用队列槽位，不占用线程；
+ * 队列积压超过 SLO 时由 CycleAdmissionController 按级别丢弃模拟盘循环，实盘循环不受影响
+ */
+@Component
+public class StrategyCycleDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(StrategyCycleDispatcher.class);
+
+    private static final String DEFAULT_PROVIDER = "default";
+
+    @Resource
+    private TradingCycleAppService tradingCycleAppService;
+
+    @Resource
+    private LlmConfigProvider llmConfigProvider;
+
+    @Resource
+    private StrategySchedulerProperties properties;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource(name = "strategyCycleExecutor")
+    private ExecutorService strategyCycleExecutor;
+
+    private final Object lock = new Object();
+    private WeightedFairCycleQueue<PendingCycle> queue;
+    private CycleAdmissionController admission;
+    private final Set<String> queuedStrategyIds = new HashSet<>();
+    private final Map<String, Integer> runningByProvider = new HashMap<>();
+    private int running = 0;
+
+    @PostConstruct
+    public void init() {
+        queue = new WeightedFairCycleQueue<>(properties);
+        admission = new CycleAdmissionController(properties, meterRegistry);
+    }
+
+    /**
+     * 分发一批策略，本轮应开始的时刻按当前时刻计
+     * @return 本批次全部结束时完成的 Future，有循环执行失败时异常完成
+     */
+    public CompletableFuture<Void> dispatch(List<StrategyInstanceAggregate> strategies) {
+        return dispatch(strategies, Map.of());
+    }
+
+    /**
+     * 分发一批策略
+     * @param dueAtMs strategyId -> 本轮应开始的时刻 (如时间轮槽位时刻)，用于计算迟到加成；缺失时按当前时刻计
+     * @return 本批次全部结束时完成的 Future，有循环执行失败时异常完成
+     */
+    public CompletableFuture<Void> dispatch(List<StrategyInstanceAggregate> strategies, Map<String, Long> dueAtMs) {
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>(strategies.size());
+        synchronized (lock) {
+            long now = System.currentTimeMillis();
+            CycleAdmissionController.Level level = updateLevel(now);
+            for (StrategyInstanceAggregate strategy : strategies) {
+                futures.add(enqueue(strategy, dueAtMs.getOrDefault(strategy.getStrategyId(), now), level));
+            }
+        }
+        drain();
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * 分发单个策略，本轮应开始的时刻按当前时刻计
+     */
+    public CompletableFuture<Boolean> submit(StrategyInstanceAggregate strategy) {
+        return submit(strategy, System.currentTimeMillis());
+    }
+
+    /**
+     * 分发单个策略
+     * @param dueAtMs 本轮应开始的时刻 (如任务表中的 due_at_ms)，用于计算迟到加成
+     * @return 循环结束时完成：true 表示本轮已执行，false 表示未执行 (准入丢弃、重复排队、排队过期、
+     *         执行器拒绝或执行守卫跳过)；执行失败时异常完成
+     */
+    public CompletableFuture<Boolean> submit(StrategyInstanceAggregate strategy, long dueAtMs) {
+        CompletableFuture<Boolean> future;
+        synchronized (lock) {
+            future = enqueue(strategy, dueAtMs, updateLevel(System.currentTimeMillis()));
+        }
+        drain();
+        return future;
+    }
+
+    /**
+     * 准入检查后入队，调用方持有 lock
+     */
+    private CompletableFuture<Boolean> enqueue(StrategyInstanceAggregate strategy, long dueAtMs,
+                                               CycleAdmissionController.Level level) {
+        CycleAdmissionController.ShedReason reason = admission.evaluate(strategy, level);
+        if (reason != null) {
+            admission.recordShed(reason);
+            logger.debug("Strategy {} shed at admission: level={}, reason={}", strategy.getStrategyId(), level, reason);
+            return CompletableFuture.completedFuture(false);
+        }
+        if (!queuedStrategyIds.add(strategy.getStrategyId())) {
+            // 上一批次移交后尚未开始执行，无需重复排队
+            admission.recordShed(CycleAdmissionController.ShedReason.DUPLICATE);
+            logger.debug("Strategy {} already queued, skip", strategy.getStrategyId());
+            return CompletableFuture.completedFuture(false);
+        }
+        PendingCycle pending = new PendingCycle(strategy, resolveProvider(strategy), dueAtMs);
+        queue.add(strategy, pending.providerId, pending.dueAtMs, pending.enqueuedAtMs, pending);
+        return pending.future;
+    }
+
+    /**
+     * 在许可范围内按加权公平顺序尽可能多地提交待执行循环
+     */
+    private void drain() {
+        List<PendingCycle> toSubmit = new ArrayList<>();
+        List<PendingCycle> shed = new ArrayList<>();
+        synchronized (lock) {
+            long now = System.currentTimeMillis();
+            CycleAdmissionController.Level level = updateLevel(now);
+            if (level != CycleAdmissionController.Level.NORMAL) {
+                // 积压时先清掉队列中可丢弃的循环，腾出位置给实盘循环
+                queue.removeIf(p -> {
+                    CycleAdmissionController.ShedReason reason = admission.evaluate(p.strategy, level);
+                    if (reason == null) {
+                        return false;
+                    }
+                    admission.recordShed(reason);
+                    queuedStrategyIds.remove(p.strategy.getStrategyId());
+                    shed.add(p);
+                    return true;
+                });
+                if (!shed.isEmpty()) {
+                    logger.warn("Cycle backlog over SLO, shed {} queued cycles: level={}, remaining={}",
+                            shed.size(), level, queue.size());
+                }
+            }
+            while (running < properties.getMaxConcurrency() && !queue.isEmpty()) {
+                // 所属渠道已满的循环暂不出队，让其它渠道的循环先行
+                PendingCycle pending = queue.poll(providerId ->
+                        runningByProvider.getOrDefault(providerId, 0) < properties.providerLimit(providerId));
+                if (pending == null) {
+                    break;
+                }
+                queuedStrategyIds.remove(pending.strategy.getStrategyId());
+                admission.recordQueueWait(now - pending.enqueuedAtMs);
+                runningByProvider.merge(pending.providerId, 1, Integer::sum);
+                running++;
+                toSubmit.add(pending);
+            }
+        }
+
+        for (PendingCycle pending : shed) {
+            pending.future.complete(false);
+        }
+
+        for (PendingCycle pending : toSubmit) {
+            try {
+                strategyCycleExecutor.execute(() -> run(pending));
+            } catch (RejectedExecutionException e) {
+                logger.error("Strategy cycle rejected by executor: strategyId={}", pending.strategy.getStrategyId(), e);
+                release(pending);
+                pending.future.complete(false);
+            }
+        }
+    }
+
+    private void run(PendingCycle pending) {
+        StrategyInstanceAggregate strategy = pending.strategy;
+        boolean executed = false;
+        Exception failure = null;
+        try {
+            int intervalSeconds = properties.intervalSeconds(
+                    strategy.getConfig() != null ? strategy.getConfig().getIntervalSeconds() : null);
+            long lateMs = System.currentTimeMillis() - pending.dueAtMs;
+            if (lateMs >= intervalSeconds * 1000L) {
+                // 迟到超过一个间隔，下一轮已经到期，本轮作废，避免占用下一轮的时间窗口
+                admission.recordShed(CycleAdmissionController.ShedReason.STALE);
+                logger.warn("Strategy cycle stale, dropped: strategyId={}, late={}ms", strategy.getStrategyId(), lateMs);
+                return;
+            }
+
+            logger.info("Executing strategy: userId={}, strategyId={}, provider={}",
+                    strategy.getUserId(), strategy.getStrategyId(), pending.providerId);
+
+            CycleExecutionGuard.Outcome outcome = tradingCycleAppService.executeCycle(strategy.getStrategyId(), intervalSeconds);
+
+            logger.info("Strategy executed: userId={}, strategyId={}, outcome={}",
+                    strategy.getUserId(), strategy.getStrategyId(), outcome);
+            // 被执行守卫丢弃或节点排空中拒绝的循环没有执行
+            executed = outcome != CycleExecutionGuard.Outcome.SKIPPED
+                    && outcome != CycleExecutionGuard.Outcome.REJECTED;
+        } catch (Exception e) {
+            logger.error("Strategy execution failed: userId={}, strategyId={}, error={}",
+                    strategy.getUserId(), strategy.getStrategyId(), e.getMessage(), e);
+            failure = e;
+        } finally {
+            release(pending);
+            if (failure != null) {
+                pending.future.completeExceptionally(failure);
+            } else {
+                pending.future.complete(executed);
+            }
+            drain();
+        }
+    }
+
+    /**
+     * 按队列中最早一轮的迟到时长 (自应开始时刻起) 更新准入级别，调用方持有 lock
+     */
+    private CycleAdmissionController.Level updateLevel(long now) {
+        Long oldest = queue.oldestDueAtMs();
+        return admission.update(oldest != null ? now - oldest : 0L);
+    }
+
+    private void release(PendingCycle pending) {
+        synchronized (lock) {
+            running--;
+            runningByProvider.merge(pending.providerId, -1, Integer::sum);
+        }
+    }
+
+    private String resolveProvider(StrategyInstanceAggregate strategy) {
+        try {
+            String modelId = strategy.getConfig() != null ? strategy.getConfig().getModelId() : null;
+            if (modelId == null || modelId.isEmpty()) {
+                modelId = llmConfigProvider.getModelId(strategy.getStrategyId());
+            }
+            String providerId = llmConfigProvider.getProviderId(modelId);
+            return providerId != null ? providerId : DEFAULT_PROVIDER;
+        } catch (Exception e) {
+            logger.warn("Failed to resolve LLM provider for strategy {}, using default", strategy.getStrategyId(), e);
+            return DEFAULT_PROVIDER;
+        }
+    }
+
+    public int getRunningCount() {
+        synchronized (lock) {
+            return running;
+        }
+    }
+
+    public int getQueuedCount() {
+        synchronized (lock) {
+            return queue.size();
+        }
+    }
+
+    public CycleAdmissionController.Level getAdmissionLevel() {
+        return admission.getLevel();
+    }
+
+    private static class PendingCycle {
+        private final StrategyInstanceAggregate strategy;
+        private final String providerId;
+        private final long dueAtMs;
+        private final CompletableFuture<Boolean> future = new CompletableFuture<>();
+        private final long enqueuedAtMs = System.currentTimeMillis();
+
+        private PendingCycle(StrategyInstanceAggregate strategy, String providerId, long dueAtMs) {
+            this.strategy = strategy;
+            this.providerId = providerId;
+            this.dueAtMs = dueAtMs;
+        }
+    }
+}
@@ -1,20 +1,41 @@
 package com.weihua.trigger.job;
 
+import com.weihua.strategy.api.dto.ScheduleLoadDTO;
 import com.weihua.strategy.domain.model.aggregate.StrategyInstanceAggregate;
 import com.weihua.strategy.domain.model.valobj.StrategyStatus;
 import com.weihua.strategy.domain.repository.IStrategyInstanceRepository;
+import com.weihua.strategy.application.guard.CycleExecutionGuard;
+import com.weihua.strategy.application.lifecycle.CycleDrainCoordinator;
 import com.weihua.strategy.application.service.TradingCycleAppService;
+import com.weihua.trigger.config.StrategySchedulerProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import jakarta.annotation.PostConstruct;
 import jakarta.annotation.Resource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
 
 /**
  * 策略调度器
- * 定期扫描并执行所有运行中的策略
+ * 启动时加载一次 RUNNING 策略到时间轮，之后按每个策略自己的 intervalSeconds 触发，
+ * 首次触发时间按 strategy.scheduler.stagger-mode 在间隔内错峰；
+ * 策略的创建、启停、配置变更通过 StrategyChangedEvent 增量同步，
+ * 低频全量对账 (strategy.scheduler.reconcile-interval-ms) 兜底处理直接改库的情况
+ *
+ * DISTRIBUTED 模式下不使用本地时间轮，排期写入共享任务表，由各节点的 DistributedCycleWorker 领取执行
  */
 @Component
 public class StrategyScheduler {
@@ -27,50 +48,256 @@ public class StrategyScheduler {
     @Resource
     private IStrategyInstanceRepository strategyInstanceRepository;
     
+    @Resource
+    private StrategyCycleDispatcher strategyCycleDispatcher;
+
+    @Resource
+    private DistributedCycleWorker distributedCycleWorker;
+
+    @Resource
+    private CycleDrainCoordinator cycleDrainCoordinator;
+
+    @Resource
+    private StrategySchedulerProperties properties;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private StrategyTimingWheel timingWheel;
+    private StrategyStagger stagger;
+    private Counter firedCounter;
+
+    @PostConstruct
+    public void init() {
+        timingWheel = new StrategyTimingWheel(properties.getTickMs(), properties.getWheelSize(), System.currentTimeMillis());
+        stagger = new StrategyStagger(
+            StrategyStagger.Mode.valueOf(properties.getStaggerMode().trim().toUpperCase()),
+            properties.getJitterMs(),
+            properties.getCandleCloseOffsetMs(),
+            properties.getCandleSpreadMs(),
+            new Random());
+
+        // 实际触发速率：rate(strategy.scheduler.fired)；预测负载：未来窗口内的单秒峰值与均值
+        firedCounter = Counter.builder("strategy.scheduler.fired")
+            .description("时间轮触发的交易循环数").register(meterRegistry);
+        Gauge.builder("strategy.scheduler.projected.peak", this, s -> s.projectedLoad(properties.getLoadWindowSeconds()).getPeakPerSecond())
+            .description("预测窗口内单秒最大触发数").register(meterRegistry);
+        Gauge.builder("strategy.scheduler.projected.avg", this, s -> s.projectedLoad(properties.getLoadWindowSeconds()).getAveragePerSecond())
+            .description("预测窗口内平均每秒触发数").register(meterRegistry);
+    }
+
+    /**
+     * 应用启动后加载一次排期
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadSchedule() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        reconcile();
+        logger.info("Strategy schedule loaded, mode={}, scheduled strategies: {}", properties.getMode(), timingWheel.size());
+    }
+
     /**
-     * 每60秒执行一次，扫描所有 RUNNING 状态的策略
-     * 可通过配置文件调整间隔: strategy.scheduler.fixed-rate
+     * 时间轮 tick，默认每秒一次
+     * 可通过配置文件调整: strategy.scheduler.tick-ms
      */
-    @Scheduled(fixedRateString = "${strategy.scheduler.fixed-rate:60000}")
-    public void executeAllRunningStrategies() {
-        logger.info("Strategy scheduler triggered");
+    @Scheduled(fixedRateString = "${strategy.scheduler.tick-ms:1000}")
+    public void tick() {
+        if (!properties.isEnabled() || properties.isDistributed() || !cycleDrainCoordinator.isAccepting()) {
+            return;
+        }
         
         try {
-            // 查询所有运行中的策略
-            List<StrategyInstanceAggregate> runningStrategies = 
-                strategyInstanceRepository.findByStatus(StrategyStatus.RUNNING);
-            
-            if (runningStrategies == null || runningStrategies.isEmpty()) {
-                logger.debug("No running strategies found");
+            // 槽位时刻即本轮应开始的时刻，调度线程落后时据此计算迟到加成
+            Map<String, Long> dueAtMs = new HashMap<>();
+            List<StrategyInstanceAggregate> dueStrategies = timingWheel.advance(System.currentTimeMillis(), dueAtMs);
+            if (dueStrategies.isEmpty()) {
                 return;
             }
             
-            logger.info("Found {} running strategies", runningStrategies.size());
+            logger.info("Strategy timing wheel fired {} strategies", dueStrategies.size());
+            firedCounter.increment(dueStrategies.size());
             
-            // 逐个执行
-            for (StrategyInstanceAggregate strategy : runningStrategies) {
-                try {
-                    logger.info("Executing strategy: userId={}, strategyId={}, name={}", 
-                        strategy.getUserId(),
-                        strategy.getStrategyId(), 
-                        strategy.getConfig().getStrategyName());
-                    
-                    tradingCycleAppService.executeCycle(strategy.getStrategyId());
-                    
-                    logger.info("Strategy executed successfully: userId={}, strategyId={}", 
-                        strategy.getUserId(), strategy.getStrategyId());
+            // 本 tick 所有到期策略的交易对合并预取，各循环准备上下文时直接命中报价缓存
+            if (properties.isPrefetchMarketData()) {
+                tradingCycleAppService.prefetchMarketData(dueStrategies);
+            }
                     
-                } catch (Exception e) {
-                    logger.error("Strategy execution failed: userId={}, strategyId={}, error={}", 
-                        strategy.getUserId(), strategy.getStrategyId(), e.getMessage(), e);
+            // 顺序执行与流水线模式按加权公平顺序提交；并发模式由分发器的公平队列排序
+            if (!properties.isConcurrent()) {
+                dueStrategies = WeightedFairCycleQueue.order(dueStrategies, dueAtMs, properties, System.currentTimeMillis());
+            }
                     
-                    // 可以在这里记录失败次数,超过阈值后自动停止策略
-                    // 或者发送告警通知
-                }
+            if (properties.isReactive()) {
+                submitToEngine(dueStrategies);
+            } else if (properties.isConcurrent()) {
+                // 移交给分发器，不阻塞时间轮推进
+                strategyCycleDispatcher.dispatch(dueStrategies, dueAtMs);
+            } else {
+                executeSequentially(dueStrategies);
             }
             
         } catch (Exception e) {
             logger.error("Strategy scheduler execution failed", e);
         }
     }
+
+    /**
+     * 低频全量对账，默认 10 分钟一次
+     */
+    @Scheduled(initialDelayString = "${strategy.scheduler.reconcile-interval-ms:600000}",
+            fixedRateString = "${strategy.scheduler.reconcile-interval-ms:600000}")
+    public void reconcileSchedule() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            reconcile();
+        } catch (Exception e) {
+            logger.error("Strategy schedule reconcile failed", e);
+        }
+    }
+
+    /**
+     * 新增或更新策略排期
+     */
+    public void reschedule(StrategyInstanceAggregate strategy) {
+        if (strategy.getStatus() != StrategyStatus.RUNNING) {
+            unschedule(strategy.getStrategyId());
+            return;
+        }
+        long intervalMs = intervalMs(strategy);
+        if (properties.isDistributed()) {
+            long delayMs = stagger.firstDelayMs(strategy.getStrategyId(), intervalMs, System.currentTimeMillis());
+            distributedCycleWorker.schedule(strategy, intervalSeconds(strategy), System.currentTimeMillis() + delayMs);
+            return;
+        }
+        Long currentIntervalMs = timingWheel.intervalOf(strategy.getStrategyId());
+        if (currentIntervalMs != null && currentIntervalMs == intervalMs) {
+            // 间隔不变，保持原有相位
+            timingWheel.update(strategy, intervalMs);
+        } else {
+            long delayMs = stagger.firstDelayMs(strategy.getStrategyId(), intervalMs, System.currentTimeMillis());
+            timingWheel.schedule(strategy, intervalMs, delayMs);
+            logger.info("Strategy scheduled: strategyId={}, interval={}ms, firstDelay={}ms",
+                strategy.getStrategyId(), intervalMs, delayMs);
+        }
+    }
+
+    public void unschedule(String strategyId) {
+        if (properties.isDistributed()) {
+            distributedCycleWorker.cancel(strategyId);
+            return;
+        }
+        if (timingWheel.cancel(strategyId)) {
+            logger.info("Strategy unscheduled: strategyId={}", strategyId);
+        }
+    }
+
+    public int getScheduledCount() {
+        return timingWheel.size();
+    }
+
+    /**
+     * 按当前排期预测未来 windowSeconds 秒内每秒触发的交易循环数
+     */
+    public ScheduleLoadDTO projectedLoad(int windowSeconds) {
+        int window = Math.max(1, windowSeconds);
+        int[] perSecond = timingWheel.projectLoad(System.currentTimeMillis(), window);
+
+        int total = 0;
+        int peak = 0;
+        List<Integer> series = new ArrayList<>(window);
+        for (int count : perSecond) {
+            total += count;
+            peak = Math.max(peak, count);
+            series.add(count);
+        }
+
+        return ScheduleLoadDTO.builder()
+            .staggerMode(stagger.getMode().name())
+            .scheduledStrategies(timingWheel.size())
+            .windowSeconds(window)
+            .totalCycles(total)
+            .peakPerSecond(peak)
+            .averagePerSecond((double) total / window)
+            .perSecond(series)
+            .build();
+    }
+
+    /**
+     * 以数据库中的 RUNNING 策略为准同步时间轮
+     */
+    private void reconcile() {
+        List<StrategyInstanceAggregate> runningStrategies =
+            strategyInstanceRepository.findByStatus(StrategyStatus.RUNNING);
+
+        Set<String> runningIds = new HashSet<>();
+        if (runningStrategies != null) {
+            for (StrategyInstanceAggregate strategy : runningStrategies) {
+                runningIds.add(strategy.getStrategyId());
+                reschedule(strategy);
+            }
+        }
+
+        for (String strategyId : timingWheel.strategyIds()) {
+            if (!runningIds.contains(strategyId)) {
+                unschedule(strategyId);
+            }
+        }
+    }
+
+    private long intervalMs(StrategyInstanceAggregate strategy) {
+        return intervalSeconds(strategy) * 1000L;
+    }
+
+    private int intervalSeconds(StrategyInstanceAggregate strategy) {
+        return properties.intervalSeconds(strategy.getConfig() != null ? strategy.getConfig().getIntervalSeconds() : null);
+    }
+
+    /**
+     * 流水线执行：提交到 TradingCycleEngine 后立即返回，排队与并发由引擎各阶段控制
+     */
+    private void submitToEngine(List<StrategyInstanceAggregate> dueStrategies) {
+        for (StrategyInstanceAggregate strategy : dueStrategies) {
+            tradingCycleAppService.submitCycle(strategy.getStrategyId(), intervalSeconds(strategy))
+                .whenComplete((outcome, error) -> {
+                    if (error != null) {
+                        logger.error("Strategy execution failed: userId={}, strategyId={}, error={}",
+                            strategy.getUserId(), strategy.getStrategyId(), error.getMessage(), error);
+                    } else {
+                        logger.info("Strategy executed: userId={}, strategyId={}, outcome={}",
+                            strategy.getUserId(), strategy.getStrategyId(), outcome);
+                    }
+                });
+        }
+    }
+
+    /**
+     * 顺序执行：在调度线程上逐个执行
+     */
+    private void executeSequentially(List<StrategyInstanceAggregate> dueStrategies) {
+        for (StrategyInstanceAggregate strategy : dueStrategies) {
+            try {
+                logger.info("Executing strategy: userId={}, strategyId={}, name={}",
+                    strategy.getUserId(),
+                    strategy.getStrategyId(),
+                    strategy.getConfig().getStrategyName());
+
+                CycleExecutionGuard.Outcome outcome = tradingCycleAppService.executeCycle(
+                    strategy.getStrategyId(), intervalSeconds(strategy));
+
+                logger.info("Strategy executed: userId={}, strategyId={}, outcome={}",
+                    strategy.getUserId(), strategy.getStrategyId(), outcome);
+
+            } catch (Exception e) {
+                logger.error("Strategy execution failed: userId={}, strategyId={}, error={}",
+                    strategy.getUserId(), strategy.getStrategyId(), e.getMessage(), e);
+
+                // 可以在这里记录失败次数,超过阈值后自动停止策略
+                // 或者发送告警通知
+            }
+        }
+    }
 }
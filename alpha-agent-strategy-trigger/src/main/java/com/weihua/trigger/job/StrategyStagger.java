@@ -0,0 +1,71 @@
+package com.weihua.trigger.job;
+
+import java.util.Random;
+
+/**
+ * 策略首次触发时间错峰
+ * 避免所有策略在同一秒触发，导致 Stock-MCP 和 LLM 渠道一分钟一次的突发流量 (429、p99 抖动)
+ *
+ * NONE         下一个 tick 立即触发 (旧行为)
+ * HASH         按 strategyId 哈希确定在间隔内的固定相位 (重启后相位不变)，再叠加随机抖动
+ * CANDLE_CLOSE 对齐到下一根 K 线收盘 (K 线周期 = 策略间隔)，收盘后延迟 offset，
+ *              并按哈希在 spread 窗口内错开，再叠加随机抖动
+ */
+public class StrategyStagger {
+
+    public enum Mode {
+        NONE, HASH, CANDLE_CLOSE
+    }
+
+    private final Mode mode;
+    private final long jitterMs;
+    private final long candleCloseOffsetMs;
+    private final long candleSpreadMs;
+    private final Random random;
+
+    public StrategyStagger(Mode mode, long jitterMs, long candleCloseOffsetMs, long candleSpreadMs, Random random) {
+        this.mode = mode;
+        this.jitterMs = Math.max(0, jitterMs);
+        this.candleCloseOffsetMs = Math.max(0, candleCloseOffsetMs);
+        this.candleSpreadMs = Math.max(0, candleSpreadMs);
+        this.random = random;
+    }
+
+    /**
+     * 计算策略首次触发的延迟 (毫秒)
+     */
+    public long firstDelayMs(String strategyId, long intervalMs, long nowMs) {
+        switch (mode) {
+            case HASH: {
+                long phase = Math.floorMod(hash(strategyId), intervalMs);
+                return Math.floorMod(phase - nowMs, intervalMs) + jitter(intervalMs);
+            }
+            case CANDLE_CLOSE: {
+                long nextClose = nowMs - Math.floorMod(nowMs, intervalMs) + intervalMs;
+                long spread = Math.min(candleSpreadMs, intervalMs);
+                long slot = spread > 0 ? Math.floorMod(hash(strategyId), spread) : 0;
+                return nextClose + candleCloseOffsetMs + slot + jitter(intervalMs) - nowMs;
+            }
+            case NONE:
+            default:
+                return 0;
+        }
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    private long jitter(long intervalMs) {
+        long bound = Math.min(jitterMs, intervalMs);
+        return bound > 0 ? (long) (random.nextDouble() * bound) : 0;
+    }
+
+    /**
+     * 对 String.hashCode 做一次混淆，使相近的 strategyId 也能均匀分布
+     */
+    private static long hash(String strategyId) {
+        long h = strategyId.hashCode() * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+}
@@ -0,0 +1,180 @@
+package com.weihua.trigger.job;
+
+import com.weihua.strategy.domain.model.aggregate.StrategyInstanceAggregate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 哈希时间轮
+ * 按策略各自的 intervalSeconds 安排下一次触发，每个 tick 只处理一个槽位，
+ * 新增 / 取消 / 重新调度均为 O(1)
+ *
+ * 时间由调用方传入 (毫秒)，不自带线程，由 StrategyScheduler 的 tick 驱动
+ */
+public class StrategyTimingWheel {
+
+    private final long tickMs;
+    private final int wheelSize;
+    private final long startMs;
+
+    @SuppressWarnings("unchecked")
+    private final Set<Entry>[] buckets;
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    /** 已处理到的 tick 序号 */
+    private long currentTick = 0;
+
+    public StrategyTimingWheel(long tickMs, int wheelSize, long startMs) {
+        if (tickMs <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("tickMs and wheelSize must be positive");
+        }
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.startMs = startMs;
+        this.buckets = new Set[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            buckets[i] = new LinkedHashSet<>();
+        }
+    }
+
+    /**
+     * 安排策略在 delayMs 后首次触发，之后每 intervalMs 触发一次
+     * 已存在的同一策略会被替换
+     */
+    public synchronized void schedule(StrategyInstanceAggregate strategy, long intervalMs, long delayMs) {
+        cancel(strategy.getStrategyId());
+        Entry entry = new Entry(strategy, intervalMs);
+        entries.put(strategy.getStrategyId(), entry);
+        place(entry, delayMs);
+    }
+
+    /**
+     * 更新策略快照；间隔不变时保持原有节奏，间隔变化时从当前时刻按新间隔重新排期
+     */
+    public synchronized void update(StrategyInstanceAggregate strategy, long intervalMs) {
+        Entry entry = entries.get(strategy.getStrategyId());
+        if (entry == null || entry.intervalMs != intervalMs) {
+            schedule(strategy, intervalMs, intervalMs);
+            return;
+        }
+        entry.strategy = strategy;
+    }
+
+    public synchronized boolean cancel(String strategyId) {
+        Entry entry = entries.remove(strategyId);
+        if (entry == null) {
+            return false;
+        }
+        buckets[entry.bucket].remove(entry);
+        return true;
+    }
+
+    public synchronized boolean contains(String strategyId) {
+        return entries.containsKey(strategyId);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized List<String> strategyIds() {
+        return new ArrayList<>(entries.keySet());
+    }
+
+    /**
+     * 策略当前的触发间隔 (毫秒)，未排期时返回 null
+     */
+    public synchronized Long intervalOf(String strategyId) {
+        Entry entry = entries.get(strategyId);
+        return entry != null ? entry.intervalMs : null;
+    }
+
+    /**
+     * 预测从 nowMs 起 windowSeconds 秒内每秒触发的策略数
+     * 按各策略当前所在槽位和间隔推算，不改变时间轮状态
+     */
+    public synchronized int[] projectLoad(long nowMs, int windowSeconds) {
+        int[] perSecond = new int[windowSeconds];
+        long windowEndMs = nowMs + windowSeconds * 1000L;
+        for (Entry entry : entries.values()) {
+            long distance = Math.floorMod(entry.bucket - currentTick, (long) wheelSize);
+            if (distance == 0) {
+                distance = wheelSize;
+            }
+            long fireMs = startMs + (currentTick + distance + entry.rounds * wheelSize) * tickMs;
+            for (; fireMs < windowEndMs; fireMs += entry.intervalMs) {
+                // 时间轮落后于当前时间时，已到期未触发的计入第一秒
+                int second = fireMs <= nowMs ? 0 : (int) ((fireMs - nowMs) / 1000L);
+                perSecond[second]++;
+            }
+        }
+        return perSecond;
+    }
+
+    /**
+     * 推进时间轮到 nowMs，返回期间到期的策略 (按到期顺序)
+     * 到期的策略会按各自间隔自动排入下一轮
+     */
+    public synchronized List<StrategyInstanceAggregate> advance(long nowMs) {
+        return advance(nowMs, null);
+    }
+
+    /**
+     * 同 advance(nowMs)，并把每个到期策略所在槽位的时刻 (本轮应开始的时刻) 写入 dueAtMs
+     * 调度线程落后时槽位时刻早于 nowMs，差值即本轮已迟到的时长
+     * @param dueAtMs strategyId -> 槽位时刻，可以为 null
+     */
+    public synchronized List<StrategyInstanceAggregate> advance(long nowMs, Map<String, Long> dueAtMs) {
+        long targetTick = (nowMs - startMs) / tickMs;
+        List<StrategyInstanceAggregate> due = new ArrayList<>();
+
+        while (currentTick < targetTick) {
+            currentTick++;
+            Set<Entry> bucket = buckets[(int) (currentTick % wheelSize)];
+            if (bucket.isEmpty()) {
+                continue;
+            }
+            List<Entry> fired = new ArrayList<>();
+            for (Entry entry : bucket) {
+                if (entry.rounds > 0) {
+                    entry.rounds--;
+                } else {
+                    fired.add(entry);
+                }
+            }
+            for (Entry entry : fired) {
+                bucket.remove(entry);
+                due.add(entry.strategy);
+                if (dueAtMs != null) {
+                    dueAtMs.put(entry.strategy.getStrategyId(), startMs + currentTick * tickMs);
+                }
+                place(entry, entry.intervalMs);
+            }
+        }
+        return due;
+    }
+
+    private void place(Entry entry, long delayMs) {
+        long ticks = Math.max(1, (delayMs + tickMs - 1) / tickMs);
+        entry.bucket = (int) ((currentTick + ticks) % wheelSize);
+        entry.rounds = (ticks - 1) / wheelSize;
+        buckets[entry.bucket].add(entry);
+    }
+
+    private static class Entry {
+        private StrategyInstanceAggregate strategy;
+        private final long intervalMs;
+        private int bucket;
+        private long rounds;
+
+        private Entry(StrategyInstanceAggregate strategy, long intervalMs) {
+            this.strategy = strategy;
+            this.intervalMs = intervalMs;
+        }
+    }
+}
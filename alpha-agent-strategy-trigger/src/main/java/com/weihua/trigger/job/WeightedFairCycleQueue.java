@@ -0,0 +1,320 @@
+package com.weihua.trigger.job;
+
+import com.weihua.strategy.domain.model.aggregate.StrategyInstanceAggregate;
+import com.weihua.strategy.domain.model.entity.StrategyConfigEntity;
+import com.weihua.strategy.domain.model.valobj.TradingMode;
+import com.weihua.trigger.config.StrategySchedulerProperties;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+/**
+ * 按用户加权公平排队的交易循环队列 (非线程安全，由调用方加锁)
+ *
+ * 用户之间：每个用户维护一个虚拟时间，每出队一个循环推进 1 / 用户权重，
+ * 总是优先服务虚拟时间最小的用户，拥有 200 个策略的用户与只有 1 个策略的用户按权重轮流出队
+ *
+ * 用户内部及跨用户插队：每个循环在入队时按 配置优先级 + 实盘 + 初始资金 + 迟到程度 计算一次加成 (单位：轮)，
+ * 选择用户时以 虚拟时间 - 加成 比较，加成有上限，因此高优先级循环可以提前若干轮，但不会饿死其他用户。
+ * 排队期间不再重算加成：同一用户加成相同的循环按 dueAtMs 先到先出，跨用户的等待由虚拟时间保证
+ *
+ * 循环按 (用户, 通道) 放在按加成排序的堆中，每个通道 (如 LLM 渠道) 维护一个按 虚拟时间 - 堆顶加成 排序的有序集合。
+ * 出队时只比较可用通道的首个元素，入队、出队均为 O(通道数 × log N)，不可用通道中的循环不会被扫描
+ */
+public class WeightedFairCycleQueue<T> {
+
+    private static final String ANONYMOUS_USER = "-";
+
+    /** 不区分通道时使用的默认通道 */
+    public static final String DEFAULT_LANE = "-";
+
+    private static final Comparator<Item<?>> ITEM_ORDER = Comparator
+            .comparingDouble((Item<?> item) -> -item.boost)
+            .thenComparingLong(item -> item.dueAtMs)
+            .thenComparingLong(item -> item.seq);
+
+    private static final Comparator<LaneQueue<?>> LANE_QUEUE_ORDER = Comparator
+            .comparingDouble(LaneQueue<?>::key)
+            .thenComparingLong(queue -> queue.user.seq);
+
+    private final StrategySchedulerProperties properties;
+    private final Map<String, UserQueue<T>> users = new HashMap<>();
+
+    /** 通道 -> 该通道中有待执行循环的 (用户, 通道) 队列；修改用户虚拟时间或堆顶前必须先移出 */
+    private final Map<String, TreeSet<LaneQueue<T>>> lanes = new HashMap<>();
+
+    /** dueAtMs -> 循环数 */
+    private final TreeMap<Long, Integer> dueAtCounts = new TreeMap<>();
+
+    /** 队列已空的用户，按变空时的虚拟时间排序，全局虚拟时间追上后清除 */
+    private final PriorityQueue<IdleUser<T>> idleUsers =
+            new PriorityQueue<>(Comparator.comparingDouble((IdleUser<T> idle) -> idle.virtualTime));
+
+    /** 最近一次出队用户的虚拟时间，新激活的用户从这里开始，不能攒积分 */
+    private double virtualTime = 0D;
+    private long sequence = 0L;
+    private int size = 0;
+
+    public WeightedFairCycleQueue(StrategySchedulerProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * 入队
+     * @param lane    所属通道，出队时按通道判断是否可执行
+     * @param dueAtMs 循环本应开始的时刻，用于计算迟到程度
+     * @param nowMs   入队时刻，加成在此时计算
+     */
+    public void add(StrategyInstanceAggregate strategy, String lane, long dueAtMs, long nowMs, T payload) {
+        String userId = strategy.getUserId() != null ? strategy.getUserId() : ANONYMOUS_USER;
+        UserQueue<T> user = users.computeIfAbsent(userId, k -> new UserQueue<>(k, sequence++));
+        if (user.size == 0) {
+            user.virtualTime = Math.max(user.virtualTime, virtualTime);
+        }
+        LaneQueue<T> queue = user.lanes.computeIfAbsent(lane, k -> new LaneQueue<>(user, k));
+        TreeSet<LaneQueue<T>> ordered = lanes.computeIfAbsent(lane, k -> new TreeSet<>(LANE_QUEUE_ORDER));
+        ordered.remove(queue);
+        queue.items.add(new Item<>(payload, dueAtMs, boost(strategy, dueAtMs, nowMs), sequence++));
+        ordered.add(queue);
+        user.size++;
+        dueAtCounts.merge(dueAtMs, 1, Integer::sum);
+        size++;
+    }
+
+    /**
+     * 取出下一个应执行的循环
+     * @param laneEligible 通道当前是否可执行 (如渠道未满)，不可执行通道的循环保留在队列中
+     * @return 没有可执行的循环时返回 null
+     */
+    public T poll(Predicate<String> laneEligible) {
+        LaneQueue<T> best = null;
+        for (Map.Entry<String, TreeSet<LaneQueue<T>>> entry : lanes.entrySet()) {
+            if (entry.getValue().isEmpty() || !laneEligible.test(entry.getKey())) {
+                continue;
+            }
+            LaneQueue<T> first = entry.getValue().first();
+            if (best == null || LANE_QUEUE_ORDER.compare(first, best) < 0) {
+                best = first;
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+
+        UserQueue<T> user = best.user;
+        // 虚拟时间变化影响该用户在所有通道中的位置
+        detach(user);
+        Item<T> item = best.items.poll();
+        user.size--;
+        removeDueAt(item.dueAtMs);
+        size--;
+        virtualTime = Math.max(virtualTime, user.virtualTime);
+        user.virtualTime += 1D / userWeight(user.userId);
+        attach(user);
+        if (user.size == 0) {
+            idleUsers.add(new IdleUser<>(user, user.virtualTime));
+        }
+        evictIdleUsers();
+        return item.payload;
+    }
+
+    public boolean removeIf(Predicate<T> filter) {
+        boolean removed = false;
+        for (UserQueue<T> user : users.values()) {
+            detach(user);
+            for (LaneQueue<T> queue : user.lanes.values()) {
+                removed |= queue.items.removeIf(item -> {
+                    if (!filter.test(item.payload)) {
+                        return false;
+                    }
+                    removeDueAt(item.dueAtMs);
+                    user.size--;
+                    size--;
+                    return true;
+                });
+            }
+            attach(user);
+            if (user.size == 0) {
+                idleUsers.add(new IdleUser<>(user, user.virtualTime));
+            }
+        }
+        evictIdleUsers();
+        return removed;
+    }
+
+    /**
+     * 队列中最早的 dueAtMs，队列为空时返回 null
+     */
+    public Long oldestDueAtMs() {
+        return dueAtCounts.isEmpty() ? null : dueAtCounts.firstKey();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 按公平队列的出队顺序对一批同时到期的策略排序 (顺序执行 / 流水线模式使用)
+     */
+    public static List<StrategyInstanceAggregate> order(List<StrategyInstanceAggregate> strategies,
+                                                        StrategySchedulerProperties properties, long nowMs) {
+        return order(strategies, Map.of(), properties, nowMs);
+    }
+
+    /**
+     * 同上，按各策略本轮应开始的时刻计算迟到加成
+     * @param dueAtMs strategyId -> 本轮应开始的时刻，缺失时按 nowMs 计
+     */
+    public static List<StrategyInstanceAggregate> order(List<StrategyInstanceAggregate> strategies, Map<String, Long> dueAtMs,
+                                                        StrategySchedulerProperties properties, long nowMs) {
+        WeightedFairCycleQueue<StrategyInstanceAggregate> queue = new WeightedFairCycleQueue<>(properties);
+        for (StrategyInstanceAggregate strategy : strategies) {
+            queue.add(strategy, DEFAULT_LANE, dueAtMs.getOrDefault(strategy.getStrategyId(), nowMs), nowMs, strategy);
+        }
+        List<StrategyInstanceAggregate> ordered = new ArrayList<>(strategies.size());
+        StrategyInstanceAggregate next;
+        while ((next = queue.poll(lane -> true)) != null) {
+            ordered.add(next);
+        }
+        return ordered;
+    }
+
+    private void detach(UserQueue<T> user) {
+        for (LaneQueue<T> queue : user.lanes.values()) {
+            if (!queue.items.isEmpty()) {
+                lanes.get(queue.lane).remove(queue);
+            }
+        }
+    }
+
+    private void attach(UserQueue<T> user) {
+        user.lanes.values().removeIf(queue -> {
+            if (queue.items.isEmpty()) {
+                return true;
+            }
+            lanes.get(queue.lane).add(queue);
+            return false;
+        });
+    }
+
+    /**
+     * 清除不再需要保留状态的空闲用户，避免长期运行的队列保留所有出现过的用户：
+     * 1. 虚拟时间已被全局虚拟时间追上的用户没有欠账，再次入队时从全局虚拟时间开始，与保留状态等价
+     * 2. 队列清空时所有用户都已得到服务，忘记各自的欠账，下一次积压重新开始计算
+     */
+    private void evictIdleUsers() {
+        if (size == 0) {
+            users.clear();
+            idleUsers.clear();
+            return;
+        }
+        while (!idleUsers.isEmpty() && idleUsers.peek().virtualTime <= virtualTime) {
+            UserQueue<T> user = idleUsers.poll().user;
+            // 期间重新入队的用户仍在使用，变空时会再次登记
+            if (user.size == 0 && user.virtualTime <= virtualTime && users.get(user.userId) == user) {
+                users.remove(user.userId);
+            }
+        }
+    }
+
+    private void removeDueAt(long dueAtMs) {
+        dueAtCounts.computeIfPresent(dueAtMs, (k, count) -> count > 1 ? count - 1 : null);
+    }
+
+    /**
+     * 循环的加成 (单位：轮)
+     */
+    private double boost(StrategyInstanceAggregate strategy, long dueAtMs, long nowMs) {
+        StrategyConfigEntity config = strategy.getConfig();
+        double boost = 0D;
+        if (config != null) {
+            if (config.getPriority() != null) {
+                boost += config.getPriority() * properties.getPriorityWeight();
+            }
+            if (config.getTradingMode() == TradingMode.LIVE) {
+                boost += properties.getLiveBoost();
+            }
+            BigDecimal capital = config.getInitialCapital();
+            if (capital != null && capital.signum() > 0) {
+                boost += Math.log10(1D + capital.doubleValue()) * properties.getCapitalWeight();
+            }
+        }
+
+        long lateMs = nowMs - dueAtMs;
+        if (lateMs > 0) {
+            long intervalMs = properties.intervalSeconds(config != null ? config.getIntervalSeconds() : null) * 1000L;
+            boost += (double) lateMs / intervalMs * properties.getLatenessWeight();
+        }
+        return Math.max(0D, Math.min(boost, properties.getMaxBoost()));
+    }
+
+    private double userWeight(String userId) {
+        Double weight = properties.getUserWeights().get(userId);
+        return weight != null && weight > 0 ? weight : properties.getDefaultUserWeight();
+    }
+
+    private static class UserQueue<T> {
+        private final String userId;
+        private final long seq;
+        private final Map<String, LaneQueue<T>> lanes = new HashMap<>();
+        private double virtualTime = 0D;
+        private int size = 0;
+
+        private UserQueue(String userId, long seq) {
+            this.userId = userId;
+            this.seq = seq;
+        }
+    }
+
+    private static class LaneQueue<T> {
+        private final UserQueue<T> user;
+        private final String lane;
+        private final PriorityQueue<Item<T>> items = new PriorityQueue<>(ITEM_ORDER);
+
+        private LaneQueue(UserQueue<T> user, String lane) {
+            this.user = user;
+            this.lane = lane;
+        }
+
+        private double key() {
+            Item<T> head = items.peek();
+            return head == null ? user.virtualTime : user.virtualTime - head.boost;
+        }
+    }
+
+    private static class IdleUser<T> {
+        private final UserQueue<T> user;
+        private final double virtualTime;
+
+        private IdleUser(UserQueue<T> user, double virtualTime) {
+            this.user = user;
+            this.virtualTime = virtualTime;
+        }
+    }
+
+    private static class Item<T> {
+        private final T payload;
+        private final long dueAtMs;
+        private final double boost;
+        private final long seq;
+
+        private Item(T payload, long dueAtMs, double boost, long seq) {
+            this.payload = payload;
+            this.dueAtMs = dueAtMs;
+            this.boost = boost;
+            this.seq = seq;
+        }
+    }
+}
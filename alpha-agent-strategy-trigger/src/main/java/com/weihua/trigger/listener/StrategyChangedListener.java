@@ -0,0 +1,51 @@
+package com.weihua.trigger.listener;
+
+import com.weihua.strategy.domain.model.aggregate.StrategyInstanceAggregate;
+import com.weihua.strategy.domain.model.valobj.StrategyChangedEvent;
+import com.weihua.strategy.domain.model.valobj.StrategyStatus;
+import com.weihua.strategy.domain.repository.IStrategyInstanceRepository;
+import com.weihua.trigger.job.StrategyScheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import jakarta.annotation.Resource;
+
+/**
+ * 策略变更监听
+ * 将策略的创建、启停、配置变更增量同步到调度时间轮
+ */
+@Component
+public class StrategyChangedListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(StrategyChangedListener.class);
+
+    @Resource
+    private StrategyScheduler strategyScheduler;
+
+    @Resource
+    private IStrategyInstanceRepository strategyInstanceRepository;
+
+    /**
+     * 事务提交后再更新排期；无事务时直接执行
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStrategyChanged(StrategyChangedEvent event) {
+        try {
+            if (event.getStatus() != StrategyStatus.RUNNING) {
+                strategyScheduler.unschedule(event.getStrategyId());
+                return;
+            }
+
+            StrategyInstanceAggregate strategy = event.getStrategy() != null
+                    ? event.getStrategy()
+                    : strategyInstanceRepository.findByStrategyId(event.getStrategyId());
+            if (strategy != null) {
+                strategyScheduler.reschedule(strategy);
+            }
+        } catch (Exception e) {
+            logger.error("Failed to sync schedule for strategy: {}", event.getStrategyId(), e);
+        }
+    }
+}
@@ -12,6 +12,8 @@ public enum ResponseCode {
     SUCCESS("0000", "成功"),
     UN_ERROR("0001", "未知失败"),
     ILLEGAL_PARAMETER("0002", "非法参数"),
+    CYCLE_DEADLINE_EXCEEDED("0003", "交易循环超出时间预算"),
+    UPSTREAM_CIRCUIT_OPEN("0004", "上游服务熔断中"),
     ;
 
     private String code;